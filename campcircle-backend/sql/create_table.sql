@@ -246,3 +246,131 @@ CREATE TABLE IF NOT EXISTS system_message (
 
 -- 为热度分数添加索引，用于热门排序
 ALTER TABLE post ADD INDEX idx_hot_score (hotScore DESC, createTime DESC);
+
+-- 关注流：按作者拉取大V帖子、按粉丝分批推送
+ALTER TABLE post ADD INDEX idx_userId_createTime (userId, createTime, id);
+ALTER TABLE follow ADD INDEX idx_followUserId_id (followUserId, id);
+
+-- 游标分页：(…, createTime) 联合索引，InnoDB 二级索引隐含主键 id，可直接按 (createTime, id) 做范围扫描
+ALTER TABLE post ADD INDEX idx_public_top_time (isPublic, isTop, createTime);
+ALTER TABLE post ADD INDEX idx_user_top_time (userId, isTop, createTime);
+ALTER TABLE system_message ADD INDEX idx_to_time (toUserId, createTime);
+ALTER TABLE post_comment ADD INDEX idx_post_level_time (postId, level, createTime);
+
+-- 点赞、收藏幂等：(userId, postId) 唯一键，添加前先清理重复记录（保留 id 最小的一条）
+DELETE t1 FROM post_thumb t1 JOIN post_thumb t2
+    ON t1.userId = t2.userId AND t1.postId = t2.postId AND t1.id > t2.id;
+ALTER TABLE post_thumb ADD UNIQUE KEY uk_userId_postId (userId, postId);
+DELETE t1 FROM post_favour t1 JOIN post_favour t2
+    ON t1.userId = t2.userId AND t1.postId = t2.postId AND t1.id > t2.id;
+ALTER TABLE post_favour ADD UNIQUE KEY uk_userId_postId (userId, postId);
+
+-- 帖子 ES 同步发件箱：帖子变更时在同一事务内写入，由中继任务同步到 ES 后删除
+CREATE TABLE IF NOT EXISTS post_es_outbox (
+    id         BIGINT AUTO_INCREMENT COMMENT 'id（同步顺序、ES 外部版本号）' PRIMARY KEY,
+    postId     BIGINT                             NOT NULL COMMENT '帖子 id',
+    createTime DATETIME DEFAULT CURRENT_TIMESTAMP NOT NULL COMMENT '创建时间'
+) COMMENT '帖子 ES 同步发件箱' COLLATE = utf8mb4_unicode_ci;
+
+-- 同步检查点
+CREATE TABLE IF NOT EXISTS sync_checkpoint (
+    name       VARCHAR(64)                        NOT NULL COMMENT '同步任务名' PRIMARY KEY,
+    lastId     BIGINT   DEFAULT 0                 NOT NULL COMMENT '已同步的最大 id',
+    syncCount  BIGINT   DEFAULT 0                 NOT NULL COMMENT '累计同步条数',
+    updateTime DATETIME DEFAULT CURRENT_TIMESTAMP NOT NULL ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间'
+) COMMENT '同步检查点' COLLATE = utf8mb4_unicode_ci;
+
+-- 同步检查点附加信息（全量重建时记录目标索引名）
+ALTER TABLE sync_checkpoint ADD COLUMN extra VARCHAR(256) NULL COMMENT '附加信息';
+
+-- 帖子标签关联：替代对 post.tags（JSON）的 LIKE 匹配
+CREATE TABLE IF NOT EXISTS post_tag (
+    id         BIGINT AUTO_INCREMENT COMMENT 'id' PRIMARY KEY,
+    postId     BIGINT                             NOT NULL COMMENT '帖子 id',
+    tag        VARCHAR(64) COLLATE utf8mb4_bin   NOT NULL COMMENT '标签（区分大小写，与内存标签索引一致）',
+    createTime DATETIME DEFAULT CURRENT_TIMESTAMP NOT NULL COMMENT '创建时间',
+    UNIQUE KEY uk_postId_tag (postId, tag),
+    INDEX idx_tag_postId (tag, postId)
+) COMMENT '帖子标签关联' COLLATE = utf8mb4_unicode_ci;
+
+-- 从 post.tags 回填帖子标签（MySQL 8.0+）
+INSERT IGNORE INTO post_tag (postId, tag)
+SELECT p.id, jt.tag
+FROM post p,
+     JSON_TABLE(p.tags, '$[*]' COLUMNS (tag VARCHAR(64) PATH '$')) jt
+WHERE p.isDelete = 0
+  AND JSON_VALID(p.tags)
+  AND jt.tag IS NOT NULL
+  AND jt.tag != '';
+
+-- 评论回复：按一级评论取前 N 条回复、统计回复数、游标展开回复
+ALTER TABLE post_comment ADD INDEX idx_post_parent_time (postId, parentId, createTime);
+
+-- 私信会话：每对聊天用户各一条，聊天列表按 (ownerId, lastTime) 索引分页
+CREATE TABLE IF NOT EXISTS private_conversation (
+    id              BIGINT AUTO_INCREMENT COMMENT 'id' PRIMARY KEY,
+    ownerId         BIGINT                             NOT NULL COMMENT '会话所有者 id',
+    peerId          BIGINT                             NOT NULL COMMENT '聊天对象 id',
+    lastMessageId   BIGINT   DEFAULT 0                 NOT NULL COMMENT '最后一条消息 id',
+    lastFromUserId  BIGINT                             NULL COMMENT '最后一条消息发送者 id',
+    lastContent     VARCHAR(256)                       NULL COMMENT '最后一条消息内容（截断）',
+    lastMessageType TINYINT  DEFAULT 0                 NOT NULL COMMENT '最后一条消息类型:0文本,1图片',
+    lastIsRecalled  TINYINT  DEFAULT 0                 NOT NULL COMMENT '最后一条消息是否已撤回:0否,1是',
+    lastTime        DATETIME DEFAULT CURRENT_TIMESTAMP NOT NULL COMMENT '最后一条消息时间',
+    unreadCount     INT      DEFAULT 0                 NOT NULL COMMENT '所有者未读数',
+    createTime      DATETIME DEFAULT CURRENT_TIMESTAMP NOT NULL COMMENT '创建时间',
+    updateTime      DATETIME DEFAULT CURRENT_TIMESTAMP NOT NULL ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    UNIQUE KEY uk_owner_peer (ownerId, peerId),
+    INDEX idx_owner_time (ownerId, lastTime),
+    INDEX idx_lastMessageId (lastMessageId)
+) COMMENT '私信会话' COLLATE = utf8mb4_unicode_ci;
+
+-- 从历史私信回填会话
+INSERT INTO private_conversation (ownerId, peerId, lastMessageId, lastFromUserId, lastContent, lastMessageType,
+                                  lastIsRecalled, lastTime, unreadCount)
+SELECT t.ownerId, t.peerId, m.id, m.fromUserId, LEFT(m.content, 256), IFNULL(m.messageType, 0),
+       IFNULL(m.isRecalled, 0), m.createTime,
+       (SELECT COUNT(*) FROM private_message u WHERE u.fromUserId = t.peerId AND u.toUserId = t.ownerId AND u.isRead = 0)
+FROM (SELECT a.ownerId, a.peerId, MAX(a.id) AS lastId
+      FROM (SELECT fromUserId AS ownerId, toUserId AS peerId, id FROM private_message
+            UNION ALL
+            SELECT toUserId AS ownerId, fromUserId AS peerId, id FROM private_message) a
+      GROUP BY a.ownerId, a.peerId) t
+         JOIN private_message m ON m.id = t.lastId
+ON DUPLICATE KEY UPDATE lastMessageId = lastMessageId;
+
+-- 系统消息未读数：按 (接收用户, 状态, 类型) 分组统计，走覆盖索引
+ALTER TABLE system_message ADD INDEX idx_to_status_type (toUserId, status, type);
+
+-- 全局消息已读水位：全局消息只存一行（toUserId = 0），每个用户记录已读到的最大全局消息 id
+CREATE TABLE IF NOT EXISTS system_message_watermark (
+    userId           BIGINT                             NOT NULL COMMENT '用户 id' PRIMARY KEY,
+    lastReadGlobalId BIGINT   DEFAULT 0                 NOT NULL COMMENT '已读的最大全局消息 id',
+    updateTime       DATETIME DEFAULT CURRENT_TIMESTAMP NOT NULL ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间'
+) COMMENT '全局消息已读水位' COLLATE = utf8mb4_unicode_ci;
+
+-- 全局消息的接收用户改为 0，与个人消息一起按 (toUserId, createTime) 索引查询收件箱
+UPDATE system_message SET toUserId = 0 WHERE isGlobal = 1;
+
+-- 点赞、收藏、关注通知按 (接收用户, 类型, 帖子) 聚合，未读的聚合通知原地累加
+ALTER TABLE system_message ADD COLUMN aggregateCount INT DEFAULT 1 NOT NULL COMMENT '聚合的事件数' AFTER commentId;
+
+-- 热度计算：按发布时间定位窗口内最小的帖子 id，避免从 id 0 开始扫描
+ALTER TABLE post ADD INDEX idx_status_time_id (status, createTime, id);
+
+-- 帖子标签区分大小写：与内存标签索引的精确匹配一致（已按 utf8mb4_unicode_ci 建表时执行）
+ALTER TABLE post_tag MODIFY tag VARCHAR(64) CHARACTER SET utf8mb4 COLLATE utf8mb4_bin NOT NULL COMMENT '标签（区分大小写，与内存标签索引一致）';
+
+-- 计数写回批次标记：与计数增量同一事务写入，超时未确认的批次据此判断是否已写库，避免重复写入
+CREATE TABLE IF NOT EXISTS counter_flush_batch (
+    batchId    VARCHAR(64)                        NOT NULL COMMENT '写回批次号' PRIMARY KEY,
+    status     TINYINT  DEFAULT 0                 NOT NULL COMMENT '0-已写库 1-已放回',
+    createTime DATETIME DEFAULT CURRENT_TIMESTAMP NOT NULL COMMENT '创建时间',
+    INDEX idx_createTime (createTime)
+) COMMENT '计数写回批次标记' COLLATE = utf8mb4_unicode_ci;
+
+-- 聚合通知去重：未读期间 (接收用户, 类型, 帖子) 唯一，锁模式为 local 的多个节点并发写回时由唯一键合并（MySQL 5.7+）
+ALTER TABLE system_message
+    ADD COLUMN aggregateKey VARCHAR(64) NULL COMMENT '聚合键（接收用户:类型:帖子），只有聚合通知有值' AFTER aggregateCount,
+    ADD COLUMN unreadAggregateKey VARCHAR(64) AS (IF(status = 0 AND isDelete = 0, aggregateKey, NULL)) VIRTUAL COMMENT '未读聚合通知的聚合键',
+    ADD UNIQUE KEY uk_unreadAggregateKey (unreadAggregateKey);
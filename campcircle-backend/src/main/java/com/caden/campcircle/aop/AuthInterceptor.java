@@ -1,13 +1,11 @@
 package com.caden.campcircle.aop;
 
 import com.caden.campcircle.annotation.AuthCheck;
+import com.caden.campcircle.auth.LoginPrincipal;
+import com.caden.campcircle.auth.TokenAuthFilter;
 import com.caden.campcircle.common.ErrorCode;
 import com.caden.campcircle.exception.BusinessException;
-import com.caden.campcircle.model.entity.User;
 import com.caden.campcircle.model.enums.UserRoleEnum;
-import com.caden.campcircle.service.UserService;
-import com.caden.campcircle.utils.JwtUtils;
-import org.apache.commons.lang3.StringUtils;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
@@ -29,10 +27,7 @@ import javax.servlet.http.HttpServletRequest;
 public class AuthInterceptor {
 
     @Resource
-    private UserService userService;
-
-    @Resource
-    private JwtUtils jwtUtils;
+    private TokenAuthFilter tokenAuthFilter;
 
     /**
      * 执行拦截
@@ -47,17 +42,12 @@ public class AuthInterceptor {
         RequestAttributes requestAttributes = RequestContextHolder.currentRequestAttributes();
         HttpServletRequest request = ((ServletRequestAttributes) requestAttributes).getRequest();
 
-        // 获取token
-        String token = request.getHeader("Authorization");
-        if (StringUtils.isBlank(token)) {
-            throw new BusinessException(ErrorCode.NOT_LOGIN_ERROR);
-        }
-
-        // 验证token并获取用户角色
-        String userRole = jwtUtils.getUserRoleFromToken(token);
-        if (userRole == null) {
+        // 读取过滤器解析好的登录主体
+        LoginPrincipal loginPrincipal = tokenAuthFilter.resolve(request);
+        if (loginPrincipal == null || loginPrincipal.getUserRole() == null) {
             throw new BusinessException(ErrorCode.NOT_LOGIN_ERROR);
         }
+        String userRole = loginPrincipal.getUserRole();
 
         UserRoleEnum mustRoleEnum = UserRoleEnum.getEnumByValue(mustRole);
         // 不需要权限，放行
@@ -1,5 +1,7 @@
 package com.caden.campcircle.aop;
 
+import com.caden.campcircle.manager.loader.PostBatchLoader;
+import com.caden.campcircle.manager.loader.PostBatchLoaderManager;
 import java.util.UUID;
 import javax.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
@@ -49,6 +51,12 @@ public class LogInterceptor {
         stopWatch.stop();
         long totalTimeMillis = stopWatch.getTotalTimeMillis();
         log.info("request end, id: {}, cost: {}ms", requestId, totalTimeMillis);
+        // 输出请求内批量加载统计
+        PostBatchLoader postBatchLoader = PostBatchLoaderManager.peekLoader(httpServletRequest);
+        if (postBatchLoader != null) {
+            log.info("request batch load, id: {}, picture queries: {}, pictures loaded: {}", requestId,
+                    postBatchLoader.getPictureQueryCount(), postBatchLoader.getPictureLoadCount());
+        }
         return result;
     }
 }
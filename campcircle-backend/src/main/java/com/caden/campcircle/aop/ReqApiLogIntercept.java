@@ -2,9 +2,9 @@ package com.caden.campcircle.aop;
 
 import cn.hutool.json.JSONUtil;
 import com.caden.campcircle.annotation.ApiLog;
-import com.caden.campcircle.model.entity.User;
+import com.caden.campcircle.auth.LoginPrincipal;
+import com.caden.campcircle.auth.TokenAuthFilter;
 import com.caden.campcircle.service.ApiRequestLogService;
-import com.caden.campcircle.service.UserService;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
@@ -39,7 +39,7 @@ public class ReqApiLogIntercept {
     private ApiRequestLogService apiRequestLogService;
 
     @Resource
-    private UserService userService;
+    private TokenAuthFilter tokenAuthFilter;
 
     /**
      * 定义切点1：拦截所有Controller层的方法
@@ -161,8 +161,9 @@ public class ReqApiLogIntercept {
      */
     private Long getCurrentUserId(HttpServletRequest request) {
         try {
-            User loginUser = userService.getLoginUserPermitNull(request);
-            return loginUser != null ? loginUser.getId() : null;
+            // 只需要用户 id，直接取登录主体，不加载用户
+            LoginPrincipal loginPrincipal = tokenAuthFilter.resolve(request);
+            return loginPrincipal != null ? loginPrincipal.getUserId() : null;
         } catch (Exception e) {
             return null;
         }
@@ -0,0 +1,51 @@
+package com.caden.campcircle.auth;
+
+import com.caden.campcircle.model.entity.User;
+import java.io.Serializable;
+import lombok.Data;
+
+/**
+ * 当前请求的登录主体
+ * <p>
+ * 由 {@link TokenAuthFilter} 在请求入口解析令牌后挂到请求属性上，同一请求内的鉴权、日志、业务代码共用，
+ * user 在第一次需要时才从用户缓存加载。
+ */
+@Data
+public class LoginPrincipal implements Serializable {
+
+    /**
+     * 请求属性名
+     */
+    public static final String REQUEST_ATTRIBUTE_NAME = LoginPrincipal.class.getName();
+
+    /**
+     * 用户 id
+     */
+    private Long userId;
+
+    /**
+     * 令牌中的用户角色
+     */
+    private String userRole;
+
+    /**
+     * 令牌过期时间（毫秒时间戳）
+     */
+    private Long expireTime;
+
+    /**
+     * 用户实体（懒加载）
+     */
+    private transient User user;
+
+    private static final long serialVersionUID = 1L;
+
+    public LoginPrincipal() {
+    }
+
+    public LoginPrincipal(Long userId, String userRole, Long expireTime) {
+        this.userId = userId;
+        this.userRole = userRole;
+        this.expireTime = expireTime;
+    }
+}
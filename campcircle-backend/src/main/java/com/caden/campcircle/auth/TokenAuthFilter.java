@@ -0,0 +1,129 @@
+package com.caden.campcircle.auth;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import cn.hutool.crypto.digest.DigestUtil;
+import com.caden.campcircle.utils.JwtUtils;
+import io.jsonwebtoken.Claims;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * 令牌解析过滤器
+ * <p>
+ * 每个请求只校验一次令牌，把登录主体挂到请求属性上；最近校验通过的令牌按摘要缓存在本地 LRU 中，
+ * 同一令牌的后续请求不再做签名校验。过滤器本身不拦截请求，是否需要登录由接口自行判断。
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class TokenAuthFilter extends OncePerRequestFilter {
+
+    /**
+     * 令牌请求头
+     */
+    public static final String TOKEN_HEADER = "Authorization";
+
+    /**
+     * 请求已解析但未登录的标记
+     */
+    private static final String ANONYMOUS_ATTRIBUTE_NAME = TokenAuthFilter.class.getName() + ".ANONYMOUS";
+
+    @Resource
+    private JwtUtils jwtUtils;
+
+    @Value("${campcircle.auth.token-cache-capacity:4096}")
+    private int tokenCacheCapacity;
+
+    @Value("${campcircle.auth.token-cache-expire-seconds:600}")
+    private long tokenCacheExpireSeconds;
+
+    /**
+     * 令牌摘要 -> 登录主体（不含 user）
+     */
+    private LRUCache<String, LoginPrincipal> verifiedTokenCache;
+
+    @PostConstruct
+    public void init() {
+        verifiedTokenCache = CacheUtil.newLRUCache(tokenCacheCapacity, TimeUnit.SECONDS.toMillis(tokenCacheExpireSeconds));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        resolve(request);
+        filterChain.doFilter(request, response);
+    }
+
+    /**
+     * 获取当前请求的登录主体，未登录或令牌无效返回 null
+     * <p>
+     * 过滤器未执行的场景（如 WebSocket 握手、单元测试）也可直接调用，结果同样缓存在请求属性中。
+     *
+     * @param request
+     * @return
+     */
+    public LoginPrincipal resolve(HttpServletRequest request) {
+        if (request == null) {
+            return null;
+        }
+        Object principal = request.getAttribute(LoginPrincipal.REQUEST_ATTRIBUTE_NAME);
+        if (principal instanceof LoginPrincipal) {
+            return (LoginPrincipal) principal;
+        }
+        if (request.getAttribute(ANONYMOUS_ATTRIBUTE_NAME) != null) {
+            return null;
+        }
+        LoginPrincipal loginPrincipal = verify(request.getHeader(TOKEN_HEADER));
+        if (loginPrincipal == null) {
+            request.setAttribute(ANONYMOUS_ATTRIBUTE_NAME, Boolean.TRUE);
+            return null;
+        }
+        request.setAttribute(LoginPrincipal.REQUEST_ATTRIBUTE_NAME, loginPrincipal);
+        return loginPrincipal;
+    }
+
+    /**
+     * 校验令牌，命中摘要缓存时跳过签名校验
+     *
+     * @param token
+     * @return 新的登录主体实例，令牌无效返回 null
+     */
+    private LoginPrincipal verify(String token) {
+        if (StringUtils.isBlank(token)) {
+            return null;
+        }
+        String digest = DigestUtil.sha256Hex(token);
+        long now = System.currentTimeMillis();
+        LoginPrincipal cached = verifiedTokenCache.get(digest, false);
+        if (cached != null && cached.getExpireTime() != null && cached.getExpireTime() > now) {
+            return new LoginPrincipal(cached.getUserId(), cached.getUserRole(), cached.getExpireTime());
+        }
+        Claims claims = jwtUtils.validateToken(token);
+        if (claims == null || !(claims.get("userId") instanceof Number)) {
+            return null;
+        }
+        Long userId = ((Number) claims.get("userId")).longValue();
+        String userRole = (String) claims.get("userRole");
+        Long expireTime = claims.getExpiration() == null ? null : claims.getExpiration().getTime();
+        if (expireTime != null) {
+            // 缓存时间不超过令牌剩余有效期
+            long timeout = Math.min(TimeUnit.SECONDS.toMillis(tokenCacheExpireSeconds), expireTime - now);
+            if (timeout > 0) {
+                verifiedTokenCache.put(digest, new LoginPrincipal(userId, userRole, expireTime), timeout);
+            }
+        }
+        return new LoginPrincipal(userId, userRole, expireTime);
+    }
+}
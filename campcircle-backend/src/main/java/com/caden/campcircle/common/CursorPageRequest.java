@@ -0,0 +1,25 @@
+package com.caden.campcircle.common;
+
+import java.io.Serializable;
+import lombok.Data;
+
+/**
+ * 游标分页请求
+ * <p>
+ * 第一页不传 cursor，之后传上一页返回的 nextCursor；不统计总数。
+ */
+@Data
+public class CursorPageRequest implements Serializable {
+
+    /**
+     * 游标（上一页返回的 nextCursor）
+     */
+    private String cursor;
+
+    /**
+     * 页面大小
+     */
+    private int pageSize = 10;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -30,4 +30,9 @@ public class PageRequest {
      * 排序顺序（默认升序）
      */
     private String sortOrder = CommonConstant.SORT_ORDER_ASC;
+
+    /**
+     * 游标（仅游标分页接口使用，第一页不传；游标模式下忽略 current 和排序字段）
+     */
+    private String cursor;
 }
@@ -58,6 +58,43 @@ public class AsyncConfig implements AsyncConfigurer {
         return executor;
     }
 
+    /**
+     * Redis 发布订阅消息分发执行器
+     * <p>
+     * 单线程按到达顺序分发，保证同一用户的推送帧、同一对象的失效消息不乱序；监听器只做入队或转交，不做耗时操作。
+     * 队列满（分发严重积压）时由订阅线程自己执行，对订阅连接形成背压、不丢失缓存失效等消息，此时不再保证顺序
+     */
+    @Bean("redisListenerExecutor")
+    public Executor redisListenerExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(10000);
+        executor.setThreadNamePrefix("redis-listener-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * WebSocket 出站发送执行器
+     * <p>
+     * 每个连接同一时刻最多占用一个线程，慢连接只积压自己的发送队列，不阻塞请求线程；
+     * 队列满时拒绝，帧留在连接的发送队列中等待下次调度
+     */
+    @Bean("wsOutboundExecutor")
+    public Executor wsOutboundExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(16);
+        executor.setQueueCapacity(10000);
+        executor.setThreadNamePrefix("ws-outbound-");
+        executor.setKeepAliveSeconds(60);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+
     @Override
     public Executor getAsyncExecutor() {
         return taskExecutor();
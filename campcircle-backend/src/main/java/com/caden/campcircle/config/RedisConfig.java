@@ -0,0 +1,31 @@
+package com.caden.campcircle.config;
+
+import java.util.concurrent.Executor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * Redis 配置
+ *
+ * 提供发布订阅监听容器，用于多节点之间广播缓存失效等消息
+ */
+@Configuration
+public class RedisConfig {
+
+    /**
+     * Redis 消息监听容器
+     * <p>
+     * 不指定执行器时每条消息新建一个线程分发，消息数不受控且同一频道的消息可能乱序，这里使用单线程的有界执行器
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory redisConnectionFactory,
+            @Qualifier("redisListenerExecutor") Executor redisListenerExecutor) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        container.setTaskExecutor(redisListenerExecutor);
+        return container;
+    }
+}
@@ -0,0 +1,77 @@
+package com.caden.campcircle.constant;
+
+/**
+ * 计数常量
+ */
+public interface CounterConstant {
+
+    /**
+     * 帖子待写回计数增量（HASH）前缀
+     */
+    String POST_PENDING_KEY_PREFIX = "counter:pending:post:";
+
+    /**
+     * 用户待写回计数增量（HASH）前缀
+     */
+    String USER_PENDING_KEY_PREFIX = "counter:pending:user:";
+
+    /**
+     * 有待写回增量的帖子 id（SET）
+     */
+    String POST_DIRTY_KEY = "counter:dirty:post";
+
+    /**
+     * 有待写回增量的用户 id（SET）
+     */
+    String USER_DIRTY_KEY = "counter:dirty:user";
+
+    /**
+     * 帖子写回中的增量（HASH，字段为 id:计数字段）前缀，后接批次号
+     */
+    String POST_INFLIGHT_KEY_PREFIX = "counter:inflight:post:";
+
+    /**
+     * 用户写回中的增量（HASH，字段为 id:计数字段）前缀，后接批次号
+     */
+    String USER_INFLIGHT_KEY_PREFIX = "counter:inflight:user:";
+
+    /**
+     * 帖子写回中的批次（ZSET，分数为取出时间）
+     */
+    String POST_INFLIGHT_BATCH_KEY = "counter:inflight:post";
+
+    /**
+     * 用户写回中的批次（ZSET，分数为取出时间）
+     */
+    String USER_INFLIGHT_BATCH_KEY = "counter:inflight:user";
+
+    /**
+     * 帖子点赞数
+     */
+    String POST_THUMB_NUM = "thumbNum";
+
+    /**
+     * 帖子收藏数
+     */
+    String POST_FAVOUR_NUM = "favourNum";
+
+    /**
+     * 帖子评论数
+     */
+    String POST_COMMENT_NUM = "commentNum";
+
+    /**
+     * 用户获赞数
+     */
+    String USER_RECEIVED_THUMB_NUM = "receivedThumbNum";
+
+    /**
+     * 用户关注数
+     */
+    String USER_FOLLOW_NUM = "followNum";
+
+    /**
+     * 用户粉丝数
+     */
+    String USER_FANS_NUM = "fansNum";
+}
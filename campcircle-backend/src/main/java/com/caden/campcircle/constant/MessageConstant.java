@@ -109,6 +109,40 @@ public interface MessageConstant {
      */
     Long SYSTEM_MESSAGE_FROM_SYSTEM = 0L;
 
+    // ==================== 系统消息未读计数常量 ====================
+
+    /**
+     * 用户系统消息未读数 HASH 前缀，字段为消息类型
+     */
+    String SYSTEM_MESSAGE_UNREAD_KEY_PREFIX = "message:system:unread:";
+
+    /**
+     * 未读数有变化、待与数据库核对的用户集合
+     */
+    String SYSTEM_MESSAGE_UNREAD_DIRTY_KEY = "message:system:unread:dirty";
+
+    /**
+     * 全局消息增删广播频道，各节点收到后刷新缓存的全局消息 id
+     */
+    String SYSTEM_MESSAGE_GLOBAL_CHANGED_CHANNEL = "message:global:changed";
+
+    // ==================== 系统消息聚合常量 ====================
+
+    /**
+     * 待聚合通知 HASH 前缀，后接 toUserId:type:postId
+     */
+    String NOTIFICATION_AGGREGATE_KEY_PREFIX = "message:aggregate:";
+
+    /**
+     * 有待聚合通知的 toUserId:type:postId 集合
+     */
+    String NOTIFICATION_AGGREGATE_DIRTY_KEY = "message:aggregate:dirty";
+
+    /**
+     * 聚合通知写库锁
+     */
+    String NOTIFICATION_AGGREGATE_FLUSH_LOCK_KEY = "message:aggregate:flush";
+
     // ==================== 系统消息文字常量 ====================
 
     /**
@@ -121,6 +155,11 @@ public interface MessageConstant {
      */
     String THUMB_NOTIFICATION_CONTENT = "赞了您的帖子";
 
+    /**
+     * 点赞聚合通知内容
+     */
+    String THUMB_NOTIFICATION_AGGREGATE_CONTENT = "等 %d 人赞了您的帖子";
+
     /**
      * 收藏通知标题
      */
@@ -131,6 +170,11 @@ public interface MessageConstant {
      */
     String FAVOUR_NOTIFICATION_CONTENT = "收藏了您的帖子";
 
+    /**
+     * 收藏聚合通知内容
+     */
+    String FAVOUR_NOTIFICATION_AGGREGATE_CONTENT = "等 %d 人收藏了您的帖子";
+
     /**
      * 评论通知标题
      */
@@ -150,4 +194,9 @@ public interface MessageConstant {
      * 关注通知内容
      */
     String FOLLOW_NOTIFICATION_CONTENT = "关注了您";
+
+    /**
+     * 关注聚合通知内容
+     */
+    String FOLLOW_NOTIFICATION_AGGREGATE_CONTENT = "等 %d 人关注了您";
 }
@@ -0,0 +1,72 @@
+package com.caden.campcircle.constant;
+
+/**
+ * 帖子常量
+ */
+public interface PostConstant {
+
+    /**
+     * 实时热榜（ZSET，member 为帖子 id，score 为前向衰减后的热度）
+     */
+    String HOT_RANK_KEY = "post:hot:rank";
+
+    /**
+     * 热榜帖子发布时间（ZSET，score 为发布时间毫秒数），用于裁剪窗口外的帖子
+     */
+    String HOT_RANK_CREATE_TIME_KEY = "post:hot:create_time";
+
+    /**
+     * 热榜衰减基准时间（毫秒数）
+     */
+    String HOT_RANK_EPOCH_KEY = "post:hot:epoch";
+
+    /**
+     * 自上次热度计算后有互动的帖子（SET），供热度计算任务增量处理
+     */
+    String HOT_SCORE_DIRTY_KEY = "post:hot:dirty";
+
+    /**
+     * 热度计算任务正在处理的脏帖子快照（SET），任务失败时下次合并重试
+     */
+    String HOT_SCORE_DIRTY_PROCESSING_KEY = "post:hot:dirty:processing";
+
+    /**
+     * 帖子访客去重集合前缀（SET，按窗口分桶），完整 key 为 前缀 + 帖子 id + ":" + 窗口序号
+     */
+    String VIEW_VISITOR_KEY_PREFIX = "post:view:visitor:";
+
+    /**
+     * 帖子实体缓存前缀（STRING，JSON）
+     */
+    String POST_CACHE_KEY_PREFIX = "post:cache:";
+
+    /**
+     * 帖子评论首页缓存前缀（STRING，版本号:JSON）
+     */
+    String COMMENT_PAGE_CACHE_KEY_PREFIX = "post:comment:page:";
+
+    /**
+     * 帖子评论版本号前缀（STRING，每次评论增删自增），用于拒绝过期的缓存回填
+     */
+    String COMMENT_VERSION_KEY_PREFIX = "post:comment:ver:";
+
+    /**
+     * 点赞热度权重
+     */
+    double HOT_WEIGHT_THUMB = 3;
+
+    /**
+     * 收藏热度权重
+     */
+    double HOT_WEIGHT_FAVOUR = 4;
+
+    /**
+     * 评论热度权重
+     */
+    double HOT_WEIGHT_COMMENT = 5;
+
+    /**
+     * 浏览热度权重
+     */
+    double HOT_WEIGHT_VIEW = 1;
+}
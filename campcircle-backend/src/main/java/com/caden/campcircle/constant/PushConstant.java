@@ -0,0 +1,32 @@
+package com.caden.campcircle.constant;
+
+/**
+ * 实时推送常量
+ */
+public interface PushConstant {
+
+    /**
+     * 用户推送频道前缀，完整频道为 前缀 + 用户 id，由持有该用户连接的节点订阅
+     */
+    String USER_CHANNEL_PREFIX = "ws:push:user:";
+
+    /**
+     * 全体在线用户推送频道（全局通知），所有节点订阅
+     */
+    String BROADCAST_CHANNEL = "ws:push:broadcast";
+
+    /**
+     * 推送类型 - 私信
+     */
+    String TYPE_PRIVATE_MESSAGE = "private_message";
+
+    /**
+     * 推送类型 - 私信撤回
+     */
+    String TYPE_PRIVATE_MESSAGE_RECALL = "private_message_recall";
+
+    /**
+     * 推送类型 - 系统通知
+     */
+    String TYPE_NOTIFICATION = "notification";
+}
@@ -0,0 +1,34 @@
+package com.caden.campcircle.constant;
+
+/**
+ * 用户关系缓存常量
+ */
+public interface RelationConstant {
+
+    /**
+     * 关系集合 key 前缀（SET，member 为目标 id），完整 key 为 前缀 + 关系类型 + ":" + 用户 id
+     */
+    String RELATION_KEY_PREFIX = "rel:";
+
+    /**
+     * 关系集合占位成员，保证已预热但为空的集合也存在
+     */
+    String RELATION_PLACEHOLDER = "0";
+
+    /**
+     * 集合未预热期间发生过变更的标记后缀，存在时放弃本次预热，避免写入过期快照
+     */
+    String RELATION_CHANGED_SUFFIX = ":changed";
+
+    /**
+     * 关系数超过缓存上限的标记后缀，存在期间不再预热，避免每次读取都全量加载
+     */
+    String RELATION_TOO_LARGE_SUFFIX = ":large";
+
+    /**
+     * 关系布隆过滤器 key 前缀，完整前缀为 前缀 + 关系类型 + ":" + 用户 id，
+     * 其后 ":meta" 为元数据（HASH），":" + 分片序号 为位数组，":recent" 为最近新增（ZSET，重建时补录），
+     * ":disabled" 为停用标记（关系数超过加载上限时设置，存在期间不使用过滤器）
+     */
+    String BLOOM_KEY_PREFIX = "rel:bloom:";
+}
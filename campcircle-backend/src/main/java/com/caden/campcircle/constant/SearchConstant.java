@@ -0,0 +1,27 @@
+package com.caden.campcircle.constant;
+
+/**
+ * 搜索常量
+ */
+public interface SearchConstant {
+
+    /**
+     * 本地索引变更广播频道，消息为 类型:id，如 post:123
+     */
+    String LOCAL_INDEX_CHANGE_CHANNEL = "search:local:change";
+
+    /**
+     * 帖子索引
+     */
+    String POST_INDEX = "post";
+
+    /**
+     * 用户索引
+     */
+    String USER_INDEX = "user";
+
+    /**
+     * 标签索引变更广播频道，消息为帖子 id
+     */
+    String TAG_INDEX_CHANGE_CHANNEL = "search:tag:change";
+}
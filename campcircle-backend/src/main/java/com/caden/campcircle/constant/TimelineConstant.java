@@ -0,0 +1,22 @@
+package com.caden.campcircle.constant;
+
+/**
+ * 关注流（时间线）常量
+ */
+public interface TimelineConstant {
+
+    /**
+     * 收件箱 key 前缀（ZSET，member 为帖子 id，score 为发布时间毫秒数）
+     */
+    String INBOX_KEY_PREFIX = "feed:inbox:";
+
+    /**
+     * 收件箱占位成员，保证已构建但为空的收件箱也存在
+     */
+    String INBOX_PLACEHOLDER = "0";
+
+    /**
+     * 收件箱已截断标记：裁剪过或重建时达到上限，更早的帖子不在收件箱中，读到末尾时需要回源数据库
+     */
+    String INBOX_TRUNCATED_MARKER = "-1";
+}
@@ -43,4 +43,14 @@ public interface UserConstant {
      * 我的点赞帖子数量key前缀
      */
     String THUMB_POST_NUM_KEY_PREFIX = "user:thumb_post_num:";
+
+    /**
+     * 用户实体缓存key前缀
+     */
+    String USER_CACHE_KEY_PREFIX = "user:entity:";
+
+    /**
+     * 用户缓存失效广播频道
+     */
+    String USER_CACHE_INVALIDATE_CHANNEL = "user:cache:invalidate";
 }
@@ -3,6 +3,8 @@ package com.caden.campcircle.controller;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.caden.campcircle.common.BaseResponse;
+import com.caden.campcircle.common.CursorPage;
+import com.caden.campcircle.common.CursorPageRequest;
 import com.caden.campcircle.common.ErrorCode;
 import com.caden.campcircle.common.PageRequest;
 import com.caden.campcircle.common.ResultUtils;
@@ -14,6 +16,7 @@ import com.caden.campcircle.model.vo.UserStatisticsVO;
 import com.caden.campcircle.model.vo.FollowVO;
 import com.caden.campcircle.model.vo.PostVO;
 import com.caden.campcircle.service.FollowService;
+import com.caden.campcircle.service.TimelineService;
 import com.caden.campcircle.service.UserService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -42,6 +45,9 @@ public class FollowController {
     @Resource
     private UserService userService;
 
+    @Resource
+    private TimelineService timelineService;
+
     /**
      * 关注/取消关注用户
      *
@@ -215,4 +221,23 @@ public class FollowController {
     public BaseResponse<UserStatisticsVO> getUserFollowNum(@RequestParam @ApiParam(value = "用户ID", required = true) Long userId) {
         return getUserStatistics(userId);
     }
-}
\ No newline at end of file
+
+    /**
+     * 游标分页获取关注流（推拉结合时间线）
+     *
+     * @param cursorPageRequest 游标分页请求
+     * @param request
+     * @return
+     */
+    @GetMapping("/my/follow/post/feed")
+    @ApiOperation(value = "获取关注流", notes = "按游标获取关注用户的帖子，第一页不传 cursor")
+    public BaseResponse<CursorPage<PostVO>> listMyFollowFeed(CursorPageRequest cursorPageRequest, HttpServletRequest request) {
+        if (cursorPageRequest == null || cursorPageRequest.getPageSize() < 1) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR);
+        }
+        if (cursorPageRequest.getPageSize() > 20) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "参数错误，不能超过20条");
+        }
+        return ResultUtils.success(timelineService.listFollowFeed(cursorPageRequest, request));
+    }
+}
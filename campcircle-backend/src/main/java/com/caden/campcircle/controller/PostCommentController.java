@@ -2,6 +2,7 @@ package com.caden.campcircle.controller;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.caden.campcircle.common.BaseResponse;
+import com.caden.campcircle.common.CursorPage;
 import com.caden.campcircle.common.ErrorCode;
 import com.caden.campcircle.common.ResultUtils;
 import com.caden.campcircle.exception.BusinessException;
@@ -88,4 +89,29 @@ public class PostCommentController {
         Page<PostCommentVO> commentVOPage = postCommentService.listCommentByPage(postCommentQueryRequest);
         return ResultUtils.success(commentVOPage);
     }
-}
\ No newline at end of file
+
+    /**
+     * 游标分页获取评论列表
+     */
+    @GetMapping("/list/cursor")
+    public BaseResponse<CursorPage<PostCommentVO>> listCommentByCursor(PostCommentQueryRequest postCommentQueryRequest) {
+        if (postCommentQueryRequest == null || postCommentQueryRequest.getPostId() == null
+                || postCommentQueryRequest.getPageSize() < 1 || postCommentQueryRequest.getPageSize() > 50) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR);
+        }
+        return ResultUtils.success(postCommentService.listCommentByCursor(postCommentQueryRequest));
+    }
+
+    /**
+     * 游标分页展开一级评论的回复
+     */
+    @GetMapping("/reply/list/cursor")
+    public BaseResponse<CursorPage<PostCommentVO>> listReplyByCursor(PostCommentQueryRequest postCommentQueryRequest) {
+        if (postCommentQueryRequest == null || postCommentQueryRequest.getPostId() == null
+                || postCommentQueryRequest.getParentId() == null
+                || postCommentQueryRequest.getPageSize() < 1 || postCommentQueryRequest.getPageSize() > 50) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR);
+        }
+        return ResultUtils.success(postCommentService.listReplyByCursor(postCommentQueryRequest));
+    }
+}
@@ -7,14 +7,18 @@ import com.caden.campcircle.common.*;
 import com.caden.campcircle.constant.UserConstant;
 import com.caden.campcircle.exception.BusinessException;
 import com.caden.campcircle.exception.ThrowUtils;
+import com.caden.campcircle.manager.HotPostRankManager;
+import com.caden.campcircle.manager.PostViewManager;
 import com.caden.campcircle.model.dto.post.*;
 import com.caden.campcircle.model.entity.Post;
 import com.caden.campcircle.model.entity.User;
 import com.caden.campcircle.model.vo.HotPostVO;
 import com.caden.campcircle.model.vo.MyPostNumVO;
 import com.caden.campcircle.model.vo.PostVO;
+import com.caden.campcircle.model.vo.TagCountVO;
 import com.caden.campcircle.model.vo.UserVO;
 import com.caden.campcircle.service.PostService;
+import com.caden.campcircle.service.TimelineService;
 import com.caden.campcircle.service.UserService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -46,6 +50,15 @@ public class PostController {
     @Resource
     private UserService userService;
 
+    @Resource
+    private TimelineService timelineService;
+
+    @Resource
+    private HotPostRankManager hotPostRankManager;
+
+    @Resource
+    private PostViewManager postViewManager;
+
     // region 增删改查
 
     /**
@@ -82,6 +95,8 @@ public class PostController {
         boolean result = postService.save(post);
         ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
         long newPostId = post.getId();
+        // 推送到粉丝的关注流收件箱
+        timelineService.publishPost(newPostId);
         return ResultUtils.success(newPostId);
     }
 
@@ -107,6 +122,9 @@ public class PostController {
             throw new BusinessException(ErrorCode.NO_AUTH_ERROR);
         }
         boolean b = postService.removeById(id);
+        if (b) {
+            hotPostRankManager.remove(id);
+        }
         return ResultUtils.success(b);
     }
 
@@ -173,7 +191,15 @@ public class PostController {
             }
         }
 
-        return ResultUtils.success(postService.getPostVO(post, request));
+        postViewManager.recordView(post, loginUser, request);
+        PostVO postVO = postService.getPostVO(post, request);
+        // 加上尚未写回数据库的浏览量
+        long pendingViewNum = postViewManager.getPendingViewNum(id);
+        if (pendingViewNum > 0) {
+            int viewNum = postVO.getViewNum() == null ? 0 : postVO.getViewNum();
+            postVO.setViewNum((int) (viewNum + pendingViewNum));
+        }
+        return ResultUtils.success(postVO);
     }
 
     /**
@@ -243,6 +269,45 @@ public class PostController {
         return ResultUtils.success(postService.getPostVOPage(postPage, request));
     }
 
+    /**
+     * 游标分页获取列表（封装类），不返回总数，适合小程序下拉加载
+     *
+     * @param postQueryRequest
+     * @param request
+     * @return
+     */
+    @PostMapping("/list/cursor/vo")
+    public BaseResponse<CursorPage<PostVO>> listPostVOByCursor(@RequestBody PostQueryRequest postQueryRequest,
+            HttpServletRequest request) {
+        // 限制爬虫
+        ThrowUtils.throwIf(postQueryRequest.getPageSize() < 1 || postQueryRequest.getPageSize() > 20, ErrorCode.PARAMS_ERROR);
+        // 如果不是管理员，只能查看公开的帖子
+        if (!userService.isAdmin(request)) {
+            postQueryRequest.setIsPublic(1);
+        }
+        return ResultUtils.success(postService.listPostVOByCursor(postQueryRequest, request));
+    }
+
+    /**
+     * 游标分页获取当前用户创建的资源列表
+     *
+     * @param postQueryRequest
+     * @param request
+     * @return
+     */
+    @PostMapping("/my/list/cursor/vo")
+    public BaseResponse<CursorPage<PostVO>> listMyPostVOByCursor(@RequestBody PostQueryRequest postQueryRequest,
+            HttpServletRequest request) {
+        if (postQueryRequest == null) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR);
+        }
+        User loginUser = userService.getLoginUser(request);
+        postQueryRequest.setUserId(loginUser.getId());
+        // 限制爬虫
+        ThrowUtils.throwIf(postQueryRequest.getPageSize() < 1 || postQueryRequest.getPageSize() > 20, ErrorCode.PARAMS_ERROR);
+        return ResultUtils.success(postService.listPostVOByCursor(postQueryRequest, request));
+    }
+
     // endregion
 
     /**
@@ -270,6 +335,26 @@ public class PostController {
         return ResultUtils.success(postService.getPostVOPage(postPage, request));
     }
 
+    /**
+     * 从 ES 游标分页搜索（深分页）
+     *
+     * @param postQueryRequest
+     * @param request
+     * @return
+     */
+    @PostMapping("/search/cursor/vo")
+    public BaseResponse<CursorPage<PostVO>> searchPostVOByCursor(@RequestBody PostQueryRequest postQueryRequest,
+            HttpServletRequest request) {
+        // 限制爬虫
+        ThrowUtils.throwIf(postQueryRequest.getPageSize() < 1 || postQueryRequest.getPageSize() > 20, ErrorCode.PARAMS_ERROR);
+        // 如果不是管理员，只能搜索公开的帖子
+        User loginUser = userService.getLoginUserPermitNull(request);
+        if (loginUser == null || !userService.isAdmin(loginUser)) {
+            postQueryRequest.setIsPublic(1);
+        }
+        return ResultUtils.success(postService.searchPostVOByCursor(postQueryRequest, request));
+    }
+
     /**
      * 编辑（用户）
      *
@@ -350,6 +435,18 @@ public class PostController {
         return ResultUtils.success(postService.getHotPostList(limit));
     }
 
+    /**
+     * 标签列表（按公开帖子数降序）
+     *
+     * @param limit
+     * @return
+     */
+    @GetMapping("/tag/count")
+    public BaseResponse<List<TagCountVO>> listTagCount(@RequestParam(defaultValue = "50") Integer limit) {
+        ThrowUtils.throwIf(limit <= 0 || limit > 500, ErrorCode.PARAMS_ERROR);
+        return ResultUtils.success(postService.listTagCount(limit));
+    }
+
     @GetMapping("/search/by/keyword")
     @ApiOperation(value = "根据关键词搜索笔记", notes = "根据关键词搜索笔记")
     public BaseResponse<Page<PostVO>> searchUserByKeyword(@ApiParam(value = "关键词", required = true) PageSearchByKeyWord pageSearchByKeyWord, HttpServletRequest request) {
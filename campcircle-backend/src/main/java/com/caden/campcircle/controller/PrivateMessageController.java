@@ -1,9 +1,12 @@
 package com.caden.campcircle.controller;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.caden.campcircle.annotation.AuthCheck;
 import com.caden.campcircle.common.BaseResponse;
+import com.caden.campcircle.common.CursorPage;
 import com.caden.campcircle.common.ErrorCode;
 import com.caden.campcircle.common.ResultUtils;
+import com.caden.campcircle.constant.UserConstant;
 import com.caden.campcircle.exception.BusinessException;
 import com.caden.campcircle.exception.ThrowUtils;
 import com.caden.campcircle.model.dto.message.PrivateMessageQueryRequest;
@@ -11,8 +14,10 @@ import com.caden.campcircle.model.dto.message.PrivateMessageSendRequest;
 import com.caden.campcircle.model.entity.User;
 import com.caden.campcircle.model.vo.ChatVO;
 import com.caden.campcircle.model.vo.PrivateMessageVO;
+import com.caden.campcircle.model.vo.WebSocketStatsVO;
 import com.caden.campcircle.service.PrivateMessageService;
 import com.caden.campcircle.service.UserService;
+import com.caden.campcircle.websocket.WebSocketSessionRegistry;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
@@ -40,6 +45,9 @@ public class PrivateMessageController {
     @Resource
     private PrivateMessageService privateMessageService;
 
+    @Resource
+    private WebSocketSessionRegistry webSocketSessionRegistry;
+
     @PostMapping("/send")
     @ApiOperation(value = "发送私信", notes = "向指定用户发送私信消息")
     public BaseResponse<Long> sendMessage(@RequestBody @ApiParam(value = "私信发送请求", required = true) PrivateMessageSendRequest privateMessageSendRequest, HttpServletRequest request) {
@@ -61,6 +69,17 @@ public class PrivateMessageController {
         return ResultUtils.success(chatList);
     }
 
+    @PostMapping("/get/chat/list/cursor")
+    @ApiOperation(value = "游标获取聊天列表", notes = "按最后一条消息时间倒序分页获取聊天会话，第一页不传 cursor")
+    public BaseResponse<CursorPage<ChatVO>> getChatListByCursor(@RequestBody @ApiParam(value = "聊天列表查询请求", required = true) PrivateMessageQueryRequest privateMessageQueryRequest, HttpServletRequest request) {
+        User loginUser = userService.getLoginUser(request);
+        if (privateMessageQueryRequest == null || privateMessageQueryRequest.getPageSize() < 1
+                || privateMessageQueryRequest.getPageSize() > 50) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR);
+        }
+        return ResultUtils.success(privateMessageService.getChatVOByCursor(privateMessageQueryRequest, loginUser));
+    }
+
     @GetMapping("/get/unread/count")
     @ApiOperation(value = "获取未读消息数量", notes = "获取当前用户的未读私信消息数量")
     public BaseResponse<Long> getUnreadCount(HttpServletRequest request) {
@@ -101,4 +120,29 @@ public class PrivateMessageController {
         return ResultUtils.success(result);
     }
 
+    @PostMapping("/get/chatHistory/cursor")
+    @ApiOperation(value = "游标获取聊天记录", notes = "按游标获取与指定用户的聊天记录，第一页不传 cursor")
+    public BaseResponse<CursorPage<PrivateMessageVO>> getChatHistoryByCursor(@RequestBody @ApiParam(value = "聊天记录查询请求", required = true) PrivateMessageQueryRequest privateMessageQueryRequest, HttpServletRequest request) {
+        User loginUser = userService.getLoginUser(request);
+        if (privateMessageQueryRequest == null || privateMessageQueryRequest.getChatUserId() == null
+                || privateMessageQueryRequest.getPageSize() < 1) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR);
+        }
+        if (privateMessageQueryRequest.getPageSize() > 30){
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "分页大小不能超过30");
+        }
+        return ResultUtils.success(privateMessageService.getChatHistoryByCursor(privateMessageQueryRequest, loginUser));
+    }
+
+    /**
+     * 获取本节点 WebSocket 连接统计（仅管理员）
+     *
+     * @return 连接统计
+     */
+    @GetMapping("/websocket/stats")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    @ApiOperation(value = "获取WebSocket连接统计", notes = "查看本节点的连接数、发送队列积压和丢弃帧数")
+    public BaseResponse<WebSocketStatsVO> getWebSocketStats() {
+        return ResultUtils.success(webSocketSessionRegistry.getStats());
+    }
 }
@@ -3,6 +3,7 @@ package com.caden.campcircle.controller;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.caden.campcircle.annotation.AuthCheck;
 import com.caden.campcircle.common.BaseResponse;
+import com.caden.campcircle.common.CursorPage;
 import com.caden.campcircle.common.DeleteRequest;
 import com.caden.campcircle.common.ErrorCode;
 import com.caden.campcircle.common.ResultUtils;
@@ -96,6 +97,11 @@ public class SystemMessageController {
         // 判断是否存在
         SystemMessage oldSystemMessage = systemMessageService.getById(id);
         ThrowUtils.throwIf(oldSystemMessage == null, ErrorCode.NOT_FOUND_ERROR);
+        // 未读的个人消息先标记已读，扣减接收方未读数
+        if (MessageConstant.SYSTEM_MESSAGE_NOT_GLOBAL.equals(oldSystemMessage.getIsGlobal())
+                && oldSystemMessage.getToUserId() != null) {
+            systemMessageService.markAsRead(id, oldSystemMessage.getToUserId());
+        }
         // 操作数据库
         boolean result = systemMessageService.removeById(id);
         ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
@@ -199,6 +205,28 @@ public class SystemMessageController {
         return ResultUtils.success(systemMessageService.getSystemMessageVOPage(systemMessagePage, request));
     }
 
+    /**
+     * 游标分页获取当前用户的消息列表（不统计总数）
+     *
+     * @param systemMessageQueryRequest 查询条件（cursor 为上一页返回的 nextCursor）
+     * @param request HTTP请求
+     * @return 消息列表
+     */
+    @PostMapping("/my/list/cursor/vo")
+    @ApiOperation(value = "游标获取我的消息", notes = "按游标获取当前用户的消息列表，第一页不传 cursor")
+    public BaseResponse<CursorPage<SystemMessageVO>> listMySystemMessageVOByCursor(@RequestBody @ApiParam(value = "查询条件", required = true) SystemMessageQueryRequest systemMessageQueryRequest,
+            HttpServletRequest request) {
+        if (systemMessageQueryRequest == null) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR);
+        }
+        User loginUser = userService.getLoginUser(request);
+        systemMessageQueryRequest.setToUserId(loginUser.getId());
+        // 限制爬虫
+        ThrowUtils.throwIf(systemMessageQueryRequest.getPageSize() < 1 || systemMessageQueryRequest.getPageSize() > 20,
+                ErrorCode.PARAMS_ERROR);
+        return ResultUtils.success(systemMessageService.listSystemMessageVOByCursor(systemMessageQueryRequest, request));
+    }
+
     // endregion
 
     /**
@@ -247,11 +275,19 @@ public class SystemMessageController {
         User loginUser = userService.getLoginUser(request);
         Long userId = loginUser.getId();
 
+        // 一次读取各类型未读数
+        Map<Integer, Long> unreadCountMap = systemMessageService.getUnreadCountMap(userId);
+        long system = unreadCountMap.getOrDefault(MessageConstant.SYSTEM_MESSAGE_TYPE_SYSTEM, 0L);
+        long likeFavour = unreadCountMap.getOrDefault(MessageConstant.SYSTEM_MESSAGE_TYPE_THUMB, 0L)
+                + unreadCountMap.getOrDefault(MessageConstant.SYSTEM_MESSAGE_TYPE_FAVOUR, 0L);
+        long commentFollow = unreadCountMap.getOrDefault(MessageConstant.SYSTEM_MESSAGE_TYPE_COMMENT, 0L)
+                + unreadCountMap.getOrDefault(MessageConstant.SYSTEM_MESSAGE_TYPE_FOLLOW, 0L);
+
         Map<String, Long> unreadCount = new HashMap<>();
-        unreadCount.put("total", systemMessageService.getUnreadCount(userId, null)); // 总未读数
-        unreadCount.put("system", systemMessageService.getUnreadCount(userId, MessageConstant.SYSTEM_MESSAGE_TYPE_SYSTEM)); // 系统通知
-        unreadCount.put("likeFavour", systemMessageService.getUnreadCountByTypes(userId, Arrays.asList(MessageConstant.SYSTEM_MESSAGE_TYPE_THUMB, MessageConstant.SYSTEM_MESSAGE_TYPE_FAVOUR))); // 点赞和收藏
-        unreadCount.put("commentFollow", systemMessageService.getUnreadCountByTypes(userId, Arrays.asList(MessageConstant.SYSTEM_MESSAGE_TYPE_COMMENT, MessageConstant.SYSTEM_MESSAGE_TYPE_FOLLOW))); // 评论和关注
+        unreadCount.put("total", system + likeFavour + commentFollow); // 总未读数
+        unreadCount.put("system", system); // 系统通知
+        unreadCount.put("likeFavour", likeFavour); // 点赞和收藏
+        unreadCount.put("commentFollow", commentFollow); // 评论和关注
 
         return ResultUtils.success(unreadCount);
     }
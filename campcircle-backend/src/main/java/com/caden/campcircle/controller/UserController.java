@@ -11,6 +11,7 @@ import com. caden.campcircle.config.WxOpenConfig;
 import com. caden.campcircle.constant.UserConstant;
 import com. caden.campcircle.exception.BusinessException;
 import com. caden.campcircle.exception.ThrowUtils;
+import com.caden.campcircle.manager.RelationBloomFilterManager;
 import com. caden.campcircle.model.dto.user.UserAddRequest;
 import com. caden.campcircle.model.dto.user.UserLoginRequest;
 import com. caden.campcircle.model.dto.user.UserQueryRequest;
@@ -18,6 +19,8 @@ import com. caden.campcircle.model.dto.user.UserRegisterRequest;
 import com. caden.campcircle.model.dto.user.UserUpdateMyRequest;
 import com. caden.campcircle.model.dto.user.UserUpdateRequest;
 import com. caden.campcircle.model.entity.User;
+import com.caden.campcircle.model.vo.BloomFilterStatsVO;
+import com. caden.campcircle.model.vo.CacheStatsVO;
 import com. caden.campcircle.model.vo.LoginUserVO;
 import com. caden.campcircle.model.vo.UserVO;
 import com. caden.campcircle.service.UserService;
@@ -65,6 +68,8 @@ public class UserController {
     private WxOpenConfig wxOpenConfig;
     @Resource
     private WxMaConfiguration wxMaConfiguration;
+    @Resource
+    private RelationBloomFilterManager relationBloomFilterManager;
 
     // region 登录相关
 
@@ -377,4 +382,28 @@ public class UserController {
         return ResultUtils.success(userService.listUserVOByPage(pageSearchByKeyWord, request));
     }
 
+    /**
+     * 获取用户缓存命中统计（仅管理员）
+     *
+     * @return 缓存统计
+     */
+    @GetMapping("/cache/stats")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    @ApiOperation(value = "获取用户缓存统计", notes = "查看本节点用户缓存的命中率")
+    public BaseResponse<CacheStatsVO> getUserCacheStats() {
+        return ResultUtils.success(userService.getUserCacheStats());
+    }
+
+    /**
+     * 获取关系布隆过滤器统计（仅管理员）
+     *
+     * @return 布隆过滤器统计
+     */
+    @GetMapping("/relation/bloom/stats")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    @ApiOperation(value = "获取关系布隆过滤器统计", notes = "查看本节点点赞、收藏、关注布隆过滤器的观测假阳性率")
+    public BaseResponse<BloomFilterStatsVO> getRelationBloomStats() {
+        return ResultUtils.success(relationBloomFilterManager.getStats());
+    }
+
 }
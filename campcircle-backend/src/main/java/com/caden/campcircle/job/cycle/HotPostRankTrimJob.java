@@ -0,0 +1,33 @@
+package com.caden.campcircle.job.cycle;
+
+import com.caden.campcircle.manager.HotPostRankManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+
+/**
+ * 实时热榜裁剪任务
+ */
+@Component
+@Slf4j
+public class HotPostRankTrimJob {
+
+    @Resource
+    private HotPostRankManager hotPostRankManager;
+
+    /**
+     * 每小时执行一次
+     */
+    @Scheduled(fixedRate = 60 * 60 * 1000, initialDelay = 60 * 1000)
+    public void run() {
+        log.info("HotPostRankTrimJob start");
+        try {
+            long removed = hotPostRankManager.trim();
+            log.info("HotPostRankTrimJob end, removed {} posts", removed);
+        } catch (Exception e) {
+            log.error("HotPostRankTrimJob failed", e);
+        }
+    }
+}
@@ -14,8 +14,8 @@ import org.springframework.scheduling.annotation.Scheduled;
 
 /**
  * 增量同步帖子到 es
- *
- 
+ * <p>
+ * 轮询方式，有分钟级延迟，已由发件箱中继 {@link PostEsOutboxRelayJob} 替代（campcircle.es-sync.enabled）
  */
 // todo 取消注释开启任务
 //@Component
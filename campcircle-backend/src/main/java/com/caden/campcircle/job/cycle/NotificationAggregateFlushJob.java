@@ -0,0 +1,44 @@
+package com.caden.campcircle.job.cycle;
+
+import com.caden.campcircle.service.SystemMessageService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+
+/**
+ * 聚合通知写库任务
+ * <p>
+ * 每个窗口把缓冲的点赞、收藏、关注通知按 (接收用户, 类型, 帖子) 合并写库
+ */
+@Component
+@Slf4j
+public class NotificationAggregateFlushJob {
+
+    @Resource
+    private SystemMessageService systemMessageService;
+
+    /**
+     * 每批处理的聚合键数
+     */
+    @Value("${campcircle.message.aggregate.batch-size:200}")
+    private int batchSize;
+
+    @Scheduled(fixedDelayString = "${campcircle.message.aggregate.window-ms:10000}")
+    public void run() {
+        try {
+            int total = 0;
+            int count;
+            while ((count = systemMessageService.flushAggregateNotification(batchSize)) > 0) {
+                total += count;
+            }
+            if (total > 0) {
+                log.info("NotificationAggregateFlushJob end, flushed {} aggregates", total);
+            }
+        } catch (Exception e) {
+            log.error("NotificationAggregateFlushJob failed", e);
+        }
+    }
+}
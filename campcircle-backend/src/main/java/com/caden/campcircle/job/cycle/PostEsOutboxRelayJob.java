@@ -0,0 +1,157 @@
+package com.caden.campcircle.job.cycle;
+
+import cn.hutool.core.collection.CollUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.caden.campcircle.job.once.FullSyncPostToEs;
+import com.caden.campcircle.mapper.PostEsOutboxMapper;
+import com.caden.campcircle.mapper.PostMapper;
+import com.caden.campcircle.mapper.SyncCheckpointMapper;
+import com.caden.campcircle.model.dto.post.PostEsDTO;
+import com.caden.campcircle.model.entity.Post;
+import com.caden.campcircle.model.entity.PostEsOutbox;
+import com.caden.campcircle.model.entity.SyncCheckpoint;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import javax.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.elasticsearch.BulkFailureException;
+import org.springframework.data.elasticsearch.core.ElasticsearchRestTemplate;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.IndexQuery;
+import org.springframework.data.elasticsearch.core.query.IndexQueryBuilder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 帖子 ES 同步中继
+ * <p>
+ * 按 id 顺序读取发件箱，同一帖子只保留最后一条，按数据库当前状态（含逻辑删除）批量写入 ES，
+ * 以发件箱 id 作为外部版本号：多个节点并发中继或重试时，旧快照会因版本冲突被 ES 拒绝，不会覆盖新数据。
+ * 写入成功后删除已处理的发件箱记录并推进检查点；失败则保留记录，下次重试。
+ * 处理完即删除，晚提交的事务（id 较小）也不会被跳过。
+ * 全量重建（{@link FullSyncPostToEs}）进行中时同时写入新索引，切换别名前新索引不会漏掉重建期间的变更。
+ */
+@Component
+@ConditionalOnProperty(name = "campcircle.es-sync.enabled", havingValue = "true")
+@Slf4j
+public class PostEsOutboxRelayJob {
+
+    /**
+     * 检查点名称
+     */
+    public static final String CHECKPOINT_NAME = "post_es_outbox";
+
+    @Resource
+    private PostEsOutboxMapper postEsOutboxMapper;
+
+    @Resource
+    private SyncCheckpointMapper syncCheckpointMapper;
+
+    @Resource
+    private PostMapper postMapper;
+
+    @Resource
+    private ElasticsearchRestTemplate elasticsearchRestTemplate;
+
+    @Resource
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * 每批处理的发件箱条数
+     */
+    @Value("${campcircle.es-sync.relay-batch-size:500}")
+    private int batchSize;
+
+    @Scheduled(fixedDelayString = "${campcircle.es-sync.relay-interval-ms:500}")
+    public void run() {
+        try {
+            // 积压时连续处理，直到不满一批
+            while (relayBatch() >= batchSize) {
+                log.debug("post es outbox backlog, continue");
+            }
+        } catch (Exception e) {
+            log.error("同步帖子到 ES 失败，保留发件箱等待重试", e);
+        }
+    }
+
+    /**
+     * 处理一批发件箱记录
+     *
+     * @return 本批读取的发件箱条数
+     */
+    private int relayBatch() {
+        List<PostEsOutbox> outboxList = postEsOutboxMapper.selectList(new QueryWrapper<PostEsOutbox>()
+                .orderByAsc("id").last("limit " + batchSize));
+        if (CollUtil.isEmpty(outboxList)) {
+            return 0;
+        }
+        long startTime = System.currentTimeMillis();
+        // 同一帖子只保留 id 最大的一条，作为外部版本号
+        Map<Long, Long> postIdVersionMap = new LinkedHashMap<>();
+        for (PostEsOutbox outbox : outboxList) {
+            postIdVersionMap.put(outbox.getPostId(), outbox.getId());
+        }
+        Map<Long, Post> postMap = postMapper.listPostWithDeleteByIds(postIdVersionMap.keySet()).stream()
+                .collect(Collectors.toMap(Post::getId, post -> post));
+        List<IndexQuery> queryList = new ArrayList<>();
+        for (Map.Entry<Long, Long> entry : postIdVersionMap.entrySet()) {
+            Post post = postMap.get(entry.getKey());
+            if (post == null) {
+                // 物理删除的帖子写入删除标记，保持外部版本号递增
+                post = new Post();
+                post.setId(entry.getKey());
+                post.setIsDelete(1);
+            }
+            queryList.add(new IndexQueryBuilder()
+                    .withId(String.valueOf(entry.getKey()))
+                    .withObject(PostEsDTO.objToDto(post))
+                    .withVersion(entry.getValue())
+                    .build());
+        }
+        // 须在读取帖子之后读取重建状态：重建开始前读到的帖子，重建扫描时一定能读到同样或更新的数据
+        SyncCheckpoint reindexCheckpoint = syncCheckpointMapper.selectById(FullSyncPostToEs.CHECKPOINT_NAME);
+        bulkIndex(queryList, null);
+        if (reindexCheckpoint != null && StringUtils.isNotBlank(reindexCheckpoint.getExtra())) {
+            bulkIndex(queryList, IndexCoordinates.of(reindexCheckpoint.getExtra()));
+        }
+        long lastId = outboxList.get(outboxList.size() - 1).getId();
+        List<Long> outboxIdList = outboxList.stream().map(PostEsOutbox::getId).collect(Collectors.toList());
+        transactionTemplate.executeWithoutResult(status -> {
+            postEsOutboxMapper.deleteBatchIds(outboxIdList);
+            syncCheckpointMapper.advance(CHECKPOINT_NAME, lastId, (long) queryList.size());
+        });
+        log.info("同步帖子到 ES, outbox: {}, post: {}, lastId: {}, ms: {}", outboxList.size(), queryList.size(),
+                lastId, System.currentTimeMillis() - startTime);
+        return outboxList.size();
+    }
+
+    /**
+     * 批量写入，版本冲突说明 ES 中已是更新的数据，视为成功
+     *
+     * @param queryList
+     * @param indexCoordinates 目标索引，为空时写入实体对应的索引（别名）
+     */
+    private void bulkIndex(List<IndexQuery> queryList, IndexCoordinates indexCoordinates) {
+        try {
+            if (indexCoordinates == null) {
+                elasticsearchRestTemplate.bulkIndex(queryList, PostEsDTO.class);
+            } else {
+                elasticsearchRestTemplate.bulkIndex(queryList, indexCoordinates);
+            }
+        } catch (BulkFailureException e) {
+            Map<String, String> failedMap = e.getFailedDocuments().entrySet().stream()
+                    .filter(entry -> entry.getValue() == null || !entry.getValue().contains("version_conflict"))
+                    .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+            if (!failedMap.isEmpty()) {
+                throw new BulkFailureException("同步帖子到 ES 部分失败: " + failedMap.keySet(), failedMap);
+            }
+        }
+    }
+}
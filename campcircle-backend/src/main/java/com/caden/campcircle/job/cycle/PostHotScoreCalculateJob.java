@@ -1,30 +1,41 @@
 package com.caden.campcircle.job.cycle;
 
-import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
-import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
+import cn.hutool.core.collection.CollUtil;
+import com.caden.campcircle.manager.HotPostRankManager;
 import com.caden.campcircle.mapper.PostMapper;
 import com.caden.campcircle.model.entity.Post;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
-import java.time.LocalDateTime;
-import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 帖子热度分数计算定时任务
  * 
  * 热度计算公式：
- * 热度分数 = (3×点赞 + 4×收藏 + 5×评论 + 0.5×浏览) / ((当前时间 - 发布时间 + 2)^0.5)
+ * 热度分数 = (3×点赞 + 4×收藏 + 5×评论 + 1×浏览) / ((当前时间 - 发布时间 + 2)^0.5)
  * 
  * 执行策略：
  * 1. 每30分钟执行一次
  * 2. 只计算本周内发布的帖子（7天内）
- * 3. 优先计算最近更新的帖子
- * 4. 分批处理，避免一次性处理过多数据
+ * 3. 增量计算：自上次计算后有互动的帖子（脏集合），以及从未计算或超过 stale-hours 未计算的帖子
+ * 4. 按 id 游标分批扫描，每批交给工作线程计算，并以一条 CASE 语句批量更新
  * 
  * @author caden
  */
@@ -35,6 +46,44 @@ public class PostHotScoreCalculateJob {
     @Resource
     private PostMapper postMapper;
 
+    @Resource
+    private HotPostRankManager hotPostRankManager;
+
+    /**
+     * 每批处理条数
+     */
+    @Value("${campcircle.hot-score.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * 工作线程数
+     */
+    @Value("${campcircle.hot-score.worker-threads:4}")
+    private int workerThreads;
+
+    /**
+     * 热度计算超过该小时数的帖子即使没有互动也重新计算（时间衰减）
+     */
+    @Value("${campcircle.hot-score.stale-hours:6}")
+    private int staleHours;
+
+    private ExecutorService workerPool;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadNum = new AtomicInteger();
+        workerPool = Executors.newFixedThreadPool(workerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "hot-score-worker-" + threadNum.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void destroy() {
+        workerPool.shutdown();
+    }
+
     /**
      * 每30分钟执行一次热度计算
      * 选择30分钟的原因：
@@ -47,54 +96,85 @@ public class PostHotScoreCalculateJob {
         long startTime = System.currentTimeMillis();
         log.info("开始执行帖子热度计算任务");
 
+        AtomicLong scanned = new AtomicLong();
+        AtomicLong updated = new AtomicLong();
+        // 限制同时在途的批次，避免扫描速度远超更新速度时堆积
+        Semaphore inFlight = new Semaphore(workerThreads * 2);
+        List<Future<?>> futureList = new ArrayList<>();
         try {
-            // 计算7天前的时间
-            LocalDateTime sevenDaysAgo = LocalDateTime.now().minusDays(7);
-            Date sevenDaysAgoDate = Date.from(sevenDaysAgo.atZone(ZoneId.systemDefault()).toInstant());
-
-            // 查询本周内发布的帖子，按创建时间倒序（优先处理最新的帖子）
-            QueryWrapper<Post> queryWrapper = new QueryWrapper<>();
-            queryWrapper.ge("createTime", sevenDaysAgoDate)
-                    .eq("isDelete", 0)
-                    .eq("status", 1) // 只计算已发布的帖子
-                    .orderByDesc("createTime");
-
-            // 分批处理，每次处理500条
-            int pageSize = 500;
-            int offset = 0;
-            int totalProcessed = 0;
-
-            while (true) {
-                // 使用limit分页查询
-                queryWrapper.last("LIMIT " + offset + ", " + pageSize);
-                List<Post> postList = postMapper.selectList(queryWrapper);
+            Date now = new Date(startTime);
+            Date minCreateTime = new Date(startTime - TimeUnit.DAYS.toMillis(7));
+            Date staleBefore = new Date(startTime - TimeUnit.HOURS.toMillis(staleHours));
+
+            // 1. 自上次计算后有互动的帖子
+            Set<Long> dirtyIdSet = hotPostRankManager.popDirty();
+            List<Long> dirtyIdList = new ArrayList<>(dirtyIdSet);
+            for (List<Long> idList : CollUtil.split(dirtyIdList, batchSize)) {
+                List<Post> postList = postMapper.listHotScoreByIds(idList, minCreateTime);
+                submit(postList, now, scanned, updated, inFlight, futureList);
+            }
 
+            // 2. 从窗口内最小的 id 开始按 id 游标扫描从未计算或已过期的帖子（脏帖子已处理过的跳过）
+            Long minId = postMapper.getMinIdSince(minCreateTime);
+            long lastId = minId == null ? 0 : minId - 1;
+            while (minId != null) {
+                List<Post> postList = postMapper.listHotScoreCandidate(minCreateTime, staleBefore, lastId, batchSize);
                 if (postList.isEmpty()) {
                     break;
                 }
-
-                // 批量计算并更新热度分数
+                lastId = postList.get(postList.size() - 1).getId();
+                List<Post> todoList = new ArrayList<>(postList.size());
                 for (Post post : postList) {
-                    int hotScore = calculatePostHotScore(post);
-                    updatePostHotScore(post.getId(), hotScore);
+                    if (!dirtyIdSet.contains(post.getId())) {
+                        todoList.add(post);
+                    }
                 }
-
-                totalProcessed += postList.size();
-                offset += pageSize;
-
-                log.info("已处理 {} 条帖子热度计算", totalProcessed);
-
-                // 如果查询结果少于pageSize，说明已经是最后一批
-                if (postList.size() < pageSize) {
+                submit(todoList, now, scanned, updated, inFlight, futureList);
+                if (postList.size() < batchSize) {
                     break;
                 }
             }
 
-            long endTime = System.currentTimeMillis();
-            log.info("帖子热度计算任务完成，共处理 {} 条帖子，耗时 {} ms", totalProcessed, endTime - startTime);
+            for (Future<?> future : futureList) {
+                future.get();
+            }
+            hotPostRankManager.ackDirty();
 
+            log.info("帖子热度计算任务完成，扫描 {} 条（其中脏帖子 {} 条），更新 {} 条，耗时 {} ms",
+                    scanned.get(), dirtyIdSet.size(), updated.get(), System.currentTimeMillis() - startTime);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("帖子热度计算任务被中断", e);
         } catch (Exception e) {
-            log.error("帖子热度计算任务执行失败", e);
+            log.error("帖子热度计算任务执行失败，扫描 {} 条，更新 {} 条，耗时 {} ms",
+                    scanned.get(), updated.get(), System.currentTimeMillis() - startTime, e);
+        }
+    }
+
+    /**
+     * 将一批帖子交给工作线程计算并批量更新
+     */
+    private void submit(List<Post> postList, Date now, AtomicLong scanned, AtomicLong updated,
+                        Semaphore inFlight, List<Future<?>> futureList) throws InterruptedException {
+        scanned.addAndGet(postList.size());
+        if (postList.isEmpty()) {
+            return;
+        }
+        inFlight.acquire();
+        try {
+            futureList.add(workerPool.submit(() -> {
+                try {
+                    for (Post post : postList) {
+                        post.setHotScore((double) calculatePostHotScore(post, now.getTime()));
+                    }
+                    updated.addAndGet(postMapper.batchUpdateHotScore(postList, now));
+                } finally {
+                    inFlight.release();
+                }
+            }));
+        } catch (RuntimeException e) {
+            inFlight.release();
+            throw e;
         }
     }
 
@@ -102,9 +182,10 @@ public class PostHotScoreCalculateJob {
      * 计算单个帖子的热度分数
      * 
      * @param post 帖子对象
+     * @param currentTime 计算时间
      * @return 热度分数
      */
-    private int calculatePostHotScore(Post post) {
+    private int calculatePostHotScore(Post post, long currentTime) {
         // 获取帖子的各项数据
         int thumbNum = post.getThumbNum() != null ? post.getThumbNum() : 0;
         int favourNum = post.getFavourNum() != null ? post.getFavourNum() : 0;
@@ -112,12 +193,11 @@ public class PostHotScoreCalculateJob {
         int viewNum = post.getViewNum() != null ? post.getViewNum() : 0;
 
         // 计算时间差（小时）
-        long currentTime = System.currentTimeMillis();
         long createTime = post.getCreateTime().getTime();
         double hoursDiff = (currentTime - createTime) / (1000.0 * 60 * 60);
 
         // 热度分数计算公式
-        // 分子：3×点赞 + 4×收藏 + 5×评论 + 0.5×浏览
+        // 分子：3×点赞 + 4×收藏 + 5×评论 + 1×浏览
         double numerator = 3.0 * thumbNum + 4.0 * favourNum + 5.0 * commentNum + 1.0 * viewNum;
         
         // 分母：(当前时间 - 发布时间 + 2)^0.5
@@ -131,21 +211,6 @@ public class PostHotScoreCalculateJob {
         return (int) (Math.round(hotScore * 100));
     }
 
-    /**
-     * 更新帖子的热度分数
-     * 
-     * @param postId 帖子ID
-     * @param hotScore 热度分数
-     */
-    private void updatePostHotScore(Long postId, double hotScore) {
-        UpdateWrapper<Post> updateWrapper = new UpdateWrapper<>();
-        updateWrapper.eq("id", postId)
-                .set("hotScore", hotScore)
-                .set("lastHotUpdateTime", new Date());
-
-        postMapper.update(null, updateWrapper);
-    }
-
     /**
      * 手动触发热度计算（用于测试或紧急更新）
      * 可以通过管理接口调用
@@ -29,22 +29,31 @@ public class PostTopExpireJob {
         log.info("PostTopExpireJob start");
         // 查询所有已置顶且过期时间小于当前时间的帖子
         QueryWrapper<Post> queryWrapper = new QueryWrapper<>();
-        queryWrapper.eq("isTop", 1)
+        queryWrapper.select("id")
+                .eq("isTop", 1)
                 .lt("topExpireTime", new Date());
-        
+
         List<Post> expiredTopPosts = postService.list(queryWrapper);
         if (expiredTopPosts.isEmpty()) {
             log.info("No expired top posts");
             return;
         }
         
-        // 批量取消置顶
-        for (Post post : expiredTopPosts) {
+        // 逐条取消置顶：走 PostService.updateById，同一事务内写入 ES 同步发件箱并失效帖子缓存
+        // 只更新置顶字段，避免用查询时的旧计数覆盖并发写回的点赞数等
+        int successCount = 0;
+        for (Post expiredTopPost : expiredTopPosts) {
+            Post post = new Post();
+            post.setId(expiredTopPost.getId());
             post.setIsTop(0);
-            post.setTopExpireTime(null);
+            try {
+                if (postService.updateById(post)) {
+                    successCount++;
+                }
+            } catch (Exception e) {
+                log.error("Cancel top post failed, postId = {}", expiredTopPost.getId(), e);
+            }
         }
-        
-        boolean result = postService.updateBatchById(expiredTopPosts);
-        log.info("PostTopExpireJob end, processed {} posts, result: {}", expiredTopPosts.size(), result);
+        log.info("PostTopExpireJob end, processed {} posts, success: {}", expiredTopPosts.size(), successCount);
     }
 }
\ No newline at end of file
@@ -1,47 +1,341 @@
 package com.caden.campcircle.job.once;
 
-import com.caden.campcircle.esdao.PostEsDao;
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.date.DateUtil;
+import cn.hutool.core.util.IdUtil;
+import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
+import com.caden.campcircle.mapper.PostMapper;
+import com.caden.campcircle.mapper.SyncCheckpointMapper;
 import com.caden.campcircle.model.dto.post.PostEsDTO;
 import com.caden.campcircle.model.entity.Post;
-import com.caden.campcircle.service.PostService;
+import com.caden.campcircle.model.entity.SyncCheckpoint;
+import java.util.ArrayDeque;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import javax.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
-import cn.hutool.core.collection.CollUtil;
+import org.apache.commons.lang3.StringUtils;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.RestClient;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.elasticsearch.BulkFailureException;
+import org.springframework.data.elasticsearch.core.ElasticsearchRestTemplate;
+import org.springframework.data.elasticsearch.core.IndexOperations;
+import org.springframework.data.elasticsearch.core.index.AliasAction;
+import org.springframework.data.elasticsearch.core.index.AliasActionParameters;
+import org.springframework.data.elasticsearch.core.index.AliasActions;
+import org.springframework.data.elasticsearch.core.index.AliasData;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.IndexQuery;
+import org.springframework.data.elasticsearch.core.query.IndexQueryBuilder;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
 
 /**
  * 全量同步帖子到 es
- *
- 
+ * <p>
+ * 启动后在后台线程执行，不阻塞启动：
+ * 1. 新建带时间戳的索引（关闭刷新），索引名记录到检查点
+ * 2. 按 id 游标分批读取，交给多个线程批量写入，在途批次数有上限，内存占用与帖子总数无关
+ * 3. 按批次顺序推进检查点，中断后重启从检查点继续写同一个索引
+ * 4. 写完恢复刷新，原子切换别名到新索引，删除旧索引
+ * <p>
+ * 重建期间发件箱中继同时写入新索引（外部版本号），这里以 create 方式写入，文档已存在说明中继写入了更新的数据，跳过
  */
-// todo 取消注释开启任务
-//@Component
+@Component
+@ConditionalOnProperty(name = "campcircle.es-sync.reindex-on-startup", havingValue = "true")
 @Slf4j
 public class FullSyncPostToEs implements CommandLineRunner {
 
+    /**
+     * 检查点名称
+     */
+    public static final String CHECKPOINT_NAME = "post_full_reindex";
+
+    /**
+     * 搜索使用的索引别名
+     */
+    public static final String INDEX_ALIAS = "post";
+
+    /**
+     * 防止多个节点同时重建
+     */
+    private static final String LOCK_KEY = "es:reindex:post";
+
+    private static final long LOCK_EXPIRE_MINUTES = 30;
+
+    /**
+     * 仅当令牌匹配时释放，避免重建超过锁过期时间后误删其他节点的锁
+     */
+    private static final DefaultRedisScript<Long> RELEASE_LOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then\n" +
+            "  return redis.call('DEL', KEYS[1])\n" +
+            "end\n" +
+            "return 0", Long.class);
+
+    @Resource
+    private PostMapper postMapper;
+
+    @Resource
+    private SyncCheckpointMapper syncCheckpointMapper;
+
     @Resource
-    private PostService postService;
+    private ElasticsearchRestTemplate elasticsearchRestTemplate;
 
     @Resource
-    private PostEsDao postEsDao;
+    private RestClient restClient;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 每批条数
+     */
+    @Value("${campcircle.es-sync.reindex-batch-size:1000}")
+    private int batchSize;
+
+    /**
+     * 写入线程数
+     */
+    @Value("${campcircle.es-sync.reindex-threads:4}")
+    private int threads;
+
+    /**
+     * 最多在途批次数
+     */
+    @Value("${campcircle.es-sync.reindex-max-in-flight:8}")
+    private int maxInFlight;
+
+    /**
+     * 切换别名后是否删除旧索引
+     */
+    @Value("${campcircle.es-sync.delete-old-index:true}")
+    private boolean deleteOldIndex;
 
     @Override
     public void run(String... args) {
-        List<Post> postList = postService.list();
-        if (CollUtil.isEmpty(postList)) {
+        Thread thread = new Thread(this::reindex, "post-es-reindex");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 全量重建（有未完成的任务时继续）
+     */
+    public void reindex() {
+        String lockToken = IdUtil.fastSimpleUUID();
+        Boolean locked = stringRedisTemplate.opsForValue()
+                .setIfAbsent(LOCK_KEY, lockToken, LOCK_EXPIRE_MINUTES, TimeUnit.MINUTES);
+        if (!Boolean.TRUE.equals(locked)) {
+            log.info("FullSyncPostToEs is running on another node, skip");
             return;
         }
-        List<PostEsDTO> postEsDTOList = postList.stream().map(PostEsDTO::objToDto).collect(Collectors.toList());
-        final int pageSize = 500;
-        int total = postEsDTOList.size();
-        log.info("FullSyncPostToEs start, total {}", total);
-        for (int i = 0; i < total; i += pageSize) {
-            int end = Math.min(i + pageSize, total);
-            log.info("sync from {} to {}", i, end);
-            postEsDao.saveAll(postEsDTOList.subList(i, end));
+        AtomicInteger threadNum = new AtomicInteger();
+        ExecutorService bulkPool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "post-es-reindex-bulk-" + threadNum.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            doReindex(bulkPool);
+        } catch (Exception e) {
+            log.error("FullSyncPostToEs failed, resume from checkpoint next time", e);
+        } finally {
+            bulkPool.shutdownNow();
+            releaseLock(lockToken);
+        }
+    }
+
+    private void releaseLock(String lockToken) {
+        try {
+            stringRedisTemplate.execute(RELEASE_LOCK_SCRIPT, Collections.singletonList(LOCK_KEY), lockToken);
+        } catch (Exception e) {
+            // 释放失败时等待锁过期
+            log.error("FullSyncPostToEs release lock failed", e);
+        }
+    }
+
+    private void doReindex(ExecutorService bulkPool) throws InterruptedException, ExecutionException, IOException {
+        SyncCheckpoint checkpoint = syncCheckpointMapper.selectById(CHECKPOINT_NAME);
+        String targetIndex;
+        long lastId;
+        long syncCount;
+        if (checkpoint != null && StringUtils.isNotBlank(checkpoint.getExtra())
+                && elasticsearchRestTemplate.indexOps(IndexCoordinates.of(checkpoint.getExtra())).exists()) {
+            targetIndex = checkpoint.getExtra();
+            lastId = checkpoint.getLastId();
+            syncCount = checkpoint.getSyncCount();
+            log.info("FullSyncPostToEs resume, index {}, lastId {}", targetIndex, lastId);
+        } else {
+            targetIndex = INDEX_ALIAS + "_" + DateUtil.format(new Date(), "yyyyMMddHHmmss");
+            lastId = 0;
+            syncCount = 0;
+            createIndex(targetIndex);
+            saveCheckpoint(checkpoint == null, targetIndex);
+            log.info("FullSyncPostToEs start, index {}", targetIndex);
+        }
+        long startTime = System.currentTimeMillis();
+        IndexCoordinates indexCoordinates = IndexCoordinates.of(targetIndex);
+        Semaphore permits = new Semaphore(maxInFlight);
+        Deque<Future<long[]>> pendingList = new ArrayDeque<>();
+        long[] progress = {lastId, syncCount};
+        while (true) {
+            List<Post> postList = postMapper.listPostForReindex(lastId, batchSize);
+            if (CollUtil.isEmpty(postList)) {
+                break;
+            }
+            lastId = postList.get(postList.size() - 1).getId();
+            List<IndexQuery> queryList = postList.stream()
+                    .map(post -> new IndexQueryBuilder()
+                            .withId(String.valueOf(post.getId()))
+                            .withObject(PostEsDTO.objToDto(post))
+                            .withOpType(IndexQuery.OpType.CREATE)
+                            .build())
+                    .collect(Collectors.toList());
+            // 在途批次达到上限时阻塞读取，避免读得比写得快时堆积在内存
+            permits.acquire();
+            long batchLastId = lastId;
+            pendingList.addLast(bulkPool.submit(() -> {
+                try {
+                    bulkIndex(queryList, indexCoordinates);
+                    return new long[]{batchLastId, queryList.size()};
+                } finally {
+                    permits.release();
+                }
+            }));
+            advanceCheckpoint(pendingList, progress, false);
+            if (postList.size() < batchSize) {
+                break;
+            }
+        }
+        advanceCheckpoint(pendingList, progress, true);
+        log.info("FullSyncPostToEs bulk end, index {}, total {}, ms {}", targetIndex, progress[1],
+                System.currentTimeMillis() - startTime);
+        switchAlias(targetIndex);
+        syncCheckpointMapper.update(null, new UpdateWrapper<SyncCheckpoint>()
+                .eq("name", CHECKPOINT_NAME).set("extra", null));
+        log.info("FullSyncPostToEs end, alias {} -> {}", INDEX_ALIAS, targetIndex);
+    }
+
+    /**
+     * 创建索引，写入期间关闭刷新
+     */
+    private void createIndex(String targetIndex) {
+        IndexOperations indexOps = elasticsearchRestTemplate.indexOps(IndexCoordinates.of(targetIndex));
+        Map<String, Object> settings = new HashMap<>();
+        settings.put("index.refresh_interval", "-1");
+        indexOps.create(settings, indexOps.createMapping(PostEsDTO.class));
+    }
+
+    private void saveCheckpoint(boolean insert, String targetIndex) {
+        SyncCheckpoint checkpoint = new SyncCheckpoint();
+        checkpoint.setName(CHECKPOINT_NAME);
+        checkpoint.setLastId(0L);
+        checkpoint.setSyncCount(0L);
+        checkpoint.setExtra(targetIndex);
+        if (insert) {
+            syncCheckpointMapper.insert(checkpoint);
+        } else {
+            syncCheckpointMapper.updateById(checkpoint);
+        }
+    }
+
+    /**
+     * 按提交顺序取出已完成的批次并推进检查点，保证检查点之前的批次都已写入
+     *
+     * @param pendingList 在途批次
+     * @param progress    [已写入的最大 id, 累计条数]
+     * @param waitAll     是否等待全部完成
+     */
+    private void advanceCheckpoint(Deque<Future<long[]>> pendingList, long[] progress, boolean waitAll)
+            throws InterruptedException, ExecutionException {
+        boolean advanced = false;
+        while (!pendingList.isEmpty() && (waitAll || pendingList.peekFirst().isDone())) {
+            long[] result = pendingList.pollFirst().get();
+            progress[0] = result[0];
+            progress[1] += result[1];
+            advanced = true;
+        }
+        if (!advanced) {
+            return;
+        }
+        SyncCheckpoint checkpoint = new SyncCheckpoint();
+        checkpoint.setName(CHECKPOINT_NAME);
+        checkpoint.setLastId(progress[0]);
+        checkpoint.setSyncCount(progress[1]);
+        syncCheckpointMapper.updateById(checkpoint);
+        stringRedisTemplate.expire(LOCK_KEY, LOCK_EXPIRE_MINUTES, TimeUnit.MINUTES);
+    }
+
+    /**
+     * 批量写入，文档已存在（中继写入了更新的数据）视为成功
+     */
+    private void bulkIndex(List<IndexQuery> queryList, IndexCoordinates indexCoordinates) {
+        try {
+            elasticsearchRestTemplate.bulkIndex(queryList, indexCoordinates);
+        } catch (BulkFailureException e) {
+            Map<String, String> failedMap = e.getFailedDocuments().entrySet().stream()
+                    .filter(entry -> entry.getValue() == null || !entry.getValue().contains("version_conflict"))
+                    .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+            if (!failedMap.isEmpty()) {
+                throw new BulkFailureException("全量同步帖子到 ES 部分失败: " + failedMap.keySet(), failedMap);
+            }
+        }
+    }
+
+    /**
+     * 恢复刷新，原子地把别名从旧索引切换到新索引
+     */
+    private void switchAlias(String targetIndex) throws IOException {
+        // IndexOperations 不支持修改已有索引的设置，用低级客户端调用 _settings，不依赖已废弃的 RestHighLevelClient
+        Request putSettingsRequest = new Request("PUT", "/" + targetIndex + "/_settings");
+        putSettingsRequest.setJsonEntity("{\"index\":{\"refresh_interval\":null}}");
+        restClient.performRequest(putSettingsRequest);
+        IndexOperations targetOps = elasticsearchRestTemplate.indexOps(IndexCoordinates.of(targetIndex));
+        targetOps.refresh();
+        IndexOperations aliasOps = elasticsearchRestTemplate.indexOps(IndexCoordinates.of(INDEX_ALIAS));
+        AliasActions aliasActions = new AliasActions(new AliasAction.Add(AliasActionParameters.builder()
+                .withIndices(targetIndex).withAliases(INDEX_ALIAS).build()));
+        List<String> oldIndexList = new ArrayList<>();
+        Map<String, Set<AliasData>> aliasMap = aliasOps.getAliases(INDEX_ALIAS);
+        if (aliasMap.isEmpty() && aliasOps.exists()) {
+            // 旧版本直接以别名同名建的索引，切换时一并删除
+            aliasActions.add(new AliasAction.RemoveIndex(AliasActionParameters.builder()
+                    .withIndices(INDEX_ALIAS).build()));
+        } else {
+            for (String index : aliasMap.keySet()) {
+                if (!index.equals(targetIndex)) {
+                    oldIndexList.add(index);
+                    aliasActions.add(new AliasAction.Remove(AliasActionParameters.builder()
+                            .withIndices(index).withAliases(INDEX_ALIAS).build()));
+                }
+            }
+        }
+        aliasOps.alias(aliasActions);
+        if (deleteOldIndex) {
+            for (String index : oldIndexList) {
+                elasticsearchRestTemplate.indexOps(IndexCoordinates.of(index)).delete();
+            }
+        } else if (!oldIndexList.isEmpty()) {
+            log.info("FullSyncPostToEs keep old index {}", oldIndexList);
         }
-        log.info("FullSyncPostToEs end, total {}", total);
     }
 }
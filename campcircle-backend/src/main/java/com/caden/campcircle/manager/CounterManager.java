@@ -0,0 +1,443 @@
+package com.caden.campcircle.manager;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.IdUtil;
+import com.caden.campcircle.constant.CounterConstant;
+import com.caden.campcircle.manager.cache.PostCacheManager;
+import com.caden.campcircle.manager.cache.UserCacheManager;
+import com.caden.campcircle.utils.TransactionUtils;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 计数聚合
+ * <p>
+ * 点赞、收藏、评论、关注等关系表是计数的唯一来源，帖子和用户表上的计数字段只是汇总。
+ * 计数变化先以 HINCRBY 合并到 Redis，定期批量写回数据库，避免热点帖子、热门作者的行锁串行化；
+ * 读取时将数据库中的值与尚未写回的增量合并。
+ * 写回时增量先原子地转入写回中批次，写库成功后才删除，写库失败或节点宕机时放回重新写回。
+ * 写库事务中同时以批次号为主键写入批次标记，超时或失败的批次先抢占标记再放回：
+ * 标记已由写库事务提交说明增量已写入，只确认不放回，避免重复写库。
+ */
+@Component
+@Slf4j
+public class CounterManager {
+
+    /**
+     * 累加增量：KEYS[1] 增量 HASH，KEYS[2] 脏集合，ARGV[1] 字段，ARGV[2] 增量，ARGV[3] id
+     */
+    private static final DefaultRedisScript<Long> INCR_SCRIPT = new DefaultRedisScript<>(
+            "local value = redis.call('HINCRBY', KEYS[1], ARGV[1], ARGV[2])\n" +
+            "redis.call('SADD', KEYS[2], ARGV[3])\n" +
+            "return value", Long.class);
+
+    /**
+     * 取出增量并转入写回中：KEYS[1] 脏集合，KEYS[2] 写回中批次，KEYS[3] 本批写回中的增量
+     * ARGV[1] 增量 HASH 前缀，ARGV[2] 最多取出的 id 数，ARGV[3] 批次号，ARGV[4] 当前时间
+     * 弹出 id、读取并删除增量 HASH 在同一脚本中完成；增量写库成功前一直保留在写回中，返回 {id, HGETALL 结果, ...}
+     */
+    private static final DefaultRedisScript<List> DRAIN_SCRIPT = new DefaultRedisScript<>(
+            "local members = redis.call('SPOP', KEYS[1], ARGV[2])\n" +
+            "local result = {}\n" +
+            "for _, member in ipairs(members) do\n" +
+            "  local key = ARGV[1] .. member\n" +
+            "  local entries = redis.call('HGETALL', key)\n" +
+            "  if #entries > 0 then\n" +
+            "    for i = 1, #entries, 2 do\n" +
+            "      redis.call('HINCRBY', KEYS[3], member .. ':' .. entries[i], entries[i + 1])\n" +
+            "    end\n" +
+            "    redis.call('DEL', key)\n" +
+            "    result[#result + 1] = member\n" +
+            "    result[#result + 1] = entries\n" +
+            "  end\n" +
+            "end\n" +
+            "if #result > 0 then redis.call('ZADD', KEYS[2], ARGV[4], ARGV[3]) end\n" +
+            "return result", List.class);
+
+    /**
+     * 确认写库成功：KEYS[1] 写回中批次，KEYS[2] 本批写回中的增量，ARGV[1] 批次号
+     */
+    private static final DefaultRedisScript<Long> ACK_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('DEL', KEYS[2])\n" +
+            "return redis.call('ZREM', KEYS[1], ARGV[1])", Long.class);
+
+    /**
+     * 写库失败时放回：KEYS[1] 写回中批次，KEYS[2] 本批写回中的增量，KEYS[3] 脏集合
+     * ARGV[1] 批次号，ARGV[2] 增量 HASH 前缀；批次已确认或已放回时不做任何事
+     */
+    private static final DefaultRedisScript<Long> RESTORE_SCRIPT = new DefaultRedisScript<>(
+            "local entries = redis.call('HGETALL', KEYS[2])\n" +
+            "for i = 1, #entries, 2 do\n" +
+            "  local sep = string.find(entries[i], ':', 1, true)\n" +
+            "  local id = string.sub(entries[i], 1, sep - 1)\n" +
+            "  redis.call('HINCRBY', ARGV[2] .. id, string.sub(entries[i], sep + 1), entries[i + 1])\n" +
+            "  redis.call('SADD', KEYS[3], id)\n" +
+            "end\n" +
+            "redis.call('DEL', KEYS[2])\n" +
+            "redis.call('ZREM', KEYS[1], ARGV[1])\n" +
+            "return #entries / 2", Long.class);
+
+    /**
+     * 批次标记：已写库（写库事务中写入）
+     */
+    private static final int BATCH_STATUS_FLUSHED = 0;
+
+    /**
+     * 批次标记：已放回（放回前抢占写入，之后写库事务插入标记失败而回滚）
+     */
+    private static final int BATCH_STATUS_RESTORED = 1;
+
+    /**
+     * 批次标记保留时长（毫秒），远大于写回中批次超时
+     */
+    private static final long BATCH_MARKER_RETAIN_MS = 24 * 60 * 60 * 1000L;
+
+    private static final String[] POST_FIELDS = {CounterConstant.POST_THUMB_NUM, CounterConstant.POST_FAVOUR_NUM,
+            CounterConstant.POST_COMMENT_NUM};
+
+    private static final String[] USER_FIELDS = {CounterConstant.USER_RECEIVED_THUMB_NUM,
+            CounterConstant.USER_FOLLOW_NUM, CounterConstant.USER_FANS_NUM};
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private JdbcTemplate jdbcTemplate;
+
+    @Resource
+    private UserCacheManager userCacheManager;
+
+    @Resource
+    private PostCacheManager postCacheManager;
+
+    @Resource
+    private PostEsOutboxManager postEsOutboxManager;
+
+    @Resource
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * 每批写回条数
+     */
+    @Value("${campcircle.counter.flush-batch-size:200}")
+    private int flushBatchSize;
+
+    /**
+     * 写回中批次超时（毫秒），超时未确认视为写回节点已宕机，放回重新写回
+     */
+    @Value("${campcircle.counter.inflight-timeout-ms:300000}")
+    private long inflightTimeoutMs;
+
+    /**
+     * 累加帖子计数（事务中在提交后执行）
+     *
+     * @param postId
+     * @param field  {@link CounterConstant} 中的帖子计数字段
+     * @param delta
+     */
+    public void incrPost(Long postId, String field, long delta) {
+        incr(CounterConstant.POST_PENDING_KEY_PREFIX, CounterConstant.POST_DIRTY_KEY, postId, field, delta);
+    }
+
+    /**
+     * 累加用户计数（事务中在提交后执行）
+     *
+     * @param userId
+     * @param field  {@link CounterConstant} 中的用户计数字段
+     * @param delta
+     */
+    public void incrUser(Long userId, String field, long delta) {
+        incr(CounterConstant.USER_PENDING_KEY_PREFIX, CounterConstant.USER_DIRTY_KEY, userId, field, delta);
+    }
+
+    /**
+     * 批量获取帖子尚未写回的增量
+     *
+     * @param postIds
+     * @return 帖子 id -> (字段 -> 增量)，没有增量的帖子不在结果中
+     */
+    public Map<Long, Map<String, Long>> getPendingPostDelta(Collection<Long> postIds) {
+        return getPendingDelta(CounterConstant.POST_PENDING_KEY_PREFIX, postIds);
+    }
+
+    /**
+     * 获取用户尚未写回的增量
+     *
+     * @param userId
+     * @return 字段 -> 增量
+     */
+    public Map<String, Long> getPendingUserDelta(Long userId) {
+        return getPendingDelta(CounterConstant.USER_PENDING_KEY_PREFIX, Collections.singletonList(userId))
+                .getOrDefault(userId, Collections.emptyMap());
+    }
+
+    /**
+     * 定期写回增量
+     */
+    @Scheduled(fixedDelayString = "${campcircle.counter.flush-interval-ms:5000}")
+    public void flush() {
+        try {
+            flush(CounterConstant.POST_PENDING_KEY_PREFIX, CounterConstant.POST_DIRTY_KEY,
+                    CounterConstant.POST_INFLIGHT_KEY_PREFIX, CounterConstant.POST_INFLIGHT_BATCH_KEY, "post", POST_FIELDS);
+            flush(CounterConstant.USER_PENDING_KEY_PREFIX, CounterConstant.USER_DIRTY_KEY,
+                    CounterConstant.USER_INFLIGHT_KEY_PREFIX, CounterConstant.USER_INFLIGHT_BATCH_KEY, "user", USER_FIELDS);
+        } catch (Exception e) {
+            log.error("写回计数失败", e);
+        }
+    }
+
+    /**
+     * 定期清理过期的批次标记
+     */
+    @Scheduled(fixedDelay = 60 * 60 * 1000, initialDelay = 60 * 1000)
+    public void cleanBatchMarker() {
+        try {
+            int count = jdbcTemplate.update("DELETE FROM counter_flush_batch WHERE createTime < ?",
+                    new Date(System.currentTimeMillis() - BATCH_MARKER_RETAIN_MS));
+            log.debug("清理计数写回批次标记 {} 条", count);
+        } catch (Exception e) {
+            log.error("清理计数写回批次标记失败", e);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        flush();
+    }
+
+    private void incr(String keyPrefix, String dirtyKey, Long id, String field, long delta) {
+        if (id == null || delta == 0) {
+            return;
+        }
+        TransactionUtils.afterCommit(() -> {
+            try {
+                stringRedisTemplate.execute(INCR_SCRIPT, Arrays.asList(keyPrefix + id, dirtyKey), field,
+                        String.valueOf(delta), String.valueOf(id));
+            } catch (Exception e) {
+                // Redis 不可用时直接更新数据库
+                log.error("累加计数失败，直接写库, key: {}{}, field: {}", keyPrefix, id, field, e);
+                String table = CounterConstant.POST_PENDING_KEY_PREFIX.equals(keyPrefix) ? "post" : "user";
+                transactionTemplate.executeWithoutResult(status -> {
+                    jdbcTemplate.update(String.format("UPDATE %s SET %s = %s + ? WHERE id = ?",
+                            table, field, field), delta, id);
+                    if ("post".equals(table)) {
+                        postEsOutboxManager.record(id);
+                    }
+                });
+                if ("user".equals(table)) {
+                    userCacheManager.invalidate(id);
+                } else {
+                    postCacheManager.invalidate(id);
+                }
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Long, Map<String, Long>> getPendingDelta(String keyPrefix, Collection<Long> ids) {
+        if (CollUtil.isEmpty(ids)) {
+            return Collections.emptyMap();
+        }
+        List<Long> idList = new ArrayList<>(ids);
+        List<Object> resultList;
+        try {
+            resultList = stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                public Object execute(RedisOperations operations) throws DataAccessException {
+                    for (Long id : idList) {
+                        operations.opsForHash().entries(keyPrefix + id);
+                    }
+                    return null;
+                }
+            });
+        } catch (Exception e) {
+            log.error("读取待写回计数失败", e);
+            return Collections.emptyMap();
+        }
+        Map<Long, Map<String, Long>> idDeltaMap = new HashMap<>();
+        for (int i = 0; i < idList.size(); i++) {
+            Map<Object, Object> entries = (Map<Object, Object>) resultList.get(i);
+            if (CollUtil.isEmpty(entries)) {
+                continue;
+            }
+            Map<String, Long> deltaMap = new HashMap<>();
+            entries.forEach((field, value) -> deltaMap.put(String.valueOf(field), Long.parseLong(String.valueOf(value))));
+            idDeltaMap.put(idList.get(i), deltaMap);
+        }
+        return idDeltaMap;
+    }
+
+    /**
+     * 按批取出脏 id 的增量并写回：增量先转入写回中，写库成功后确认，失败时放回 Redis
+     */
+    @SuppressWarnings("unchecked")
+    private void flush(String keyPrefix, String dirtyKey, String inflightKeyPrefix, String inflightBatchKey,
+                       String table, String[] fields) {
+        recoverInflight(keyPrefix, dirtyKey, inflightKeyPrefix, inflightBatchKey);
+        StringBuilder setSql = new StringBuilder();
+        StringBuilder negativeSql = new StringBuilder();
+        for (String field : fields) {
+            if (setSql.length() > 0) {
+                setSql.append(", ");
+                negativeSql.append(" OR ");
+            }
+            // 不截断为 0，出现负数说明汇总字段与关系表不一致，写回后检查并告警
+            setSql.append(field).append(" = ").append(field).append(" + ?");
+            negativeSql.append(field).append(" < 0");
+        }
+        String sql = "UPDATE " + table + " SET " + setSql + " WHERE id = ?";
+        while (true) {
+            String batchId = IdUtil.fastSimpleUUID();
+            String inflightKey = inflightKeyPrefix + batchId;
+            List<Object> drainList = stringRedisTemplate.execute(DRAIN_SCRIPT,
+                    Arrays.asList(dirtyKey, inflightBatchKey, inflightKey), keyPrefix, String.valueOf(flushBatchSize),
+                    batchId, String.valueOf(System.currentTimeMillis()));
+            if (CollUtil.isEmpty(drainList)) {
+                // 脏集合中的 id 都没有增量时脏集合也已取空
+                Long size = stringRedisTemplate.opsForSet().size(dirtyKey);
+                if (size == null || size == 0) {
+                    return;
+                }
+                continue;
+            }
+            // 按 id 排序，保证多个节点并发写回时加锁顺序一致
+            Map<Long, Map<String, Long>> idDeltaMap = new TreeMap<>();
+            for (int i = 0; i + 1 < drainList.size(); i += 2) {
+                List<Object> entryList = (List<Object>) drainList.get(i + 1);
+                Map<String, Long> deltaMap = new HashMap<>();
+                for (int j = 0; j + 1 < entryList.size(); j += 2) {
+                    deltaMap.put(String.valueOf(entryList.get(j)), Long.parseLong(String.valueOf(entryList.get(j + 1))));
+                }
+                idDeltaMap.put(Long.parseLong(String.valueOf(drainList.get(i))), deltaMap);
+            }
+            List<Object[]> argList = new ArrayList<>();
+            List<Long> flushedIdList = new ArrayList<>();
+            idDeltaMap.forEach((id, deltaMap) -> {
+                Object[] args = new Object[fields.length + 1];
+                boolean changed = false;
+                for (int k = 0; k < fields.length; k++) {
+                    long delta = deltaMap.getOrDefault(fields[k], 0L);
+                    args[k] = delta;
+                    changed |= delta != 0;
+                }
+                if (changed) {
+                    args[fields.length] = id;
+                    argList.add(args);
+                    flushedIdList.add(id);
+                }
+            });
+            try {
+                if (!argList.isEmpty()) {
+                    // 批次标记、帖子计数与 ES 同步发件箱在同一事务内写入
+                    transactionTemplate.executeWithoutResult(status -> {
+                        jdbcTemplate.update("INSERT INTO counter_flush_batch (batchId, status) VALUES (?, ?)",
+                                batchId, BATCH_STATUS_FLUSHED);
+                        jdbcTemplate.batchUpdate(sql, argList);
+                        if ("post".equals(table)) {
+                            postEsOutboxManager.record(flushedIdList);
+                        }
+                    });
+                }
+            } catch (Exception e) {
+                log.error("写回{}计数失败, 条数: {}", table, argList.size(), e);
+                try {
+                    // 提交结果未知（如提交时连接断开）时同样以批次标记为准
+                    resolveInflight(keyPrefix, dirtyKey, inflightKeyPrefix, inflightBatchKey, batchId);
+                } catch (Exception resolveException) {
+                    // 数据库不可用时保留在写回中，超时后再处理
+                    log.error("处理写回失败的计数批次失败, batchId: {}", batchId, resolveException);
+                }
+                return;
+            }
+            // 写库成功后才清除写回中的增量
+            stringRedisTemplate.execute(ACK_SCRIPT, Arrays.asList(inflightBatchKey, inflightKey), batchId);
+            if (flushedIdList.isEmpty()) {
+                continue;
+            }
+            if ("user".equals(table)) {
+                flushedIdList.forEach(userCacheManager::invalidate);
+            } else {
+                postCacheManager.invalidate(flushedIdList);
+            }
+            checkNegative(table, negativeSql.toString(), flushedIdList);
+            log.debug("写回{}计数 {} 条", table, argList.size());
+        }
+    }
+
+    /**
+     * 处理超时未确认的写回中批次（写回节点在写库前后宕机、确认失败或写库长时间阻塞）
+     */
+    private void recoverInflight(String keyPrefix, String dirtyKey, String inflightKeyPrefix, String inflightBatchKey) {
+        Set<String> batchIdSet = stringRedisTemplate.opsForZSet().rangeByScore(inflightBatchKey, 0,
+                System.currentTimeMillis() - inflightTimeoutMs);
+        if (CollUtil.isEmpty(batchIdSet)) {
+            return;
+        }
+        for (String batchId : batchIdSet) {
+            resolveInflight(keyPrefix, dirtyKey, inflightKeyPrefix, inflightBatchKey, batchId);
+        }
+    }
+
+    /**
+     * 按批次标记确认或放回写回中批次
+     * <p>
+     * 以"已放回"状态抢占插入标记：写库事务仍未结束时插入会等待其提交或回滚；
+     * 抢占成功说明增量未写入，之后写库事务插入标记会因主键冲突回滚，可以放回；
+     * 标记已存在且为"已写库"说明增量已提交，只确认。
+     */
+    private void resolveInflight(String keyPrefix, String dirtyKey, String inflightKeyPrefix, String inflightBatchKey,
+                                 String batchId) {
+        String inflightKey = inflightKeyPrefix + batchId;
+        int claimed = jdbcTemplate.update("INSERT IGNORE INTO counter_flush_batch (batchId, status) VALUES (?, ?)",
+                batchId, BATCH_STATUS_RESTORED);
+        Integer status = claimed > 0 ? Integer.valueOf(BATCH_STATUS_RESTORED) : jdbcTemplate.queryForObject(
+                "SELECT status FROM counter_flush_batch WHERE batchId = ?", Integer.class, batchId);
+        if (status != null && status == BATCH_STATUS_FLUSHED) {
+            stringRedisTemplate.execute(ACK_SCRIPT, Arrays.asList(inflightBatchKey, inflightKey), batchId);
+            log.warn("确认已写库但未确认的计数写回批次, batchId: {}", batchId);
+            return;
+        }
+        // 已放回的批次再次放回时 RESTORE_SCRIPT 不做任何事
+        Long restored = stringRedisTemplate.execute(RESTORE_SCRIPT, Arrays.asList(inflightBatchKey, inflightKey, dirtyKey),
+                batchId, keyPrefix);
+        log.warn("放回未写库的计数写回批次, batchId: {}, 增量数: {}", batchId, restored);
+    }
+
+    /**
+     * 检查写回后出现负数的计数，负数说明汇总字段与关系表已不一致，需要人工校正
+     */
+    private void checkNegative(String table, String negativeSql, List<Long> idList) {
+        try {
+            String placeholders = idList.stream().map(id -> "?").collect(Collectors.joining(","));
+            List<Long> negativeIdList = jdbcTemplate.queryForList("SELECT id FROM " + table + " WHERE id IN ("
+                    + placeholders + ") AND (" + negativeSql + ")", Long.class, idList.toArray());
+            if (!negativeIdList.isEmpty()) {
+                log.warn("{}计数出现负数，汇总字段与关系表不一致, ids: {}", table, negativeIdList);
+            }
+        } catch (Exception e) {
+            log.error("检查{}计数失败", table, e);
+        }
+    }
+}
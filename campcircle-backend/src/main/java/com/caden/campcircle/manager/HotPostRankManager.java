@@ -0,0 +1,281 @@
+package com.caden.campcircle.manager;
+
+import cn.hutool.core.collection.CollUtil;
+import com.caden.campcircle.constant.PostConstant;
+import com.caden.campcircle.model.entity.Post;
+import com.caden.campcircle.utils.TransactionUtils;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+/**
+ * 实时热榜
+ * <p>
+ * 采用前向衰减：每次互动按 weight × 2^((now - epoch) / halfLife) 累加到 ZSET，越新的互动权重越大，
+ * 已有分数无需随时间重算，排序即为衰减后的热度；读取时除以当前因子得到实际热度。
+ * epoch 定期前移并整体缩放分数，避免指数溢出。
+ */
+@Component
+@Slf4j
+public class HotPostRankManager {
+
+    /**
+     * 记录互动：KEYS[1] 热榜，KEYS[2] 发布时间，KEYS[3] epoch，KEYS[4] 脏帖子集合
+     * ARGV[1] 帖子 id，ARGV[2] 权重，ARGV[3] 互动发生时间，ARGV[4] 发布时间，ARGV[5] 半衰期，ARGV[6] 当前时间
+     * 撤销时按原互动发生时间计算，减去的正好是当初加上的分数；不在榜上的帖子不再撤销
+     */
+    private static final DefaultRedisScript<String> RECORD_SCRIPT = new DefaultRedisScript<>(
+            "if tonumber(ARGV[2]) < 0 and not redis.call('ZSCORE', KEYS[1], ARGV[1]) then return nil end\n" +
+            "local epoch = tonumber(redis.call('GET', KEYS[3]))\n" +
+            "if not epoch then\n" +
+            "  epoch = tonumber(ARGV[6])\n" +
+            "  redis.call('SET', KEYS[3], ARGV[6])\n" +
+            "end\n" +
+            "local inc = tonumber(ARGV[2]) * 2 ^ ((tonumber(ARGV[3]) - epoch) / tonumber(ARGV[5]))\n" +
+            "redis.call('ZADD', KEYS[2], 'NX', ARGV[4], ARGV[1])\n" +
+            "redis.call('SADD', KEYS[4], ARGV[1])\n" +
+            "return tostring(redis.call('ZINCRBY', KEYS[1], inc, ARGV[1]))", String.class);
+
+    /**
+     * 前移 epoch 并整体缩放：KEYS 同上，ARGV[1] 新 epoch，ARGV[2] 半衰期
+     */
+    private static final DefaultRedisScript<Long> REBASE_SCRIPT = new DefaultRedisScript<>(
+            "local epoch = tonumber(redis.call('GET', KEYS[3]))\n" +
+            "if not epoch or tonumber(ARGV[1]) <= epoch then return 0 end\n" +
+            "local factor = 2 ^ (-(tonumber(ARGV[1]) - epoch) / tonumber(ARGV[2]))\n" +
+            "if redis.call('EXISTS', KEYS[1]) == 1 then\n" +
+            "  redis.call('ZUNIONSTORE', KEYS[1], 1, KEYS[1], 'WEIGHTS', factor)\n" +
+            "end\n" +
+            "redis.call('SET', KEYS[3], ARGV[1])\n" +
+            "return 1", Long.class);
+
+    /**
+     * 取出脏帖子快照：KEYS[1] 脏帖子集合，KEYS[2] 处理中快照（合并上次未完成的）
+     */
+    private static final DefaultRedisScript<List> POP_DIRTY_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 1 then\n" +
+            "  redis.call('SUNIONSTORE', KEYS[2], KEYS[2], KEYS[1])\n" +
+            "  redis.call('DEL', KEYS[1])\n" +
+            "end\n" +
+            "return redis.call('SMEMBERS', KEYS[2])", List.class);
+
+    private static final List<String> KEY_LIST = Arrays.asList(PostConstant.HOT_RANK_KEY,
+            PostConstant.HOT_RANK_CREATE_TIME_KEY, PostConstant.HOT_RANK_EPOCH_KEY);
+
+    private static final List<String> RECORD_KEY_LIST = Arrays.asList(PostConstant.HOT_RANK_KEY,
+            PostConstant.HOT_RANK_CREATE_TIME_KEY, PostConstant.HOT_RANK_EPOCH_KEY, PostConstant.HOT_SCORE_DIRTY_KEY);
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 热度半衰期（小时）
+     */
+    @Value("${campcircle.hot-rank.half-life-hours:12}")
+    private long halfLifeHours;
+
+    /**
+     * 热榜窗口（天），发布超过该时间的帖子不再上榜
+     */
+    @Value("${campcircle.hot-rank.window-days:7}")
+    private long windowDays;
+
+    /**
+     * 热榜最多保留的帖子数
+     */
+    @Value("${campcircle.hot-rank.max-size:1000}")
+    private long maxSize;
+
+    /**
+     * 记录一次互动（事务中在提交后执行）
+     *
+     * @param post   帖子
+     * @param weight 权重
+     */
+    public void record(Post post, double weight) {
+        record(post, weight, null);
+    }
+
+    /**
+     * 记录一次互动（事务中在提交后执行），权重为负表示撤销
+     *
+     * @param post      帖子
+     * @param weight    权重
+     * @param eventTime 互动发生时间，撤销时传原互动的时间，为空表示当前时间
+     */
+    public void record(Post post, double weight, Date eventTime) {
+        if (post == null || post.getId() == null || post.getCreateTime() == null) {
+            return;
+        }
+        long createTime = post.getCreateTime().getTime();
+        if (createTime < System.currentTimeMillis() - TimeUnit.DAYS.toMillis(windowDays)) {
+            return;
+        }
+        Long postId = post.getId();
+        TransactionUtils.afterCommit(() -> {
+            try {
+                long now = System.currentTimeMillis();
+                long time = eventTime == null ? now : Math.min(eventTime.getTime(), now);
+                stringRedisTemplate.execute(RECORD_SCRIPT, RECORD_KEY_LIST, String.valueOf(postId), String.valueOf(weight),
+                        String.valueOf(time), String.valueOf(createTime), String.valueOf(getHalfLifeMillis()),
+                        String.valueOf(now));
+            } catch (Exception e) {
+                log.error("记录帖子热度失败, postId: {}", postId, e);
+            }
+        });
+    }
+
+    /**
+     * 从热榜移除帖子（删除、转私密）
+     *
+     * @param postId
+     */
+    public void remove(Long postId) {
+        if (postId == null) {
+            return;
+        }
+        String member = String.valueOf(postId);
+        stringRedisTemplate.opsForZSet().remove(PostConstant.HOT_RANK_KEY, member);
+        stringRedisTemplate.opsForZSet().remove(PostConstant.HOT_RANK_CREATE_TIME_KEY, member);
+    }
+
+    /**
+     * 取出自上次热度计算后有互动的帖子 id，处理完成后需调用 {@link #ackDirty()}
+     *
+     * @return 帖子 id
+     */
+    @SuppressWarnings("unchecked")
+    public Set<Long> popDirty() {
+        List<Object> memberList = stringRedisTemplate.execute(POP_DIRTY_SCRIPT,
+                Arrays.asList(PostConstant.HOT_SCORE_DIRTY_KEY, PostConstant.HOT_SCORE_DIRTY_PROCESSING_KEY));
+        if (CollUtil.isEmpty(memberList)) {
+            return Collections.emptySet();
+        }
+        Set<Long> postIdSet = new HashSet<>();
+        for (Object member : memberList) {
+            postIdSet.add(Long.parseLong(String.valueOf(member)));
+        }
+        return postIdSet;
+    }
+
+    /**
+     * 确认脏帖子快照已处理
+     */
+    public void ackDirty() {
+        stringRedisTemplate.delete(PostConstant.HOT_SCORE_DIRTY_PROCESSING_KEY);
+    }
+
+    /**
+     * 热榜是否已有数据
+     */
+    public boolean isEmpty() {
+        Long size = stringRedisTemplate.opsForZSet().zCard(PostConstant.HOT_RANK_KEY);
+        return size == null || size == 0;
+    }
+
+    /**
+     * 获取热榜前 limit 个帖子及当前热度（按热度倒序）
+     *
+     * @param limit
+     * @return 帖子 id -> 当前热度
+     */
+    public Map<Long, Double> listTop(int limit) {
+        Set<ZSetOperations.TypedTuple<String>> tupleSet = stringRedisTemplate.opsForZSet()
+                .reverseRangeWithScores(PostConstant.HOT_RANK_KEY, 0, limit - 1);
+        if (CollUtil.isEmpty(tupleSet)) {
+            return Collections.emptyMap();
+        }
+        double factor = currentFactor();
+        Map<Long, Double> postIdScoreMap = new LinkedHashMap<>();
+        for (ZSetOperations.TypedTuple<String> tuple : tupleSet) {
+            double score = tuple.getScore() == null ? 0 : tuple.getScore();
+            postIdScoreMap.put(Long.parseLong(tuple.getValue()), score / factor);
+        }
+        return postIdScoreMap;
+    }
+
+    /**
+     * 用数据库中的热度初始化热榜（热榜为空时使用），数据库热度按 ×100 存储
+     *
+     * @param postList
+     */
+    public void seed(List<Post> postList) {
+        double factor = currentFactor();
+        for (Post post : postList) {
+            if (post.getCreateTime() == null || post.getHotScore() == null || post.getHotScore() <= 0) {
+                continue;
+            }
+            String member = String.valueOf(post.getId());
+            stringRedisTemplate.opsForZSet().addIfAbsent(PostConstant.HOT_RANK_KEY, member,
+                    post.getHotScore() / 100 * factor);
+            stringRedisTemplate.opsForZSet().addIfAbsent(PostConstant.HOT_RANK_CREATE_TIME_KEY, member,
+                    post.getCreateTime().getTime());
+        }
+    }
+
+    /**
+     * 裁剪热榜：移除窗口外的帖子、超出上限的帖子，并前移 epoch
+     *
+     * @return 移除的帖子数
+     */
+    public long trim() {
+        long now = System.currentTimeMillis();
+        long removed = 0;
+        // 1. 窗口外的帖子
+        Set<String> expiredSet = stringRedisTemplate.opsForZSet().rangeByScore(PostConstant.HOT_RANK_CREATE_TIME_KEY,
+                0, now - TimeUnit.DAYS.toMillis(windowDays));
+        if (CollUtil.isNotEmpty(expiredSet)) {
+            Object[] members = expiredSet.toArray();
+            stringRedisTemplate.opsForZSet().remove(PostConstant.HOT_RANK_KEY, members);
+            stringRedisTemplate.opsForZSet().remove(PostConstant.HOT_RANK_CREATE_TIME_KEY, members);
+            removed += members.length;
+        }
+        // 2. 超出上限的低分帖子
+        Long size = stringRedisTemplate.opsForZSet().zCard(PostConstant.HOT_RANK_KEY);
+        if (size != null && size > maxSize) {
+            Set<String> lowSet = stringRedisTemplate.opsForZSet().range(PostConstant.HOT_RANK_KEY, 0, size - maxSize - 1);
+            if (CollUtil.isNotEmpty(lowSet)) {
+                Object[] members = lowSet.toArray();
+                stringRedisTemplate.opsForZSet().remove(PostConstant.HOT_RANK_KEY, members);
+                stringRedisTemplate.opsForZSet().remove(PostConstant.HOT_RANK_CREATE_TIME_KEY, members);
+                removed += members.length;
+            }
+        }
+        // 3. epoch 落后超过一个窗口时前移，保证分数在 double 精度范围内
+        String epochStr = stringRedisTemplate.opsForValue().get(PostConstant.HOT_RANK_EPOCH_KEY);
+        if (epochStr != null && now - Long.parseLong(epochStr) > TimeUnit.DAYS.toMillis(windowDays)) {
+            stringRedisTemplate.execute(REBASE_SCRIPT, KEY_LIST, String.valueOf(now), String.valueOf(getHalfLifeMillis()));
+        }
+        return removed;
+    }
+
+    /**
+     * 当前时刻的衰减因子 2^((now - epoch) / halfLife)
+     */
+    private double currentFactor() {
+        String epochStr = stringRedisTemplate.opsForValue().get(PostConstant.HOT_RANK_EPOCH_KEY);
+        long now = System.currentTimeMillis();
+        if (epochStr == null) {
+            stringRedisTemplate.opsForValue().setIfAbsent(PostConstant.HOT_RANK_EPOCH_KEY, String.valueOf(now));
+            return 1;
+        }
+        return Math.pow(2, (now - Long.parseLong(epochStr)) / (double) getHalfLifeMillis());
+    }
+
+    private long getHalfLifeMillis() {
+        return TimeUnit.HOURS.toMillis(halfLifeHours);
+    }
+}
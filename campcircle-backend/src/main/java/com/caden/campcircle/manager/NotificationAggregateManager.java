@@ -0,0 +1,180 @@
+package com.caden.campcircle.manager;
+
+import cn.hutool.core.collection.CollUtil;
+import com.caden.campcircle.constant.MessageConstant;
+import com.caden.campcircle.utils.TransactionUtils;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.Resource;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+/**
+ * 通知聚合缓冲
+ * <p>
+ * 点赞、收藏、关注事件在业务事务提交后按 (接收用户, 类型, 帖子) 累加到 Redis，
+ * 由定时任务每个窗口取出一次、合并成一条通知批量写库，热门帖子的大量点赞只产生一次写入。
+ */
+@Component
+@Slf4j
+public class NotificationAggregateManager {
+
+    /**
+     * 累加事件：KEYS[1] 聚合 HASH，KEYS[2] 脏集合，ARGV[1] 聚合键，ARGV[2] 事件数，ARGV[3] 发送用户 id，
+     * ARGV[4] 为 1 时覆盖最近的发送用户（新事件），否则只在没有时写入（放回的旧事件）
+     */
+    private static final DefaultRedisScript<Long> ADD_SCRIPT = new DefaultRedisScript<>(
+            "local count = redis.call('HINCRBY', KEYS[1], 'count', ARGV[2])\n" +
+            "if ARGV[4] == '1' then\n" +
+            "  redis.call('HSET', KEYS[1], 'from', ARGV[3])\n" +
+            "else\n" +
+            "  redis.call('HSETNX', KEYS[1], 'from', ARGV[3])\n" +
+            "end\n" +
+            "redis.call('SADD', KEYS[2], ARGV[1])\n" +
+            "return count", Long.class);
+
+    /**
+     * 取出并清空：KEYS[1] 脏集合，ARGV[1] 聚合 HASH 前缀，ARGV[2] 最多取出的聚合键数
+     * 弹出聚合键与读取、删除 HASH 在同一脚本中完成，不会留下不在脏集合中的 HASH；
+     * 返回 {聚合键, HGETALL 结果, ...}
+     */
+    private static final DefaultRedisScript<List> DRAIN_SCRIPT = new DefaultRedisScript<>(
+            "local members = redis.call('SPOP', KEYS[1], ARGV[2])\n" +
+            "local result = {}\n" +
+            "for _, member in ipairs(members) do\n" +
+            "  local key = ARGV[1] .. member\n" +
+            "  result[#result + 1] = member\n" +
+            "  result[#result + 1] = redis.call('HGETALL', key)\n" +
+            "  redis.call('DEL', key)\n" +
+            "end\n" +
+            "return result", List.class);
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 缓冲一个通知事件（事务中在提交后执行，回滚的事件不会产生通知）
+     *
+     * @param type       {@link MessageConstant} 中的系统消息类型
+     * @param fromUserId
+     * @param toUserId
+     * @param postId     关注通知为空
+     * @param fallback   Redis 不可用时直接写库
+     */
+    public void add(Integer type, Long fromUserId, Long toUserId, Long postId, Runnable fallback) {
+        AggregateEvent aggregateEvent = new AggregateEvent();
+        aggregateEvent.setType(type);
+        aggregateEvent.setToUserId(toUserId);
+        aggregateEvent.setPostId(postId);
+        aggregateEvent.setLastFromUserId(fromUserId);
+        aggregateEvent.setCount(1);
+        TransactionUtils.afterCommit(() -> {
+            try {
+                addToRedis(aggregateEvent, true);
+            } catch (Exception e) {
+                log.error("缓冲通知失败，直接写库, toUserId: {}, type: {}", toUserId, type, e);
+                fallback.run();
+            }
+        });
+    }
+
+    /**
+     * 取出一批待写库的聚合事件
+     *
+     * @param batchSize
+     * @return 为空表示没有待写库的事件
+     */
+    @SuppressWarnings("unchecked")
+    public List<AggregateEvent> drain(int batchSize) {
+        List<Object> drainList = stringRedisTemplate.execute(DRAIN_SCRIPT,
+                Collections.singletonList(MessageConstant.NOTIFICATION_AGGREGATE_DIRTY_KEY),
+                MessageConstant.NOTIFICATION_AGGREGATE_KEY_PREFIX, String.valueOf(batchSize));
+        if (CollUtil.isEmpty(drainList)) {
+            return Collections.emptyList();
+        }
+        List<AggregateEvent> aggregateEventList = new ArrayList<>();
+        for (int i = 0; i + 1 < drainList.size(); i += 2) {
+            List<Object> entryList = (List<Object>) drainList.get(i + 1);
+            if (CollUtil.isEmpty(entryList)) {
+                continue;
+            }
+            String[] parts = String.valueOf(drainList.get(i)).split(":");
+            AggregateEvent aggregateEvent = new AggregateEvent();
+            aggregateEvent.setToUserId(Long.parseLong(parts[0]));
+            aggregateEvent.setType(Integer.parseInt(parts[1]));
+            aggregateEvent.setPostId("0".equals(parts[2]) ? null : Long.parseLong(parts[2]));
+            for (int j = 0; j + 1 < entryList.size(); j += 2) {
+                String field = String.valueOf(entryList.get(j));
+                String value = String.valueOf(entryList.get(j + 1));
+                if ("count".equals(field)) {
+                    aggregateEvent.setCount(Integer.parseInt(value));
+                } else if ("from".equals(field)) {
+                    aggregateEvent.setLastFromUserId(Long.parseLong(value));
+                }
+            }
+            if (aggregateEvent.getCount() != null && aggregateEvent.getCount() > 0) {
+                aggregateEventList.add(aggregateEvent);
+            }
+        }
+        return aggregateEventList;
+    }
+
+    /**
+     * 写库失败时把事件放回，下个窗口重试
+     *
+     * @param aggregateEventList
+     */
+    public void restore(List<AggregateEvent> aggregateEventList) {
+        for (AggregateEvent aggregateEvent : aggregateEventList) {
+            try {
+                addToRedis(aggregateEvent, false);
+            } catch (Exception e) {
+                log.error("放回聚合通知失败, toUserId: {}, type: {}, count: {}", aggregateEvent.getToUserId(),
+                        aggregateEvent.getType(), aggregateEvent.getCount(), e);
+            }
+        }
+    }
+
+    private void addToRedis(AggregateEvent aggregateEvent, boolean latest) {
+        String member = aggregateEvent.getToUserId() + ":" + aggregateEvent.getType() + ":"
+                + (aggregateEvent.getPostId() == null ? 0 : aggregateEvent.getPostId());
+        stringRedisTemplate.execute(ADD_SCRIPT, Arrays.asList(MessageConstant.NOTIFICATION_AGGREGATE_KEY_PREFIX + member,
+                        MessageConstant.NOTIFICATION_AGGREGATE_DIRTY_KEY), member,
+                String.valueOf(aggregateEvent.getCount()), String.valueOf(aggregateEvent.getLastFromUserId()),
+                latest ? "1" : "0");
+    }
+
+    /**
+     * 一个聚合键在一个窗口内的事件
+     */
+    @Data
+    public static class AggregateEvent implements Serializable {
+
+        private Long toUserId;
+
+        private Integer type;
+
+        /**
+         * 关注通知为空
+         */
+        private Long postId;
+
+        /**
+         * 最近的发送用户 id
+         */
+        private Long lastFromUserId;
+
+        /**
+         * 事件数
+         */
+        private Integer count;
+
+        private static final long serialVersionUID = 1L;
+    }
+}
@@ -0,0 +1,68 @@
+package com.caden.campcircle.manager;
+
+import com.caden.campcircle.model.dto.post.PostEsDTO;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import javax.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.springframework.data.elasticsearch.core.ElasticsearchRestTemplate;
+import org.springframework.data.elasticsearch.core.query.NativeSearchQueryBuilder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * ES 过期帖子清理
+ * <p>
+ * 搜索命中但数据库中已不存在的帖子放入有界队列，定期合并为一次按 id 删除，不阻塞搜索请求；队列满时丢弃，下次命中会再次入队
+ */
+@Component
+@Slf4j
+public class PostEsCleanupManager {
+
+    private static final int QUEUE_CAPACITY = 10000;
+
+    private static final int BATCH_SIZE = 500;
+
+    private final BlockingQueue<Long> staleQueue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+
+    @Resource
+    private ElasticsearchRestTemplate elasticsearchRestTemplate;
+
+    /**
+     * 提交待清理的帖子
+     *
+     * @param postId
+     */
+    public void submit(Long postId) {
+        if (postId != null && !staleQueue.offer(postId)) {
+            log.warn("ES 过期帖子清理队列已满, postId: {}", postId);
+        }
+    }
+
+    /**
+     * 定期批量删除
+     */
+    @Scheduled(fixedDelay = 5000)
+    public void cleanup() {
+        while (!staleQueue.isEmpty()) {
+            List<Long> drainList = new ArrayList<>();
+            staleQueue.drainTo(drainList, BATCH_SIZE);
+            Set<String> idSet = new LinkedHashSet<>();
+            drainList.forEach(postId -> idSet.add(String.valueOf(postId)));
+            try {
+                elasticsearchRestTemplate.delete(new NativeSearchQueryBuilder()
+                        .withQuery(QueryBuilders.idsQuery().addIds(idSet.toArray(new String[0])))
+                        .build(), PostEsDTO.class);
+                log.info("delete stale post from es, count {}", idSet.size());
+            } catch (Exception e) {
+                log.error("清理 ES 过期帖子失败, count: {}", idSet.size(), e);
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.caden.campcircle.manager;
+
+import cn.hutool.core.collection.CollUtil;
+import com.caden.campcircle.mapper.PostEsOutboxMapper;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import javax.annotation.Resource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 帖子 ES 同步发件箱
+ * <p>
+ * 帖子内容、删除、计数发生变化时，在修改帖子的同一事务内写入发件箱，事务回滚则发件箱一并回滚，
+ * 提交后由 {@link com.caden.campcircle.job.cycle.PostEsOutboxRelayJob} 读取并同步到 ES
+ */
+@Component
+public class PostEsOutboxManager {
+
+    @Resource
+    private PostEsOutboxMapper postEsOutboxMapper;
+
+    /**
+     * 是否启用发件箱同步（未启用时不写发件箱，避免没有中继时无限堆积）
+     */
+    @Value("${campcircle.es-sync.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * 记录帖子变更（须在修改帖子的事务内调用）
+     *
+     * @param postId
+     */
+    public void record(Long postId) {
+        if (postId == null) {
+            return;
+        }
+        record(Collections.singletonList(postId));
+    }
+
+    /**
+     * 批量记录帖子变更（须在修改帖子的事务内调用）
+     *
+     * @param postIds
+     */
+    public void record(Collection<Long> postIds) {
+        if (!enabled || CollUtil.isEmpty(postIds)) {
+            return;
+        }
+        postEsOutboxMapper.insertBatch(new LinkedHashSet<>(postIds));
+    }
+}
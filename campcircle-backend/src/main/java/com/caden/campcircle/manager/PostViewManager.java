@@ -0,0 +1,171 @@
+package com.caden.campcircle.manager;
+
+import com.caden.campcircle.constant.PostConstant;
+import com.caden.campcircle.manager.cache.PostCacheManager;
+import com.caden.campcircle.model.entity.Post;
+import com.caden.campcircle.model.entity.User;
+import com.caden.campcircle.utils.NetUtils;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 帖子浏览量统计
+ * <p>
+ * 同一访客在一个去重窗口内多次浏览同一帖子只计一次；浏览增量先累积在内存中，
+ * 定期以批量 UPDATE 写回数据库，避免每次浏览都去争抢帖子行锁。
+ */
+@Component
+@Slf4j
+public class PostViewManager {
+
+    /**
+     * 记录访客：KEYS[1] 访客集合，ARGV[1] 访客标识，ARGV[2] 过期秒数，返回是否首次浏览
+     */
+    private static final DefaultRedisScript<Long> VISIT_SCRIPT = new DefaultRedisScript<>(
+            "local added = redis.call('SADD', KEYS[1], ARGV[1])\n" +
+            "if added == 1 and redis.call('TTL', KEYS[1]) < 0 then\n" +
+            "  redis.call('EXPIRE', KEYS[1], ARGV[2])\n" +
+            "end\n" +
+            "return added", Long.class);
+
+    private static final String UPDATE_VIEW_NUM_SQL = "UPDATE post SET viewNum = viewNum + ? WHERE id = ?";
+
+    /**
+     * 待写回的浏览增量（帖子 id -> 增量）
+     */
+    private final Map<Long, Long> pendingViewMap = new ConcurrentHashMap<>();
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private JdbcTemplate jdbcTemplate;
+
+    @Resource
+    private HotPostRankManager hotPostRankManager;
+
+    @Resource
+    private PostCacheManager postCacheManager;
+
+    @Resource
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * 去重窗口（分钟）
+     */
+    @Value("${campcircle.view.dedupe-window-minutes:30}")
+    private long dedupeWindowMinutes;
+
+    /**
+     * 每批写回条数
+     */
+    @Value("${campcircle.view.flush-batch-size:500}")
+    private int flushBatchSize;
+
+    /**
+     * 记录一次浏览
+     *
+     * @param post      帖子
+     * @param loginUser 登录用户，未登录按 IP 去重
+     * @param request
+     */
+    public void recordView(Post post, User loginUser, HttpServletRequest request) {
+        if (post == null || post.getId() == null) {
+            return;
+        }
+        String visitor = loginUser != null ? "u:" + loginUser.getId() : "ip:" + NetUtils.getIpAddress(request);
+        if (!isFirstVisit(post.getId(), visitor)) {
+            return;
+        }
+        pendingViewMap.merge(post.getId(), 1L, Long::sum);
+        // 公开帖子的浏览计入实时热榜
+        if (post.getIsPublic() == null || post.getIsPublic() == 1) {
+            hotPostRankManager.record(post, PostConstant.HOT_WEIGHT_VIEW);
+        }
+    }
+
+    /**
+     * 获取尚未写回数据库的浏览增量
+     *
+     * @param postId
+     * @return
+     */
+    public long getPendingViewNum(Long postId) {
+        return pendingViewMap.getOrDefault(postId, 0L);
+    }
+
+    /**
+     * 定期写回浏览增量
+     */
+    @Scheduled(fixedDelayString = "${campcircle.view.flush-interval-ms:10000}")
+    public void flush() {
+        if (pendingViewMap.isEmpty()) {
+            return;
+        }
+        // 逐个原子取出增量，取出后的新浏览会重新累积，不会丢失
+        List<Object[]> argList = new ArrayList<>();
+        List<Long> postIdList = new ArrayList<>(pendingViewMap.keySet());
+        // 按 id 排序，保证多个节点并发写回时加锁顺序一致
+        Collections.sort(postIdList);
+        for (Long postId : postIdList) {
+            Long delta = pendingViewMap.remove(postId);
+            if (delta != null && delta > 0) {
+                argList.add(new Object[]{delta, postId});
+            }
+        }
+        for (int i = 0; i < argList.size(); i += flushBatchSize) {
+            List<Object[]> batchList = argList.subList(i, Math.min(i + flushBatchSize, argList.size()));
+            try {
+                // 每批在一个事务内写入，失败时整批回滚，放回内存后重试不会重复计数
+                transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(UPDATE_VIEW_NUM_SQL, batchList));
+            } catch (Exception e) {
+                log.error("写回帖子浏览量失败, 条数: {}", batchList.size(), e);
+                // 放回内存，下次重试
+                for (Object[] args : batchList) {
+                    pendingViewMap.merge((Long) args[1], (Long) args[0], Long::sum);
+                }
+                continue;
+            }
+            postCacheManager.invalidate(batchList.stream().map(args -> (Long) args[1]).collect(Collectors.toList()));
+        }
+        log.debug("写回帖子浏览量 {} 条", argList.size());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        flush();
+    }
+
+    /**
+     * 访客是否在当前窗口内首次浏览该帖子，Redis 不可用时不去重
+     */
+    private boolean isFirstVisit(Long postId, String visitor) {
+        long windowMillis = TimeUnit.MINUTES.toMillis(dedupeWindowMinutes);
+        long window = System.currentTimeMillis() / windowMillis;
+        String key = PostConstant.VIEW_VISITOR_KEY_PREFIX + postId + ":" + window;
+        try {
+            Long added = stringRedisTemplate.execute(VISIT_SCRIPT, Collections.singletonList(key), visitor,
+                    String.valueOf(TimeUnit.MINUTES.toSeconds(dedupeWindowMinutes)));
+            return added == null || added == 1;
+        } catch (Exception e) {
+            log.error("浏览去重失败, postId: {}", postId, e);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,488 @@
+package com.caden.campcircle.manager;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.lang.hash.MurmurHash;
+import com.caden.campcircle.constant.RelationConstant;
+import com.caden.campcircle.model.enums.RelationTypeEnum;
+import com.caden.campcircle.model.vo.BloomFilterStatsVO;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.stereotype.Component;
+
+/**
+ * 用户关系布隆过滤器（否定缓存）
+ * <p>
+ * 每个用户每种关系一个可扩展布隆过滤器：由若干位数组分片组成，分片容量逐个翻倍、误判率逐个减半，
+ * 写满后追加新分片，整体误判率有上界。判定“一定不存在”时直接跳过数据库。
+ * 新增关系在写库前写入过滤器，保证不会漏判；删除关系不清除位，只会增加误判，由定期后台重建消除。
+ * 位位置由 MurmurHash 双重哈希 (h1 + i * h2) mod m 计算，Java 重建和 Lua 判定使用同一公式。
+ */
+@Component
+@Slf4j
+public class RelationBloomFilterManager {
+
+    /**
+     * 新增：KEYS[1] 分片前缀，KEYS[2] 元数据，KEYS[3] 最近新增，KEYS[4] 新增版本号（重建切换前据此判断是否有遗漏）
+     * ARGV[1] h1，ARGV[2] h2，ARGV[3] 目标 id，ARGV[4] 当前时间，ARGV[5] 最近新增保留毫秒数，ARGV[6] 过期秒数，
+     * ARGV[7] 最大分片数，ARGV[8..] 每个分片的 (位数, 哈希函数数, 容量)
+     */
+    private static final DefaultRedisScript<Long> ADD_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('ZADD', KEYS[3], ARGV[4], ARGV[3])\n" +
+            "redis.call('ZREMRANGEBYSCORE', KEYS[3], '-inf', tonumber(ARGV[4]) - tonumber(ARGV[5]))\n" +
+            "redis.call('PEXPIRE', KEYS[3], ARGV[5])\n" +
+            "redis.call('INCR', KEYS[4])\n" +
+            "redis.call('PEXPIRE', KEYS[4], ARGV[5])\n" +
+            "if redis.call('EXISTS', KEYS[2]) == 0 then return -1 end\n" +
+            "local n = tonumber(redis.call('HGET', KEYS[2], 'n'))\n" +
+            "local c = tonumber(redis.call('HGET', KEYS[2], 'c'))\n" +
+            "local i = n - 1\n" +
+            "if c >= tonumber(ARGV[10 + 3 * i]) and n < tonumber(ARGV[7]) then\n" +
+            "  i = n\n" +
+            "  n = n + 1\n" +
+            "  c = 0\n" +
+            "  redis.call('HSET', KEYS[2], 'n', n)\n" +
+            "end\n" +
+            "local m = tonumber(ARGV[8 + 3 * i])\n" +
+            "local k = tonumber(ARGV[9 + 3 * i])\n" +
+            "local h1 = tonumber(ARGV[1])\n" +
+            "local h2 = tonumber(ARGV[2])\n" +
+            "local key = KEYS[1] .. i\n" +
+            "for j = 0, k - 1 do\n" +
+            "  redis.call('SETBIT', key, (h1 + j * h2) % m, 1)\n" +
+            "end\n" +
+            "redis.call('EXPIRE', key, ARGV[6])\n" +
+            "redis.call('HSET', KEYS[2], 'c', c + 1)\n" +
+            "return n", Long.class);
+
+    /**
+     * 批量判定：KEYS[1] 分片前缀，KEYS[2] 元数据，KEYS[3] 停用标记
+     * ARGV[1] 待判定个数 q，ARGV[2..2q+1] 每个目标的 (h1, h2)，其后为每个分片的 (位数, 哈希函数数, 容量)
+     * 返回 {1, 分片数, 构建时间, 每个目标是否可能存在...}，已停用返回 {-2}，未构建返回 {-1}
+     */
+    private static final DefaultRedisScript<List> CHECK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[3]) == 1 then return {-2} end\n" +
+            "if redis.call('EXISTS', KEYS[2]) == 0 then return {-1} end\n" +
+            "local n = tonumber(redis.call('HGET', KEYS[2], 'n'))\n" +
+            "local builtAt = redis.call('HGET', KEYS[2], 'b') or '0'\n" +
+            "local q = tonumber(ARGV[1])\n" +
+            "local base = 2 + 2 * q\n" +
+            "local result = {1, n, builtAt}\n" +
+            "for x = 0, q - 1 do\n" +
+            "  local h1 = tonumber(ARGV[2 + 2 * x])\n" +
+            "  local h2 = tonumber(ARGV[3 + 2 * x])\n" +
+            "  local found = 0\n" +
+            "  for i = 0, n - 1 do\n" +
+            "    local m = tonumber(ARGV[base + 3 * i])\n" +
+            "    local k = tonumber(ARGV[base + 1 + 3 * i])\n" +
+            "    local all = 1\n" +
+            "    for j = 0, k - 1 do\n" +
+            "      if redis.call('GETBIT', KEYS[1] .. i, (h1 + j * h2) % m) == 0 then\n" +
+            "        all = 0\n" +
+            "        break\n" +
+            "      end\n" +
+            "    end\n" +
+            "    if all == 1 then\n" +
+            "      found = 1\n" +
+            "      break\n" +
+            "    end\n" +
+            "  end\n" +
+            "  result[#result + 1] = found\n" +
+            "end\n" +
+            "return result", List.class);
+
+    /**
+     * 重建后切换：KEYS[1] 分片前缀，KEYS[2] 元数据，KEYS[3] 临时分片前缀，KEYS[4] 新增版本号
+     * ARGV[1] 分片数，ARGV[2] 最后一个分片的元素数，ARGV[3] 构建时间，ARGV[4] 过期秒数，ARGV[5] 最大分片数，
+     * ARGV[6] 读取最近新增前的版本号；版本号已变化说明临时分片可能缺少新增，丢弃临时分片并返回 -1
+     */
+    private static final DefaultRedisScript<Long> SWAP_SCRIPT = new DefaultRedisScript<>(
+            "local n = tonumber(ARGV[1])\n" +
+            "if (redis.call('GET', KEYS[4]) or '') ~= ARGV[6] then\n" +
+            "  for i = 0, n - 1 do\n" +
+            "    redis.call('DEL', KEYS[3] .. i)\n" +
+            "  end\n" +
+            "  return -1\n" +
+            "end\n" +
+            "for i = 0, n - 1 do\n" +
+            "  redis.call('RENAME', KEYS[3] .. i, KEYS[1] .. i)\n" +
+            "  redis.call('EXPIRE', KEYS[1] .. i, ARGV[4])\n" +
+            "end\n" +
+            "for i = n, tonumber(ARGV[5]) - 1 do\n" +
+            "  redis.call('DEL', KEYS[1] .. i)\n" +
+            "end\n" +
+            "redis.call('DEL', KEYS[2])\n" +
+            "redis.call('HSET', KEYS[2], 'n', n, 'c', ARGV[2], 'b', ARGV[3])\n" +
+            "redis.call('EXPIRE', KEYS[2], ARGV[4])\n" +
+            "return n", Long.class);
+
+    /**
+     * 最近新增的保留时间，需覆盖一次重建从读库到切换的最长耗时
+     */
+    private static final long RECENT_KEEP_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    /**
+     * 临时分片的过期时间，重建在写入临时分片与切换之间中断时自动清理
+     */
+    private static final long TMP_EXPIRE_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    /**
+     * 切换前发现有新增时重新补录的最多次数
+     */
+    private static final int SWAP_MAX_ATTEMPTS = 3;
+
+    /**
+     * 分片数已满时，两次重建的最小间隔
+     */
+    private static final long FULL_REBUILD_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private final AtomicLong checkCount = new AtomicLong();
+
+    private final AtomicLong negativeCount = new AtomicLong();
+
+    private final AtomicLong positiveCount = new AtomicLong();
+
+    private final AtomicLong falsePositiveCount = new AtomicLong();
+
+    private final AtomicLong unknownCount = new AtomicLong();
+
+    private final AtomicLong rebuildCount = new AtomicLong();
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${campcircle.relation.bloom.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 第一个分片的容量
+     */
+    @Value("${campcircle.relation.bloom.initial-capacity:1024}")
+    private long initialCapacity;
+
+    /**
+     * 第一个分片的误判率
+     */
+    @Value("${campcircle.relation.bloom.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    /**
+     * 最大分片数
+     */
+    @Value("${campcircle.relation.bloom.max-slices:6}")
+    private int maxSlices;
+
+    /**
+     * 过期天数
+     */
+    @Value("${campcircle.relation.bloom.expire-days:7}")
+    private long expireDays;
+
+    /**
+     * 构建超过该天数后后台重建，清除已删除关系留下的位
+     */
+    @Value("${campcircle.relation.bloom.rebuild-days:3}")
+    private long rebuildDays;
+
+    /**
+     * 每个分片的 (位数, 哈希函数数, 容量)
+     */
+    private long[][] sliceParams;
+
+    /**
+     * 分片参数的脚本参数形式
+     */
+    private List<String> sliceArgList;
+
+    @PostConstruct
+    public void init() {
+        sliceParams = new long[maxSlices][];
+        sliceArgList = new ArrayList<>();
+        for (int i = 0; i < maxSlices; i++) {
+            long capacity = initialCapacity << i;
+            double rate = falsePositiveRate / (1L << i);
+            long bits = (long) Math.ceil(-capacity * Math.log(rate) / (Math.log(2) * Math.log(2)));
+            long hashes = Math.max(1, Math.round((double) bits / capacity * Math.log(2)));
+            sliceParams[i] = new long[]{bits, hashes, capacity};
+            sliceArgList.add(String.valueOf(bits));
+            sliceArgList.add(String.valueOf(hashes));
+            sliceArgList.add(String.valueOf(capacity));
+        }
+    }
+
+    /**
+     * 批量判定目标是否可能存在关系
+     *
+     * @param type           关系类型
+     * @param userId         用户 id
+     * @param targetIds      目标 id
+     * @param rebuildTrigger 过滤器未构建或需要重建时调用
+     * @return 目标 id -> 是否可能存在，无法判定（未启用、未构建、Redis 异常）时返回 null
+     */
+    @SuppressWarnings("unchecked")
+    public Map<Long, Boolean> mightContain(RelationTypeEnum type, Long userId, Collection<Long> targetIds,
+                                           Runnable rebuildTrigger) {
+        if (!enabled || CollUtil.isEmpty(targetIds)) {
+            return null;
+        }
+        List<Long> targetIdList = new ArrayList<>(targetIds);
+        String keyPrefix = getKeyPrefix(type, userId);
+        List<String> argList = new ArrayList<>(1 + targetIdList.size() * 2 + sliceArgList.size());
+        argList.add(String.valueOf(targetIdList.size()));
+        for (Long targetId : targetIdList) {
+            long[] hashes = hash(targetId);
+            argList.add(String.valueOf(hashes[0]));
+            argList.add(String.valueOf(hashes[1]));
+        }
+        argList.addAll(sliceArgList);
+        List<Object> resultList;
+        try {
+            resultList = stringRedisTemplate.execute(CHECK_SCRIPT,
+                    Arrays.asList(keyPrefix + ":", keyPrefix + ":meta", keyPrefix + ":disabled"), argList.toArray());
+        } catch (Exception e) {
+            log.error("布隆过滤器判定失败, key: {}", keyPrefix, e);
+            return null;
+        }
+        checkCount.addAndGet(targetIdList.size());
+        if (CollUtil.isEmpty(resultList) || toLong(resultList.get(0)) < 0) {
+            unknownCount.addAndGet(targetIdList.size());
+            // 已停用的过滤器在标记过期前不再重建
+            if (CollUtil.isEmpty(resultList) || toLong(resultList.get(0)) == -1) {
+                rebuildTrigger.run();
+            }
+            return null;
+        }
+        long sliceNum = toLong(resultList.get(1));
+        long builtAt = toLong(resultList.get(2));
+        long age = System.currentTimeMillis() - builtAt;
+        if (age > TimeUnit.DAYS.toMillis(rebuildDays) || (sliceNum >= maxSlices && age > FULL_REBUILD_INTERVAL_MILLIS)) {
+            rebuildTrigger.run();
+        }
+        Map<Long, Boolean> maybeMap = new HashMap<>();
+        for (int i = 0; i < targetIdList.size(); i++) {
+            boolean maybe = toLong(resultList.get(3 + i)) == 1;
+            maybeMap.put(targetIdList.get(i), maybe);
+            (maybe ? positiveCount : negativeCount).incrementAndGet();
+        }
+        return maybeMap;
+    }
+
+    /**
+     * 新增关系，须在关系写库前调用
+     */
+    public void add(RelationTypeEnum type, Long userId, Long targetId) {
+        if (!enabled) {
+            return;
+        }
+        String keyPrefix = getKeyPrefix(type, userId);
+        try {
+            doAdd(keyPrefix, targetId);
+        } catch (Exception e) {
+            // 写入失败可能漏判，删除元数据使过滤器失效，等待重建
+            log.error("布隆过滤器新增失败, key: {}", keyPrefix, e);
+            try {
+                stringRedisTemplate.delete(keyPrefix + ":meta");
+            } catch (Exception ex) {
+                log.error("布隆过滤器失效失败, key: {}", keyPrefix, ex);
+            }
+        }
+    }
+
+    /**
+     * 用数据库中的全部关系重建过滤器，并补录重建期间的新增
+     * <p>
+     * 补录的新增在切换前写入临时分片，切换时校验新增版本号，保证切换后的过滤器不会漏掉重建期间的新增
+     *
+     * @param type         关系类型
+     * @param userId       用户 id
+     * @param targetIdList 全部目标 id
+     * @param startMillis  开始读库的时间
+     */
+    public void rebuild(RelationTypeEnum type, Long userId, List<Long> targetIdList, long startMillis) {
+        if (!enabled) {
+            return;
+        }
+        String keyPrefix = getKeyPrefix(type, userId);
+        String tmpPrefix = keyPrefix + ":tmp:";
+        String versionKey = keyPrefix + ":ver";
+        long expireSeconds = TimeUnit.DAYS.toSeconds(expireDays);
+        for (int attempt = 1; attempt <= SWAP_MAX_ATTEMPTS; attempt++) {
+            // 先读版本号再读最近新增，切换时版本号未变说明读到的最近新增是完整的
+            String version = stringRedisTemplate.opsForValue().get(versionKey);
+            // 补录读库之后的新增（新增先写过滤器后写库，读库时可能尚未提交）
+            Set<String> recentSet = stringRedisTemplate.opsForZSet().rangeByScore(keyPrefix + ":recent",
+                    startMillis - TimeUnit.MINUTES.toMillis(1), Double.MAX_VALUE);
+            Set<Long> allTargetIdSet = new LinkedHashSet<>(targetIdList);
+            if (CollUtil.isNotEmpty(recentSet)) {
+                for (String member : recentSet) {
+                    allTargetIdSet.add(Long.parseLong(member));
+                }
+            }
+            List<byte[]> bitsList = new ArrayList<>();
+            long sliceCount = buildSlices(allTargetIdSet, bitsList);
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (int i = 0; i < bitsList.size(); i++) {
+                    connection.stringCommands().set(toBytes(tmpPrefix + i), bitsList.get(i),
+                            Expiration.milliseconds(TMP_EXPIRE_MILLIS), RedisStringCommands.SetOption.upsert());
+                }
+                return null;
+            });
+            Long swapped = stringRedisTemplate.execute(SWAP_SCRIPT,
+                    Arrays.asList(keyPrefix + ":", keyPrefix + ":meta", tmpPrefix, versionKey),
+                    String.valueOf(bitsList.size()), String.valueOf(sliceCount), String.valueOf(System.currentTimeMillis()),
+                    String.valueOf(expireSeconds), String.valueOf(maxSlices), version == null ? "" : version);
+            if (swapped != null && swapped >= 0) {
+                rebuildCount.incrementAndGet();
+                log.info("重建布隆过滤器, key: {}, 元素数: {}, 分片数: {}", keyPrefix, allTargetIdSet.size(), bitsList.size());
+                return;
+            }
+        }
+        // 新增持续发生，无法得到完整的临时分片：使过滤器失效，期间直接查库，等待下次重建
+        stringRedisTemplate.delete(keyPrefix + ":meta");
+        log.warn("重建布隆过滤器期间新增频繁，放弃切换, key: {}", keyPrefix);
+    }
+
+    /**
+     * 按分片容量依次填充，超出总容量的放入最后一个分片
+     *
+     * @param targetIds 全部目标 id
+     * @param bitsList  填充后的各分片位数组
+     * @return 最后一个分片的元素数
+     */
+    private long buildSlices(Collection<Long> targetIds, List<byte[]> bitsList) {
+        int sliceIndex = 0;
+        long sliceCount = 0;
+        bitsList.add(new byte[(int) ((sliceParams[0][0] + 7) / 8)]);
+        for (Long targetId : targetIds) {
+            if (sliceCount >= sliceParams[sliceIndex][2] && sliceIndex < maxSlices - 1) {
+                sliceIndex++;
+                sliceCount = 0;
+                bitsList.add(new byte[(int) ((sliceParams[sliceIndex][0] + 7) / 8)]);
+            }
+            byte[] bytes = bitsList.get(sliceIndex);
+            for (long position : bitPositions(hash(targetId), sliceParams[sliceIndex][0], (int) sliceParams[sliceIndex][1])) {
+                setBit(bytes, position);
+            }
+            sliceCount++;
+        }
+        return sliceCount;
+    }
+
+    /**
+     * 关系数超过加载上限、无法完整构建时停用过滤器，停用期间判定结果为无法判定，直接查库
+     *
+     * @param type   关系类型
+     * @param userId 用户 id
+     */
+    public void disable(RelationTypeEnum type, Long userId) {
+        if (!enabled) {
+            return;
+        }
+        String keyPrefix = getKeyPrefix(type, userId);
+        stringRedisTemplate.opsForValue().set(keyPrefix + ":disabled", "1", rebuildDays, TimeUnit.DAYS);
+        stringRedisTemplate.delete(keyPrefix + ":meta");
+        log.info("关系数超过布隆过滤器加载上限，停用, key: {}", keyPrefix);
+    }
+
+    /**
+     * 记录假阳性（过滤器判定可能存在，但数据库确认不存在）
+     */
+    public void recordFalsePositive(long count) {
+        if (count > 0) {
+            falsePositiveCount.addAndGet(count);
+        }
+    }
+
+    /**
+     * 获取统计
+     */
+    public BloomFilterStatsVO getStats() {
+        BloomFilterStatsVO statsVO = new BloomFilterStatsVO();
+        long negative = negativeCount.get();
+        long falsePositive = falsePositiveCount.get();
+        statsVO.setCheckCount(checkCount.get());
+        statsVO.setNegativeCount(negative);
+        statsVO.setPositiveCount(positiveCount.get());
+        statsVO.setFalsePositiveCount(falsePositive);
+        statsVO.setUnknownCount(unknownCount.get());
+        statsVO.setFalsePositiveRate(negative + falsePositive == 0 ? 0 : (double) falsePositive / (negative + falsePositive));
+        statsVO.setRebuildCount(rebuildCount.get());
+        return statsVO;
+    }
+
+    private void doAdd(String keyPrefix, Long targetId) {
+        long[] hashes = hash(targetId);
+        List<String> argList = new ArrayList<>(7 + sliceArgList.size());
+        argList.add(String.valueOf(hashes[0]));
+        argList.add(String.valueOf(hashes[1]));
+        argList.add(String.valueOf(targetId));
+        argList.add(String.valueOf(System.currentTimeMillis()));
+        argList.add(String.valueOf(RECENT_KEEP_MILLIS));
+        argList.add(String.valueOf(TimeUnit.DAYS.toSeconds(expireDays)));
+        argList.add(String.valueOf(maxSlices));
+        argList.addAll(sliceArgList);
+        stringRedisTemplate.execute(ADD_SCRIPT,
+                Arrays.asList(keyPrefix + ":", keyPrefix + ":meta", keyPrefix + ":recent", keyPrefix + ":ver"),
+                argList.toArray());
+    }
+
+    /**
+     * 双重哈希的两个 32 位无符号哈希值，h2 取奇数保证步长不为 0
+     */
+    static long[] hash(Long targetId) {
+        long[] hash128 = MurmurHash.hash128(String.valueOf(targetId));
+        return new long[]{hash128[0] & 0xFFFFFFFFL, (hash128[1] & 0xFFFFFFFFL) | 1};
+    }
+
+    /**
+     * 目标在一个分片中的位位置，与 Lua 脚本中的 (h1 + j * h2) % m 相同
+     *
+     * @param hashes {@link #hash(Long)} 的结果
+     * @param bits   分片位数
+     * @param k      哈希函数数
+     * @return
+     */
+    static long[] bitPositions(long[] hashes, long bits, int k) {
+        long[] positions = new long[k];
+        for (int j = 0; j < k; j++) {
+            positions[j] = (hashes[0] + j * hashes[1]) % bits;
+        }
+        return positions;
+    }
+
+    /**
+     * 与 Redis SETBIT 一致：偏移 0 为第一个字节的最高位
+     */
+    static void setBit(byte[] bytes, long position) {
+        bytes[(int) (position >>> 3)] |= (byte) (0x80 >>> (position & 7));
+    }
+
+    private String getKeyPrefix(RelationTypeEnum type, Long userId) {
+        return RelationConstant.BLOOM_KEY_PREFIX + type.getValue() + ":" + userId;
+    }
+
+    private static long toLong(Object value) {
+        return Long.parseLong(String.valueOf(value));
+    }
+
+    private static byte[] toBytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,381 @@
+package com.caden.campcircle.manager;
+
+import cn.hutool.core.collection.CollUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.caden.campcircle.constant.RelationConstant;
+import com.caden.campcircle.mapper.FollowMapper;
+import com.caden.campcircle.mapper.PostFavourMapper;
+import com.caden.campcircle.mapper.PostThumbMapper;
+import com.caden.campcircle.model.entity.Follow;
+import com.caden.campcircle.model.entity.PostFavour;
+import com.caden.campcircle.model.entity.PostThumb;
+import com.caden.campcircle.model.enums.RelationTypeEnum;
+import com.caden.campcircle.utils.TransactionUtils;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import javax.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+/**
+ * 用户关系缓存（是否点赞、收藏、关注）
+ * <p>
+ * 每个用户每种关系一个 Redis SET，首次读取时后台从数据库预热，之后随点赞、收藏、关注操作维护；
+ * 整页的三种关系在一次 pipeline 中查出，集合未预热时回退批量 SQL，
+ * 回退前先用布隆过滤器排除一定不存在的目标（关系数超过上限、不缓存集合的用户始终走这条路径）。
+ */
+@Component
+@Slf4j
+public class RelationCacheManager {
+
+    /**
+     * 变更关系：KEYS[1] 关系集合，KEYS[2] 变更标记，ARGV[1] 目标 id，ARGV[2] 1 为新增 0 为删除，ARGV[3] 标记过期秒数
+     * 集合已预热时直接维护，否则只打变更标记
+     */
+    private static final DefaultRedisScript<Long> CHANGE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 1 then\n" +
+            "  if ARGV[2] == '1' then return redis.call('SADD', KEYS[1], ARGV[1]) end\n" +
+            "  return redis.call('SREM', KEYS[1], ARGV[1])\n" +
+            "end\n" +
+            "redis.call('SET', KEYS[2], '1', 'EX', ARGV[3])\n" +
+            "return -1", Long.class);
+
+    /**
+     * 预热：KEYS[1] 关系集合，KEYS[2] 变更标记，ARGV[1] 过期秒数，ARGV[2..] 成员（含占位成员）
+     * 集合已存在或预热期间发生过变更时放弃
+     */
+    private static final DefaultRedisScript<Long> WARM_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 1 or redis.call('EXISTS', KEYS[2]) == 1 then return 0 end\n" +
+            "for i = 2, #ARGV, 1000 do\n" +
+            "  redis.call('SADD', KEYS[1], unpack(ARGV, i, math.min(i + 999, #ARGV)))\n" +
+            "end\n" +
+            "redis.call('EXPIRE', KEYS[1], ARGV[1])\n" +
+            "return 1", Long.class);
+
+    /**
+     * 变更标记过期秒数，覆盖一次预热的最长耗时即可
+     */
+    private static final long CHANGED_MARK_EXPIRE_SECONDS = 60;
+
+    /**
+     * 正在预热的 key，避免同一节点重复提交
+     */
+    private final Set<String> warmingKeySet = ConcurrentHashMap.newKeySet();
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private PostThumbMapper postThumbMapper;
+
+    @Resource
+    private PostFavourMapper postFavourMapper;
+
+    @Resource
+    private FollowMapper followMapper;
+
+    @Resource
+    private RelationBloomFilterManager relationBloomFilterManager;
+
+    @Resource(name = "taskExecutor")
+    private Executor taskExecutor;
+
+    /**
+     * 单个集合最多缓存的关系数，超过则不缓存，始终走 SQL
+     */
+    @Value("${campcircle.relation.max-size:5000}")
+    private int maxSize;
+
+    /**
+     * 关系集合过期天数
+     */
+    @Value("${campcircle.relation.expire-days:3}")
+    private long expireDays;
+
+    /**
+     * 重建布隆过滤器时最多加载的关系数
+     */
+    @Value("${campcircle.relation.bloom.max-load-size:200000}")
+    private int bloomMaxLoadSize;
+
+    /**
+     * 批量查询用户与目标之间是否存在关系
+     *
+     * @param userId             用户 id
+     * @param typeTargetIdsMap   关系类型 -> 待查询的目标 id
+     * @return 关系类型 -> 存在关系的目标 id
+     */
+    public Map<RelationTypeEnum, Set<Long>> listRelated(Long userId,
+                                                        Map<RelationTypeEnum, Collection<Long>> typeTargetIdsMap) {
+        Map<RelationTypeEnum, Set<Long>> resultMap = new EnumMap<>(RelationTypeEnum.class);
+        Map<RelationTypeEnum, List<Long>> queryMap = new LinkedHashMap<>();
+        typeTargetIdsMap.forEach((type, targetIds) -> {
+            if (CollUtil.isEmpty(targetIds)) {
+                resultMap.put(type, Collections.emptySet());
+            } else {
+                queryMap.put(type, new ArrayList<>(new HashSet<>(targetIds)));
+            }
+        });
+        if (queryMap.isEmpty()) {
+            return resultMap;
+        }
+        // 一次往返：每种关系先 EXISTS 再逐个 SISMEMBER
+        List<Object> pipelineResultList;
+        try {
+            pipelineResultList = stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public Object execute(RedisOperations operations) throws DataAccessException {
+                    queryMap.forEach((type, targetIdList) -> {
+                        String key = getKey(type, userId);
+                        operations.hasKey(key);
+                        for (Long targetId : targetIdList) {
+                            operations.opsForSet().isMember(key, String.valueOf(targetId));
+                        }
+                    });
+                    return null;
+                }
+            });
+        } catch (Exception e) {
+            log.error("查询关系缓存失败, userId: {}", userId, e);
+            queryMap.forEach((type, targetIdList) -> resultMap.put(type, listRelatedFromDb(type, userId, targetIdList)));
+            return resultMap;
+        }
+        int index = 0;
+        for (Map.Entry<RelationTypeEnum, List<Long>> entry : queryMap.entrySet()) {
+            RelationTypeEnum type = entry.getKey();
+            List<Long> targetIdList = entry.getValue();
+            boolean warmed = Boolean.TRUE.equals(pipelineResultList.get(index++));
+            if (!warmed) {
+                index += targetIdList.size();
+                resultMap.put(type, listRelatedWithBloomFilter(type, userId, targetIdList));
+                warmAsync(type, userId);
+                continue;
+            }
+            Set<Long> relatedIdSet = new HashSet<>();
+            for (Long targetId : targetIdList) {
+                if (Boolean.TRUE.equals(pipelineResultList.get(index++))) {
+                    relatedIdSet.add(targetId);
+                }
+            }
+            resultMap.put(type, relatedIdSet);
+        }
+        return resultMap;
+    }
+
+    /**
+     * 查询用户与单个目标之间是否存在关系
+     */
+    public boolean isRelated(RelationTypeEnum type, Long userId, Long targetId) {
+        Map<RelationTypeEnum, Collection<Long>> typeTargetIdsMap = new EnumMap<>(RelationTypeEnum.class);
+        typeTargetIdsMap.put(type, Collections.singletonList(targetId));
+        return listRelated(userId, typeTargetIdsMap).get(type).contains(targetId);
+    }
+
+    /**
+     * 用户与目标之间是否可能存在关系，只查布隆过滤器
+     * <p>
+     * 返回 false 时一定不存在，可跳过数据库；返回 true 时需要查库确认。
+     * 新增关系总是先写过滤器，因此可用于点赞、收藏、关注等写操作前的存在性判断。
+     */
+    public boolean mightBeRelated(RelationTypeEnum type, Long userId, Long targetId) {
+        Map<Long, Boolean> maybeMap = relationBloomFilterManager.mightContain(type, userId,
+                Collections.singletonList(targetId), () -> rebuildBloomFilterAsync(type, userId));
+        return maybeMap == null || maybeMap.get(targetId);
+    }
+
+    /**
+     * 记录布隆过滤器判定可能存在、但查库确认不存在的次数
+     */
+    public void recordBloomFalsePositive(long count) {
+        relationBloomFilterManager.recordFalsePositive(count);
+    }
+
+    /**
+     * 新增关系：立即写入布隆过滤器（须在写库前或同一事务内调用），关系集合在提交后维护
+     */
+    public void add(RelationTypeEnum type, Long userId, Long targetId) {
+        relationBloomFilterManager.add(type, userId, targetId);
+        change(type, userId, targetId, true);
+    }
+
+    /**
+     * 删除关系（事务中在提交后执行）
+     */
+    public void remove(RelationTypeEnum type, Long userId, Long targetId) {
+        change(type, userId, targetId, false);
+    }
+
+    private void change(RelationTypeEnum type, Long userId, Long targetId, boolean add) {
+        String key = getKey(type, userId);
+        TransactionUtils.afterCommit(() -> {
+            try {
+                stringRedisTemplate.execute(CHANGE_SCRIPT, Arrays.asList(key, key + RelationConstant.RELATION_CHANGED_SUFFIX),
+                        String.valueOf(targetId), add ? "1" : "0", String.valueOf(CHANGED_MARK_EXPIRE_SECONDS));
+            } catch (Exception e) {
+                // 维护失败时删除集合，下次读取重新预热
+                log.error("维护关系缓存失败, key: {}", key, e);
+                try {
+                    stringRedisTemplate.delete(key);
+                } catch (Exception ex) {
+                    log.error("删除关系缓存失败, key: {}", key, ex);
+                }
+            }
+        });
+    }
+
+    /**
+     * 后台从数据库加载用户的全部关系
+     */
+    private void warmAsync(RelationTypeEnum type, Long userId) {
+        String key = getKey(type, userId);
+        if (!warmingKeySet.add(key)) {
+            return;
+        }
+        try {
+            taskExecutor.execute(() -> {
+                try {
+                    warm(type, userId, key);
+                } catch (Exception e) {
+                    log.error("预热关系缓存失败, key: {}", key, e);
+                } finally {
+                    warmingKeySet.remove(key);
+                }
+            });
+        } catch (Exception e) {
+            warmingKeySet.remove(key);
+            log.warn("提交关系缓存预热任务失败, key: {}", key, e);
+        }
+    }
+
+    private void warm(RelationTypeEnum type, Long userId, String key) {
+        String tooLargeKey = key + RelationConstant.RELATION_TOO_LARGE_SUFFIX;
+        if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(tooLargeKey))) {
+            return;
+        }
+        List<Long> targetIdList = listAllTargetIdFromDb(type, userId, maxSize + 1);
+        if (targetIdList.size() > maxSize) {
+            // 标记在集合过期时间内不再预热，过期后关系数可能已降到上限以下，重新尝试
+            log.info("关系数超过上限，不缓存, key: {}", key);
+            stringRedisTemplate.opsForValue().set(tooLargeKey, "1", expireDays, TimeUnit.DAYS);
+            return;
+        }
+        List<String> argList = new ArrayList<>(targetIdList.size() + 2);
+        argList.add(String.valueOf(TimeUnit.DAYS.toSeconds(expireDays)));
+        argList.add(RelationConstant.RELATION_PLACEHOLDER);
+        for (Long targetId : targetIdList) {
+            argList.add(String.valueOf(targetId));
+        }
+        stringRedisTemplate.execute(WARM_SCRIPT, Arrays.asList(key, key + RelationConstant.RELATION_CHANGED_SUFFIX),
+                argList.toArray());
+    }
+
+    /**
+     * 后台重建布隆过滤器
+     */
+    private void rebuildBloomFilterAsync(RelationTypeEnum type, Long userId) {
+        String key = RelationConstant.BLOOM_KEY_PREFIX + type.getValue() + ":" + userId;
+        if (!warmingKeySet.add(key)) {
+            return;
+        }
+        try {
+            taskExecutor.execute(() -> {
+                try {
+                    long startMillis = System.currentTimeMillis();
+                    List<Long> targetIdList = listAllTargetIdFromDb(type, userId, bloomMaxLoadSize + 1);
+                    // 加载不完整的过滤器会把存在的关系判为一定不存在，超过上限时停用，始终查库
+                    if (targetIdList.size() > bloomMaxLoadSize) {
+                        relationBloomFilterManager.disable(type, userId);
+                        return;
+                    }
+                    relationBloomFilterManager.rebuild(type, userId, targetIdList, startMillis);
+                } catch (Exception e) {
+                    log.error("重建布隆过滤器失败, key: {}", key, e);
+                } finally {
+                    warmingKeySet.remove(key);
+                }
+            });
+        } catch (Exception e) {
+            warmingKeySet.remove(key);
+            log.warn("提交布隆过滤器重建任务失败, key: {}", key, e);
+        }
+    }
+
+    /**
+     * 先用布隆过滤器排除一定不存在的目标，只对可能存在的目标查库
+     */
+    private Set<Long> listRelatedWithBloomFilter(RelationTypeEnum type, Long userId, List<Long> targetIdList) {
+        Map<Long, Boolean> maybeMap = relationBloomFilterManager.mightContain(type, userId, targetIdList,
+                () -> rebuildBloomFilterAsync(type, userId));
+        List<Long> queryIdList = maybeMap == null ? targetIdList : targetIdList.stream()
+                .filter(maybeMap::get).collect(Collectors.toList());
+        if (queryIdList.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<Long> relatedIdSet = listRelatedFromDb(type, userId, queryIdList);
+        if (maybeMap != null) {
+            relationBloomFilterManager.recordFalsePositive(queryIdList.size() - relatedIdSet.size());
+        }
+        return relatedIdSet;
+    }
+
+    private Set<Long> listRelatedFromDb(RelationTypeEnum type, Long userId, List<Long> targetIdList) {
+        switch (type) {
+            case THUMB:
+                return postThumbMapper.selectList(new QueryWrapper<PostThumb>().select("postId")
+                                .eq("userId", userId).in("postId", targetIdList))
+                        .stream().map(PostThumb::getPostId).collect(Collectors.toSet());
+            case FAVOUR:
+                return postFavourMapper.selectList(new QueryWrapper<PostFavour>().select("postId")
+                                .eq("userId", userId).in("postId", targetIdList))
+                        .stream().map(PostFavour::getPostId).collect(Collectors.toSet());
+            case FOLLOW:
+                return followMapper.selectList(new QueryWrapper<Follow>().select("followUserId")
+                                .eq("userId", userId).in("followUserId", targetIdList))
+                        .stream().map(Follow::getFollowUserId).collect(Collectors.toSet());
+            default:
+                return Collections.emptySet();
+        }
+    }
+
+    private List<Long> listAllTargetIdFromDb(RelationTypeEnum type, Long userId, int limit) {
+        switch (type) {
+            case THUMB:
+                return postThumbMapper.selectList(new QueryWrapper<PostThumb>().select("postId")
+                                .eq("userId", userId).last("limit " + limit))
+                        .stream().map(PostThumb::getPostId).collect(Collectors.toList());
+            case FAVOUR:
+                return postFavourMapper.selectList(new QueryWrapper<PostFavour>().select("postId")
+                                .eq("userId", userId).last("limit " + limit))
+                        .stream().map(PostFavour::getPostId).collect(Collectors.toList());
+            case FOLLOW:
+                return followMapper.selectList(new QueryWrapper<Follow>().select("followUserId")
+                                .eq("userId", userId).last("limit " + limit))
+                        .stream().map(Follow::getFollowUserId).collect(Collectors.toList());
+            default:
+                return Collections.emptyList();
+        }
+    }
+
+    private String getKey(RelationTypeEnum type, Long userId) {
+        return RelationConstant.RELATION_KEY_PREFIX + type.getValue() + ":" + userId;
+    }
+}
@@ -0,0 +1,455 @@
+package com.caden.campcircle.manager;
+
+import cn.hutool.core.collection.CollUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.caden.campcircle.constant.MessageConstant;
+import com.caden.campcircle.mapper.SystemMessageMapper;
+import com.caden.campcircle.mapper.SystemMessageWatermarkMapper;
+import com.caden.campcircle.model.entity.SystemMessage;
+import com.caden.campcircle.model.entity.SystemMessageWatermark;
+import com.caden.campcircle.model.vo.UnreadCountVO;
+import com.caden.campcircle.utils.TransactionUtils;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 系统消息未读计数
+ * <p>
+ * 每个用户一个 Redis HASH，字段为消息类型、值为未读的个人消息数，读取未读数只需一次 HGETALL。
+ * HASH 不存在时从数据库加载全部类型；存在时由发送通知、标记已读在事务提交后增减。
+ * 增减时把用户加入脏集合，定期按批与数据库核对并覆盖，修正并发加载、异常等原因产生的偏差。
+ * <p>
+ * 全局消息只存一行（toUserId = 0），已读状态用每个用户的已读水位（已读的最大全局消息 id）表示，水位也存在同一个 HASH 中；
+ * 本节点缓存最近 max-size 条全局消息 id 的有序数组，未读的全局消息数为水位之后的 id 个数，
+ * 更早的全局消息一律视为已读（列表查询的已读条件同样按此处理）；全局消息增删时经 Redis 频道通知各节点刷新。
+ */
+@Component
+@Slf4j
+public class SystemMessageUnreadManager implements MessageListener {
+
+    /**
+     * 加载：KEYS[1] 未读数 HASH，ARGV[1] 过期秒数，ARGV[2] 为 1 时只覆盖已存在的 HASH、否则只在不存在时写入，ARGV[3..] 字段、值交替
+     */
+    private static final DefaultRedisScript<Long> LOAD_SCRIPT = new DefaultRedisScript<>(
+            "local exists = redis.call('EXISTS', KEYS[1])\n" +
+            "if (ARGV[2] == '1') ~= (exists == 1) then return 0 end\n" +
+            "for i = 3, #ARGV, 2 do\n" +
+            "  redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 1])\n" +
+            "end\n" +
+            "redis.call('EXPIRE', KEYS[1], ARGV[1])\n" +
+            "return 1", Long.class);
+
+    /**
+     * 增减：KEYS[1] 未读数 HASH，KEYS[2] 脏集合，ARGV[1] 用户 id，ARGV[2] 增量，ARGV[3..] 字段
+     * HASH 不存在时不写入（下次读取时从数据库加载）；增量为空时将字段置 0；减到负数时置 0
+     */
+    private static final DefaultRedisScript<Long> CHANGE_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('SADD', KEYS[2], ARGV[1])\n" +
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end\n" +
+            "for i = 3, #ARGV do\n" +
+            "  if ARGV[2] == '' then\n" +
+            "    redis.call('HSET', KEYS[1], ARGV[i], 0)\n" +
+            "  elseif redis.call('HINCRBY', KEYS[1], ARGV[i], ARGV[2]) < 0 then\n" +
+            "    redis.call('HSET', KEYS[1], ARGV[i], 0)\n" +
+            "  end\n" +
+            "end\n" +
+            "return 1", Long.class);
+
+    /**
+     * 全局消息已读水位字段
+     */
+    private static final String WATERMARK_FIELD = "w";
+
+    /**
+     * 设置水位：KEYS[1] 未读数 HASH，KEYS[2] 脏集合，ARGV[1] 用户 id，ARGV[2] 水位
+     */
+    private static final DefaultRedisScript<Long> WATERMARK_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('SADD', KEYS[2], ARGV[1])\n" +
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end\n" +
+            "redis.call('HSET', KEYS[1], '" + WATERMARK_FIELD + "', ARGV[2])\n" +
+            "return 1", Long.class);
+
+    private static final List<Integer> ALL_TYPES = Arrays.asList(MessageConstant.SYSTEM_MESSAGE_TYPE_SYSTEM,
+            MessageConstant.SYSTEM_MESSAGE_TYPE_THUMB, MessageConstant.SYSTEM_MESSAGE_TYPE_FAVOUR,
+            MessageConstant.SYSTEM_MESSAGE_TYPE_COMMENT, MessageConstant.SYSTEM_MESSAGE_TYPE_FOLLOW);
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private SystemMessageMapper systemMessageMapper;
+
+    @Resource
+    private SystemMessageWatermarkMapper systemMessageWatermarkMapper;
+
+    @Resource
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    /**
+     * 未读数缓存过期时间（秒）
+     */
+    @Value("${campcircle.message.unread.expire-seconds:86400}")
+    private long expireSeconds;
+
+    /**
+     * 每批核对的用户数
+     */
+    @Value("${campcircle.message.unread.reconcile-batch-size:200}")
+    private int reconcileBatchSize;
+
+    /**
+     * 本节点缓存的全局消息 id 刷新间隔（毫秒），兜底变更通知丢失的情况
+     */
+    @Value("${campcircle.message.global.refresh-interval-ms:60000}")
+    private long globalRefreshIntervalMs;
+
+    /**
+     * 最多缓存的全局消息数（最近的），更早的全局消息视为已读
+     */
+    @Value("${campcircle.message.global.max-size:1000}")
+    private int globalMaxSize;
+
+    /**
+     * 全局消息 id，升序
+     */
+    private volatile long[] globalIds;
+
+    private volatile long globalIdsLoadTime;
+
+    @PostConstruct
+    public void init() {
+        redisMessageListenerContainer.addMessageListener(this,
+                new ChannelTopic(MessageConstant.SYSTEM_MESSAGE_GLOBAL_CHANGED_CHANNEL));
+    }
+
+    /**
+     * 其他节点增删了全局消息
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        globalIds = null;
+    }
+
+    /**
+     * 获取用户各类型未读数，系统通知包含未读的全局消息
+     *
+     * @param userId
+     * @return 消息类型 -> 未读数，包含全部类型
+     */
+    public Map<Integer, Long> get(Long userId) {
+        Map<String, String> stateMap = getState(userId);
+        Map<Integer, Long> unreadMap = new HashMap<>();
+        for (Integer type : ALL_TYPES) {
+            unreadMap.put(type, Long.parseLong(stateMap.getOrDefault(String.valueOf(type), "0")));
+        }
+        unreadMap.merge(MessageConstant.SYSTEM_MESSAGE_TYPE_SYSTEM,
+                countGlobalAfter(Long.parseLong(stateMap.getOrDefault(WATERMARK_FIELD, "0"))), Long::sum);
+        return unreadMap;
+    }
+
+    /**
+     * 获取用户的全局消息已读水位，不低于缓存的最早全局消息之前（更早的视为已读）
+     *
+     * @param userId
+     * @return
+     */
+    public long getGlobalWatermark(Long userId) {
+        return effectiveWatermark(getGlobalIds(), globalMaxSize,
+                Long.parseLong(getState(userId).getOrDefault(WATERMARK_FIELD, "0")));
+    }
+
+    /**
+     * 获取水位之后（未读）的全局消息数
+     *
+     * @param watermark
+     * @return
+     */
+    public long countGlobalAfter(long watermark) {
+        return countAfter(getGlobalIds(), watermark);
+    }
+
+    /**
+     * 获取最新的全局消息 id
+     *
+     * @return 没有全局消息时返回 0
+     */
+    public long getLatestGlobalId() {
+        long[] ids = getGlobalIds();
+        return ids.length == 0 ? 0 : ids[ids.length - 1];
+    }
+
+    /**
+     * 全局消息增删（事务中在提交后执行），刷新本节点并通知其他节点
+     */
+    public void onGlobalChanged() {
+        TransactionUtils.afterCommit(() -> {
+            globalIds = null;
+            try {
+                stringRedisTemplate.convertAndSend(MessageConstant.SYSTEM_MESSAGE_GLOBAL_CHANGED_CHANNEL, "1");
+            } catch (Exception e) {
+                // 其他节点按刷新间隔兜底
+                log.error("广播全局消息变更失败", e);
+            }
+        });
+    }
+
+    /**
+     * 更新缓存中的已读水位（事务中在提交后执行）
+     *
+     * @param userId
+     * @param watermark 数据库中推进后的水位
+     */
+    public void setWatermark(Long userId, long watermark) {
+        TransactionUtils.afterCommit(() -> {
+            try {
+                stringRedisTemplate.execute(WATERMARK_SCRIPT, Arrays.asList(
+                        MessageConstant.SYSTEM_MESSAGE_UNREAD_KEY_PREFIX + userId,
+                        MessageConstant.SYSTEM_MESSAGE_UNREAD_DIRTY_KEY), String.valueOf(userId), String.valueOf(watermark));
+            } catch (Exception e) {
+                log.error("更新已读水位缓存失败, userId: {}", userId, e);
+                deleteQuietly(userId);
+            }
+        });
+    }
+
+    /**
+     * 新增一条未读消息（事务中在提交后执行）
+     *
+     * @param userId
+     * @param type
+     */
+    public void incr(Long userId, Integer type) {
+        change(userId, "1", Collections.singletonList(type));
+    }
+
+    /**
+     * 减少未读数（事务中在提交后执行）
+     *
+     * @param userId
+     * @param type
+     * @param count
+     */
+    public void decr(Long userId, Integer type, long count) {
+        if (count <= 0) {
+            return;
+        }
+        change(userId, String.valueOf(-count), Collections.singletonList(type));
+    }
+
+    /**
+     * 未读数清零（事务中在提交后执行）
+     *
+     * @param userId
+     * @param types 为空时清零全部类型
+     */
+    public void reset(Long userId, Collection<Integer> types) {
+        change(userId, "", CollUtil.isEmpty(types) ? ALL_TYPES : types);
+    }
+
+    /**
+     * 未读数缓存失效（事务中在提交后执行），用于无法确定增减的修改，下次读取时从数据库加载
+     *
+     * @param userId
+     */
+    public void invalidate(Long userId) {
+        if (userId == null || MessageConstant.ALL_USERS_TARGET_ID.equals(userId)) {
+            return;
+        }
+        TransactionUtils.afterCommit(() -> {
+            deleteQuietly(userId);
+            // 失效前已开始的加载可能写回旧值，交给核对修正
+            try {
+                stringRedisTemplate.opsForSet().add(MessageConstant.SYSTEM_MESSAGE_UNREAD_DIRTY_KEY, String.valueOf(userId));
+            } catch (Exception e) {
+                log.error("标记未读数待核对失败, userId: {}", userId, e);
+            }
+        });
+    }
+
+    /**
+     * 定期核对有变化的用户，以数据库为准覆盖缓存
+     */
+    @Scheduled(fixedDelayString = "${campcircle.message.unread.reconcile-interval-ms:60000}")
+    public void reconcile() {
+        try {
+            while (true) {
+                List<String> memberList = stringRedisTemplate.opsForSet()
+                        .pop(MessageConstant.SYSTEM_MESSAGE_UNREAD_DIRTY_KEY, reconcileBatchSize);
+                if (CollUtil.isEmpty(memberList)) {
+                    return;
+                }
+                List<Long> userIdList = new ArrayList<>();
+                for (String member : memberList) {
+                    userIdList.add(Long.parseLong(member));
+                }
+                // 核对期间又有变化的用户会重新加入脏集合，下一轮再核对
+                loadFromDb(userIdList).forEach((userId, stateMap) -> write(userId, stateMap, true));
+            }
+        } catch (Exception e) {
+            log.error("核对未读数失败", e);
+        }
+    }
+
+    private void change(Long userId, String delta, Collection<Integer> types) {
+        if (userId == null || CollUtil.isEmpty(types)) {
+            return;
+        }
+        List<String> argList = new ArrayList<>();
+        argList.add(String.valueOf(userId));
+        argList.add(delta);
+        for (Integer type : types) {
+            argList.add(String.valueOf(type));
+        }
+        TransactionUtils.afterCommit(() -> {
+            try {
+                stringRedisTemplate.execute(CHANGE_SCRIPT, Arrays.asList(
+                        MessageConstant.SYSTEM_MESSAGE_UNREAD_KEY_PREFIX + userId,
+                        MessageConstant.SYSTEM_MESSAGE_UNREAD_DIRTY_KEY), argList.toArray());
+            } catch (Exception e) {
+                log.error("更新未读数缓存失败, userId: {}", userId, e);
+                deleteQuietly(userId);
+            }
+        });
+    }
+
+    /**
+     * 删除缓存，下次读取时从数据库加载
+     */
+    private void deleteQuietly(Long userId) {
+        try {
+            stringRedisTemplate.delete(MessageConstant.SYSTEM_MESSAGE_UNREAD_KEY_PREFIX + userId);
+        } catch (Exception ignored) {
+        }
+    }
+
+    /**
+     * 读取用户的未读数和水位，缓存不存在时从数据库加载
+     *
+     * @return 字段（消息类型、水位）-> 值
+     */
+    private Map<String, String> getState(Long userId) {
+        String key = MessageConstant.SYSTEM_MESSAGE_UNREAD_KEY_PREFIX + userId;
+        try {
+            Map<Object, Object> entries = stringRedisTemplate.opsForHash().entries(key);
+            if (CollUtil.isNotEmpty(entries)) {
+                Map<String, String> stateMap = new HashMap<>();
+                entries.forEach((field, value) -> stateMap.put(String.valueOf(field), String.valueOf(value)));
+                return stateMap;
+            }
+        } catch (Exception e) {
+            log.error("读取未读数缓存失败, userId: {}", userId, e);
+            return loadFromDb(Collections.singletonList(userId)).get(userId);
+        }
+        Map<String, String> stateMap = loadFromDb(Collections.singletonList(userId)).get(userId);
+        write(userId, stateMap, false);
+        return stateMap;
+    }
+
+    /**
+     * 升序 id 中大于水位的个数
+     */
+    static long countAfter(long[] ids, long watermark) {
+        int low = 0;
+        int high = ids.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (ids[mid] <= watermark) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return ids.length - low;
+    }
+
+    /**
+     * 缓存已满（可能有更早的全局消息未缓存）时，水位至少为最早缓存 id 之前，与未读数的统计范围一致
+     */
+    static long effectiveWatermark(long[] ids, int maxSize, long watermark) {
+        if (ids.length == 0 || ids.length < maxSize) {
+            return watermark;
+        }
+        return Math.max(watermark, ids[0] - 1);
+    }
+
+    private long[] getGlobalIds() {
+        long[] ids = globalIds;
+        if (ids != null && System.currentTimeMillis() - globalIdsLoadTime < globalRefreshIntervalMs) {
+            return ids;
+        }
+        synchronized (this) {
+            ids = globalIds;
+            if (ids != null && System.currentTimeMillis() - globalIdsLoadTime < globalRefreshIntervalMs) {
+                return ids;
+            }
+            QueryWrapper<SystemMessage> queryWrapper = new QueryWrapper<>();
+            queryWrapper.select("id");
+            queryWrapper.eq("toUserId", MessageConstant.ALL_USERS_TARGET_ID);
+            queryWrapper.orderByDesc("id");
+            queryWrapper.last("limit " + globalMaxSize);
+            ids = systemMessageMapper.selectObjs(queryWrapper).stream()
+                    .mapToLong(id -> ((Number) id).longValue())
+                    .sorted()
+                    .toArray();
+            globalIdsLoadTime = System.currentTimeMillis();
+            globalIds = ids;
+            return ids;
+        }
+    }
+
+    private void write(Long userId, Map<String, String> stateMap, boolean overwrite) {
+        List<String> argList = new ArrayList<>();
+        argList.add(String.valueOf(expireSeconds));
+        argList.add(overwrite ? "1" : "0");
+        stateMap.forEach((field, value) -> {
+            argList.add(field);
+            argList.add(value);
+        });
+        try {
+            stringRedisTemplate.execute(LOAD_SCRIPT,
+                    Collections.singletonList(MessageConstant.SYSTEM_MESSAGE_UNREAD_KEY_PREFIX + userId), argList.toArray());
+        } catch (Exception e) {
+            log.error("写入未读数缓存失败, userId: {}", userId, e);
+        }
+    }
+
+    /**
+     * 从数据库加载个人消息各类型未读数和全局消息已读水位
+     */
+    private Map<Long, Map<String, String>> loadFromDb(List<Long> userIdList) {
+        Map<Long, Map<String, String>> userStateMap = new HashMap<>();
+        for (Long userId : userIdList) {
+            Map<String, String> stateMap = new HashMap<>();
+            for (Integer type : ALL_TYPES) {
+                stateMap.put(String.valueOf(type), "0");
+            }
+            stateMap.put(WATERMARK_FIELD, "0");
+            userStateMap.put(userId, stateMap);
+        }
+        for (UnreadCountVO unreadCountVO : systemMessageMapper.listUnreadCount(userIdList)) {
+            userStateMap.get(unreadCountVO.getToUserId()).put(String.valueOf(unreadCountVO.getType()),
+                    String.valueOf(unreadCountVO.getUnreadCount()));
+        }
+        for (SystemMessageWatermark watermark : systemMessageWatermarkMapper.selectBatchIds(userIdList)) {
+            userStateMap.get(watermark.getUserId()).put(WATERMARK_FIELD, String.valueOf(watermark.getLastReadGlobalId()));
+        }
+        return userStateMap;
+    }
+}
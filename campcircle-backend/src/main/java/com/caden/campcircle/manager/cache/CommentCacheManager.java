@@ -0,0 +1,163 @@
+package com.caden.campcircle.manager.cache;
+
+import cn.hutool.json.JSONUtil;
+import com.caden.campcircle.constant.PostConstant;
+import com.caden.campcircle.model.vo.PostCommentVO;
+import com.caden.campcircle.utils.TransactionUtils;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+import javax.annotation.Resource;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+/**
+ * 帖子评论首页缓存（Redis）
+ * <p>
+ * 缓存每个帖子按时间倒序的第一页一级评论，包含回复预览、回复数和用户信息。
+ * 每个帖子有一个版本号，评论增删提交后自增版本号、删除旧缓存并异步按新版本重建（写穿）；
+ * 回填时用 Lua 比较版本号，读取期间版本号已变化则放弃写入，避免并发写入后旧数据被写回。
+ */
+@Component
+@Slf4j
+public class CommentCacheManager {
+
+    /**
+     * 回填：KEYS[1] 版本号，KEYS[2] 评论首页，ARGV[1] 读取数据前的版本号，ARGV[2] JSON，ARGV[3] 过期秒数
+     * 版本号一致才写入
+     */
+    private static final DefaultRedisScript<Long> PUT_SCRIPT = new DefaultRedisScript<>(
+            "local version = redis.call('GET', KEYS[1]) or '0'\n" +
+            "if version ~= ARGV[1] then return 0 end\n" +
+            "redis.call('SET', KEYS[2], ARGV[1] .. ':' .. ARGV[2], 'EX', ARGV[3])\n" +
+            "return 1", Long.class);
+
+    /**
+     * 变更：KEYS[1] 版本号，KEYS[2] 评论首页，ARGV[1] 版本号过期秒数
+     * 自增版本号并删除旧缓存，返回新版本号
+     */
+    private static final DefaultRedisScript<Long> BUMP_SCRIPT = new DefaultRedisScript<>(
+            "local version = redis.call('INCR', KEYS[1])\n" +
+            "redis.call('EXPIRE', KEYS[1], ARGV[1])\n" +
+            "redis.call('DEL', KEYS[2])\n" +
+            "return version", Long.class);
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource(name = "taskExecutor")
+    private Executor taskExecutor;
+
+    /**
+     * 缓存的一级评论条数
+     */
+    @Value("${campcircle.cache.comment.page-size:20}")
+    private int pageSize;
+
+    @Value("${campcircle.cache.comment.redis-expire-seconds:300}")
+    private long redisExpireSeconds;
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * 获取帖子评论首页
+     *
+     * @param postId
+     * @param dbLoader 回源加载前 {@link #getPageSize()} 条一级评论
+     * @return
+     */
+    public CachedPage get(Long postId, Supplier<CachedPage> dbLoader) {
+        String version = null;
+        try {
+            List<String> valueList = stringRedisTemplate.opsForValue()
+                    .multiGet(Arrays.asList(buildVersionKey(postId), buildPageKey(postId)));
+            version = valueList.get(0) == null ? "0" : valueList.get(0);
+            String value = valueList.get(1);
+            if (value != null && value.startsWith(version + ":")) {
+                return JSONUtil.toBean(value.substring(version.length() + 1), CachedPage.class);
+            }
+        } catch (Exception e) {
+            log.error("读取评论缓存失败，回源数据库, postId: {}", postId, e);
+        }
+        CachedPage cachedPage = dbLoader.get();
+        if (version != null) {
+            put(postId, version, cachedPage);
+        }
+        return cachedPage;
+    }
+
+    /**
+     * 评论增删（事务中在提交后执行）：自增版本号，异步重建首页
+     *
+     * @param postId
+     * @param dbLoader 回源加载
+     */
+    public void onCommentChanged(Long postId, Supplier<CachedPage> dbLoader) {
+        if (postId == null) {
+            return;
+        }
+        TransactionUtils.afterCommit(() -> {
+            Long version;
+            try {
+                version = stringRedisTemplate.execute(BUMP_SCRIPT,
+                        Arrays.asList(buildVersionKey(postId), buildPageKey(postId)),
+                        String.valueOf(redisExpireSeconds * 2));
+            } catch (Exception e) {
+                log.error("评论缓存失效失败, postId: {}", postId, e);
+                return;
+            }
+            taskExecutor.execute(() -> {
+                try {
+                    put(postId, String.valueOf(version), dbLoader.get());
+                } catch (Exception e) {
+                    log.error("重建评论缓存失败, postId: {}", postId, e);
+                }
+            });
+        });
+    }
+
+    private void put(Long postId, String version, CachedPage cachedPage) {
+        try {
+            stringRedisTemplate.execute(PUT_SCRIPT, Arrays.asList(buildVersionKey(postId), buildPageKey(postId)),
+                    version, JSONUtil.toJsonStr(cachedPage), String.valueOf(redisExpireSeconds));
+        } catch (Exception e) {
+            log.error("写入评论缓存失败, postId: {}", postId, e);
+        }
+    }
+
+    private String buildPageKey(Long postId) {
+        return PostConstant.COMMENT_PAGE_CACHE_KEY_PREFIX + postId;
+    }
+
+    private String buildVersionKey(Long postId) {
+        return PostConstant.COMMENT_VERSION_KEY_PREFIX + postId;
+    }
+
+    /**
+     * 评论首页
+     */
+    @Data
+    public static class CachedPage implements Serializable {
+
+        /**
+         * 一级评论总数
+         */
+        private Long total = 0L;
+
+        /**
+         * 前若干条一级评论（按 createTime、id 倒序）
+         */
+        private List<PostCommentVO> records = Collections.emptyList();
+
+        private static final long serialVersionUID = 1L;
+    }
+}
@@ -0,0 +1,141 @@
+package com.caden.campcircle.manager.cache;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.json.JSONUtil;
+import com.caden.campcircle.constant.PostConstant;
+import com.caden.campcircle.model.entity.Post;
+import com.caden.campcircle.utils.TransactionUtils;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import javax.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * 帖子实体缓存（Redis）
+ * <p>
+ * 批量读取走一次 MGET，只对未命中的 id 回源一次；不存在或已删除的帖子缓存空值，防止穿透。
+ * 帖子修改、删除以及计数写回后失效，计数中尚未写回的增量由调用方另行合并。
+ */
+@Component
+@Slf4j
+public class PostCacheManager {
+
+    /**
+     * 不存在的帖子在 Redis 中的占位值
+     */
+    private static final String NULL_VALUE = "";
+
+    /**
+     * 空值缓存时间（秒）
+     */
+    private static final long NULL_VALUE_EXPIRE_SECONDS = 60;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${campcircle.cache.post.redis-expire-seconds:600}")
+    private long redisExpireSeconds;
+
+    /**
+     * 批量获取帖子
+     *
+     * @param postIds
+     * @param dbLoader 回源加载（须排除已删除的帖子）
+     * @return 帖子 id -> 帖子，不存在的帖子不在结果中
+     */
+    public Map<Long, Post> getAll(Collection<Long> postIds, Function<Collection<Long>, List<Post>> dbLoader) {
+        Map<Long, Post> postMap = new HashMap<>();
+        if (CollUtil.isEmpty(postIds)) {
+            return postMap;
+        }
+        List<Long> idList = new ArrayList<>(new LinkedHashSet<>(postIds));
+        List<String> jsonList = null;
+        try {
+            jsonList = stringRedisTemplate.opsForValue().multiGet(
+                    idList.stream().map(this::buildKey).collect(Collectors.toList()));
+        } catch (Exception e) {
+            log.error("读取帖子缓存失败，回源数据库", e);
+        }
+        List<Long> dbIdList = new ArrayList<>();
+        for (int i = 0; i < idList.size(); i++) {
+            String json = jsonList == null ? null : jsonList.get(i);
+            if (json == null) {
+                dbIdList.add(idList.get(i));
+            } else if (!NULL_VALUE.equals(json)) {
+                postMap.put(idList.get(i), JSONUtil.toBean(json, Post.class));
+            }
+        }
+        if (dbIdList.isEmpty()) {
+            return postMap;
+        }
+        List<Post> dbPostList = dbLoader.apply(dbIdList);
+        for (Post post : dbPostList) {
+            postMap.put(post.getId(), post);
+        }
+        try {
+            for (Long postId : dbIdList) {
+                put(postId, postMap.get(postId));
+            }
+        } catch (Exception e) {
+            log.error("写入帖子缓存失败", e);
+        }
+        return postMap;
+    }
+
+    /**
+     * 失效帖子缓存（事务中在提交后执行）
+     *
+     * @param postId
+     */
+    public void invalidate(Long postId) {
+        if (postId == null) {
+            return;
+        }
+        invalidate(Collections.singletonList(postId));
+    }
+
+    /**
+     * 批量失效帖子缓存（事务中在提交后执行）
+     *
+     * @param postIds
+     */
+    public void invalidate(Collection<Long> postIds) {
+        if (CollUtil.isEmpty(postIds)) {
+            return;
+        }
+        List<String> keyList = postIds.stream().map(this::buildKey).collect(Collectors.toList());
+        TransactionUtils.afterCommit(() -> {
+            try {
+                stringRedisTemplate.delete(keyList);
+            } catch (Exception e) {
+                log.error("帖子缓存失效失败, postIds: {}", postIds, e);
+            }
+        });
+    }
+
+    private void put(Long postId, Post post) {
+        if (post == null) {
+            stringRedisTemplate.opsForValue().set(buildKey(postId), NULL_VALUE, NULL_VALUE_EXPIRE_SECONDS, TimeUnit.SECONDS);
+            return;
+        }
+        // 过期时间加随机偏移，避免集中失效
+        long expireSeconds = redisExpireSeconds + ThreadLocalRandom.current().nextLong(redisExpireSeconds / 5 + 1);
+        stringRedisTemplate.opsForValue().set(buildKey(postId), JSONUtil.toJsonStr(post), expireSeconds, TimeUnit.SECONDS);
+    }
+
+    private String buildKey(Long postId) {
+        return PostConstant.POST_CACHE_KEY_PREFIX + postId;
+    }
+}
@@ -0,0 +1,272 @@
+package com.caden.campcircle.manager.cache;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.json.JSONUtil;
+import com.caden.campcircle.constant.UserConstant;
+import com.caden.campcircle.model.entity.User;
+import com.caden.campcircle.model.vo.CacheStatsVO;
+import com.caden.campcircle.utils.TransactionUtils;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+/**
+ * 用户实体二级缓存
+ * <p>
+ * L1 为进程内有界 LRU，L2 为 Redis；写操作删除 L2 并通过 Redis 发布订阅通知所有节点清除 L1。
+ * 对外返回的都是副本，调用方修改不会污染缓存。
+ * 缓存中不保存密码（userPassword 置空后写入），通过缓存获取的用户不含密码，需要校验密码时直接查库。
+ */
+@Component
+@Slf4j
+public class UserCacheManager implements MessageListener {
+
+    /**
+     * 不存在的用户在 Redis 中的占位值，防止缓存穿透
+     */
+    private static final String NULL_VALUE = "";
+
+    /**
+     * 空值缓存时间（秒）
+     */
+    private static final long NULL_VALUE_EXPIRE_SECONDS = 60;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @Value("${campcircle.cache.user.local-capacity:2048}")
+    private int localCapacity;
+
+    @Value("${campcircle.cache.user.local-expire-seconds:60}")
+    private long localExpireSeconds;
+
+    @Value("${campcircle.cache.user.redis-expire-seconds:1800}")
+    private long redisExpireSeconds;
+
+    private LRUCache<Long, User> localCache;
+
+    private final LongAdder localHitCount = new LongAdder();
+
+    private final LongAdder redisHitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    private final LongAdder invalidateCount = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        localCache = CacheUtil.newLRUCache(localCapacity, TimeUnit.SECONDS.toMillis(localExpireSeconds));
+        redisMessageListenerContainer.addMessageListener(this,
+                new ChannelTopic(UserConstant.USER_CACHE_INVALIDATE_CHANNEL));
+    }
+
+    /**
+     * 获取单个用户，未命中时调用 dbLoader 回源
+     *
+     * @param userId
+     * @param dbLoader
+     * @return
+     */
+    public User get(Long userId, Function<Long, User> dbLoader) {
+        if (userId == null || userId <= 0) {
+            return null;
+        }
+        User user = localCache.get(userId, false);
+        if (user != null) {
+            localHitCount.increment();
+            return copy(user);
+        }
+        String json = stringRedisTemplate.opsForValue().get(buildKey(userId));
+        if (json != null) {
+            redisHitCount.increment();
+            if (NULL_VALUE.equals(json)) {
+                return null;
+            }
+            user = JSONUtil.toBean(json, User.class);
+            localCache.put(userId, user);
+            return copy(user);
+        }
+        missCount.increment();
+        user = withoutPassword(dbLoader.apply(userId));
+        put(userId, user);
+        return copy(user);
+    }
+
+    /**
+     * 批量获取用户，只对未命中的 id 回源一次
+     *
+     * @param userIds
+     * @param dbLoader
+     * @return
+     */
+    public List<User> getAll(Collection<Long> userIds, Function<Collection<Long>, List<User>> dbLoader) {
+        List<User> userList = new ArrayList<>();
+        if (CollUtil.isEmpty(userIds)) {
+            return userList;
+        }
+        List<Long> redisIdList = new ArrayList<>();
+        for (Long userId : new LinkedHashSet<>(userIds)) {
+            if (userId == null || userId <= 0) {
+                continue;
+            }
+            User user = localCache.get(userId, false);
+            if (user != null) {
+                localHitCount.increment();
+                userList.add(copy(user));
+            } else {
+                redisIdList.add(userId);
+            }
+        }
+        if (redisIdList.isEmpty()) {
+            return userList;
+        }
+        List<String> keyList = redisIdList.stream().map(this::buildKey).collect(Collectors.toList());
+        List<String> jsonList = stringRedisTemplate.opsForValue().multiGet(keyList);
+        List<Long> dbIdList = new ArrayList<>();
+        for (int i = 0; i < redisIdList.size(); i++) {
+            String json = jsonList == null ? null : jsonList.get(i);
+            if (json == null) {
+                dbIdList.add(redisIdList.get(i));
+                continue;
+            }
+            redisHitCount.increment();
+            if (!NULL_VALUE.equals(json)) {
+                User user = JSONUtil.toBean(json, User.class);
+                localCache.put(user.getId(), user);
+                userList.add(copy(user));
+            }
+        }
+        if (dbIdList.isEmpty()) {
+            return userList;
+        }
+        missCount.add(dbIdList.size());
+        List<User> dbUserList = dbLoader.apply(dbIdList);
+        for (User dbUser : dbUserList) {
+            User user = withoutPassword(dbUser);
+            put(user.getId(), user);
+            userList.add(copy(user));
+        }
+        // 数据库中不存在的用户写入空值
+        List<Long> foundIdList = dbUserList.stream().map(User::getId).collect(Collectors.toList());
+        dbIdList.stream().filter(userId -> !foundIdList.contains(userId)).forEach(userId -> put(userId, null));
+        return userList;
+    }
+
+    /**
+     * 失效用户缓存（事务中在提交后执行），并广播给其他节点
+     *
+     * @param userId
+     */
+    public void invalidate(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        TransactionUtils.afterCommit(() -> doInvalidate(userId));
+    }
+
+    /**
+     * 获取命中统计
+     *
+     * @return
+     */
+    public CacheStatsVO getStats() {
+        long localHit = localHitCount.sum();
+        long redisHit = redisHitCount.sum();
+        long miss = missCount.sum();
+        long total = localHit + redisHit + miss;
+        CacheStatsVO cacheStatsVO = new CacheStatsVO();
+        cacheStatsVO.setCacheName("user");
+        cacheStatsVO.setLocalHitCount(localHit);
+        cacheStatsVO.setRedisHitCount(redisHit);
+        cacheStatsVO.setMissCount(miss);
+        cacheStatsVO.setLocalHitRatio(total == 0 ? 0D : (double) localHit / total);
+        cacheStatsVO.setHitRatio(total == 0 ? 0D : (double) (localHit + redisHit) / total);
+        cacheStatsVO.setLocalSize(localCache.size());
+        cacheStatsVO.setInvalidateCount(invalidateCount.sum());
+        return cacheStatsVO;
+    }
+
+    /**
+     * 收到其他节点（包括本节点）的失效广播，清除本地缓存
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        if (StringUtils.isNumeric(body)) {
+            localCache.remove(Long.parseLong(body));
+        }
+    }
+
+    private void doInvalidate(Long userId) {
+        invalidateCount.increment();
+        localCache.remove(userId);
+        try {
+            stringRedisTemplate.delete(buildKey(userId));
+            stringRedisTemplate.convertAndSend(UserConstant.USER_CACHE_INVALIDATE_CHANNEL, String.valueOf(userId));
+        } catch (Exception e) {
+            log.error("用户缓存失效失败, userId: {}", userId, e);
+        }
+    }
+
+    /**
+     * 写入缓存，user 须已去除密码
+     */
+    private void put(Long userId, User user) {
+        if (user == null) {
+            stringRedisTemplate.opsForValue().set(buildKey(userId), NULL_VALUE, NULL_VALUE_EXPIRE_SECONDS, TimeUnit.SECONDS);
+            return;
+        }
+        // 过期时间加随机偏移，避免集中失效
+        long expireSeconds = redisExpireSeconds + ThreadLocalRandom.current().nextLong(redisExpireSeconds / 5 + 1);
+        stringRedisTemplate.opsForValue().set(buildKey(userId), JSONUtil.toJsonStr(user), expireSeconds, TimeUnit.SECONDS);
+        localCache.put(userId, copy(user));
+    }
+
+    private String buildKey(Long userId) {
+        return UserConstant.USER_CACHE_KEY_PREFIX + userId;
+    }
+
+    /**
+     * 去除密码的副本，密码不进入 Redis 和进程内缓存
+     */
+    private User withoutPassword(User user) {
+        User copy = copy(user);
+        if (copy != null) {
+            copy.setUserPassword(null);
+        }
+        return copy;
+    }
+
+    private User copy(User user) {
+        if (user == null) {
+            return null;
+        }
+        User copy = new User();
+        BeanUtils.copyProperties(user, copy);
+        return copy;
+    }
+}
@@ -0,0 +1,160 @@
+package com.caden.campcircle.manager.loader;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.json.JSONUtil;
+import com.caden.campcircle.model.entity.Picture;
+import com.caden.campcircle.model.entity.Post;
+import com.caden.campcircle.service.PictureService;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * 帖子关联数据批量加载器（请求级）
+ * <p>
+ * 先通过 {@link #prime(Collection)} 收集整页帖子的图片 id，再由 {@link #dispatch()} 一次查询全部解析，
+ * 已解析的图片与 pictureList JSON 在本次请求内复用。实例只在单个请求线程内使用，非线程安全。
+ */
+@Slf4j
+public class PostBatchLoader {
+
+    private final PictureService pictureService;
+
+    /**
+     * pictureList 原始 JSON -> 图片 id 列表
+     */
+    private final Map<String, List<Long>> pictureIdListCache = new HashMap<>();
+
+    /**
+     * 图片 id -> 图片链接（查询不到的图片值为 null）
+     */
+    private final Map<Long, String> pictureUrlMap = new HashMap<>();
+
+    /**
+     * 待加载的图片 id
+     */
+    private final Set<Long> pendingPictureIdSet = new LinkedHashSet<>();
+
+    /**
+     * 本次请求图片查询次数
+     */
+    private int pictureQueryCount;
+
+    /**
+     * 本次请求加载的图片数
+     */
+    private int pictureLoadCount;
+
+    public PostBatchLoader(PictureService pictureService) {
+        this.pictureService = pictureService;
+    }
+
+    /**
+     * 登记帖子的图片 id，等待批量加载
+     *
+     * @param postList
+     */
+    public void prime(Collection<Post> postList) {
+        if (CollUtil.isEmpty(postList)) {
+            return;
+        }
+        for (Post post : postList) {
+            if (post == null) {
+                continue;
+            }
+            for (Long pictureId : parsePictureIdList(post.getPictureList())) {
+                if (!pictureUrlMap.containsKey(pictureId)) {
+                    pendingPictureIdSet.add(pictureId);
+                }
+            }
+        }
+    }
+
+    /**
+     * 一次查询加载所有待加载的图片
+     */
+    public void dispatch() {
+        if (pendingPictureIdSet.isEmpty()) {
+            return;
+        }
+        List<Long> pictureIdList = new ArrayList<>(pendingPictureIdSet);
+        pendingPictureIdSet.clear();
+        List<Picture> pictureList = pictureService.listByIds(pictureIdList);
+        pictureQueryCount++;
+        pictureLoadCount += pictureList.size();
+        pictureIdList.forEach(pictureId -> pictureUrlMap.put(pictureId, null));
+        pictureList.forEach(picture -> pictureUrlMap.put(picture.getId(), picture.getPictureUrl()));
+    }
+
+    /**
+     * 获取帖子的图片链接列表（按 pictureList 中的顺序）
+     *
+     * @param post
+     * @return
+     */
+    public List<String> getPictureUrlList(Post post) {
+        if (post == null) {
+            return new ArrayList<>();
+        }
+        List<Long> pictureIdList = parsePictureIdList(post.getPictureList());
+        if (pictureIdList.isEmpty()) {
+            return new ArrayList<>();
+        }
+        // 未预先登记的帖子，按单个帖子补加载
+        prime(Collections.singletonList(post));
+        dispatch();
+        List<String> pictureUrlList = new ArrayList<>(pictureIdList.size());
+        for (Long pictureId : pictureIdList) {
+            String pictureUrl = pictureUrlMap.get(pictureId);
+            if (pictureUrl != null) {
+                pictureUrlList.add(pictureUrl);
+            }
+        }
+        return pictureUrlList;
+    }
+
+    public int getPictureQueryCount() {
+        return pictureQueryCount;
+    }
+
+    public int getPictureLoadCount() {
+        return pictureLoadCount;
+    }
+
+    /**
+     * 解析 pictureList，同一 JSON 在请求内只解析一次
+     *
+     * @param pictureListJson
+     * @return
+     */
+    private List<Long> parsePictureIdList(String pictureListJson) {
+        if (StringUtils.isBlank(pictureListJson)) {
+            return Collections.emptyList();
+        }
+        return pictureIdListCache.computeIfAbsent(pictureListJson, json -> {
+            List<String> idStrList;
+            try {
+                idStrList = JSONUtil.toList(json, String.class);
+            } catch (Exception e) {
+                log.warn("Invalid picture list: {}", json);
+                return Collections.emptyList();
+            }
+            List<Long> pictureIdList = new ArrayList<>(idStrList.size());
+            for (String idStr : idStrList) {
+                try {
+                    pictureIdList.add(Long.parseLong(idStr));
+                } catch (NumberFormatException e) {
+                    log.warn("Invalid picture ID: {}", idStr);
+                }
+            }
+            return pictureIdList;
+        });
+    }
+}
@@ -0,0 +1,56 @@
+package com.caden.campcircle.manager.loader;
+
+import com.caden.campcircle.service.PictureService;
+import javax.annotation.Resource;
+import javax.servlet.http.HttpServletRequest;
+import org.springframework.stereotype.Component;
+
+/**
+ * 请求级批量加载器管理
+ * <p>
+ * 加载器保存在请求属性中，同一请求内的所有帖子渲染共用一个实例；无请求上下文时（如定时任务）每次返回新实例。
+ */
+@Component
+public class PostBatchLoaderManager {
+
+    /**
+     * 请求属性名
+     */
+    public static final String REQUEST_ATTRIBUTE_NAME = PostBatchLoader.class.getName();
+
+    @Resource
+    private PictureService pictureService;
+
+    /**
+     * 获取当前请求的加载器
+     *
+     * @param request
+     * @return
+     */
+    public PostBatchLoader getLoader(HttpServletRequest request) {
+        if (request == null) {
+            return new PostBatchLoader(pictureService);
+        }
+        Object loader = request.getAttribute(REQUEST_ATTRIBUTE_NAME);
+        if (loader instanceof PostBatchLoader) {
+            return (PostBatchLoader) loader;
+        }
+        PostBatchLoader postBatchLoader = new PostBatchLoader(pictureService);
+        request.setAttribute(REQUEST_ATTRIBUTE_NAME, postBatchLoader);
+        return postBatchLoader;
+    }
+
+    /**
+     * 获取当前请求已创建的加载器（不存在时返回 null）
+     *
+     * @param request
+     * @return
+     */
+    public static PostBatchLoader peekLoader(HttpServletRequest request) {
+        if (request == null) {
+            return null;
+        }
+        Object loader = request.getAttribute(REQUEST_ATTRIBUTE_NAME);
+        return loader instanceof PostBatchLoader ? (PostBatchLoader) loader : null;
+    }
+}
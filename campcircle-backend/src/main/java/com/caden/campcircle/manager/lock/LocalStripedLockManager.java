@@ -0,0 +1,63 @@
+package com.caden.campcircle.manager.lock;
+
+import com.caden.campcircle.common.ErrorCode;
+import com.caden.campcircle.exception.BusinessException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * 本机分段锁：key 按哈希映射到固定数量的 ReentrantLock，内存占用恒定，只在单节点内有效
+ */
+@Component
+@ConditionalOnProperty(name = "campcircle.lock.mode", havingValue = "local", matchIfMissing = true)
+@Slf4j
+public class LocalStripedLockManager implements LockManager {
+
+    private final ReentrantLock[] stripes;
+
+    private final long waitMillis;
+
+    public LocalStripedLockManager(@Value("${campcircle.lock.stripes:256}") int stripes,
+                                   @Value("${campcircle.lock.wait-millis:3000}") long waitMillis) {
+        // 向上取 2 的幂，便于按位取模
+        int size = Integer.highestOneBit(Math.max(stripes - 1, 1)) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+        this.waitMillis = waitMillis;
+    }
+
+    @Override
+    public <T> T executeWithLock(String key, Supplier<T> action) {
+        ReentrantLock lock = getStripe(key);
+        boolean locked;
+        try {
+            locked = lock.tryLock(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "操作被中断");
+        }
+        if (!locked) {
+            log.warn("获取本地锁超时, key: {}", key);
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "操作过于频繁，请稍后重试");
+        }
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    ReentrantLock getStripe(String key) {
+        int hash = key.hashCode();
+        // 扰动高位，避免相近 key 落到同一段
+        hash ^= hash >>> 16;
+        return stripes[hash & (stripes.length - 1)];
+    }
+}
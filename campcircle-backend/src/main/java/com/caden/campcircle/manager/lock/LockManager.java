@@ -0,0 +1,21 @@
+package com.caden.campcircle.manager.lock;
+
+import java.util.function.Supplier;
+
+/**
+ * 按 key 加锁执行
+ * <p>
+ * 由 campcircle.lock.mode 选择实现：local 为本机分段锁，redis 为跨节点的租约锁。
+ * 获取锁超时抛出 {@link com.caden.campcircle.exception.BusinessException}。
+ */
+public interface LockManager {
+
+    /**
+     * 持有 key 对应的锁执行
+     *
+     * @param key    锁 key
+     * @param action 加锁后执行的逻辑
+     * @return action 的返回值
+     */
+    <T> T executeWithLock(String key, Supplier<T> action);
+}
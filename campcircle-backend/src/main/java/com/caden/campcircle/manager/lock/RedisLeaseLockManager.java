@@ -0,0 +1,91 @@
+package com.caden.campcircle.manager.lock;
+
+import cn.hutool.core.util.IdUtil;
+import com.caden.campcircle.common.ErrorCode;
+import com.caden.campcircle.exception.BusinessException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import javax.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+/**
+ * Redis 租约锁：SET NX PX 加锁，持有者令牌校验后释放，进程崩溃时租约到期自动释放，适用于多节点部署
+ */
+@Component
+@ConditionalOnProperty(name = "campcircle.lock.mode", havingValue = "redis")
+@Slf4j
+public class RedisLeaseLockManager implements LockManager {
+
+    private static final String LOCK_KEY_PREFIX = "lock:";
+
+    /**
+     * 仅当令牌匹配时释放，避免误删租约过期后被他人获取的锁
+     */
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then\n" +
+            "  return redis.call('DEL', KEYS[1])\n" +
+            "end\n" +
+            "return 0", Long.class);
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 租约时间（毫秒），应大于临界区的最长执行时间
+     */
+    @Value("${campcircle.lock.lease-millis:10000}")
+    private long leaseMillis;
+
+    /**
+     * 最长等待时间（毫秒）
+     */
+    @Value("${campcircle.lock.wait-millis:3000}")
+    private long waitMillis;
+
+    @Override
+    public <T> T executeWithLock(String key, Supplier<T> action) {
+        String lockKey = LOCK_KEY_PREFIX + key;
+        String token = IdUtil.fastSimpleUUID();
+        acquire(lockKey, token);
+        try {
+            return action.get();
+        } finally {
+            try {
+                stringRedisTemplate.execute(RELEASE_SCRIPT, Collections.singletonList(lockKey), token);
+            } catch (Exception e) {
+                // 释放失败时等待租约到期
+                log.error("释放 Redis 锁失败, key: {}", lockKey, e);
+            }
+        }
+    }
+
+    private void acquire(String lockKey, String token) {
+        long deadline = System.currentTimeMillis() + waitMillis;
+        long backoffMillis = 10;
+        while (true) {
+            Boolean locked = stringRedisTemplate.opsForValue()
+                    .setIfAbsent(lockKey, token, leaseMillis, TimeUnit.MILLISECONDS);
+            if (Boolean.TRUE.equals(locked)) {
+                return;
+            }
+            long remainMillis = deadline - System.currentTimeMillis();
+            if (remainMillis <= 0) {
+                log.warn("获取 Redis 锁超时, key: {}", lockKey);
+                throw new BusinessException(ErrorCode.OPERATION_ERROR, "操作过于频繁，请稍后重试");
+            }
+            try {
+                TimeUnit.MILLISECONDS.sleep(Math.min(backoffMillis, remainMillis));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new BusinessException(ErrorCode.OPERATION_ERROR, "操作被中断");
+            }
+            backoffMillis = Math.min(backoffMillis * 2, 100);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.caden.campcircle.manager.push;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * 进程内推送总线（单节点部署、本地调试）
+ */
+@Component
+@ConditionalOnProperty(name = "campcircle.push.bus", havingValue = "local")
+public class LocalPushBus implements PushBus {
+
+    private final Map<Long, Consumer<String>> receiverMap = new ConcurrentHashMap<>();
+
+    private final List<Consumer<String>> broadcastReceiverList = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(long userId, String frame) {
+        Consumer<String> receiver = receiverMap.get(userId);
+        if (receiver != null) {
+            receiver.accept(frame);
+        }
+    }
+
+    @Override
+    public void broadcast(String frame) {
+        broadcastReceiverList.forEach(receiver -> receiver.accept(frame));
+    }
+
+    @Override
+    public void subscribe(long userId, Consumer<String> receiver) {
+        receiverMap.putIfAbsent(userId, receiver);
+    }
+
+    @Override
+    public void unsubscribe(long userId) {
+        receiverMap.remove(userId);
+    }
+
+    @Override
+    public void subscribeBroadcast(Consumer<String> receiver) {
+        broadcastReceiverList.add(receiver);
+    }
+}
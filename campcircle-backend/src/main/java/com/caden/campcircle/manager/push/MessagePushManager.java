@@ -0,0 +1,82 @@
+package com.caden.campcircle.manager.push;
+
+import com.caden.campcircle.utils.TransactionUtils;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import javax.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * 实时推送（私信、通知）
+ * <p>
+ * 事务中在提交后发布到推送总线，由持有接收方连接的节点推给客户端；用户不在线时帧直接丢弃，
+ * 客户端重连后通过列表接口补齐。推送失败不影响业务。
+ * 帧用 Spring MVC 的 ObjectMapper 序列化，日期、Long 等格式与接口返回一致。
+ */
+@Component
+@Slf4j
+public class MessagePushManager {
+
+    @Resource
+    private PushBus pushBus;
+
+    @Resource
+    private ObjectMapper objectMapper;
+
+    /**
+     * 推送给用户
+     *
+     * @param userId
+     * @param type   推送类型
+     * @param data
+     */
+    public void push(Long userId, String type, Object data) {
+        if (userId == null) {
+            return;
+        }
+        String frame = toFrame(type, data);
+        if (frame == null) {
+            return;
+        }
+        TransactionUtils.afterCommit(() -> {
+            try {
+                pushBus.publish(userId, frame);
+            } catch (Exception e) {
+                log.error("实时推送失败, userId: {}, type: {}", userId, type, e);
+            }
+        });
+    }
+
+    /**
+     * 推送给所有在线用户
+     *
+     * @param type 推送类型
+     * @param data
+     */
+    public void broadcast(String type, Object data) {
+        String frame = toFrame(type, data);
+        if (frame == null) {
+            return;
+        }
+        TransactionUtils.afterCommit(() -> {
+            try {
+                pushBus.broadcast(frame);
+            } catch (Exception e) {
+                log.error("全体推送失败, type: {}", type, e);
+            }
+        });
+    }
+
+    private String toFrame(String type, Object data) {
+        PushFrame pushFrame = new PushFrame();
+        pushFrame.setType(type);
+        pushFrame.setData(data);
+        try {
+            return objectMapper.writeValueAsString(pushFrame);
+        } catch (JsonProcessingException e) {
+            log.error("序列化推送帧失败, type: {}", type, e);
+            return null;
+        }
+    }
+}
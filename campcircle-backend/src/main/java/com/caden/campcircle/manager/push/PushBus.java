@@ -0,0 +1,48 @@
+package com.caden.campcircle.manager.push;
+
+import java.util.function.Consumer;
+
+/**
+ * 推送总线：把帧路由到持有目标用户连接的节点
+ * <p>
+ * 节点在用户第一个连接建立时订阅该用户，最后一个连接关闭时取消订阅。
+ */
+public interface PushBus {
+
+    /**
+     * 推送给用户
+     *
+     * @param userId
+     * @param frame  序列化后的帧
+     */
+    void publish(long userId, String frame);
+
+    /**
+     * 推送给所有在线用户
+     *
+     * @param frame 序列化后的帧
+     */
+    void broadcast(String frame);
+
+    /**
+     * 订阅用户
+     *
+     * @param userId
+     * @param receiver 收到帧后推给本节点该用户的连接
+     */
+    void subscribe(long userId, Consumer<String> receiver);
+
+    /**
+     * 取消订阅用户
+     *
+     * @param userId
+     */
+    void unsubscribe(long userId);
+
+    /**
+     * 订阅全体推送
+     *
+     * @param receiver 收到帧后推给本节点所有连接
+     */
+    void subscribeBroadcast(Consumer<String> receiver);
+}
@@ -0,0 +1,23 @@
+package com.caden.campcircle.manager.push;
+
+import java.io.Serializable;
+import lombok.Data;
+
+/**
+ * 推送给客户端的 WebSocket 帧
+ */
+@Data
+public class PushFrame implements Serializable {
+
+    /**
+     * 推送类型，见 {@link com.caden.campcircle.constant.PushConstant}
+     */
+    private String type;
+
+    /**
+     * 数据
+     */
+    private Object data;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,72 @@
+package com.caden.campcircle.manager.push;
+
+import com.caden.campcircle.constant.PushConstant;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import javax.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+/**
+ * 基于 Redis 发布订阅的推送总线（多节点部署）
+ * <p>
+ * 每个用户一个频道，只有持有该用户连接的节点订阅，其他节点不会收到该用户的帧。
+ * 监听容器单线程按到达顺序分发，同一用户的帧按发布顺序进入连接的发送队列。
+ */
+@Component
+@ConditionalOnProperty(name = "campcircle.push.bus", havingValue = "redis", matchIfMissing = true)
+@Slf4j
+public class RedisPushBus implements PushBus {
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    private final Map<Long, MessageListener> listenerMap = new ConcurrentHashMap<>();
+
+    @Override
+    public void publish(long userId, String frame) {
+        stringRedisTemplate.convertAndSend(PushConstant.USER_CHANNEL_PREFIX + userId, frame);
+    }
+
+    @Override
+    public void broadcast(String frame) {
+        stringRedisTemplate.convertAndSend(PushConstant.BROADCAST_CHANNEL, frame);
+    }
+
+    @Override
+    public void subscribe(long userId, Consumer<String> receiver) {
+        listenerMap.computeIfAbsent(userId, key -> {
+            MessageListener listener = (message, pattern) ->
+                    receiver.accept(new String(message.getBody(), StandardCharsets.UTF_8));
+            redisMessageListenerContainer.addMessageListener(listener,
+                    new ChannelTopic(PushConstant.USER_CHANNEL_PREFIX + userId));
+            return listener;
+        });
+    }
+
+    @Override
+    public void unsubscribe(long userId) {
+        MessageListener listener = listenerMap.remove(userId);
+        if (listener != null) {
+            redisMessageListenerContainer.removeMessageListener(listener,
+                    new ChannelTopic(PushConstant.USER_CHANNEL_PREFIX + userId));
+        }
+    }
+
+    @Override
+    public void subscribeBroadcast(Consumer<String> receiver) {
+        redisMessageListenerContainer.addMessageListener(
+                (message, pattern) -> receiver.accept(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(PushConstant.BROADCAST_CHANNEL));
+    }
+}
@@ -0,0 +1,130 @@
+package com.caden.campcircle.manager.search;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * 压缩整数集合
+ * <p>
+ * 元素少时为有序 int 数组，元素多到数组比位图更占内存时转为位图（{@link BitSet}），思路同 Roaring Bitmap 的 array/bitmap 容器。
+ * 非线程安全，由 {@link PostTagIndex} 加锁。
+ */
+class CompactIntSet {
+
+    private int[] array = new int[4];
+
+    private int size;
+
+    private BitSet bits;
+
+    int cardinality() {
+        return bits == null ? size : bits.cardinality();
+    }
+
+    boolean contains(int value) {
+        if (bits != null) {
+            return bits.get(value);
+        }
+        return Arrays.binarySearch(array, 0, size, value) >= 0;
+    }
+
+    void add(int value) {
+        if (bits != null) {
+            bits.set(value);
+            return;
+        }
+        int index = Arrays.binarySearch(array, 0, size, value);
+        if (index >= 0) {
+            return;
+        }
+        index = -index - 1;
+        if (size == array.length) {
+            array = Arrays.copyOf(array, size * 2);
+        }
+        System.arraycopy(array, index, array, index + 1, size - index);
+        array[index] = value;
+        size++;
+        // 数组（每个元素 32 位）比位图（最大值 + 1 位）大时转为位图
+        if (size > 64 && (long) size * 32 > array[size - 1] + 1L) {
+            bits = toBitSet();
+            array = null;
+            size = 0;
+        }
+    }
+
+    void remove(int value) {
+        if (bits != null) {
+            bits.clear(value);
+            return;
+        }
+        int index = Arrays.binarySearch(array, 0, size, value);
+        if (index >= 0) {
+            System.arraycopy(array, index + 1, array, index, size - index - 1);
+            size--;
+        }
+    }
+
+    /**
+     * 交集
+     */
+    CompactIntSet and(CompactIntSet other) {
+        if (bits != null && other.bits != null) {
+            BitSet result = (BitSet) bits.clone();
+            result.and(other.bits);
+            return ofBitSet(result);
+        }
+        CompactIntSet small = bits == null ? this : other;
+        CompactIntSet large = small == this ? other : this;
+        CompactIntSet result = new CompactIntSet();
+        for (int i = 0; i < small.size; i++) {
+            if (large.contains(small.array[i])) {
+                result.appendSorted(small.array[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 并集
+     */
+    CompactIntSet or(CompactIntSet other) {
+        BitSet result = toBitSet();
+        result.or(other.toBitSet());
+        return ofBitSet(result);
+    }
+
+    /**
+     * 升序元素
+     */
+    int[] toArray() {
+        if (bits == null) {
+            return Arrays.copyOf(array, size);
+        }
+        return bits.stream().toArray();
+    }
+
+    private BitSet toBitSet() {
+        if (bits != null) {
+            return (BitSet) bits.clone();
+        }
+        BitSet result = new BitSet(size == 0 ? 0 : array[size - 1] + 1);
+        for (int i = 0; i < size; i++) {
+            result.set(array[i]);
+        }
+        return result;
+    }
+
+    private void appendSorted(int value) {
+        if (size == array.length) {
+            array = Arrays.copyOf(array, size * 2);
+        }
+        array[size++] = value;
+    }
+
+    private static CompactIntSet ofBitSet(BitSet bitSet) {
+        CompactIntSet result = new CompactIntSet();
+        result.bits = bitSet;
+        result.array = null;
+        return result;
+    }
+}
@@ -0,0 +1,300 @@
+package com.caden.campcircle.manager.search;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import lombok.Data;
+
+/**
+ * 进程内倒排索引
+ * <p>
+ * 词典把词映射为整数 id，每个词一条压缩倒排列表（{@link PostingList}），另存文档到词 id 的正排，用于修改和删除时撤销旧词。
+ * 查询时所有词都须命中：按文档频率从低到高依次求交集，候选集只会越来越小；结果按 BM25 词频饱和 × IDF 的累计得分降序，同分时 id 大（新）的在前。
+ * 读写锁保护，查询之间并发。
+ */
+public class InvertedIndex {
+
+    private static final int SNAPSHOT_MAGIC = 0x43434958;
+
+    private static final int SNAPSHOT_VERSION = 2;
+
+    /**
+     * BM25 词频饱和参数
+     */
+    private static final double K1 = 1.2;
+
+    private final Map<String, Integer> tokenIdMap = new HashMap<>();
+
+    private final List<String> tokenList = new ArrayList<>();
+
+    private final List<PostingList> postingLists = new ArrayList<>();
+
+    private final Map<Long, int[]> docTokenMap = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * 新增或覆盖文档
+     *
+     * @param docId
+     * @param text  为空时等同删除
+     */
+    public void put(long docId, String text) {
+        Map<String, Integer> tfMap = new LinkedHashMap<>();
+        for (String token : TextTokenizer.tokenize(text)) {
+            tfMap.merge(token, 1, Integer::sum);
+        }
+        lock.writeLock().lock();
+        try {
+            removeInternal(docId);
+            if (tfMap.isEmpty()) {
+                return;
+            }
+            int[] tokenIds = new int[tfMap.size()];
+            int i = 0;
+            for (Map.Entry<String, Integer> entry : tfMap.entrySet()) {
+                int tokenId = getOrCreateTokenId(entry.getKey());
+                postingLists.get(tokenId).put(docId, entry.getValue());
+                tokenIds[i++] = tokenId;
+            }
+            docTokenMap.put(docId, tokenIds);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 删除文档
+     *
+     * @param docId
+     */
+    public void remove(long docId) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(docId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 文档数
+     *
+     * @return
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docTokenMap.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 查询
+     *
+     * @param query
+     * @param offset
+     * @param limit
+     * @return 命中的文档 id（按相关度排序）和总数
+     */
+    public SearchResult search(String query, int offset, int limit) {
+        SearchResult searchResult = new SearchResult();
+        List<String> queryTokenList = new ArrayList<>(new LinkedHashSet<>(TextTokenizer.tokenize(query)));
+        if (queryTokenList.isEmpty()) {
+            return searchResult;
+        }
+        lock.readLock().lock();
+        try {
+            List<PostingList> queryPostingList = new ArrayList<>();
+            for (String token : queryTokenList) {
+                Integer tokenId = tokenIdMap.get(token);
+                if (tokenId == null || postingLists.get(tokenId).count() == 0) {
+                    return searchResult;
+                }
+                queryPostingList.add(postingLists.get(tokenId));
+            }
+            // 从最短的列表开始求交集
+            queryPostingList.sort(Comparator.comparingInt(PostingList::count));
+            int docCount = docTokenMap.size();
+            PostingList first = queryPostingList.get(0);
+            long[] docIds = new long[first.count()];
+            double[] scores = new double[first.count()];
+            int size = 0;
+            double firstIdf = idf(docCount, first.count());
+            PostingList.Cursor firstCursor = first.cursor();
+            while (firstCursor.next()) {
+                docIds[size] = firstCursor.docId;
+                scores[size++] = tfWeight(firstCursor.tf) * firstIdf;
+            }
+            for (int i = 1; i < queryPostingList.size() && size > 0; i++) {
+                PostingList postingList = queryPostingList.get(i);
+                double idf = idf(docCount, postingList.count());
+                PostingList.Cursor cursor = postingList.cursor();
+                int kept = 0;
+                int j = 0;
+                boolean hasNext = cursor.next();
+                while (j < size && hasNext) {
+                    if (cursor.docId < docIds[j]) {
+                        hasNext = cursor.next();
+                    } else if (cursor.docId > docIds[j]) {
+                        j++;
+                    } else {
+                        docIds[kept] = docIds[j];
+                        scores[kept++] = scores[j] + tfWeight(cursor.tf) * idf;
+                        j++;
+                        hasNext = cursor.next();
+                    }
+                }
+                size = kept;
+            }
+            searchResult.setTotal(size);
+            if (size == 0 || offset >= size) {
+                return searchResult;
+            }
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> scores[a] != scores[b] ? Double.compare(scores[b], scores[a])
+                    : Long.compare(docIds[b], docIds[a]));
+            int end = (int) Math.min((long) offset + limit, size);
+            for (int i = offset; i < end; i++) {
+                searchResult.getIdList().add(docIds[order[i]]);
+            }
+            return searchResult;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 写入快照（只写非空的倒排列表，正排在加载时由倒排还原）
+     *
+     * @param out
+     * @throws IOException
+     */
+    public void writeTo(DataOutputStream out) throws IOException {
+        lock.readLock().lock();
+        try {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            int nonEmpty = 0;
+            for (PostingList postingList : postingLists) {
+                if (postingList.count() > 0) {
+                    nonEmpty++;
+                }
+            }
+            out.writeInt(nonEmpty);
+            for (int tokenId = 0; tokenId < postingLists.size(); tokenId++) {
+                PostingList postingList = postingLists.get(tokenId);
+                if (postingList.count() == 0) {
+                    continue;
+                }
+                PostingList.Cursor cursor = postingList.cursor();
+                long lastDocId = 0;
+                while (cursor.next()) {
+                    lastDocId = cursor.docId;
+                }
+                out.writeUTF(tokenList.get(tokenId));
+                out.writeInt(postingList.count());
+                out.writeLong(lastDocId);
+                byte[] bytes = postingList.toBytes();
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 从快照加载
+     *
+     * @param in
+     * @return
+     * @throws IOException 格式不对
+     */
+    public static InvertedIndex readFrom(DataInputStream in) throws IOException {
+        if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+            throw new IOException("invalid snapshot");
+        }
+        InvertedIndex index = new InvertedIndex();
+        Map<Long, List<Integer>> docTokenListMap = new HashMap<>();
+        int tokenCount = in.readInt();
+        for (int i = 0; i < tokenCount; i++) {
+            String token = in.readUTF();
+            int count = in.readInt();
+            long lastDocId = in.readLong();
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            int tokenId = index.getOrCreateTokenId(token);
+            PostingList postingList = PostingList.fromBytes(bytes, count, lastDocId);
+            index.postingLists.set(tokenId, postingList);
+            PostingList.Cursor cursor = postingList.cursor();
+            while (cursor.next()) {
+                docTokenListMap.computeIfAbsent(cursor.docId, key -> new ArrayList<>()).add(tokenId);
+            }
+        }
+        docTokenListMap.forEach((docId, tokenIdList) ->
+                index.docTokenMap.put(docId, tokenIdList.stream().mapToInt(Integer::intValue).toArray()));
+        return index;
+    }
+
+    private void removeInternal(long docId) {
+        int[] tokenIds = docTokenMap.remove(docId);
+        if (tokenIds == null) {
+            return;
+        }
+        for (int tokenId : tokenIds) {
+            postingLists.get(tokenId).remove(docId);
+        }
+    }
+
+    private int getOrCreateTokenId(String token) {
+        Integer tokenId = tokenIdMap.get(token);
+        if (tokenId == null) {
+            tokenId = tokenList.size();
+            tokenIdMap.put(token, tokenId);
+            tokenList.add(token);
+            postingLists.add(new PostingList());
+        }
+        return tokenId;
+    }
+
+    private static double idf(int docCount, int docFreq) {
+        return Math.log(1 + (docCount - docFreq + 0.5) / (docFreq + 0.5));
+    }
+
+    private static double tfWeight(int tf) {
+        return tf * (K1 + 1) / (tf + K1);
+    }
+
+    /**
+     * 查询结果
+     */
+    @Data
+    public static class SearchResult {
+
+        /**
+         * 当前页文档 id
+         */
+        private List<Long> idList = new ArrayList<>();
+
+        /**
+         * 命中总数
+         */
+        private long total;
+    }
+}
@@ -0,0 +1,372 @@
+package com.caden.campcircle.manager.search;
+
+import cn.hutool.core.collection.CollUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.caden.campcircle.constant.SearchConstant;
+import com.caden.campcircle.mapper.PostMapper;
+import com.caden.campcircle.mapper.UserMapper;
+import com.caden.campcircle.model.entity.Post;
+import com.caden.campcircle.model.entity.User;
+import com.caden.campcircle.utils.TransactionUtils;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 本地关键词搜索（未启用 ES 时替代 LIKE '%关键词%' 全表扫描）
+ * <p>
+ * 每个节点在内存中维护公开帖子（内容）和用户（昵称、简介、学校）两份倒排索引：
+ * 1. 启动时优先加载磁盘快照，没有快照则按 id 游标全量构建；之后按 updateTime 追平快照之后的变更
+ * 2. 帖子、用户写入提交后通过 Redis 发布订阅通知所有节点，各节点从数据库重新加载该条数据更新索引
+ * 3. 定期把有变更的索引以 GZIP 写入快照，重启无需全量构建
+ * 索引未就绪或查询含单个孤立汉字时返回 null，调用方回退到数据库查询。
+ */
+@Component
+@Slf4j
+public class LocalSearchManager implements MessageListener {
+
+    /**
+     * 追平变更时向前多取的时间，覆盖快照写入期间和时钟误差
+     */
+    private static final long CATCH_UP_MARGIN_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    @Resource
+    private PostMapper postMapper;
+
+    @Resource
+    private UserMapper userMapper;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @Resource(name = "taskExecutor")
+    private Executor taskExecutor;
+
+    @Value("${campcircle.local-search.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 快照目录
+     */
+    @Value("${campcircle.local-search.snapshot-dir:data/search}")
+    private String snapshotDir;
+
+    /**
+     * 全量构建每批条数
+     */
+    @Value("${campcircle.local-search.build-batch-size:1000}")
+    private int buildBatchSize;
+
+    private final IndexHolder postHolder = new IndexHolder(SearchConstant.POST_INDEX);
+
+    private final IndexHolder userHolder = new IndexHolder(SearchConstant.USER_INDEX);
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        redisMessageListenerContainer.addMessageListener(this,
+                new ChannelTopic(SearchConstant.LOCAL_INDEX_CHANGE_CHANNEL));
+        taskExecutor.execute(() -> {
+            load(postHolder);
+            load(userHolder);
+        });
+    }
+
+    /**
+     * 搜索公开帖子
+     *
+     * @param keyword
+     * @param offset
+     * @param limit
+     * @return 索引不可用时返回 null
+     */
+    public InvertedIndex.SearchResult searchPost(String keyword, int offset, int limit) {
+        return search(postHolder, keyword, offset, limit);
+    }
+
+    /**
+     * 搜索用户
+     *
+     * @param keyword
+     * @param offset
+     * @param limit
+     * @return 索引不可用时返回 null
+     */
+    public InvertedIndex.SearchResult searchUser(String keyword, int offset, int limit) {
+        return search(userHolder, keyword, offset, limit);
+    }
+
+    /**
+     * 帖子变更（事务中在提交后通知）
+     *
+     * @param postId
+     */
+    public void onPostChanged(Long postId) {
+        publish(SearchConstant.POST_INDEX, postId);
+    }
+
+    /**
+     * 用户变更（事务中在提交后通知）
+     *
+     * @param userId
+     */
+    public void onUserChanged(Long userId) {
+        publish(SearchConstant.USER_INDEX, userId);
+    }
+
+    /**
+     * 收到变更广播（包括本节点），异步从数据库重新加载
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        String[] parts = body.split(":");
+        if (parts.length != 2 || !StringUtils.isNumeric(parts[1])) {
+            return;
+        }
+        long id = Long.parseLong(parts[1]);
+        taskExecutor.execute(() -> refresh(parts[0], id));
+    }
+
+    /**
+     * 定期写快照
+     */
+    @Scheduled(fixedDelayString = "${campcircle.local-search.snapshot-interval-ms:300000}")
+    public void snapshot() {
+        if (!enabled) {
+            return;
+        }
+        writeSnapshot(postHolder);
+        writeSnapshot(userHolder);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        snapshot();
+    }
+
+    private InvertedIndex.SearchResult search(IndexHolder holder, String keyword, int offset, int limit) {
+        if (!enabled || !holder.ready || !TextTokenizer.isIndexable(keyword)) {
+            return null;
+        }
+        return holder.index.search(keyword, Math.max(offset, 0), limit);
+    }
+
+    private void publish(String indexName, Long id) {
+        if (!enabled || id == null) {
+            return;
+        }
+        TransactionUtils.afterCommit(() -> {
+            try {
+                stringRedisTemplate.convertAndSend(SearchConstant.LOCAL_INDEX_CHANGE_CHANNEL, indexName + ":" + id);
+            } catch (Exception e) {
+                log.error("广播本地索引变更失败，只更新本节点, {}:{}", indexName, id, e);
+                taskExecutor.execute(() -> refresh(indexName, id));
+            }
+        });
+    }
+
+    private void refresh(String indexName, long id) {
+        try {
+            if (SearchConstant.POST_INDEX.equals(indexName)) {
+                Post post = postMapper.selectById(id);
+                applyPost(post == null ? deletedPost(id) : post);
+            } else if (SearchConstant.USER_INDEX.equals(indexName)) {
+                User user = userMapper.selectById(id);
+                applyUser(user == null ? deletedUser(id) : user);
+            }
+        } catch (Exception e) {
+            log.error("更新本地索引失败, {}:{}", indexName, id, e);
+        }
+    }
+
+    /**
+     * 加载快照或全量构建，再追平之后的变更
+     */
+    private void load(IndexHolder holder) {
+        long startTime = System.currentTimeMillis();
+        long since = startTime;
+        InvertedIndex index = null;
+        File file = snapshotFile(holder);
+        if (file.exists()) {
+            try (InputStream fileIn = Files.newInputStream(file.toPath());
+                 DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(fileIn)))) {
+                since = in.readLong();
+                index = InvertedIndex.readFrom(in);
+            } catch (IOException e) {
+                log.warn("本地索引快照损坏，全量构建, {}", file, e);
+                since = startTime;
+            }
+        }
+        try {
+            if (index == null) {
+                holder.index = new InvertedIndex();
+                build(holder);
+            } else {
+                holder.index = index;
+            }
+            // 加载期间的变更可能写到了旧实例上，统一按 updateTime 追平
+            catchUp(holder, new Date(since - CATCH_UP_MARGIN_MILLIS));
+            holder.ready = true;
+            holder.dirty.set(true);
+            log.info("本地索引 {} 就绪, 文档数: {}, 耗时: {}ms, 来源: {}", holder.name, holder.index.size(),
+                    System.currentTimeMillis() - startTime, index == null ? "全量构建" : "快照");
+        } catch (Exception e) {
+            log.error("本地索引 {} 加载失败，搜索回退到数据库", holder.name, e);
+        }
+    }
+
+    private void build(IndexHolder holder) {
+        long lastId = 0;
+        while (true) {
+            if (SearchConstant.POST_INDEX.equals(holder.name)) {
+                List<Post> postList = postMapper.listPostForReindex(lastId, buildBatchSize);
+                if (CollUtil.isEmpty(postList)) {
+                    return;
+                }
+                postList.forEach(this::applyPost);
+                lastId = postList.get(postList.size() - 1).getId();
+                if (postList.size() < buildBatchSize) {
+                    return;
+                }
+            } else {
+                List<User> userList = userMapper.selectList(new QueryWrapper<User>()
+                        .select("id", "userName", "userProfile", "school", "isDelete")
+                        .gt("id", lastId).orderByAsc("id").last("limit " + buildBatchSize));
+                if (CollUtil.isEmpty(userList)) {
+                    return;
+                }
+                userList.forEach(this::applyUser);
+                lastId = userList.get(userList.size() - 1).getId();
+                if (userList.size() < buildBatchSize) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void catchUp(IndexHolder holder, Date minUpdateTime) {
+        if (SearchConstant.POST_INDEX.equals(holder.name)) {
+            postMapper.listPostWithDelete(minUpdateTime).forEach(this::applyPost);
+        } else {
+            userMapper.listUserWithDelete(minUpdateTime).forEach(this::applyUser);
+        }
+    }
+
+    private void applyPost(Post post) {
+        boolean visible = Integer.valueOf(0).equals(post.getIsDelete()) && Integer.valueOf(1).equals(post.getIsPublic());
+        if (!visible) {
+            postHolder.index.remove(post.getId());
+        } else {
+            // 与 LIKE 查询的字段一致，只索引内容，标签由标签索引负责
+            postHolder.index.put(post.getId(), StringUtils.defaultString(post.getContent()));
+        }
+        postHolder.dirty.set(true);
+    }
+
+    private void applyUser(User user) {
+        if (!Integer.valueOf(0).equals(user.getIsDelete())) {
+            userHolder.index.remove(user.getId());
+        } else {
+            userHolder.index.put(user.getId(), StringUtils.joinWith(" ", StringUtils.defaultString(user.getUserName()),
+                    StringUtils.defaultString(user.getUserProfile()), StringUtils.defaultString(user.getSchool())));
+        }
+        userHolder.dirty.set(true);
+    }
+
+    private Post deletedPost(long postId) {
+        Post post = new Post();
+        post.setId(postId);
+        post.setIsDelete(1);
+        return post;
+    }
+
+    private User deletedUser(long userId) {
+        User user = new User();
+        user.setId(userId);
+        user.setIsDelete(1);
+        return user;
+    }
+
+    /**
+     * 先写临时文件再原子替换，避免中途崩溃留下损坏的快照
+     */
+    private void writeSnapshot(IndexHolder holder) {
+        if (!holder.ready || !holder.dirty.getAndSet(false)) {
+            return;
+        }
+        long snapshotTime = System.currentTimeMillis();
+        File file = snapshotFile(holder);
+        Path tempPath = Paths.get(file.getPath() + ".tmp");
+        try {
+            Files.createDirectories(file.toPath().toAbsolutePath().getParent());
+            try (OutputStream fileOut = Files.newOutputStream(tempPath);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(fileOut)))) {
+                out.writeLong(snapshotTime);
+                holder.index.writeTo(out);
+            }
+            Files.move(tempPath, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("本地索引 {} 写入快照, 文档数: {}, 大小: {} 字节", holder.name, holder.index.size(), file.length());
+        } catch (IOException e) {
+            holder.dirty.set(true);
+            log.error("本地索引 {} 写入快照失败", holder.name, e);
+        }
+    }
+
+    private File snapshotFile(IndexHolder holder) {
+        return new File(snapshotDir, holder.name + ".idx.gz");
+    }
+
+    /**
+     * 一份索引及其状态
+     */
+    private static class IndexHolder {
+
+        private final String name;
+
+        private volatile InvertedIndex index = new InvertedIndex();
+
+        private volatile boolean ready;
+
+        private final AtomicBoolean dirty = new AtomicBoolean();
+
+        private IndexHolder(String name) {
+            this.name = name;
+        }
+    }
+}
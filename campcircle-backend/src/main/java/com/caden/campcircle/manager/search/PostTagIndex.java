@@ -0,0 +1,186 @@
+package com.caden.campcircle.manager.search;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 帖子标签位图索引
+ * <p>
+ * 帖子 id（雪花 id，稀疏）映射为稠密序号，每个标签一个序号集合（{@link CompactIntSet}），另有公开帖子集合；
+ * 多标签 AND / OR 过滤为集合交并，标签计数为与公开集合求交后的基数。读写锁保护。
+ */
+public class PostTagIndex {
+
+    private final Map<Long, Integer> ordinalMap = new HashMap<>();
+
+    private long[] postIds = new long[1024];
+
+    private int ordinalCount;
+
+    private final Map<Integer, String[]> ordinalTagMap = new HashMap<>();
+
+    private final Map<String, CompactIntSet> tagSetMap = new HashMap<>();
+
+    private final CompactIntSet publicSet = new CompactIntSet();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * 新增或覆盖帖子标签
+     *
+     * @param postId
+     * @param tags
+     * @param isPublic
+     */
+    public void put(long postId, Collection<String> tags, boolean isPublic) {
+        String[] tagArray = new LinkedHashSet<>(tags).toArray(new String[0]);
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinalMap.get(postId);
+            if (ordinal == null) {
+                ordinal = ordinalCount++;
+                if (ordinal == postIds.length) {
+                    postIds = Arrays.copyOf(postIds, postIds.length * 2);
+                }
+                postIds[ordinal] = postId;
+                ordinalMap.put(postId, ordinal);
+            }
+            clearTags(ordinal);
+            for (String tag : tagArray) {
+                tagSetMap.computeIfAbsent(tag, key -> new CompactIntSet()).add(ordinal);
+            }
+            ordinalTagMap.put(ordinal, tagArray);
+            if (isPublic) {
+                publicSet.add(ordinal);
+            } else {
+                publicSet.remove(ordinal);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 删除帖子（序号不回收）
+     *
+     * @param postId
+     */
+    public void remove(long postId) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinalMap.get(postId);
+            if (ordinal != null) {
+                clearTags(ordinal);
+                publicSet.remove(ordinal);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 按标签过滤
+     *
+     * @param andTags    须包含全部标签
+     * @param orTags     须包含任一标签
+     * @param publicOnly 是否只要公开帖子
+     * @return 帖子 id（倒序，新帖子在前）
+     */
+    public List<Long> query(Collection<String> andTags, Collection<String> orTags, boolean publicOnly) {
+        lock.readLock().lock();
+        try {
+            CompactIntSet result = publicOnly ? publicSet : null;
+            if (andTags != null) {
+                // 从最小的集合开始求交
+                List<CompactIntSet> setList = new ArrayList<>();
+                for (String tag : new LinkedHashSet<>(andTags)) {
+                    CompactIntSet tagSet = tagSetMap.get(tag);
+                    if (tagSet == null) {
+                        return new ArrayList<>();
+                    }
+                    setList.add(tagSet);
+                }
+                setList.sort(Comparator.comparingInt(CompactIntSet::cardinality));
+                for (CompactIntSet tagSet : setList) {
+                    result = result == null ? tagSet : result.and(tagSet);
+                }
+            }
+            if (orTags != null && !orTags.isEmpty()) {
+                CompactIntSet union = new CompactIntSet();
+                for (String tag : new LinkedHashSet<>(orTags)) {
+                    CompactIntSet tagSet = tagSetMap.get(tag);
+                    if (tagSet != null) {
+                        union = union.or(tagSet);
+                    }
+                }
+                result = result == null ? union : result.and(union);
+            }
+            List<Long> postIdList = new ArrayList<>();
+            if (result == null) {
+                return postIdList;
+            }
+            for (int ordinal : result.toArray()) {
+                if (ordinalTagMap.containsKey(ordinal)) {
+                    postIdList.add(postIds[ordinal]);
+                }
+            }
+            postIdList.sort(Comparator.reverseOrder());
+            return postIdList;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 公开帖子的标签计数
+     *
+     * @param limit 最多返回的标签数
+     * @return 标签 -> 帖子数，按数量降序
+     */
+    public Map<String, Integer> countPublic(int limit) {
+        List<Map.Entry<String, Integer>> entryList = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            tagSetMap.forEach((tag, tagSet) -> {
+                int count = tagSet.and(publicSet).cardinality();
+                if (count > 0) {
+                    entryList.add(new AbstractMap.SimpleEntry<>(tag, count));
+                }
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+        entryList.sort(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+        Map<String, Integer> countMap = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> entry : entryList.subList(0, Math.min(limit, entryList.size()))) {
+            countMap.put(entry.getKey(), entry.getValue());
+        }
+        return countMap;
+    }
+
+    private void clearTags(int ordinal) {
+        String[] oldTags = ordinalTagMap.remove(ordinal);
+        if (oldTags == null) {
+            return;
+        }
+        for (String tag : oldTags) {
+            CompactIntSet tagSet = tagSetMap.get(tag);
+            if (tagSet != null) {
+                tagSet.remove(ordinal);
+                if (tagSet.cardinality() == 0) {
+                    tagSetMap.remove(tag);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.caden.campcircle.manager.search;
+
+import cn.hutool.core.collection.CollUtil;
+import com.caden.campcircle.constant.SearchConstant;
+import com.caden.campcircle.mapper.PostMapper;
+import com.caden.campcircle.mapper.PostTagMapper;
+import com.caden.campcircle.model.entity.Post;
+import com.caden.campcircle.model.entity.PostTag;
+import com.caden.campcircle.utils.TransactionUtils;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+/**
+ * 帖子标签索引管理（未启用 ES 时替代对 post.tags 的 LIKE 匹配）
+ * <p>
+ * 1. 启动时按帖子 id 游标从 post_tag 全量构建内存位图索引，构建期间收到的变更在构建完成后重放
+ * 2. 帖子写入提交后通过 Redis 发布订阅通知所有节点，各节点从数据库重新加载该帖子的标签和公开状态
+ * 3. 提供多标签 AND / OR 过滤和标签计数；索引未就绪时返回 null，调用方回退到 post_tag 查询
+ */
+@Component
+@Slf4j
+public class PostTagIndexManager implements MessageListener {
+
+    @Resource
+    private PostMapper postMapper;
+
+    @Resource
+    private PostTagMapper postTagMapper;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @Resource(name = "taskExecutor")
+    private Executor taskExecutor;
+
+    @Value("${campcircle.tag-index.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 全量构建每批帖子数
+     */
+    @Value("${campcircle.tag-index.build-batch-size:1000}")
+    private int buildBatchSize;
+
+    private final PostTagIndex index = new PostTagIndex();
+
+    private volatile boolean ready;
+
+    /**
+     * 构建期间变更的帖子，构建完成后重放
+     */
+    private final Set<Long> pendingPostIdSet = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        redisMessageListenerContainer.addMessageListener(this,
+                new ChannelTopic(SearchConstant.TAG_INDEX_CHANGE_CHANNEL));
+        taskExecutor.execute(this::build);
+    }
+
+    /**
+     * 按标签过滤帖子
+     *
+     * @param andTags    须包含全部标签
+     * @param orTags     须包含任一标签
+     * @param publicOnly 是否只要公开帖子
+     * @return 帖子 id（新帖子在前），索引不可用时返回 null
+     */
+    public List<Long> query(Collection<String> andTags, Collection<String> orTags, boolean publicOnly) {
+        if (!enabled || !ready) {
+            return null;
+        }
+        return index.query(andTags, orTags, publicOnly);
+    }
+
+    /**
+     * 公开帖子的标签计数
+     *
+     * @param limit 最多返回的标签数
+     * @return 标签 -> 帖子数（按数量降序）
+     */
+    public Map<String, Integer> countPublic(int limit) {
+        if (enabled && ready) {
+            return index.countPublic(limit);
+        }
+        Map<String, Integer> countMap = new LinkedHashMap<>();
+        postTagMapper.listPublicTagCount(limit)
+                .forEach(tagCountVO -> countMap.put(tagCountVO.getTag(), tagCountVO.getCount()));
+        return countMap;
+    }
+
+    /**
+     * 帖子变更（事务中在提交后通知）
+     *
+     * @param postId
+     */
+    public void onPostChanged(Long postId) {
+        if (!enabled || postId == null) {
+            return;
+        }
+        TransactionUtils.afterCommit(() -> {
+            try {
+                stringRedisTemplate.convertAndSend(SearchConstant.TAG_INDEX_CHANGE_CHANNEL, String.valueOf(postId));
+            } catch (Exception e) {
+                log.error("广播标签索引变更失败，只更新本节点, postId: {}", postId, e);
+                taskExecutor.execute(() -> refresh(postId));
+            }
+        });
+    }
+
+    /**
+     * 收到变更广播（包括本节点），异步从数据库重新加载
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        if (!StringUtils.isNumeric(body)) {
+            return;
+        }
+        long postId = Long.parseLong(body);
+        if (!ready) {
+            pendingPostIdSet.add(postId);
+            return;
+        }
+        taskExecutor.execute(() -> refresh(postId));
+    }
+
+    private void refresh(long postId) {
+        try {
+            List<Post> postList = postMapper.listPostWithDeleteByIds(Collections.singletonList(postId));
+            if (postList.isEmpty()) {
+                index.remove(postId);
+                return;
+            }
+            apply(postList, postTagMapper.listByPostIds(Collections.singletonList(postId)));
+        } catch (Exception e) {
+            log.error("更新标签索引失败, postId: {}", postId, e);
+            if (!ready) {
+                pendingPostIdSet.add(postId);
+            }
+        }
+    }
+
+    private void build() {
+        long startTime = System.currentTimeMillis();
+        try {
+            long lastId = 0;
+            int postCount = 0;
+            while (true) {
+                List<Post> postList = postMapper.listPostForReindex(lastId, buildBatchSize);
+                if (CollUtil.isEmpty(postList)) {
+                    break;
+                }
+                List<Long> postIdList = postList.stream().map(Post::getId).collect(Collectors.toList());
+                apply(postList, postTagMapper.listByPostIds(postIdList));
+                postCount += postList.size();
+                lastId = postList.get(postList.size() - 1).getId();
+                if (postList.size() < buildBatchSize) {
+                    break;
+                }
+            }
+            ready = true;
+            // 构建期间的变更可能被批量数据覆盖，重新加载一遍
+            List<Long> pendingPostIdList = new ArrayList<>(pendingPostIdSet);
+            pendingPostIdSet.removeAll(pendingPostIdList);
+            pendingPostIdList.forEach(this::refresh);
+            log.info("标签索引就绪, 帖子数: {}, 耗时: {}ms", postCount, System.currentTimeMillis() - startTime);
+        } catch (Exception e) {
+            log.error("标签索引构建失败，标签查询回退到数据库", e);
+        }
+    }
+
+    /**
+     * 写入索引
+     *
+     * @param postList    帖子（包括已删除的）
+     * @param postTagList 这些帖子的标签
+     */
+    private void apply(List<Post> postList, List<PostTag> postTagList) {
+        Map<Long, List<String>> tagMap = postTagList.stream().collect(Collectors.groupingBy(PostTag::getPostId,
+                Collectors.mapping(PostTag::getTag, Collectors.toList())));
+        for (Post post : postList) {
+            if (!Integer.valueOf(0).equals(post.getIsDelete())) {
+                index.remove(post.getId());
+            } else {
+                index.put(post.getId(), tagMap.getOrDefault(post.getId(), Collections.emptyList()),
+                        Integer.valueOf(1).equals(post.getIsPublic()));
+            }
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.caden.campcircle.manager.search;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 倒排列表
+ * <p>
+ * 按文档 id 升序存储 (id 差值, 词频) 的变长整数编码。文档 id 基本递增，新增几乎都是追加；
+ * 删除只记入删除集合，乱序插入记入有序的补充表，读取时与编码合并，两者累计超过编码条数的 1/4 时才整体重编码，
+ * 修改、删除的均摊代价为常数。非线程安全，由 {@link InvertedIndex} 加锁。
+ */
+class PostingList {
+
+    /**
+     * 删除集合与补充表累计超过该条数且超过编码条数的 1/4 时重编码
+     */
+    private static final int COMPACT_MIN_SIZE = 32;
+
+    private byte[] data = new byte[8];
+
+    private int length;
+
+    /**
+     * 编码中的条数（含已删除的）
+     */
+    private int encodedCount;
+
+    /**
+     * 编码中最后一个文档 id
+     */
+    private long lastDocId;
+
+    /**
+     * 编码中已删除的文档 id
+     */
+    private final Set<Long> deletedSet = new HashSet<>();
+
+    /**
+     * 不能追加到编码末尾的文档（id 不大于 lastDocId）
+     */
+    private final TreeMap<Long, Integer> overlayMap = new TreeMap<>();
+
+    int count() {
+        return encodedCount - deletedSet.size() + overlayMap.size();
+    }
+
+    /**
+     * 新增文档，调用方保证文档当前不在列表中（修改时先删除）
+     */
+    void put(long docId, int tf) {
+        if (encodedCount == 0 || docId > lastDocId) {
+            append(docId, tf);
+            return;
+        }
+        overlayMap.put(docId, tf);
+        compactIfNeeded();
+    }
+
+    /**
+     * 删除文档，调用方保证文档当前在列表中
+     */
+    void remove(long docId) {
+        if (overlayMap.remove(docId) == null) {
+            deletedSet.add(docId);
+        }
+        compactIfNeeded();
+    }
+
+    Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * 快照用：合并删除集合与补充表后的编码，不修改当前列表
+     */
+    byte[] toBytes() {
+        if (deletedSet.isEmpty() && overlayMap.isEmpty()) {
+            return Arrays.copyOf(data, length);
+        }
+        PostingList compacted = new PostingList();
+        Cursor cursor = cursor();
+        while (cursor.next()) {
+            compacted.append(cursor.docId, cursor.tf);
+        }
+        return Arrays.copyOf(compacted.data, compacted.length);
+    }
+
+    /**
+     * 快照用：由原始编码恢复
+     */
+    static PostingList fromBytes(byte[] bytes, int count, long lastDocId) {
+        PostingList postingList = new PostingList();
+        postingList.data = bytes.length == 0 ? new byte[8] : bytes;
+        postingList.length = bytes.length;
+        postingList.encodedCount = count;
+        postingList.lastDocId = lastDocId;
+        return postingList;
+    }
+
+    private void append(long docId, int tf) {
+        writeVarLong(encodedCount == 0 ? docId : docId - lastDocId);
+        writeVarLong(tf);
+        lastDocId = docId;
+        encodedCount++;
+    }
+
+    private void compactIfNeeded() {
+        int pending = deletedSet.size() + overlayMap.size();
+        if (pending < COMPACT_MIN_SIZE || pending * 4 < encodedCount) {
+            return;
+        }
+        int size = count();
+        long[] docIds = new long[size];
+        int[] tfs = new int[size];
+        int i = 0;
+        Cursor cursor = cursor();
+        while (cursor.next()) {
+            docIds[i] = cursor.docId;
+            tfs[i++] = cursor.tf;
+        }
+        data = new byte[Math.max(8, length)];
+        length = 0;
+        encodedCount = 0;
+        deletedSet.clear();
+        overlayMap.clear();
+        for (i = 0; i < size; i++) {
+            append(docIds[i], tfs[i]);
+        }
+    }
+
+    private void writeVarLong(long value) {
+        if (length + 10 > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, length + 10));
+        }
+        while ((value & ~0x7FL) != 0) {
+            data[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[length++] = (byte) value;
+    }
+
+    /**
+     * 顺序解码游标，跳过已删除的文档并按 id 合并补充表
+     */
+    class Cursor {
+
+        private int position;
+
+        private int index;
+
+        private long encodedDocId;
+
+        private int encodedTf;
+
+        private boolean encodedValid;
+
+        private final Iterator<Map.Entry<Long, Integer>> overlayIterator = overlayMap.entrySet().iterator();
+
+        private Map.Entry<Long, Integer> overlayEntry;
+
+        long docId;
+
+        int tf;
+
+        Cursor() {
+            advanceEncoded();
+            overlayEntry = overlayIterator.hasNext() ? overlayIterator.next() : null;
+        }
+
+        boolean next() {
+            if (!encodedValid && overlayEntry == null) {
+                return false;
+            }
+            if (overlayEntry == null || (encodedValid && encodedDocId < overlayEntry.getKey())) {
+                docId = encodedDocId;
+                tf = encodedTf;
+                advanceEncoded();
+            } else {
+                docId = overlayEntry.getKey();
+                tf = overlayEntry.getValue();
+                overlayEntry = overlayIterator.hasNext() ? overlayIterator.next() : null;
+            }
+            return true;
+        }
+
+        private void advanceEncoded() {
+            while (index < encodedCount) {
+                long delta = readVarLong();
+                encodedDocId = index == 0 ? delta : encodedDocId + delta;
+                encodedTf = (int) readVarLong();
+                index++;
+                if (!deletedSet.contains(encodedDocId)) {
+                    encodedValid = true;
+                    return;
+                }
+            }
+            encodedValid = false;
+        }
+
+        private long readVarLong() {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position++];
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+    }
+}
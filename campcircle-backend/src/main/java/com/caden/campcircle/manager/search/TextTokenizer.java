@@ -0,0 +1,105 @@
+package com.caden.campcircle.manager.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 分词器
+ * <p>
+ * 连续的中日韩文字切成相邻二元组（bigram），单个字单独成词；连续的字母、数字作为一个词并转小写；其他字符作为分隔符。
+ * 查询与建索引使用同一套规则，查询的所有词都命中即近似于 LIKE '%关键词%'（英文按整词匹配）。
+ */
+public class TextTokenizer {
+
+    private TextTokenizer() {
+    }
+
+    /**
+     * 分词（可能有重复）
+     *
+     * @param text
+     * @return
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokenList = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokenList;
+        }
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            int codePoint = text.codePointAt(i);
+            if (isCjk(codePoint)) {
+                int start = i;
+                while (i < length && isCjk(text.codePointAt(i))) {
+                    i += Character.charCount(text.codePointAt(i));
+                }
+                addBigrams(text.substring(start, i), tokenList);
+            } else if (Character.isLetterOrDigit(codePoint)) {
+                int start = i;
+                while (i < length) {
+                    int current = text.codePointAt(i);
+                    if (!Character.isLetterOrDigit(current) || isCjk(current)) {
+                        break;
+                    }
+                    i += Character.charCount(current);
+                }
+                tokenList.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+            } else {
+                i += Character.charCount(codePoint);
+            }
+        }
+        return tokenList;
+    }
+
+    /**
+     * 查询能否由索引回答：含单个孤立的中文字时，索引中只有二元组，无法覆盖 LIKE 语义
+     *
+     * @param query
+     * @return
+     */
+    public static boolean isIndexable(String query) {
+        if (query == null) {
+            return false;
+        }
+        boolean hasToken = false;
+        int length = query.length();
+        int i = 0;
+        while (i < length) {
+            int codePoint = query.codePointAt(i);
+            if (isCjk(codePoint)) {
+                int count = 0;
+                while (i < length && isCjk(query.codePointAt(i))) {
+                    i += Character.charCount(query.codePointAt(i));
+                    count++;
+                }
+                if (count == 1) {
+                    return false;
+                }
+                hasToken = true;
+            } else {
+                hasToken |= Character.isLetterOrDigit(codePoint);
+                i += Character.charCount(codePoint);
+            }
+        }
+        return hasToken;
+    }
+
+    private static void addBigrams(String run, List<String> tokenList) {
+        int[] codePoints = run.codePoints().toArray();
+        if (codePoints.length == 1) {
+            tokenList.add(run);
+            return;
+        }
+        for (int j = 0; j + 1 < codePoints.length; j++) {
+            tokenList.add(new String(codePoints, j, 2));
+        }
+    }
+
+    private static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA || script == Character.UnicodeScript.HANGUL;
+    }
+}
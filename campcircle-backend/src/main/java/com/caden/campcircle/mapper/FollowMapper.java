@@ -2,6 +2,9 @@ package com.caden.campcircle.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.caden.campcircle.model.entity.Follow;
+import java.util.List;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
 
 /**
  * 关注数据库操作
@@ -9,4 +12,27 @@ import com.caden.campcircle.model.entity.Follow;
  */
 public interface FollowMapper extends BaseMapper<Follow> {
 
+    /**
+     * 查询用户关注的大V（粉丝数不低于阈值）
+     *
+     * @param userId    用户 id
+     * @param threshold 粉丝数阈值
+     * @return 被关注用户 id 列表
+     */
+    @Select("SELECT f.followUserId FROM follow f JOIN user u ON u.id = f.followUserId " +
+            "WHERE f.userId = #{userId} AND f.isDelete = 0 AND u.isDelete = 0 AND u.fansNum >= #{threshold}")
+    List<Long> listCelebrityFollowUserId(@Param("userId") Long userId, @Param("threshold") Integer threshold);
+
+    /**
+     * 按 id 游标分批查询粉丝
+     *
+     * @param followUserId 被关注用户 id
+     * @param minId        上一批最大的关注记录 id
+     * @param limit        批大小
+     * @return 关注记录（只含 id、userId）
+     */
+    @Select("SELECT id, userId FROM follow WHERE followUserId = #{followUserId} AND isDelete = 0 AND id > #{minId} " +
+            "ORDER BY id LIMIT #{limit}")
+    List<Follow> listFansByCursor(@Param("followUserId") Long followUserId, @Param("minId") Long minId,
+                                  @Param("limit") Integer limit);
 }
\ No newline at end of file
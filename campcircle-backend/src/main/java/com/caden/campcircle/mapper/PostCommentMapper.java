@@ -2,6 +2,10 @@ package com.caden.campcircle.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.caden.campcircle.model.entity.PostComment;
+import com.caden.campcircle.model.vo.ReplyCountVO;
+import java.util.Collection;
+import java.util.List;
+import org.apache.ibatis.annotations.Param;
 
 /**
  * 评论数据库操作
@@ -9,4 +13,25 @@ import com.caden.campcircle.model.entity.PostComment;
  */
 public interface PostCommentMapper extends BaseMapper<PostComment> {
 
-}
\ No newline at end of file
+    /**
+     * 查询每条一级评论最早的若干条回复（每个一级评论各按索引取 limit 条后 UNION ALL）
+     *
+     * @param postId       帖子 id
+     * @param parentIdList 一级评论 id
+     * @param limit        每条一级评论最多取的回复数
+     * @return 回复，按 (parentId, createTime, id) 升序
+     */
+    List<PostComment> listReplyPreview(@Param("postId") Long postId,
+                                       @Param("parentIdList") Collection<Long> parentIdList,
+                                       @Param("limit") Integer limit);
+
+    /**
+     * 统计一级评论的回复数
+     *
+     * @param postId       帖子 id
+     * @param parentIdList 一级评论 id
+     * @return 一级评论 id 与回复数，没有回复的不在结果中
+     */
+    List<ReplyCountVO> listReplyCount(@Param("postId") Long postId,
+                                       @Param("parentIdList") Collection<Long> parentIdList);
+}
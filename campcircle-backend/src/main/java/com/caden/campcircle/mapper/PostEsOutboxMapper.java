@@ -0,0 +1,20 @@
+package com.caden.campcircle.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.caden.campcircle.model.entity.PostEsOutbox;
+import java.util.Collection;
+import org.apache.ibatis.annotations.Param;
+
+/**
+ * 帖子 ES 同步发件箱数据库操作
+ */
+public interface PostEsOutboxMapper extends BaseMapper<PostEsOutbox> {
+
+    /**
+     * 批量写入发件箱
+     *
+     * @param postIdList 帖子 id
+     * @return 影响行数
+     */
+    int insertBatch(@Param("postIdList") Collection<Long> postIdList);
+}
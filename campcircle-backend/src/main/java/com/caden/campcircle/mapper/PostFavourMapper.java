@@ -28,8 +28,22 @@ public interface PostFavourMapper extends BaseMapper<PostFavour> {
      */
     Page<Post> listFavourPostByPage(IPage<Post> page, @Param(Constants.WRAPPER) Wrapper<Post> queryWrapper,
             long favourUserId);
-}
-
-
 
+    /**
+     * 新增收藏，已存在时忽略（依赖 (userId, postId) 唯一键）
+     *
+     * @param userId
+     * @param postId
+     * @return 影响行数，0 表示已收藏
+     */
+    int insertIgnore(@Param("userId") long userId, @Param("postId") long postId);
 
+    /**
+     * 按唯一键删除收藏
+     *
+     * @param userId
+     * @param postId
+     * @return 影响行数，0 表示未收藏
+     */
+    int deleteByUserIdAndPostId(@Param("userId") long userId, @Param("postId") long postId);
+}
@@ -2,8 +2,10 @@ package com.caden.campcircle.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.caden.campcircle.model.entity.Post;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import org.apache.ibatis.annotations.Param;
 
 /**
  * 帖子数据库操作
@@ -17,6 +19,76 @@ public interface PostMapper extends BaseMapper<Post> {
      */
     List<Post> listPostWithDelete(Date minUpdateTime);
 
+    /**
+     * 根据 id 查询帖子（包括已被删除的数据）
+     *
+     * @param idList 帖子 id
+     * @return 帖子
+     */
+    List<Post> listPostWithDeleteByIds(@Param("idList") Collection<Long> idList);
+
+    /**
+     * 按 id 游标扫描未删除的帖子，用于全量重建索引
+     *
+     * @param lastId 上一批最后一个 id
+     * @param limit  每批条数
+     * @return 帖子
+     */
+    List<Post> listPostForReindex(@Param("lastId") Long lastId, @Param("limit") Integer limit);
+
+    /**
+     * 查询用户关注的普通作者（粉丝数低于阈值）在游标之前发布的公开帖子，按 (createTime, id) 倒序，
+     * 用于重建关注流收件箱，以及读完已截断的收件箱后继续回源
+     *
+     * @param userId     用户 id
+     * @param threshold  大V粉丝数阈值
+     * @param cursorTime 游标时间，为 null 时从最新开始
+     * @param cursorId   游标 id
+     * @param limit      最多条数
+     * @return 帖子（只含 id、createTime）
+     */
+    List<Post> listRecentFollowPost(@Param("userId") Long userId, @Param("threshold") Integer threshold,
+                                    @Param("cursorTime") Date cursorTime, @Param("cursorId") Long cursorId,
+                                    @Param("limit") Integer limit);
+
+    /**
+     * 获取发布时间不早于 minCreateTime 的最小帖子 id（走 idx_status_time_id 覆盖索引），作为热度扫描的起点
+     *
+     * @param minCreateTime 最早发布时间
+     * @return 窗口内没有帖子时为 null
+     */
+    Long getMinIdSince(@Param("minCreateTime") Date minCreateTime);
+
+    /**
+     * 按 id 游标扫描窗口内需要重新计算热度的帖子（从未计算或计算时间早于 staleBefore）
+     *
+     * @param minCreateTime 最早发布时间
+     * @param staleBefore   热度计算时间早于该时间视为过期
+     * @param lastId        上一批最后一个 id
+     * @param limit         每批条数
+     * @return 帖子（只含计算热度所需字段）
+     */
+    List<Post> listHotScoreCandidate(@Param("minCreateTime") Date minCreateTime, @Param("staleBefore") Date staleBefore,
+                                     @Param("lastId") Long lastId, @Param("limit") Integer limit);
+
+    /**
+     * 根据 id 查询窗口内的帖子，用于增量计算热度
+     *
+     * @param idList        帖子 id
+     * @param minCreateTime 最早发布时间
+     * @return 帖子（只含计算热度所需字段）
+     */
+    List<Post> listHotScoreByIds(@Param("idList") Collection<Long> idList, @Param("minCreateTime") Date minCreateTime);
+
+    /**
+     * 批量更新帖子热度（单条 CASE 语句）
+     *
+     * @param postList   帖子（id、hotScore）
+     * @param updateTime 热度计算时间
+     * @return 影响行数
+     */
+    int batchUpdateHotScore(@Param("postList") List<Post> postList, @Param("updateTime") Date updateTime);
+
 }
 
 
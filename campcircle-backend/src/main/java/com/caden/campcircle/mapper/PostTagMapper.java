@@ -0,0 +1,39 @@
+package com.caden.campcircle.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.caden.campcircle.model.entity.PostTag;
+import com.caden.campcircle.model.vo.TagCountVO;
+import java.util.Collection;
+import java.util.List;
+import org.apache.ibatis.annotations.Param;
+
+/**
+ * 帖子标签关联数据库操作
+ */
+public interface PostTagMapper extends BaseMapper<PostTag> {
+
+    /**
+     * 批量写入帖子标签
+     *
+     * @param postId  帖子 id
+     * @param tagList 标签（已去重）
+     * @return 影响行数
+     */
+    int insertBatch(@Param("postId") Long postId, @Param("tagList") Collection<String> tagList);
+
+    /**
+     * 查询多个帖子的标签
+     *
+     * @param postIdList 帖子 id
+     * @return 帖子标签（只含 postId、tag）
+     */
+    List<PostTag> listByPostIds(@Param("postIdList") Collection<Long> postIdList);
+
+    /**
+     * 按标签统计公开帖子数（索引不可用时使用）
+     *
+     * @param limit 最多返回的标签数
+     * @return 标签及公开帖子数（按数量降序）
+     */
+    List<TagCountVO> listPublicTagCount(@Param("limit") Integer limit);
+}
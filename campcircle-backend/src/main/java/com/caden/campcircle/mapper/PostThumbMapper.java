@@ -26,8 +26,22 @@ public interface PostThumbMapper extends BaseMapper<PostThumb> {
      */
     Page<Post> listThumbPostByPage(IPage<Post> page, @Param(Constants.WRAPPER) Wrapper<Post> queryWrapper,
                                    long thumbUserId);
-}
-
-
 
+    /**
+     * 新增点赞，已存在时忽略（依赖 (userId, postId) 唯一键）
+     *
+     * @param userId
+     * @param postId
+     * @return 影响行数，0 表示已点赞
+     */
+    int insertIgnore(@Param("userId") long userId, @Param("postId") long postId);
 
+    /**
+     * 按唯一键删除点赞
+     *
+     * @param userId
+     * @param postId
+     * @return 影响行数，0 表示未点赞
+     */
+    int deleteByUserIdAndPostId(@Param("userId") long userId, @Param("postId") long postId);
+}
@@ -0,0 +1,46 @@
+package com.caden.campcircle.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.caden.campcircle.model.entity.PrivateConversation;
+import java.util.List;
+import org.apache.ibatis.annotations.Param;
+
+/**
+ * 私信会话数据库操作
+ */
+public interface PrivateConversationMapper extends BaseMapper<PrivateConversation> {
+
+    /**
+     * 写入或更新会话：只有消息 id 更大时才覆盖最后一条消息，未读数累加
+     *
+     * @param conversationList 会话（unreadCount 为增量）
+     * @return 影响行数
+     */
+    int upsertBatch(@Param("conversationList") List<PrivateConversation> conversationList);
+
+    /**
+     * 减少未读数（不小于 0）
+     *
+     * @param ownerId 会话所有者 id
+     * @param peerId  聊天对象 id
+     * @param count   已读条数
+     * @return 影响行数
+     */
+    int decrUnread(@Param("ownerId") Long ownerId, @Param("peerId") Long peerId, @Param("count") Integer count);
+
+    /**
+     * 最后一条消息被撤回时同步两侧会话
+     *
+     * @param messageId 消息 id
+     * @return 影响行数
+     */
+    int markLastRecalled(@Param("messageId") Long messageId);
+
+    /**
+     * 用户的私信未读总数
+     *
+     * @param ownerId 会话所有者 id
+     * @return 未读总数
+     */
+    Long sumUnread(@Param("ownerId") Long ownerId);
+}
@@ -2,11 +2,8 @@ package com.caden.campcircle.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.caden.campcircle.model.entity.PrivateMessage;
-import com.caden.campcircle.model.vo.LastMessage;
 import org.apache.ibatis.annotations.Param;
 
-import java.util.List;
-
 /**
  * 私信消息数据库操作
  *
@@ -38,16 +35,4 @@ public interface PrivateMessageMapper extends BaseMapper<PrivateMessage> {
      * @return 更新数量
      */
     Integer markAsRead(@Param("fromUserId") Long fromUserId, @Param("toUserId") Long toUserId);
-
-    /**
-     * 获取和我有聊天记录的用户ID列表
-     * @param userId 用户ID
-     * @return 用户ID列表
-     */
-    List<Long> getChatUserIdList(@Param("userId") Long userId);
-
-    /**
-     * 获取当前用户和指定用户之间的最新一条聊天记录
-     */
-    LastMessage getLatestMessage(@Param("currentUserId") Long currentUserId, @Param("chatUserId") Long chatUserId);
 }
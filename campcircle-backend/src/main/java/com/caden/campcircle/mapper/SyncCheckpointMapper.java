@@ -0,0 +1,24 @@
+package com.caden.campcircle.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.caden.campcircle.model.entity.SyncCheckpoint;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Param;
+
+/**
+ * 同步检查点数据库操作
+ */
+public interface SyncCheckpointMapper extends BaseMapper<SyncCheckpoint> {
+
+    /**
+     * 推进检查点（不存在则创建），lastId 只增不减
+     *
+     * @param name      同步任务名
+     * @param lastId    本批最大 id
+     * @param syncCount 本批条数
+     * @return 影响行数
+     */
+    @Insert("INSERT INTO sync_checkpoint (name, lastId, syncCount) VALUES (#{name}, #{lastId}, #{syncCount}) " +
+            "ON DUPLICATE KEY UPDATE lastId = GREATEST(lastId, VALUES(lastId)), syncCount = syncCount + VALUES(syncCount)")
+    int advance(@Param("name") String name, @Param("lastId") Long lastId, @Param("syncCount") Long syncCount);
+}
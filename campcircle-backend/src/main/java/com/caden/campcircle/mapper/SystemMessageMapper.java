@@ -2,6 +2,10 @@ package com.caden.campcircle.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.caden.campcircle.model.entity.SystemMessage;
+import com.caden.campcircle.model.vo.UnreadCountVO;
+import java.util.Collection;
+import java.util.List;
+import org.apache.ibatis.annotations.Param;
 
 /**
  * 系统消息数据库操作
@@ -9,4 +13,19 @@ import com.caden.campcircle.model.entity.SystemMessage;
  */
 public interface SystemMessageMapper extends BaseMapper<SystemMessage> {
 
+    /**
+     * 按用户、类型统计未读的个人消息数
+     *
+     * @param userIdList
+     * @return 用户、类型及未读数；没有未读消息的类型不返回
+     */
+    List<UnreadCountVO> listUnreadCount(@Param("userIdList") Collection<Long> userIdList);
+
+    /**
+     * 查询未读的聚合通知
+     *
+     * @param keyList 按 toUserId、type、postId 匹配
+     * @return
+     */
+    List<SystemMessage> listUnreadAggregate(@Param("keyList") Collection<SystemMessage> keyList);
 }
@@ -0,0 +1,20 @@
+package com.caden.campcircle.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.caden.campcircle.model.entity.SystemMessageWatermark;
+import org.apache.ibatis.annotations.Param;
+
+/**
+ * 全局消息已读水位数据库操作
+ */
+public interface SystemMessageWatermarkMapper extends BaseMapper<SystemMessageWatermark> {
+
+    /**
+     * 推进水位，只增不减
+     *
+     * @param userId
+     * @param globalId
+     * @return
+     */
+    int advance(@Param("userId") Long userId, @Param("globalId") Long globalId);
+}
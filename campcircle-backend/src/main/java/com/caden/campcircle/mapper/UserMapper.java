@@ -2,6 +2,9 @@ package com.caden.campcircle.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.caden.campcircle.model.entity.User;
+import java.util.Date;
+import java.util.List;
+import org.apache.ibatis.annotations.Param;
 
 /**
  * 用户数据库操作
@@ -10,6 +13,13 @@ import com.caden.campcircle.model.entity.User;
  */
 public interface UserMapper extends BaseMapper<User> {
 
+    /**
+     * 查询更新时间不早于 minUpdateTime 的用户（包括已被删除的数据，只含搜索字段）
+     *
+     * @param minUpdateTime
+     * @return
+     */
+    List<User> listUserWithDelete(@Param("minUpdateTime") Date minUpdateTime);
 }
 
 
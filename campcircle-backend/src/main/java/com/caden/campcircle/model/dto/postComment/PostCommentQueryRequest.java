@@ -10,4 +10,9 @@ import java.io.Serializable;
 @Data
 public class PostCommentQueryRequest extends PageRequest implements Serializable  {
     private Long postId;
+
+    /**
+     * 一级评论 id（展开回复时使用）
+     */
+    private Long parentId;
 }
@@ -0,0 +1,38 @@
+package com.caden.campcircle.model.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import java.io.Serializable;
+import java.util.Date;
+import lombok.Data;
+
+/**
+ * 帖子 ES 同步发件箱
+ * <p>
+ * 帖子变更时在同一事务内写入一条记录，由中继任务按 id 顺序同步到 ES 后删除
+ */
+@TableName(value = "post_es_outbox")
+@Data
+public class PostEsOutbox implements Serializable {
+
+    /**
+     * id（自增，作为同步顺序和 ES 外部版本号）
+     */
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 帖子 id
+     */
+    private Long postId;
+
+    /**
+     * 创建时间
+     */
+    private Date createTime;
+
+    @TableField(exist = false)
+    private static final long serialVersionUID = 1L;
+}
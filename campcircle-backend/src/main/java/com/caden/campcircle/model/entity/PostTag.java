@@ -0,0 +1,43 @@
+package com.caden.campcircle.model.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import java.io.Serializable;
+import java.util.Date;
+import lombok.Data;
+
+/**
+ * 帖子标签关联
+ * <p>
+ * 与 post.tags（JSON）同步维护，用于按标签查询
+ */
+@TableName(value = "post_tag")
+@Data
+public class PostTag implements Serializable {
+
+    /**
+     * id
+     */
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 帖子 id
+     */
+    private Long postId;
+
+    /**
+     * 标签
+     */
+    private String tag;
+
+    /**
+     * 创建时间
+     */
+    private Date createTime;
+
+    @TableField(exist = false)
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,84 @@
+package com.caden.campcircle.model.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import java.io.Serializable;
+import java.util.Date;
+import lombok.Data;
+
+/**
+ * 私信会话
+ * <p>
+ * 每对聊天用户各有一条（ownerId 为会话所有者），记录最后一条消息和所有者的未读数，
+ * 发送、已读、撤回私信时同步维护
+ */
+@TableName(value = "private_conversation")
+@Data
+public class PrivateConversation implements Serializable {
+
+    /**
+     * id
+     */
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 会话所有者 id
+     */
+    private Long ownerId;
+
+    /**
+     * 聊天对象 id
+     */
+    private Long peerId;
+
+    /**
+     * 最后一条消息 id
+     */
+    private Long lastMessageId;
+
+    /**
+     * 最后一条消息发送者 id
+     */
+    private Long lastFromUserId;
+
+    /**
+     * 最后一条消息内容（截断）
+     */
+    private String lastContent;
+
+    /**
+     * 最后一条消息类型:0文本,1图片
+     */
+    private Integer lastMessageType;
+
+    /**
+     * 最后一条消息是否已撤回:0否,1是
+     */
+    private Integer lastIsRecalled;
+
+    /**
+     * 最后一条消息时间
+     */
+    private Date lastTime;
+
+    /**
+     * 所有者未读数
+     */
+    private Integer unreadCount;
+
+    /**
+     * 创建时间
+     */
+    private Date createTime;
+
+    /**
+     * 更新时间
+     */
+    private Date updateTime;
+
+    @TableField(exist = false)
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,46 @@
+package com.caden.campcircle.model.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import java.io.Serializable;
+import java.util.Date;
+import lombok.Data;
+
+/**
+ * 同步检查点
+ */
+@TableName(value = "sync_checkpoint")
+@Data
+public class SyncCheckpoint implements Serializable {
+
+    /**
+     * 同步任务名
+     */
+    @TableId(type = IdType.INPUT)
+    private String name;
+
+    /**
+     * 已同步的最大 id
+     */
+    private Long lastId;
+
+    /**
+     * 累计同步条数
+     */
+    private Long syncCount;
+
+    /**
+     * 附加信息（如全量重建时的目标索引名，为空表示没有进行中的任务）
+     */
+    private String extra;
+
+    /**
+     * 更新时间
+     */
+    private Date updateTime;
+
+    @TableField(exist = false)
+    private static final long serialVersionUID = 1L;
+}
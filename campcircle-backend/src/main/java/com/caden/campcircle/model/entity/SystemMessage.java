@@ -58,6 +58,16 @@ public class SystemMessage implements Serializable {
      */
     private Long commentId;
 
+    /**
+     * 聚合的事件数（点赞、收藏、关注通知按接收用户、类型、帖子合并，fromUserId 为最近一个）
+     */
+    private Integer aggregateCount;
+
+    /**
+     * 聚合键（接收用户:类型:帖子），只有聚合通知有值；未读期间唯一，多个节点并发写回时由唯一键合并到同一条
+     */
+    private String aggregateKey;
+
     /**
      * 状态：1-未读，0-已读
      */
@@ -0,0 +1,38 @@
+package com.caden.campcircle.model.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import java.io.Serializable;
+import java.util.Date;
+import lombok.Data;
+
+/**
+ * 全局消息已读水位
+ * <p>
+ * 全局消息只存一行，不按用户展开；id 不超过水位的全局消息对该用户为已读
+ */
+@TableName(value = "system_message_watermark")
+@Data
+public class SystemMessageWatermark implements Serializable {
+
+    /**
+     * 用户 id
+     */
+    @TableId(type = IdType.INPUT)
+    private Long userId;
+
+    /**
+     * 已读的最大全局消息 id
+     */
+    private Long lastReadGlobalId;
+
+    /**
+     * 更新时间
+     */
+    private Date updateTime;
+
+    @TableField(exist = false)
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,28 @@
+package com.caden.campcircle.model.enums;
+
+/**
+ * 用户关系类型枚举（点赞、收藏的目标为帖子，关注的目标为用户）
+ */
+public enum RelationTypeEnum {
+
+    THUMB("点赞", "thumb"),
+    FAVOUR("收藏", "favour"),
+    FOLLOW("关注", "follow");
+
+    private final String text;
+
+    private final String value;
+
+    RelationTypeEnum(String text, String value) {
+        this.text = text;
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public String getText() {
+        return text;
+    }
+}
@@ -0,0 +1,48 @@
+package com.caden.campcircle.model.vo;
+
+import java.io.Serializable;
+import lombok.Data;
+
+/**
+ * 关系布隆过滤器统计视图
+ */
+@Data
+public class BloomFilterStatsVO implements Serializable {
+
+    /**
+     * 判定次数（按目标 id 计）
+     */
+    private Long checkCount;
+
+    /**
+     * 判定为一定不存在的次数（直接跳过数据库）
+     */
+    private Long negativeCount;
+
+    /**
+     * 判定为可能存在的次数
+     */
+    private Long positiveCount;
+
+    /**
+     * 可能存在但数据库确认不存在的次数（假阳性）
+     */
+    private Long falsePositiveCount;
+
+    /**
+     * 过滤器尚未构建、无法判定的次数
+     */
+    private Long unknownCount;
+
+    /**
+     * 观测到的假阳性率：假阳性 / (假阳性 + 一定不存在)
+     */
+    private Double falsePositiveRate;
+
+    /**
+     * 重建次数
+     */
+    private Long rebuildCount;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,53 @@
+package com.caden.campcircle.model.vo;
+
+import java.io.Serializable;
+import lombok.Data;
+
+/**
+ * 缓存命中统计视图
+ */
+@Data
+public class CacheStatsVO implements Serializable {
+
+    /**
+     * 缓存名称
+     */
+    private String cacheName;
+
+    /**
+     * 本地缓存（L1）命中次数
+     */
+    private Long localHitCount;
+
+    /**
+     * Redis 缓存（L2）命中次数
+     */
+    private Long redisHitCount;
+
+    /**
+     * 未命中（回源数据库）次数
+     */
+    private Long missCount;
+
+    /**
+     * 本地缓存命中率
+     */
+    private Double localHitRatio;
+
+    /**
+     * 总命中率
+     */
+    private Double hitRatio;
+
+    /**
+     * 本地缓存当前条目数
+     */
+    private Integer localSize;
+
+    /**
+     * 失效次数
+     */
+    private Long invalidateCount;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -65,7 +65,12 @@ public class PostCommentVO implements Serializable {
     private UserVO replyUser;
 
     /**
-     * 子评论列表
+     * 子评论列表（一级评论只返回最早的若干条，其余通过回复游标接口展开）
      */
     private List<PostCommentVO> children;
+
+    /**
+     * 回复总数（仅一级评论）
+     */
+    private Integer replyCount;
 }
\ No newline at end of file
@@ -146,7 +146,6 @@ public class PostVO implements Serializable {
         PostVO postVO = new PostVO();
         BeanUtils.copyProperties(post, postVO);
         postVO.setTagList(JSONUtil.toList(post.getTags(), String.class));
-        postVO.setPictureUrlList(JSONUtil.toList(post.getPictureList(), String.class));
         return postVO;
     }
 }
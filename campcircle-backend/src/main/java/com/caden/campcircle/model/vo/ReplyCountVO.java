@@ -0,0 +1,23 @@
+package com.caden.campcircle.model.vo;
+
+import java.io.Serializable;
+import lombok.Data;
+
+/**
+ * 一级评论回复数
+ */
+@Data
+public class ReplyCountVO implements Serializable {
+
+    /**
+     * 一级评论 id
+     */
+    private Long parentId;
+
+    /**
+     * 回复数
+     */
+    private Integer replyCount;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -56,6 +56,11 @@ public class SystemMessageVO implements Serializable {
      */
     private Long commentId;
 
+    /**
+     * 聚合的事件数（点赞、收藏、关注通知按接收用户、类型、帖子合并，fromUserId 为最近一个）
+     */
+    private Integer aggregateCount;
+
     /**
      * 状态：1-未读，0-已读
      */
@@ -0,0 +1,23 @@
+package com.caden.campcircle.model.vo;
+
+import java.io.Serializable;
+import lombok.Data;
+
+/**
+ * 标签帖子数
+ */
+@Data
+public class TagCountVO implements Serializable {
+
+    /**
+     * 标签
+     */
+    private String tag;
+
+    /**
+     * 公开帖子数
+     */
+    private Integer count;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,28 @@
+package com.caden.campcircle.model.vo;
+
+import java.io.Serializable;
+import lombok.Data;
+
+/**
+ * 用户某类型的未读消息数
+ */
+@Data
+public class UnreadCountVO implements Serializable {
+
+    /**
+     * 接收用户 id
+     */
+    private Long toUserId;
+
+    /**
+     * 消息类型
+     */
+    private Integer type;
+
+    /**
+     * 未读数
+     */
+    private Long unreadCount;
+
+    private static final long serialVersionUID = 1L;
+}
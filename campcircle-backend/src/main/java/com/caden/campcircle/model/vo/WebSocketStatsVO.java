@@ -0,0 +1,53 @@
+package com.caden.campcircle.model.vo;
+
+import java.io.Serializable;
+import lombok.Data;
+
+/**
+ * WebSocket 连接统计视图（本节点）
+ */
+@Data
+public class WebSocketStatsVO implements Serializable {
+
+    /**
+     * 在线用户数
+     */
+    private Integer onlineUserCount;
+
+    /**
+     * 连接数
+     */
+    private Integer sessionCount;
+
+    /**
+     * 各连接发送队列中等待发送的帧数之和
+     */
+    private Integer queuedFrameCount;
+
+    /**
+     * 单个连接发送队列的最大积压帧数
+     */
+    private Integer maxQueuedFrameCount;
+
+    /**
+     * 已发送帧数
+     */
+    private Long sentFrameCount;
+
+    /**
+     * 因发送队列已满丢弃的帧数
+     */
+    private Long droppedFrameCount;
+
+    /**
+     * 因发送队列已满或发送超时关闭的连接数
+     */
+    private Long overflowClosedCount;
+
+    /**
+     * 因长时间无心跳关闭的连接数
+     */
+    private Long idleClosedCount;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -2,6 +2,7 @@ package com.caden.campcircle.service;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.caden.campcircle.common.CursorPage;
 import com.caden.campcircle.model.dto.postComment.PostCommentAddRequest;
 import com.caden.campcircle.model.dto.postComment.PostCommentQueryRequest;
 import com.caden.campcircle.model.entity.PostComment;
@@ -39,4 +40,20 @@ public interface PostCommentService extends IService<PostComment> {
      * @return 评论列表
      */
     Page<PostCommentVO> listCommentByPage(PostCommentQueryRequest postCommentQueryRequest);
-}
\ No newline at end of file
+
+    /**
+     * 游标分页获取一级评论（按时间倒序，不统计总数）
+     *
+     * @param postCommentQueryRequest
+     * @return
+     */
+    CursorPage<PostCommentVO> listCommentByCursor(PostCommentQueryRequest postCommentQueryRequest);
+
+    /**
+     * 游标分页展开一级评论的回复（按时间正序，不统计总数）
+     *
+     * @param postCommentQueryRequest postId、parentId 必填
+     * @return
+     */
+    CursorPage<PostCommentVO> listReplyByCursor(PostCommentQueryRequest postCommentQueryRequest);
+}
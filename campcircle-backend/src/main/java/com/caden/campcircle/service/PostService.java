@@ -3,12 +3,14 @@ package com.caden.campcircle.service;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.caden.campcircle.common.CursorPage;
 import com.caden.campcircle.common.PageSearchByKeyWord;
 import com.caden.campcircle.model.dto.post.PostQueryRequest;
 import com.caden.campcircle.model.entity.Post;
 import com.caden.campcircle.model.vo.HotPostVO;
 import com.caden.campcircle.model.vo.MyPostNumVO;
 import com.caden.campcircle.model.vo.PostVO;
+import com.caden.campcircle.model.vo.TagCountVO;
 import com.caden.campcircle.model.vo.UserVO;
 
 import javax.servlet.http.HttpServletRequest;
@@ -46,6 +48,15 @@ public interface PostService extends IService<Post> {
      */
     Page<Post> searchFromEs(PostQueryRequest postQueryRequest);
 
+    /**
+     * 从 ES 游标分页搜索（search_after，不统计总数，不受 10000 条窗口限制）
+     *
+     * @param postQueryRequest
+     * @param request
+     * @return
+     */
+    CursorPage<PostVO> searchPostVOByCursor(PostQueryRequest postQueryRequest, HttpServletRequest request);
+
     /**
      * 获取帖子封装
      *
@@ -64,6 +75,24 @@ public interface PostService extends IService<Post> {
      */
     Page<PostVO> getPostVOPage(Page<Post> postPage, HttpServletRequest request);
 
+    /**
+     * 游标分页获取帖子封装（不统计总数）
+     *
+     * @param postQueryRequest
+     * @param request
+     * @return
+     */
+    CursorPage<PostVO> listPostVOByCursor(PostQueryRequest postQueryRequest, HttpServletRequest request);
+
+    /**
+     * 批量获取帖子封装（用户、互动状态、图片均按整批查询）
+     *
+     * @param postList
+     * @param request
+     * @return
+     */
+    List<PostVO> getPostVOList(List<Post> postList, HttpServletRequest request);
+
     MyPostNumVO getMyPostNum(Long id);
 
     /**
@@ -78,4 +107,12 @@ public interface PostService extends IService<Post> {
     List<HotPostVO> getHotPostList(Integer limit);
 
     Page<PostVO> listPostVOByPage(PageSearchByKeyWord pageSearchByKeyWord, HttpServletRequest request);
+
+    /**
+     * 标签列表（按公开帖子数降序）
+     *
+     * @param limit
+     * @return
+     */
+    List<TagCountVO> listTagCount(int limit);
 }
@@ -2,6 +2,7 @@ package com.caden.campcircle.service;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.caden.campcircle.common.CursorPage;
 import com.caden.campcircle.model.dto.message.PrivateMessageQueryRequest;
 import com.caden.campcircle.model.dto.message.PrivateMessageSendRequest;
 import com.caden.campcircle.model.entity.PrivateMessage;
@@ -35,6 +36,15 @@ public interface PrivateMessageService extends IService<PrivateMessage> {
      */
     List<ChatVO> getChatVOList(User loginUser);
 
+    /**
+     * 游标分页获取聊天列表（按最后一条消息时间倒序）
+     *
+     * @param privateMessageQueryRequest 查询请求（cursor 为上一页返回的 nextCursor）
+     * @param loginUser 当前用户
+     * @return 聊天列表
+     */
+    CursorPage<ChatVO> getChatVOByCursor(PrivateMessageQueryRequest privateMessageQueryRequest, User loginUser);
+
     /**
      * 标记消息已读
      * @param Id 消息 ID
@@ -64,5 +74,14 @@ public interface PrivateMessageService extends IService<PrivateMessage> {
      */
     Page<PrivateMessageVO> getChatHistory(PrivateMessageQueryRequest privateMessageQueryRequest, User loginUser);
 
+    /**
+     * 游标分页获取聊天记录（按时间倒序，不统计总数）
+     *
+     * @param privateMessageQueryRequest 查询请求（cursor 为上一页返回的 nextCursor）
+     * @param loginUser 当前登录用户
+     * @return 聊天记录
+     */
+    CursorPage<PrivateMessageVO> getChatHistoryByCursor(PrivateMessageQueryRequest privateMessageQueryRequest, User loginUser);
+
 
 }
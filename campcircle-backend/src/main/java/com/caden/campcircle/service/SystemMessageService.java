@@ -3,12 +3,14 @@ package com.caden.campcircle.service;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.caden.campcircle.common.CursorPage;
 import com.caden.campcircle.model.dto.systemmessage.SystemMessageQueryRequest;
 import com.caden.campcircle.model.entity.SystemMessage;
 import com.caden.campcircle.model.vo.SystemMessageVO;
 
 import javax.servlet.http.HttpServletRequest;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 系统消息服务
@@ -50,6 +52,16 @@ public interface SystemMessageService extends IService<SystemMessage> {
      */
     Page<SystemMessageVO> getSystemMessageVOPage(Page<SystemMessage> systemMessagePage, HttpServletRequest request);
 
+    /**
+     * 游标分页获取系统消息封装（按时间倒序，不统计总数）
+     *
+     * @param systemMessageQueryRequest
+     * @param request
+     * @return
+     */
+    CursorPage<SystemMessageVO> listSystemMessageVOByCursor(SystemMessageQueryRequest systemMessageQueryRequest,
+                                                            HttpServletRequest request);
+
     /**
      * 发送系统通知（管理员使用）
      *
@@ -100,6 +112,14 @@ public interface SystemMessageService extends IService<SystemMessage> {
      */
     boolean sendFollowNotification(Long fromUserId, Long toUserId);
 
+    /**
+     * 将一批缓冲的点赞、收藏、关注通知写库：合并到未读的同类通知中，没有则新建
+     *
+     * @param batchSize 最多处理的聚合键数
+     * @return 处理的聚合键数，为 0 表示没有待写库的通知
+     */
+    int flushAggregateNotification(int batchSize);
+
     /**
      * 标记消息为已读
      *
@@ -136,6 +156,14 @@ public interface SystemMessageService extends IService<SystemMessage> {
      */
     long getUnreadCountByTypes(Long userId, List<Integer> types);
 
+    /**
+     * 获取用户各类型未读消息数量
+     *
+     * @param userId 用户ID
+     * @return 消息类型 -> 未读消息数量
+     */
+    Map<Integer, Long> getUnreadCountMap(Long userId);
+
     /**
      * 批量标记指定类型列表的消息为已读
      *
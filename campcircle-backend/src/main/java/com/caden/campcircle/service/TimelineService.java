@@ -0,0 +1,37 @@
+package com.caden.campcircle.service;
+
+import com.caden.campcircle.common.CursorPage;
+import com.caden.campcircle.common.CursorPageRequest;
+import com.caden.campcircle.model.vo.PostVO;
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * 关注流（时间线）服务
+ * <p>
+ * 推拉结合：普通作者发帖时推送到粉丝收件箱，大V的帖子在读取时拉取合并。
+ */
+public interface TimelineService {
+
+    /**
+     * 发帖后推送到粉丝收件箱（异步）
+     *
+     * @param postId
+     */
+    void publishPost(Long postId);
+
+    /**
+     * 关注关系变化后重置收件箱，下次读取时重建
+     *
+     * @param userId
+     */
+    void resetInbox(Long userId);
+
+    /**
+     * 游标分页获取关注流
+     *
+     * @param cursorPageRequest
+     * @param request
+     * @return
+     */
+    CursorPage<PostVO> listFollowFeed(CursorPageRequest cursorPageRequest, HttpServletRequest request);
+}
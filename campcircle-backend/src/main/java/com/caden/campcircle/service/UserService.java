@@ -7,6 +7,7 @@ import com.baomidou.mybatisplus.extension.service.IService;
 import com.caden.campcircle.common.PageSearchByKeyWord;
 import com.caden.campcircle.model.dto.user.UserQueryRequest;
 import com.caden.campcircle.model.entity.User;
+import com.caden.campcircle.model.vo.CacheStatsVO;
 import com.caden.campcircle.model.vo.LoginUserVO;
 import com.caden.campcircle.model.vo.UserVO;
 import java.util.List;
@@ -125,4 +126,18 @@ public interface UserService extends IService<User> {
     QueryWrapper<User> getQueryWrapper(UserQueryRequest userQueryRequest);
 
     LoginUserVO userLoginByMaOpen(WxMaJscode2SessionResult session, HttpServletRequest request);
+
+    /**
+     * 失效用户缓存（所有节点）
+     *
+     * @param userId
+     */
+    void invalidateUserCache(Long userId);
+
+    /**
+     * 获取用户缓存命中统计
+     *
+     * @return
+     */
+    CacheStatsVO getUserCacheStats();
 }
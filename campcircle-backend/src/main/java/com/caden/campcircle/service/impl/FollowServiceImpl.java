@@ -5,10 +5,14 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.caden.campcircle.common.ErrorCode;
 import com.caden.campcircle.common.PageRequest;
+import com.caden.campcircle.constant.CounterConstant;
 import com.caden.campcircle.exception.BusinessException;
 import com.caden.campcircle.exception.ThrowUtils;
+import com.caden.campcircle.manager.CounterManager;
+import com.caden.campcircle.manager.RelationCacheManager;
 import com.caden.campcircle.mapper.FollowMapper;
 import com.caden.campcircle.model.entity.*;
+import com.caden.campcircle.model.enums.RelationTypeEnum;
 import com.caden.campcircle.model.vo.FansVO;
 import com.caden.campcircle.model.vo.UserStatisticsVO;
 import com.caden.campcircle.model.vo.FollowVO;
@@ -21,6 +25,7 @@ import org.springframework.transaction.annotation.Transactional;
 import javax.annotation.Resource;
 import javax.servlet.http.HttpServletRequest;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -39,6 +44,12 @@ public class FollowServiceImpl extends ServiceImpl<FollowMapper, Follow> impleme
     private PostThumbService postThumbService;
     @Resource
     private PostService postService;
+    @Resource
+    private TimelineService timelineService;
+    @Resource
+    private CounterManager counterManager;
+    @Resource
+    private RelationCacheManager relationCacheManager;
 
     @Override
     @Transactional(rollbackFor = Exception.class)
@@ -57,23 +68,24 @@ public class FollowServiceImpl extends ServiceImpl<FollowMapper, Follow> impleme
         // 3. 检查是否已经关注
         QueryWrapper<Follow> followQueryWrapper = new QueryWrapper<>();
         followQueryWrapper.eq("userId", userId).eq("followUserId", followUserId);
-        Follow existingFollow = this.getOne(followQueryWrapper);
+        // 布隆过滤器判定一定未关注时跳过查询
+        Follow existingFollow = null;
+        if (relationCacheManager.mightBeRelated(RelationTypeEnum.FOLLOW, userId, followUserId)) {
+            existingFollow = this.getOne(followQueryWrapper);
+            if (existingFollow == null) {
+                relationCacheManager.recordBloomFalsePositive(1);
+            }
+        }
 
         if (existingFollow != null) {
             // 已关注，执行取消关注
             boolean removeResult = this.remove(followQueryWrapper);
             if (removeResult) {
-                // 更新计数：关注数-1，粉丝数-1
-                userService.update()
-                        .eq("id", userId)
-                        .gt("followNum", 0)
-                        .setSql("followNum = followNum - 1")
-                        .update();
-                userService.update()
-                        .eq("id", followUserId)
-                        .gt("fansNum", 0)
-                        .setSql("fansNum = fansNum - 1")
-                        .update();
+                relationCacheManager.remove(RelationTypeEnum.FOLLOW, userId, followUserId);
+                // 更新计数：关注数-1，粉丝数-1（聚合后批量写回）
+                counterManager.incrUser(userId, CounterConstant.USER_FOLLOW_NUM, -1);
+                counterManager.incrUser(followUserId, CounterConstant.USER_FANS_NUM, -1);
+                timelineService.resetInbox(userId);
             }
             return removeResult;
         } else {
@@ -84,15 +96,11 @@ public class FollowServiceImpl extends ServiceImpl<FollowMapper, Follow> impleme
 
             boolean saveResult = this.save(follow);
             if (saveResult) {
-                // 更新计数：关注数+1，粉丝数+1
-                userService.update()
-                        .eq("id", userId)
-                        .setSql("followNum = followNum + 1")
-                        .update();
-                userService.update()
-                        .eq("id", followUserId)
-                        .setSql("fansNum = fansNum + 1")
-                        .update();
+                relationCacheManager.add(RelationTypeEnum.FOLLOW, userId, followUserId);
+                // 更新计数：关注数+1，粉丝数+1（聚合后批量写回）
+                counterManager.incrUser(userId, CounterConstant.USER_FOLLOW_NUM, 1);
+                counterManager.incrUser(followUserId, CounterConstant.USER_FANS_NUM, 1);
+                timelineService.resetInbox(userId);
 
                 // 发送关注通知
                 try {
@@ -118,25 +126,29 @@ public class FollowServiceImpl extends ServiceImpl<FollowMapper, Follow> impleme
                 .eq("followUserId", followUserId);
         boolean result = this.remove(queryWrapper);
         if (result) {
-            // 3. 更新用户关注数和粉丝数
-            userService.update()
-                    .eq("id", userId)
-                    .setSql("followNum = followNum - 1")
-                    .update();
-            userService.update()
-                    .eq("id", followUserId)
-                    .setSql("fansNum = fansNum - 1")
-                    .update();
+            relationCacheManager.remove(RelationTypeEnum.FOLLOW, userId, followUserId);
+            // 3. 更新用户关注数和粉丝数（聚合后批量写回）
+            counterManager.incrUser(userId, CounterConstant.USER_FOLLOW_NUM, -1);
+            counterManager.incrUser(followUserId, CounterConstant.USER_FANS_NUM, -1);
+            timelineService.resetInbox(userId);
         }
         return result;
     }
 
     @Override
     public boolean hasFollow(long userId, long followUserId) {
+        // 布隆过滤器判定一定未关注时不查库
+        if (!relationCacheManager.mightBeRelated(RelationTypeEnum.FOLLOW, userId, followUserId)) {
+            return false;
+        }
         QueryWrapper<Follow> queryWrapper = new QueryWrapper<>();
         queryWrapper.eq("userId", userId)
                 .eq("followUserId", followUserId);
-        return this.count(queryWrapper) > 0;
+        boolean hasFollow = this.count(queryWrapper) > 0;
+        if (!hasFollow) {
+            relationCacheManager.recordBloomFalsePositive(1);
+        }
+        return hasFollow;
     }
 
     @Override
@@ -175,11 +187,15 @@ public class FollowServiceImpl extends ServiceImpl<FollowMapper, Follow> impleme
     public UserStatisticsVO getUserStatistics(Long id) {
         UserStatisticsVO userStatistics = new UserStatisticsVO();
         
-        // 直接从用户表获取所有统计数据
+        // 从用户表获取统计数据，并合并尚未写回的增量
         User user = userService.getById(id);
-        userStatistics.setFollowingCount(user.getFollowNum().longValue());
-        userStatistics.setFollowersCount(user.getFansNum().longValue());
-        userStatistics.setLikesCount(user.getReceivedThumbNum().longValue());
+        Map<String, Long> deltaMap = counterManager.getPendingUserDelta(id);
+        userStatistics.setFollowingCount(Math.max(user.getFollowNum()
+                + deltaMap.getOrDefault(CounterConstant.USER_FOLLOW_NUM, 0L), 0));
+        userStatistics.setFollowersCount(Math.max(user.getFansNum()
+                + deltaMap.getOrDefault(CounterConstant.USER_FANS_NUM, 0L), 0));
+        userStatistics.setLikesCount(Math.max(user.getReceivedThumbNum()
+                + deltaMap.getOrDefault(CounterConstant.USER_RECEIVED_THUMB_NUM, 0L), 0));
         
         return userStatistics;
     }
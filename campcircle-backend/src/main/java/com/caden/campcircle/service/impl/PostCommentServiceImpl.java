@@ -3,9 +3,15 @@ package com.caden.campcircle.service.impl;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.caden.campcircle.common.CursorPage;
 import com.caden.campcircle.common.ErrorCode;
+import com.caden.campcircle.constant.CounterConstant;
+import com.caden.campcircle.constant.PostConstant;
 import com.caden.campcircle.exception.BusinessException;
 import com.caden.campcircle.mapper.PostCommentMapper;
+import com.caden.campcircle.manager.CounterManager;
+import com.caden.campcircle.manager.HotPostRankManager;
+import com.caden.campcircle.manager.cache.CommentCacheManager;
 import com.caden.campcircle.model.dto.postComment.PostCommentAddRequest;
 import com.caden.campcircle.model.dto.postComment.PostCommentQueryRequest;
 import com.caden.campcircle.model.entity.Post;
@@ -13,12 +19,15 @@ import com.caden.campcircle.model.entity.PostComment;
 import com.caden.campcircle.model.entity.User;
 import com.caden.campcircle.model.vo.LoginUserVO;
 import com.caden.campcircle.model.vo.PostCommentVO;
+import com.caden.campcircle.model.vo.ReplyCountVO;
 import com.caden.campcircle.model.vo.UserVO;
 import com.caden.campcircle.service.PostCommentService;
 import com.caden.campcircle.service.PostService;
 import com.caden.campcircle.service.SystemMessageService;
 import com.caden.campcircle.service.UserService;
+import com.caden.campcircle.utils.CursorUtils;
 import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -43,6 +52,21 @@ public class PostCommentServiceImpl extends ServiceImpl<PostCommentMapper, PostC
     @Resource
     private PostService postService;
 
+    @Resource
+    private HotPostRankManager hotPostRankManager;
+
+    @Resource
+    private CounterManager counterManager;
+
+    /**
+     * 每条一级评论附带的回复条数
+     */
+    @Value("${campcircle.comment.reply-preview-size:3}")
+    private int replyPreviewSize;
+
+    @Resource
+    private CommentCacheManager commentCacheManager;
+
     @Override
     @Transactional(rollbackFor = Exception.class)
     public long addComment(PostCommentAddRequest postCommitAddRequest, User loginUser) {
@@ -85,11 +109,10 @@ public class PostCommentServiceImpl extends ServiceImpl<PostCommentMapper, PostC
         if (!result) {
             throw new BusinessException(ErrorCode.SYSTEM_ERROR, "评论失败");
         }
-        // 5. 更新帖子评论数
-        postService.update()
-                .eq("id", postComment.getPostId())
-                .setSql("commentNum = commentNum + 1")
-                .update();
+        // 5. 更新帖子评论数（聚合后批量写回）
+        counterManager.incrPost(postComment.getPostId(), CounterConstant.POST_COMMENT_NUM, 1);
+        hotPostRankManager.record(post, PostConstant.HOT_WEIGHT_COMMENT);
+        commentCacheManager.onCommentChanged(postComment.getPostId(), () -> loadFirstPage(postComment.getPostId()));
 
         // 6. 发送评论通知
         try {
@@ -124,87 +147,188 @@ public class PostCommentServiceImpl extends ServiceImpl<PostCommentMapper, PostC
         // 3. 删除评论
         boolean result = this.removeById(id);
         if (result) {
-            // 4. 更新帖子评论数
-            postService.update()
-                    .eq("id", postComment.getPostId())
-                    .setSql("commentNum = commentNum - 1")
-                    .update();
+            // 4. 更新帖子评论数（聚合后批量写回）
+            counterManager.incrPost(postComment.getPostId(), CounterConstant.POST_COMMENT_NUM, -1);
+            // 按原评论时间撤销热度
+            hotPostRankManager.record(postService.getById(postComment.getPostId()), -PostConstant.HOT_WEIGHT_COMMENT,
+                    postComment.getCreateTime());
+            commentCacheManager.onCommentChanged(postComment.getPostId(), () -> loadFirstPage(postComment.getPostId()));
         }
         return result;
     }
 
     @Override
     public Page<PostCommentVO> listCommentByPage(PostCommentQueryRequest postCommentQueryRequest) {
-        // 1. 分页查询一级评论
+        // 第一页走评论首页缓存
+        Long postId = postCommentQueryRequest.getPostId();
+        int pageSize = postCommentQueryRequest.getPageSize();
+        if (postId != null && postCommentQueryRequest.getCurrent() == 1 && pageSize > 0
+                && pageSize <= commentCacheManager.getPageSize()) {
+            CommentCacheManager.CachedPage cachedPage = commentCacheManager.get(postId, () -> loadFirstPage(postId));
+            Page<PostCommentVO> commentVOPage = new Page<>(1, pageSize, cachedPage.getTotal());
+            commentVOPage.setRecords(new ArrayList<>(
+                    cachedPage.getRecords().subList(0, Math.min(pageSize, cachedPage.getRecords().size()))));
+            return commentVOPage;
+        }
+        // 1. 分页查询一级评论，与首页缓存一致按 (createTime, id) 倒序，同一时间的评论翻页时不重复、不遗漏
         Page<PostComment> commentPage = this.page(
                 new Page<>(postCommentQueryRequest.getCurrent(), postCommentQueryRequest.getPageSize()),
                 new QueryWrapper<PostComment>()
                         .eq("postId", postCommentQueryRequest.getPostId())
                         .eq("level", 1)
-                        .orderByDesc("createTime"));
+                        .orderByDesc("createTime", "id"));
 
         List<PostComment> commentList = commentPage.getRecords();
         if (commentList.isEmpty()) {
             return  new Page<>(postCommentQueryRequest.getCurrent(), postCommentQueryRequest.getPageSize(),0);
         }
-        //查询所有二级评论（回复的评论）
-        List<PostComment> replyList = this.list(
-                new QueryWrapper<PostComment>()
-                        .eq("postId", postCommentQueryRequest.getPostId())
-                        .eq("level", 2)
-                        .orderByAsc("createTime"));
 
-        // 3. 使用Set收集所有用户ID，自动去重
-        Set<Long> userIdSet = new HashSet<>();
-
-        // 添加评论用户ID
-        commentList.stream()
-                .map(PostComment::getUserId)
-                .forEach(userIdSet::add);
+        // 2. 组装分页结果
+        Page<PostCommentVO> commentVOPage = new Page<>(commentPage.getCurrent(),
+                commentPage.getSize(), commentPage.getTotal());
+        commentVOPage.setRecords(getPostCommentVOList(commentList));
+        return commentVOPage;
+    }
 
-        // 添加回复用户ID和被回复用户ID
-        replyList.forEach(reply -> {
-            userIdSet.add(reply.getUserId());
-            if (reply.getReplyUserId() != null) {
-                userIdSet.add(reply.getReplyUserId());
+    @Override
+    public CursorPage<PostCommentVO> listCommentByCursor(PostCommentQueryRequest postCommentQueryRequest) {
+        int pageSize = postCommentQueryRequest.getPageSize();
+        long[] cursor = CursorUtils.decode(postCommentQueryRequest.getCursor(), 2);
+        // 第一页走评论首页缓存
+        if (cursor == null && pageSize <= commentCacheManager.getPageSize()) {
+            Long postId = postCommentQueryRequest.getPostId();
+            CommentCacheManager.CachedPage cachedPage = commentCacheManager.get(postId, () -> loadFirstPage(postId));
+            List<PostCommentVO> recordList = cachedPage.getRecords();
+            boolean hasMore = recordList.size() > pageSize
+                    || (recordList.size() == pageSize && cachedPage.getTotal() > pageSize);
+            if (!hasMore) {
+                return new CursorPage<>(new ArrayList<>(recordList), null);
             }
-        });
+            PostCommentVO last = recordList.get(pageSize - 1);
+            return new CursorPage<>(new ArrayList<>(recordList.subList(0, pageSize)),
+                    CursorUtils.encode(last.getCreateTime().getTime(), last.getId()));
+        }
+        // 一级评论按 (createTime, id) 倒序键集分页
+        QueryWrapper<PostComment> queryWrapper = new QueryWrapper<PostComment>()
+                .eq("postId", postCommentQueryRequest.getPostId())
+                .eq("level", 1);
+        CursorUtils.applyTimeIdCursor(queryWrapper, cursor, pageSize);
+        List<PostComment> commentList = this.list(queryWrapper);
+        return CursorUtils.toCursorPage(commentList, pageSize,
+                comment -> CursorUtils.encode(comment.getCreateTime().getTime(), comment.getId()),
+                this::getPostCommentVOList);
+    }
 
-        // 4. 批量查询用户信息
-        Map<Long, UserVO> userMap = userService.listByIds(new ArrayList<>(userIdSet))
-                .stream()
-                .map(user -> {
-                    UserVO userVO = new UserVO();
-                    BeanUtils.copyProperties(user, userVO);
-                    return userVO;
-                })
-                .collect(Collectors.toMap(UserVO::getId, Function.identity()));
+    @Override
+    public CursorPage<PostCommentVO> listReplyByCursor(PostCommentQueryRequest postCommentQueryRequest) {
+        int pageSize = postCommentQueryRequest.getPageSize();
+        long[] cursor = CursorUtils.decode(postCommentQueryRequest.getCursor(), 2);
+        // 回复按 (createTime, id) 正序键集分页，走 (postId, parentId, createTime) 索引
+        QueryWrapper<PostComment> queryWrapper = new QueryWrapper<PostComment>()
+                .eq("postId", postCommentQueryRequest.getPostId())
+                .eq("parentId", postCommentQueryRequest.getParentId());
+        CursorUtils.applyTimeIdCursorAsc(queryWrapper, cursor, pageSize);
+        List<PostComment> replyList = this.list(queryWrapper);
+        return CursorUtils.toCursorPage(replyList, pageSize,
+                reply -> CursorUtils.encode(reply.getCreateTime().getTime(), reply.getId()),
+                pageList -> {
+                    Map<Long, UserVO> userMap = getUserVOMap(pageList);
+                    return pageList.stream().map(reply -> toReplyVO(reply, userMap)).collect(Collectors.toList());
+                });
+    }
+
+    /**
+     * 从数据库加载评论首页
+     *
+     * @param postId
+     * @return
+     */
+    private CommentCacheManager.CachedPage loadFirstPage(Long postId) {
+        Page<PostComment> commentPage = this.page(new Page<>(1, commentCacheManager.getPageSize()),
+                new QueryWrapper<PostComment>()
+                        .eq("postId", postId)
+                        .eq("level", 1)
+                        .orderByDesc("createTime", "id"));
+        CommentCacheManager.CachedPage cachedPage = new CommentCacheManager.CachedPage();
+        cachedPage.setTotal(commentPage.getTotal());
+        cachedPage.setRecords(getPostCommentVOList(commentPage.getRecords()));
+        return cachedPage;
+    }
+
+    /**
+     * 组装一级评论及其回复预览
+     *
+     * @param commentList 一级评论（同一帖子）
+     * @return
+     */
+    private List<PostCommentVO> getPostCommentVOList(List<PostComment> commentList) {
+        if (commentList.isEmpty()) {
+            return new ArrayList<>();
+        }
+        // 1. 每条一级评论只取最早的若干条回复，另外统计回复总数
+        Long postId = commentList.get(0).getPostId();
+        List<Long> commentIdList = commentList.stream().map(PostComment::getId).collect(Collectors.toList());
+        List<PostComment> replyList = this.baseMapper.listReplyPreview(postId, commentIdList, replyPreviewSize);
+        Map<Long, Integer> replyCountMap = this.baseMapper.listReplyCount(postId, commentIdList).stream()
+                .collect(Collectors.toMap(ReplyCountVO::getParentId, ReplyCountVO::getReplyCount));
+
+        // 2. 批量查询评论、回复和被回复用户
+        List<PostComment> allCommentList = new ArrayList<>(commentList);
+        allCommentList.addAll(replyList);
+        Map<Long, UserVO> userMap = getUserVOMap(allCommentList);
 
-        // 5. 组装评论视图
-        List<PostCommentVO> commentVOList = commentList.stream().map(comment -> {
+        // 3. 回复按一级评论分组
+        Map<Long, List<PostComment>> parentIdReplyListMap = replyList.stream()
+                .collect(Collectors.groupingBy(PostComment::getParentId));
+
+        // 4. 组装评论视图
+        return commentList.stream().map(comment -> {
             PostCommentVO commentVO = new PostCommentVO();
             BeanUtils.copyProperties(comment, commentVO);
             commentVO.setUser(userMap.get(comment.getUserId()));
-
-            // 设置回复列表
-            List<PostCommentVO> replyVOList = replyList.stream()
-                    .filter(reply -> Objects.equals(reply.getParentId(), comment.getId()))
-                    .map(reply -> {
-                        PostCommentVO replyVO = new PostCommentVO();
-                        BeanUtils.copyProperties(reply, replyVO);
-                        replyVO.setUser(userMap.get(reply.getUserId()));
-                        replyVO.setReplyUser(userMap.get(reply.getReplyUserId()));
-                        return replyVO;
-                    })
+            List<PostCommentVO> replyVOList = parentIdReplyListMap.getOrDefault(comment.getId(), Collections.emptyList())
+                    .stream()
+                    .map(reply -> toReplyVO(reply, userMap))
                     .collect(Collectors.toList());
             commentVO.setChildren(replyVOList);
+            commentVO.setReplyCount(replyCountMap.getOrDefault(comment.getId(), 0));
             return commentVO;
         }).collect(Collectors.toList());
+    }
 
-        // 6. 组装分页结果
-        Page<PostCommentVO> commentVOPage = new Page<>(commentPage.getCurrent(),
-                commentPage.getSize(), commentPage.getTotal());
-        commentVOPage.setRecords(commentVOList);
-        return commentVOPage;
+    private PostCommentVO toReplyVO(PostComment reply, Map<Long, UserVO> userMap) {
+        PostCommentVO replyVO = new PostCommentVO();
+        BeanUtils.copyProperties(reply, replyVO);
+        replyVO.setUser(userMap.get(reply.getUserId()));
+        replyVO.setReplyUser(userMap.get(reply.getReplyUserId()));
+        return replyVO;
+    }
+
+    /**
+     * 批量查询评论用户和被回复用户
+     *
+     * @param commentList
+     * @return 用户 id -> 用户视图
+     */
+    private Map<Long, UserVO> getUserVOMap(List<PostComment> commentList) {
+        // 使用Set收集所有用户ID，自动去重
+        Set<Long> userIdSet = new HashSet<>();
+        commentList.forEach(comment -> {
+            userIdSet.add(comment.getUserId());
+            if (comment.getReplyUserId() != null) {
+                userIdSet.add(comment.getReplyUserId());
+            }
+        });
+        if (userIdSet.isEmpty()) {
+            return new HashMap<>();
+        }
+        return userService.listByIds(new ArrayList<>(userIdSet))
+                .stream()
+                .map(user -> {
+                    UserVO userVO = new UserVO();
+                    BeanUtils.copyProperties(user, userVO);
+                    return userVO;
+                })
+                .collect(Collectors.toMap(UserVO::getId, Function.identity()));
     }
-}
\ No newline at end of file
+}
@@ -6,11 +6,18 @@ import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.caden.campcircle.common.ErrorCode;
+import com.caden.campcircle.constant.CounterConstant;
+import com.caden.campcircle.constant.PostConstant;
 import com.caden.campcircle.exception.BusinessException;
+import com.caden.campcircle.manager.CounterManager;
+import com.caden.campcircle.manager.HotPostRankManager;
+import com.caden.campcircle.manager.RelationCacheManager;
+import com.caden.campcircle.manager.lock.LockManager;
 import com.caden.campcircle.mapper.PostFavourMapper;
 import com.caden.campcircle.model.entity.Post;
 import com.caden.campcircle.model.entity.PostFavour;
 import com.caden.campcircle.model.entity.User;
+import com.caden.campcircle.model.enums.RelationTypeEnum;
 import com.caden.campcircle.service.PostFavourService;
 import com.caden.campcircle.service.PostService;
 import com.caden.campcircle.service.SystemMessageService;
@@ -36,6 +43,18 @@ public class PostFavourServiceImpl extends ServiceImpl<PostFavourMapper, PostFav
     @Resource
     private SystemMessageService systemMessageService;
 
+    @Resource
+    private HotPostRankManager hotPostRankManager;
+
+    @Resource
+    private CounterManager counterManager;
+
+    @Resource
+    private LockManager lockManager;
+
+    @Resource
+    private RelationCacheManager relationCacheManager;
+
     /**
      * 帖子收藏
      *
@@ -61,12 +80,11 @@ public class PostFavourServiceImpl extends ServiceImpl<PostFavourMapper, PostFav
 
         // 是否已帖子收藏
         long userId = loginUser.getId();
-        // 每个用户串行帖子收藏
+        // 同一用户对同一帖子串行收藏（正确性由唯一键保证，锁只用于减少无效的冲突）
         // 锁必须要包裹住事务方法
         PostFavourService postFavourService = (PostFavourService) AopContext.currentProxy();
-        synchronized (String.valueOf(userId).intern()) {
-            return postFavourService.doPostFavourInner(userId, postId);
-        }
+        return lockManager.executeWithLock("post:favour:" + userId + ":" + postId,
+                () -> postFavourService.doPostFavourInner(userId, postId));
     }
 
     @Override
@@ -91,46 +109,49 @@ public class PostFavourServiceImpl extends ServiceImpl<PostFavourMapper, PostFav
         postFavour.setUserId(userId);
         postFavour.setPostId(postId);
         QueryWrapper<PostFavour> postFavourQueryWrapper = new QueryWrapper<>(postFavour);
-        PostFavour oldPostFavour = this.getOne(postFavourQueryWrapper);
-        boolean result;
+        // 布隆过滤器判定一定未收藏时跳过查询
+        PostFavour oldPostFavour = null;
+        if (relationCacheManager.mightBeRelated(RelationTypeEnum.FAVOUR, userId, postId)) {
+            oldPostFavour = this.getOne(postFavourQueryWrapper);
+            if (oldPostFavour == null) {
+                relationCacheManager.recordBloomFalsePositive(1);
+            }
+        }
         // 已收藏
         if (oldPostFavour != null) {
-            result = this.remove(postFavourQueryWrapper);
-            if (result) {
-                // 帖子收藏数 - 1
-                result = postService.update()
-                        .eq("id", postId)
-                        .gt("favourNum", 0)
-                        .setSql("favourNum = favourNum - 1")
-                        .update();
-                return result ? -1 : 0;
-            } else {
-                throw new BusinessException(ErrorCode.SYSTEM_ERROR);
+            // 按唯一键删除，并发的重复取消只有一个会删到记录
+            if (baseMapper.deleteByUserIdAndPostId(userId, postId) == 0) {
+                return 0;
             }
+            relationCacheManager.remove(RelationTypeEnum.FAVOUR, userId, postId);
+            // 帖子收藏数 - 1（聚合后批量写回）
+            counterManager.incrPost(postId, CounterConstant.POST_FAVOUR_NUM, -1);
+            // 更新实时热榜，按原收藏时间撤销
+            hotPostRankManager.record(postService.getById(postId), -PostConstant.HOT_WEIGHT_FAVOUR,
+                    oldPostFavour.getCreateTime());
+            return -1;
         } else {
-            // 未帖子收藏
-            result = this.save(postFavour);
-            if (result) {
-                // 帖子收藏数 + 1
-                result = postService.update()
-                        .eq("id", postId)
-                        .setSql("favourNum = favourNum + 1")
-                        .update();
-
-                // 发送收藏通知
-                try {
-                    Post post = postService.getById(postId);
-                    if (post != null) {
-                        systemMessageService.sendFavourNotification(userId, post.getUserId(), postId);
-                    }
-                } catch (Exception e) {
-                    log.error("发送收藏通知失败", e);
+            // 未帖子收藏，INSERT IGNORE 依赖 (userId, postId) 唯一键，并发的重复收藏只有一个会插入成功
+            if (baseMapper.insertIgnore(userId, postId) == 0) {
+                return 0;
+            }
+            relationCacheManager.add(RelationTypeEnum.FAVOUR, userId, postId);
+            // 帖子收藏数 + 1（聚合后批量写回）
+            counterManager.incrPost(postId, CounterConstant.POST_FAVOUR_NUM, 1);
+            // 更新实时热榜
+            Post post = postService.getById(postId);
+            hotPostRankManager.record(post, PostConstant.HOT_WEIGHT_FAVOUR);
+
+            // 发送收藏通知
+            try {
+                if (post != null) {
+                    systemMessageService.sendFavourNotification(userId, post.getUserId(), postId);
                 }
-
-                return result ? 1 : 0;
-            } else {
-                throw new BusinessException(ErrorCode.SYSTEM_ERROR);
+            } catch (Exception e) {
+                log.error("发送收藏通知失败", e);
             }
+
+            return 1;
         }
     }
 
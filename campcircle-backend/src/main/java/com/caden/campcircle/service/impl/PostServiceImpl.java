@@ -1,31 +1,46 @@
 package com.caden.campcircle.service.impl;
 
-import cn.hutool.json.JSONUtil;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.caden.campcircle.common.CursorPage;
 import com.caden.campcircle.common.ErrorCode;
 import com.caden.campcircle.common.PageSearchByKeyWord;
 import com.caden.campcircle.constant.CommonConstant;
+import com.caden.campcircle.constant.CounterConstant;
 import com.caden.campcircle.constant.UserConstant;
 import com.caden.campcircle.exception.BusinessException;
 import com.caden.campcircle.exception.ThrowUtils;
-import com.caden.campcircle.mapper.FollowMapper;
+import com.caden.campcircle.manager.CounterManager;
+import com.caden.campcircle.manager.HotPostRankManager;
+import com.caden.campcircle.manager.PostEsCleanupManager;
+import com.caden.campcircle.manager.PostEsOutboxManager;
+import com.caden.campcircle.manager.cache.PostCacheManager;
+import com.caden.campcircle.manager.search.InvertedIndex;
+import com.caden.campcircle.manager.search.LocalSearchManager;
+import com.caden.campcircle.manager.search.PostTagIndexManager;
+import com.caden.campcircle.manager.RelationCacheManager;
+import com.caden.campcircle.manager.loader.PostBatchLoader;
+import com.caden.campcircle.manager.loader.PostBatchLoaderManager;
 import com.caden.campcircle.mapper.PostFavourMapper;
 import com.caden.campcircle.mapper.PostMapper;
+import com.caden.campcircle.mapper.PostTagMapper;
 import com.caden.campcircle.mapper.PostThumbMapper;
 import com.caden.campcircle.model.dto.post.PostEsDTO;
 import com.caden.campcircle.model.dto.post.PostQueryRequest;
 import com.caden.campcircle.model.entity.*;
+import com.caden.campcircle.model.enums.RelationTypeEnum;
 import com.caden.campcircle.model.vo.HotPostVO;
 import com.caden.campcircle.model.vo.MyPostNumVO;
 import com.caden.campcircle.model.vo.PostVO;
+import com.caden.campcircle.model.vo.TagCountVO;
 import com.caden.campcircle.model.vo.UserVO;
-import com.caden.campcircle.service.PictureService;
 import com.caden.campcircle.service.PostService;
 import com.caden.campcircle.service.UserService;
+import com.caden.campcircle.utils.CursorUtils;
 import com.caden.campcircle.utils.SqlUtils;
 
+import java.io.Serializable;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
@@ -36,6 +51,7 @@ import javax.annotation.Resource;
 import javax.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
 import cn.hutool.core.collection.CollUtil;
+import cn.hutool.json.JSONUtil;
 import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.elasticsearch.index.query.BoolQueryBuilder;
@@ -44,14 +60,17 @@ import org.elasticsearch.search.sort.SortBuilder;
 import org.elasticsearch.search.sort.SortBuilders;
 import org.elasticsearch.search.sort.SortOrder;
 import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.elasticsearch.core.ElasticsearchRestTemplate;
 import org.springframework.data.elasticsearch.core.SearchHit;
 import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.query.FetchSourceFilter;
 import org.springframework.data.elasticsearch.core.query.NativeSearchQuery;
 import org.springframework.data.elasticsearch.core.query.NativeSearchQueryBuilder;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * 帖子服务实现
@@ -62,6 +81,22 @@ import org.springframework.stereotype.Service;
 @Slf4j
 public class PostServiceImpl extends ServiceImpl<PostMapper, Post> implements PostService {
 
+    /**
+     * ES 默认 max_result_window
+     */
+    private static final int ES_MAX_RESULT_WINDOW = 10000;
+
+    /**
+     * 搜索只取 id
+     */
+    private static final FetchSourceFilter ID_SOURCE_FILTER = new FetchSourceFilter(new String[]{"id"}, null);
+
+    /**
+     * 游标搜索支持的排序字段，游标只能保存数值排序值（日期在 ES 中的排序值为毫秒数）
+     */
+    private static final Set<String> CURSOR_SORT_FIELD_SET = new HashSet<>(
+            Arrays.asList("thumbNum", "favourNum", "createTime", "updateTime"));
+
     @Resource
     private UserService userService;
 
@@ -72,17 +107,132 @@ public class PostServiceImpl extends ServiceImpl<PostMapper, Post> implements Po
     private PostFavourMapper postFavourMapper;
 
     @Resource
-    private FollowMapper followMapper;
+    private ElasticsearchRestTemplate elasticsearchRestTemplate;
+
+    @Resource
+    private PostBatchLoaderManager postBatchLoaderManager;
 
     @Resource
-    private ElasticsearchRestTemplate elasticsearchRestTemplate;
+    private HotPostRankManager hotPostRankManager;
 
     @Resource
-    private PictureService pictureService;
+    private CounterManager counterManager;
+
+    @Resource
+    private RelationCacheManager relationCacheManager;
 
     @Resource
     private RedisTemplate<String, String> redisTemplate;
 
+    @Resource
+    private PostEsOutboxManager postEsOutboxManager;
+
+    @Resource
+    private PostCacheManager postCacheManager;
+
+    @Resource
+    private PostEsCleanupManager postEsCleanupManager;
+
+    @Resource
+    private LocalSearchManager localSearchManager;
+
+    /**
+     * 关键词条件转为 id 条件时的候选上限，命中超过则回退到 LIKE
+     */
+    @Value("${campcircle.local-search.max-candidate:2000}")
+    private int localSearchMaxCandidate;
+
+    @Resource
+    private PostTagMapper postTagMapper;
+
+    @Resource
+    private PostTagIndexManager postTagIndexManager;
+
+    /**
+     * 标签条件转为 id 条件时最多取的条数，超过则回退到 post_tag 子查询
+     */
+    @Value("${campcircle.tag-index.max-candidate:2000}")
+    private int tagIndexMaxCandidate;
+
+    /**
+     * 新增帖子，同一事务内写入 ES 同步发件箱和帖子标签
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean save(Post entity) {
+        boolean result = super.save(entity);
+        if (result) {
+            savePostTags(entity.getId(), entity.getTags(), true);
+            postTagIndexManager.onPostChanged(entity.getId());
+            postEsOutboxManager.record(entity.getId());
+            postCacheManager.invalidate(entity.getId());
+            localSearchManager.onPostChanged(entity.getId());
+        }
+        return result;
+    }
+
+    /**
+     * 修改帖子，同一事务内写入 ES 同步发件箱，修改了标签时同步帖子标签
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean updateById(Post entity) {
+        boolean result = super.updateById(entity);
+        if (result) {
+            if (entity.getTags() != null) {
+                savePostTags(entity.getId(), entity.getTags(), false);
+            }
+            postTagIndexManager.onPostChanged(entity.getId());
+            postEsOutboxManager.record(entity.getId());
+            postCacheManager.invalidate(entity.getId());
+            localSearchManager.onPostChanged(entity.getId());
+        }
+        return result;
+    }
+
+    /**
+     * 删除帖子（逻辑删除），同一事务内写入 ES 同步发件箱
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean removeById(Serializable id) {
+        boolean result = super.removeById(id);
+        if (result) {
+            Long postId = Long.valueOf(id.toString());
+            // 逻辑删除保留 post_tag，按标签查询时随帖子一起过滤
+            postTagIndexManager.onPostChanged(postId);
+            postEsOutboxManager.record(postId);
+            postCacheManager.invalidate(postId);
+            localSearchManager.onPostChanged(postId);
+        }
+        return result;
+    }
+
+    /**
+     * 按 post.tags（JSON）重写帖子标签
+     *
+     * @param postId
+     * @param tags
+     * @param add    新增帖子时无需删除旧标签
+     */
+    private void savePostTags(Long postId, String tags, boolean add) {
+        if (!add) {
+            postTagMapper.delete(new QueryWrapper<PostTag>().eq("postId", postId));
+        }
+        List<String> tagList = parseTags(tags);
+        if (!tagList.isEmpty()) {
+            postTagMapper.insertBatch(postId, tagList);
+        }
+    }
+
+    private List<String> parseTags(String tags) {
+        if (StringUtils.isBlank(tags) || !JSONUtil.isTypeJSONArray(tags)) {
+            return new ArrayList<>();
+        }
+        return JSONUtil.toList(tags, String.class).stream().filter(StringUtils::isNotBlank).map(String::trim)
+                .distinct().collect(Collectors.toList());
+    }
+
     @Override
     public void validPost(Post post, boolean add) {
         if (post == null) {
@@ -98,6 +248,10 @@ public class PostServiceImpl extends ServiceImpl<PostMapper, Post> implements Po
         if (StringUtils.isNotBlank(content) && content.length() > 8192) {
             throw new BusinessException(ErrorCode.PARAMS_ERROR, "内容过长");
         }
+        if (StringUtils.isNotBlank(tags)) {
+            ThrowUtils.throwIf(parseTags(tags).stream().anyMatch(tag -> tag.length() > 64), ErrorCode.PARAMS_ERROR,
+                    "标签过长");
+        }
     }
 
     /**
@@ -118,18 +272,20 @@ public class PostServiceImpl extends ServiceImpl<PostMapper, Post> implements Po
         Long id = postQueryRequest.getId();
         String content = postQueryRequest.getContent();
         List<String> tagList = postQueryRequest.getTags();
+        List<String> orTagList = postQueryRequest.getOrTags();
         Long userId = postQueryRequest.getUserId();
         Long notId = postQueryRequest.getNotId();
         Integer isPublic = postQueryRequest.getIsPublic();
-        // 拼接查询条件
-        if (StringUtils.isNotBlank(searchText)) {
+        // 拼接查询条件，只查公开帖子时关键词走本地索引
+        boolean publicOnly = Integer.valueOf(1).equals(isPublic);
+        if (StringUtils.isNotBlank(searchText) && !applyLocalSearch(queryWrapper, searchText, publicOnly)) {
             queryWrapper.and(qw -> qw.like("title", searchText).or().like("content", searchText));
         }
-        queryWrapper.like(StringUtils.isNotBlank(content), "content", content);
-        if (CollUtil.isNotEmpty(tagList)) {
-            for (String tag : tagList) {
-                queryWrapper.like("tags", "\"" + tag + "\"");
-            }
+        if (StringUtils.isNotBlank(content) && !applyLocalSearch(queryWrapper, content, publicOnly)) {
+            queryWrapper.like("content", content);
+        }
+        if (CollUtil.isNotEmpty(tagList) || CollUtil.isNotEmpty(orTagList)) {
+            applyTagFilter(queryWrapper, tagList, orTagList, publicOnly);
         }
         queryWrapper.ne(ObjectUtils.isNotEmpty(notId), "id", notId);
         queryWrapper.eq(ObjectUtils.isNotEmpty(id), "id", id);
@@ -150,8 +306,129 @@ public class PostServiceImpl extends ServiceImpl<PostMapper, Post> implements Po
         return queryWrapper;
     }
 
+    /**
+     * 用本地索引把关键词条件转为 id 条件
+     *
+     * @return 索引不可用或命中超过候选上限时返回 false，由调用方回退到 LIKE（截断的候选会漏掉结果）
+     */
+    private boolean applyLocalSearch(QueryWrapper<Post> queryWrapper, String keyword, boolean publicOnly) {
+        if (!publicOnly) {
+            return false;
+        }
+        InvertedIndex.SearchResult searchResult = localSearchManager.searchPost(keyword, 0, localSearchMaxCandidate);
+        if (searchResult == null || searchResult.getTotal() > localSearchMaxCandidate) {
+            return false;
+        }
+        if (searchResult.getIdList().isEmpty()) {
+            queryWrapper.apply("1 = 0");
+        } else {
+            queryWrapper.in("id", searchResult.getIdList());
+        }
+        return true;
+    }
+
+    /**
+     * 标签条件：优先用标签索引转为 id 条件，索引未就绪或命中过多时用 post_tag 子查询
+     */
+    private void applyTagFilter(QueryWrapper<Post> queryWrapper, List<String> tagList, List<String> orTagList,
+                                boolean publicOnly) {
+        List<Long> postIdList = postTagIndexManager.query(tagList, orTagList, publicOnly);
+        if (postIdList != null && postIdList.size() <= tagIndexMaxCandidate) {
+            if (postIdList.isEmpty()) {
+                queryWrapper.apply("1 = 0");
+            } else {
+                queryWrapper.in("id", postIdList);
+            }
+            return;
+        }
+        if (CollUtil.isNotEmpty(tagList)) {
+            Object[] tags = tagList.stream().distinct().toArray();
+            queryWrapper.apply("id in (select postId from post_tag where tag in (" + tagPlaceholders(tags.length)
+                    + ") group by postId having count(*) = " + tags.length + ")", tags);
+        }
+        if (CollUtil.isNotEmpty(orTagList)) {
+            Object[] orTags = orTagList.stream().distinct().toArray();
+            queryWrapper.apply("id in (select postId from post_tag where tag in (" + tagPlaceholders(orTags.length)
+                    + "))", orTags);
+        }
+    }
+
+    private String tagPlaceholders(int count) {
+        StringJoiner joiner = new StringJoiner(", ");
+        for (int i = 0; i < count; i++) {
+            joiner.add("{" + i + "}");
+        }
+        return joiner.toString();
+    }
+
     @Override
     public Page<Post> searchFromEs(PostQueryRequest postQueryRequest) {
+        // es 起始页为 0
+        long current = postQueryRequest.getCurrent() - 1;
+        long pageSize = postQueryRequest.getPageSize();
+        // from + size 超过 max_result_window 时 ES 直接报错，深分页须使用游标
+        ThrowUtils.throwIf(current < 0 || (current + 1) * pageSize > ES_MAX_RESULT_WINDOW, ErrorCode.PARAMS_ERROR,
+                "翻页过深，请使用游标分页");
+        // 分页
+        PageRequest pageRequest = PageRequest.of((int) current, (int) pageSize);
+        // 构造查询，只取 id，帖子数据从缓存和数据库获取
+        NativeSearchQuery searchQuery = new NativeSearchQueryBuilder().withQuery(buildEsQuery(postQueryRequest))
+                .withPageable(pageRequest).withSorts(buildEsSort(postQueryRequest))
+                .withSourceFilter(ID_SOURCE_FILTER).build();
+        SearchHits<PostEsDTO> searchHits = elasticsearchRestTemplate.search(searchQuery, PostEsDTO.class);
+        Page<Post> page = new Page<>();
+        page.setTotal(searchHits.getTotalHits());
+        List<Long> postIdList = searchHits.getSearchHits().stream().map(searchHit -> searchHit.getContent().getId())
+                .collect(Collectors.toList());
+        page.setRecords(listPostByEsHits(postIdList));
+        return page;
+    }
+
+    @Override
+    public CursorPage<PostVO> searchPostVOByCursor(PostQueryRequest postQueryRequest, HttpServletRequest request) {
+        int pageSize = postQueryRequest.getPageSize();
+        boolean scoreSort = StringUtils.isBlank(postQueryRequest.getSortField());
+        ThrowUtils.throwIf(!scoreSort && !CURSOR_SORT_FIELD_SET.contains(postQueryRequest.getSortField()),
+                ErrorCode.PARAMS_ERROR, "游标搜索不支持该排序字段");
+        // 游标为 [排序值, id]，按相关度排序时排序值为 float 分数的二进制位
+        long[] cursor = CursorUtils.decode(postQueryRequest.getCursor(), 2);
+        NativeSearchQueryBuilder queryBuilder = new NativeSearchQueryBuilder()
+                .withQuery(buildEsQuery(postQueryRequest))
+                .withSorts(buildEsSort(postQueryRequest), SortBuilders.fieldSort("id").order(SortOrder.DESC))
+                .withPageable(PageRequest.of(0, pageSize + 1))
+                .withSourceFilter(ID_SOURCE_FILTER)
+                .withTrackTotalHits(false);
+        if (cursor != null) {
+            Object sortValue = scoreSort ? (Object) Float.intBitsToFloat((int) cursor[0]) : (Object) cursor[0];
+            queryBuilder.withSearchAfter(Arrays.asList(sortValue, cursor[1]));
+        }
+        List<SearchHit<PostEsDTO>> searchHitList = elasticsearchRestTemplate.search(queryBuilder.build(), PostEsDTO.class)
+                .getSearchHits();
+        boolean hasMore = searchHitList.size() > pageSize;
+        List<SearchHit<PostEsDTO>> pageHitList = hasMore ? searchHitList.subList(0, pageSize) : searchHitList;
+        String nextCursor = null;
+        if (hasMore) {
+            List<Object> sortValues = pageHitList.get(pageHitList.size() - 1).getSortValues();
+            Object lastSortValue = sortValues.get(0);
+            // 文档缺少排序字段时 ES 可能返回非数值的排序值，无法编码为游标，视为没有下一页
+            if (lastSortValue instanceof Number) {
+                Number sortValue = (Number) lastSortValue;
+                long encodedSortValue = scoreSort ? Float.floatToIntBits(sortValue.floatValue()) : sortValue.longValue();
+                nextCursor = CursorUtils.encode(encodedSortValue, ((Number) sortValues.get(1)).longValue());
+            } else {
+                log.warn("Non-numeric search sort value, sortField = {}, value = {}", postQueryRequest.getSortField(),
+                        lastSortValue);
+            }
+        }
+        List<Long> postIdList = pageHitList.stream().map(searchHit -> searchHit.getContent().getId())
+                .collect(Collectors.toList());
+        return new CursorPage<>(getPostVOList(listPostByEsHits(postIdList), request), nextCursor);
+    }
+
+    /**
+     * 构造 ES 查询条件
+     */
+    private BoolQueryBuilder buildEsQuery(PostQueryRequest postQueryRequest) {
         Long id = postQueryRequest.getId();
         Long notId = postQueryRequest.getNotId();
         String searchText = postQueryRequest.getSearchText();
@@ -160,11 +437,6 @@ public class PostServiceImpl extends ServiceImpl<PostMapper, Post> implements Po
         List<String> orTagList = postQueryRequest.getOrTags();
         Long userId = postQueryRequest.getUserId();
         Integer isPublic = postQueryRequest.getIsPublic();
-        // es 起始页为 0
-        long current = postQueryRequest.getCurrent() - 1;
-        long pageSize = postQueryRequest.getPageSize();
-        String sortField = postQueryRequest.getSortField();
-        String sortOrder = postQueryRequest.getSortOrder();
         BoolQueryBuilder boolQueryBuilder = QueryBuilders.boolQuery();
         // 过滤
         boolQueryBuilder.filter(QueryBuilders.termQuery("isDelete", 0));
@@ -208,42 +480,41 @@ public class PostServiceImpl extends ServiceImpl<PostMapper, Post> implements Po
             boolQueryBuilder.should(QueryBuilders.matchQuery("content", content));
             boolQueryBuilder.minimumShouldMatch(1);
         }
-        // 排序
+        return boolQueryBuilder;
+    }
+
+    /**
+     * 构造 ES 排序，未指定排序字段时按相关度
+     */
+    private SortBuilder<?> buildEsSort(PostQueryRequest postQueryRequest) {
+        String sortField = postQueryRequest.getSortField();
+        String sortOrder = postQueryRequest.getSortOrder();
         SortBuilder<?> sortBuilder = SortBuilders.scoreSort();
         if (StringUtils.isNotBlank(sortField)) {
             sortBuilder = SortBuilders.fieldSort(sortField);
             sortBuilder.order(CommonConstant.SORT_ORDER_ASC.equals(sortOrder) ? SortOrder.ASC : SortOrder.DESC);
         }
-        // 分页
-        PageRequest pageRequest = PageRequest.of((int) current, (int) pageSize);
-        // 构造查询
-        NativeSearchQuery searchQuery = new NativeSearchQueryBuilder().withQuery(boolQueryBuilder)
-                .withPageable(pageRequest).withSorts(sortBuilder).build();
-        SearchHits<PostEsDTO> searchHits = elasticsearchRestTemplate.search(searchQuery, PostEsDTO.class);
-        Page<Post> page = new Page<>();
-        page.setTotal(searchHits.getTotalHits());
+        return sortBuilder;
+    }
+
+    /**
+     * 按 ES 命中顺序从缓存（回源数据库）获取最新数据（比如点赞数），数据库中已不存在的帖子异步从 ES 清理
+     */
+    private List<Post> listPostByEsHits(List<Long> postIdList) {
         List<Post> resourceList = new ArrayList<>();
-        // 查出结果后，从 db 获取最新动态数据（比如点赞数）
-        if (searchHits.hasSearchHits()) {
-            List<SearchHit<PostEsDTO>> searchHitList = searchHits.getSearchHits();
-            List<Long> postIdList = searchHitList.stream().map(searchHit -> searchHit.getContent().getId())
-                    .collect(Collectors.toList());
-            List<Post> postList = baseMapper.selectBatchIds(postIdList);
-            if (postList != null) {
-                Map<Long, List<Post>> idPostMap = postList.stream().collect(Collectors.groupingBy(Post::getId));
-                postIdList.forEach(postId -> {
-                    if (idPostMap.containsKey(postId)) {
-                        resourceList.add(idPostMap.get(postId).get(0));
-                    } else {
-                        // 从 es 清空 db 已物理删除的数据
-                        String delete = elasticsearchRestTemplate.delete(String.valueOf(postId), PostEsDTO.class);
-                        log.info("delete post {}", delete);
-                    }
-                });
+        if (CollUtil.isEmpty(postIdList)) {
+            return resourceList;
+        }
+        Map<Long, Post> idPostMap = postCacheManager.getAll(postIdList, this::listByIds);
+        for (Long postId : postIdList) {
+            Post post = idPostMap.get(postId);
+            if (post != null) {
+                resourceList.add(post);
+            } else {
+                postEsCleanupManager.submit(postId);
             }
         }
-        page.setRecords(resourceList);
-        return page;
+        return resourceList;
     }
 
     @Override
@@ -255,8 +526,9 @@ public class PostServiceImpl extends ServiceImpl<PostMapper, Post> implements Po
         PostVO postVO = PostVO.objToVo(post);
         long postId = post.getId();
 
-        // 1. 处理图片列表
-        fillPostVOPictures(post, postVO);
+        // 1. 处理图片列表（请求级批量加载器，同一请求内已加载的图片直接复用）
+        PostBatchLoader postBatchLoader = postBatchLoaderManager.getLoader(request);
+        postVO.setPictureUrlList(postBatchLoader.getPictureUrlList(post));
 
         // 2. 关联查询用户信息
         Long userId = post.getUserId();
@@ -267,79 +539,98 @@ public class PostServiceImpl extends ServiceImpl<PostMapper, Post> implements Po
         UserVO userVO = userService.getUserVO(user);
         postVO.setUser(userVO);
 
-        // 3. 已登录，获取用户点赞、收藏、关注状态
+        // 3. 已登录，获取用户点赞、收藏、关注状态（关系缓存一次往返）
         User loginUser = userService.getLoginUserPermitNull(request);
         if (loginUser != null) {
-            // 获取点赞
-            QueryWrapper<PostThumb> postThumbQueryWrapper = new QueryWrapper<>();
-            postThumbQueryWrapper.eq("postId", postId);
-            postThumbQueryWrapper.eq("userId", loginUser.getId());
-            PostThumb postThumb = postThumbMapper.selectOne(postThumbQueryWrapper);
-            postVO.setHasThumb(postThumb != null);
-
-            // 获取收藏
-            QueryWrapper<PostFavour> postFavourQueryWrapper = new QueryWrapper<>();
-            postFavourQueryWrapper.eq("postId", postId);
-            postFavourQueryWrapper.eq("userId", loginUser.getId());
-            PostFavour postFavour = postFavourMapper.selectOne(postFavourQueryWrapper);
-            postVO.setHasFavour(postFavour != null);
-
-            // 获取关注
-            QueryWrapper<Follow> followQueryWrapper = new QueryWrapper<>();
-            followQueryWrapper.eq("userId", loginUser.getId());
-            followQueryWrapper.eq("followUserId", post.getUserId());
-            Follow follow = followMapper.selectOne(followQueryWrapper);
-            postVO.setHasFollow(follow != null);
+            Map<RelationTypeEnum, Collection<Long>> typeTargetIdsMap = new EnumMap<>(RelationTypeEnum.class);
+            typeTargetIdsMap.put(RelationTypeEnum.THUMB, Collections.singletonList(postId));
+            typeTargetIdsMap.put(RelationTypeEnum.FAVOUR, Collections.singletonList(postId));
+            typeTargetIdsMap.put(RelationTypeEnum.FOLLOW, Collections.singletonList(post.getUserId()));
+            Map<RelationTypeEnum, Set<Long>> relatedMap = relationCacheManager.listRelated(loginUser.getId(), typeTargetIdsMap);
+            postVO.setHasThumb(relatedMap.get(RelationTypeEnum.THUMB).contains(postId));
+            postVO.setHasFavour(relatedMap.get(RelationTypeEnum.FAVOUR).contains(postId));
+            postVO.setHasFollow(relatedMap.get(RelationTypeEnum.FOLLOW).contains(post.getUserId()));
         }
 
+        // 4. 合并尚未写回的计数增量
+        mergePendingCounter(postVO, counterManager.getPendingPostDelta(Collections.singletonList(postId)));
         return postVO;
     }
 
     @Override
     public Page<PostVO> getPostVOPage(Page<Post> postPage, HttpServletRequest request) {
-        List<Post> postList = postPage.getRecords();
         Page<PostVO> postVOPage = new Page<>(postPage.getCurrent(), postPage.getSize(), postPage.getTotal());
+        postVOPage.setRecords(getPostVOList(postPage.getRecords(), request));
+        return postVOPage;
+    }
+
+    @Override
+    public CursorPage<PostVO> listPostVOByCursor(PostQueryRequest postQueryRequest, HttpServletRequest request) {
+        int pageSize = postQueryRequest.getPageSize();
+        long[] cursor = CursorUtils.decode(postQueryRequest.getCursor(), 3);
+        // 游标模式固定按 (isTop, createTime, id) 倒序，不支持自定义排序
+        postQueryRequest.setSortField(null);
+        QueryWrapper<Post> queryWrapper = getQueryWrapper(postQueryRequest);
+        queryWrapper.orderByDesc("id");
+        if (cursor != null) {
+            // 展开为 isTop < ? OR (isTop = ? AND (createTime, id) < (?, ?))，与时间线的写法一致，便于走索引范围扫描
+            long cursorIsTop = cursor[0];
+            queryWrapper.and(qw -> qw.lt("isTop", cursorIsTop)
+                    .or(w -> {
+                        w.eq("isTop", cursorIsTop);
+                        CursorUtils.applyTimeIdBefore(w, "createTime", cursor[1], cursor[2]);
+                    }));
+        }
+        queryWrapper.last("limit " + (pageSize + 1));
+        List<Post> postList = this.list(queryWrapper);
+        return CursorUtils.toCursorPage(postList, pageSize,
+                post -> CursorUtils.encode(post.getIsTop() == null ? 0 : post.getIsTop(),
+                        post.getCreateTime().getTime(), post.getId()),
+                pagePostList -> getPostVOList(pagePostList, request));
+    }
+
+    @Override
+    public List<PostVO> getPostVOList(List<Post> postList, HttpServletRequest request) {
         if (CollUtil.isEmpty(postList)) {
-            return postVOPage;
+            return new ArrayList<>();
         }
 
         // 1. 关联查询用户信息
         Set<Long> userIdSet = postList.stream().map(Post::getUserId).collect(Collectors.toSet());
         Map<Long, List<User>> userIdUserListMap = userService.listByIds(userIdSet).stream()
                 .collect(Collectors.groupingBy(User::getId));
-        // 2. 已登录，获取用户点赞、收藏状态
-        Map<Long, Boolean> postIdHasThumbMap = new HashMap<>();
-        Map<Long, Boolean> postIdHasFavourMap = new HashMap<>();
-        Map<Long, Boolean> userIdHasFollowMap = new HashMap<>();
+        // 2. 已登录，获取用户点赞、收藏、关注状态（关系缓存一次往返）
+        Set<Long> thumbPostIdSet = Collections.emptySet();
+        Set<Long> favourPostIdSet = Collections.emptySet();
+        Set<Long> followUserIdSet = Collections.emptySet();
         User loginUser = userService.getLoginUserPermitNull(request);
         if (loginUser != null) {
             Set<Long> postIdSet = postList.stream().map(Post::getId).collect(Collectors.toSet());
-            loginUser = userService.getLoginUser(request);
-            // 获取点赞
-            QueryWrapper<PostThumb> postThumbQueryWrapper = new QueryWrapper<>();
-            postThumbQueryWrapper.in("postId", postIdSet);
-            postThumbQueryWrapper.eq("userId", loginUser.getId());
-            List<PostThumb> postPostThumbList = postThumbMapper.selectList(postThumbQueryWrapper);
-            postPostThumbList.forEach(postPostThumb -> postIdHasThumbMap.put(postPostThumb.getPostId(), true));
-            // 获取收藏
-            QueryWrapper<PostFavour> postFavourQueryWrapper = new QueryWrapper<>();
-            postFavourQueryWrapper.in("postId", postIdSet);
-            postFavourQueryWrapper.eq("userId", loginUser.getId());
-            List<PostFavour> postFavourList = postFavourMapper.selectList(postFavourQueryWrapper);
-            postFavourList.forEach(postFavour -> postIdHasFavourMap.put(postFavour.getPostId(), true));
-            //获取关注
-            QueryWrapper<Follow> FollowQueryWrapper = new QueryWrapper<>();
-            FollowQueryWrapper.eq("userId", loginUser.getId());
-            FollowQueryWrapper.in("followUserId",userIdSet);
-            List<Follow> followList = followMapper.selectList(FollowQueryWrapper);
-            followList.forEach(follow -> userIdHasFollowMap.put(follow.getFollowUserId(), true));
+            Map<RelationTypeEnum, Collection<Long>> typeTargetIdsMap = new EnumMap<>(RelationTypeEnum.class);
+            typeTargetIdsMap.put(RelationTypeEnum.THUMB, postIdSet);
+            typeTargetIdsMap.put(RelationTypeEnum.FAVOUR, postIdSet);
+            typeTargetIdsMap.put(RelationTypeEnum.FOLLOW, userIdSet);
+            Map<RelationTypeEnum, Set<Long>> relatedMap = relationCacheManager.listRelated(loginUser.getId(), typeTargetIdsMap);
+            thumbPostIdSet = relatedMap.get(RelationTypeEnum.THUMB);
+            favourPostIdSet = relatedMap.get(RelationTypeEnum.FAVOUR);
+            followUserIdSet = relatedMap.get(RelationTypeEnum.FOLLOW);
         }
+        // 3. 整页图片一次加载
+        PostBatchLoader postBatchLoader = postBatchLoaderManager.getLoader(request);
+        postBatchLoader.prime(postList);
+        postBatchLoader.dispatch();
+        // 4. 整页尚未写回的计数增量一次读取
+        Map<Long, Map<String, Long>> postIdDeltaMap = counterManager.getPendingPostDelta(
+                postList.stream().map(Post::getId).collect(Collectors.toList()));
+        Set<Long> finalThumbPostIdSet = thumbPostIdSet;
+        Set<Long> finalFavourPostIdSet = favourPostIdSet;
+        Set<Long> finalFollowUserIdSet = followUserIdSet;
         // 填充信息
-        List<PostVO> postVOList = postList.stream().map(post -> {
+        return postList.stream().map(post -> {
             PostVO postVO = PostVO.objToVo(post);
 
-            // 处理图片列表（复用私有方法）
-            fillPostVOPictures(post, postVO);
+            // 处理图片列表
+            postVO.setPictureUrlList(postBatchLoader.getPictureUrlList(post));
 
             // 设置用户信息
             Long userId = post.getUserId();
@@ -350,14 +641,34 @@ public class PostServiceImpl extends ServiceImpl<PostMapper, Post> implements Po
             postVO.setUser(userService.getUserVO(user));
 
             // 设置用户交互状态
-            postVO.setHasFollow(userIdHasFollowMap.getOrDefault(post.getUserId(), false));
-            postVO.setHasThumb(postIdHasThumbMap.getOrDefault(post.getId(), false));
-            postVO.setHasFavour(postIdHasFavourMap.getOrDefault(post.getId(), false));
+            postVO.setHasFollow(finalFollowUserIdSet.contains(post.getUserId()));
+            postVO.setHasThumb(finalThumbPostIdSet.contains(post.getId()));
+            postVO.setHasFavour(finalFavourPostIdSet.contains(post.getId()));
+            mergePendingCounter(postVO, postIdDeltaMap);
 
             return postVO;
         }).collect(Collectors.toList());
-        postVOPage.setRecords(postVOList);
-        return postVOPage;
+    }
+
+    /**
+     * 合并尚未写回数据库的点赞、收藏、评论数增量
+     *
+     * @param postVO
+     * @param postIdDeltaMap 帖子 id -> (字段 -> 增量)
+     */
+    private void mergePendingCounter(PostVO postVO, Map<Long, Map<String, Long>> postIdDeltaMap) {
+        Map<String, Long> deltaMap = postIdDeltaMap.get(postVO.getId());
+        if (deltaMap == null) {
+            return;
+        }
+        postVO.setThumbNum(mergeCount(postVO.getThumbNum(), deltaMap.get(CounterConstant.POST_THUMB_NUM)));
+        postVO.setFavourNum(mergeCount(postVO.getFavourNum(), deltaMap.get(CounterConstant.POST_FAVOUR_NUM)));
+        postVO.setCommentNum(mergeCount(postVO.getCommentNum(), deltaMap.get(CounterConstant.POST_COMMENT_NUM)));
+    }
+
+    private Integer mergeCount(Integer count, Long delta) {
+        int base = count == null ? 0 : count;
+        return delta == null ? base : (int) Math.max(base + delta, 0);
     }
 
     @Override
@@ -382,44 +693,6 @@ public class PostServiceImpl extends ServiceImpl<PostMapper, Post> implements Po
         return myPostNumVO;
     }
 
-    /**
-     * 填充 PostVO 的图片信息
-     *
-     * @param post   原始帖子对象
-     * @param postVO 帖子VO对象
-     */
-    private void fillPostVOPictures(Post post, PostVO postVO) {
-        String pictureIdStr = post.getPictureList();
-        List<String> pictureIdList = JSONUtil.toList(pictureIdStr, String.class);
-
-        // 判断是否有图片
-        if (pictureIdList != null && !pictureIdList.isEmpty()) {
-            List<Long> pictureIds = pictureIdList.stream()
-                    .map(id -> {
-                        try {
-                            return Long.parseLong(id);
-                        } catch (NumberFormatException e) {
-                            log.warn("Invalid picture ID: {}", id);
-                            return null;
-                        }
-                    })
-                    .filter(Objects::nonNull)
-                    .collect(Collectors.toList());
-
-            if (!pictureIds.isEmpty()) {
-                List<Picture> pictures = pictureService.listByIds(pictureIds);
-                List<String> pictureUrlList = pictures.stream()
-                        .map(Picture::getPictureUrl)
-                        .collect(Collectors.toList());
-                postVO.setPictureUrlList(pictureUrlList);
-            } else {
-                postVO.setPictureUrlList(new ArrayList<>());
-            }
-        } else {
-            postVO.setPictureUrlList(pictureIdList != null ? pictureIdList : new ArrayList<>());
-        }
-    }
-
     private Long getOrCacheCount(String redisKey, Supplier<Long> dbQuery) {
         String cached = redisTemplate.opsForValue().get(redisKey);
         if (cached != null) {
@@ -462,16 +735,53 @@ public class PostServiceImpl extends ServiceImpl<PostMapper, Post> implements Po
         if (limit > 30) {
             limit = 30;
         }
+        // 优先读取实时热榜
+        Map<Long, Double> postIdScoreMap = hotPostRankManager.listTop(limit * 2);
+        if (postIdScoreMap.isEmpty()) {
+            return getHotPostListFromDb(limit);
+        }
+        Map<Long, Post> postMap = this.listByIds(postIdScoreMap.keySet()).stream()
+                .collect(Collectors.toMap(Post::getId, post -> post));
+        Date now = new Date();
+        List<HotPostVO> hotPostVOList = new ArrayList<>();
+        for (Map.Entry<Long, Double> entry : postIdScoreMap.entrySet()) {
+            Post post = postMap.get(entry.getKey());
+            // 已删除或转为私密的帖子不展示
+            if (post == null || post.getIsPublic() == null || post.getIsPublic() != 1) {
+                continue;
+            }
+            HotPostVO hotPostVO = new HotPostVO();
+            hotPostVO.setId(post.getId());
+            hotPostVO.setContent(post.getContent());
+            // 与数据库热度保持同一量纲
+            hotPostVO.setHotScore((double) Math.round(entry.getValue() * 100));
+            hotPostVO.setLastHotUpdateTime(now);
+            hotPostVOList.add(hotPostVO);
+            if (hotPostVOList.size() >= limit) {
+                break;
+            }
+        }
+        return hotPostVOList;
+    }
+
+    /**
+     * 从数据库读取热榜，并初始化实时热榜
+     *
+     * @param limit
+     * @return
+     */
+    private List<HotPostVO> getHotPostListFromDb(int limit) {
         // 只查询需要的字段，提高查询效率
         QueryWrapper<Post> queryWrapper = new QueryWrapper<>();
-        queryWrapper.select("id", "content", "hotScore", "lastHotUpdateTime")
+        queryWrapper.select("id", "content", "hotScore", "lastHotUpdateTime", "createTime")
                     .eq("isDelete", 0)
                     .eq("isPublic", 1)  // 只查询公开的帖子
                     .orderByDesc("hotScore")
                     .last("limit " + limit);
-        
+
         // 查询热门帖子
         List<Post> postList = this.list(queryWrapper);
+        hotPostRankManager.seed(postList);
         // 转换为VO对象
         List<HotPostVO> hotPostVOList = postList.stream().map(post -> {
             HotPostVO hotPostVO = new HotPostVO();
@@ -484,6 +794,22 @@ public class PostServiceImpl extends ServiceImpl<PostMapper, Post> implements Po
     @Override
     public Page<PostVO> listPostVOByPage(PageSearchByKeyWord pageSearchByKeyWord, HttpServletRequest request) {
         String keyWord = pageSearchByKeyWord.getKeyWord();
+        int current = pageSearchByKeyWord.getCurrent();
+        int pageSize = pageSearchByKeyWord.getPageSize();
+        if (StringUtils.isNotBlank(keyWord)) {
+            InvertedIndex.SearchResult searchResult = localSearchManager.searchPost(keyWord,
+                    (current - 1) * pageSize, pageSize);
+            if (searchResult != null) {
+                // 按相关度顺序从缓存获取，索引更新前已改为私密的帖子过滤掉
+                Map<Long, Post> idPostMap = postCacheManager.getAll(searchResult.getIdList(), this::listByIds);
+                List<Post> postList = searchResult.getIdList().stream().map(idPostMap::get)
+                        .filter(post -> post != null && Integer.valueOf(1).equals(post.getIsPublic()))
+                        .collect(Collectors.toList());
+                Page<Post> postPage = new Page<>(current, pageSize, searchResult.getTotal());
+                postPage.setRecords(postList);
+                return this.getPostVOPage(postPage, request);
+            }
+        }
         QueryWrapper<Post> queryWrapper = new QueryWrapper<>();
         queryWrapper.like(StringUtils.isNotBlank(keyWord), "content", keyWord)
                    .eq("isPublic", 1);  // 只搜索公开的帖子
@@ -495,4 +821,14 @@ public class PostServiceImpl extends ServiceImpl<PostMapper, Post> implements Po
         return postVOPage;
     }
 
+    @Override
+    public List<TagCountVO> listTagCount(int limit) {
+        return postTagIndexManager.countPublic(limit).entrySet().stream().map(entry -> {
+            TagCountVO tagCountVO = new TagCountVO();
+            tagCountVO.setTag(entry.getKey());
+            tagCountVO.setCount(entry.getValue());
+            return tagCountVO;
+        }).collect(Collectors.toList());
+    }
+
 }
@@ -4,11 +4,18 @@ import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.caden.campcircle.common.ErrorCode;
+import com.caden.campcircle.constant.CounterConstant;
+import com.caden.campcircle.constant.PostConstant;
 import com.caden.campcircle.exception.BusinessException;
+import com.caden.campcircle.manager.CounterManager;
+import com.caden.campcircle.manager.HotPostRankManager;
+import com.caden.campcircle.manager.RelationCacheManager;
+import com.caden.campcircle.manager.lock.LockManager;
 import com.caden.campcircle.mapper.PostThumbMapper;
 import com.caden.campcircle.model.entity.Post;
 import com.caden.campcircle.model.entity.PostThumb;
 import com.caden.campcircle.model.entity.User;
+import com.caden.campcircle.model.enums.RelationTypeEnum;
 import com.caden.campcircle.service.PostService;
 import com.caden.campcircle.service.PostThumbService;
 import javax.annotation.Resource;
@@ -38,6 +45,18 @@ public class PostThumbServiceImpl extends ServiceImpl<PostThumbMapper, PostThumb
 
     @Resource
     private SystemMessageService systemMessageService;
+
+    @Resource
+    private HotPostRankManager hotPostRankManager;
+
+    @Resource
+    private CounterManager counterManager;
+
+    @Resource
+    private LockManager lockManager;
+
+    @Resource
+    private RelationCacheManager relationCacheManager;
     /**
      * 点赞
      *
@@ -63,12 +82,11 @@ public class PostThumbServiceImpl extends ServiceImpl<PostThumbMapper, PostThumb
 
         // 是否已点赞
         long userId = loginUser.getId();
-        // 每个用户串行点赞
+        // 同一用户对同一帖子串行点赞（正确性由唯一键保证，锁只用于减少无效的冲突）
         // 锁必须要包裹住事务方法
         PostThumbService postThumbService = (PostThumbService) AopContext.currentProxy();
-        synchronized (String.valueOf(userId).intern()) {
-            return postThumbService.doPostThumbInner(userId, postId);
-        }
+        return lockManager.executeWithLock("post:thumb:" + userId + ":" + postId,
+                () -> postThumbService.doPostThumbInner(userId, postId));
     }
 
     /**
@@ -85,61 +103,51 @@ public class PostThumbServiceImpl extends ServiceImpl<PostThumbMapper, PostThumb
         postThumb.setUserId(userId);
         postThumb.setPostId(postId);
         QueryWrapper<PostThumb> thumbQueryWrapper = new QueryWrapper<>(postThumb);
-        PostThumb oldPostThumb = this.getOne(thumbQueryWrapper);
+        // 布隆过滤器判定一定未点赞时跳过查询
+        PostThumb oldPostThumb = null;
+        if (relationCacheManager.mightBeRelated(RelationTypeEnum.THUMB, userId, postId)) {
+            oldPostThumb = this.getOne(thumbQueryWrapper);
+            if (oldPostThumb == null) {
+                relationCacheManager.recordBloomFalsePositive(1);
+            }
+        }
         Post post = postService.getById(postId);
         if (post == null) {
             throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "帖子不存在");
         }
-        boolean result;
         // 已点赞
         if (oldPostThumb != null) {
-
-            result = this.remove(thumbQueryWrapper);
-            if (result) {
-                // 点赞数 - 1
-                result = postService.update()
-                        .eq("id", postId)
-                        .gt("thumbNum", 0)
-                        .setSql("thumbNum = thumbNum - 1")
-                        .update();
-                // 帖子作者获赞数 - 1\
-                log.info("帖子作者获赞数 - 1");
-                userService.update()
-                        .eq("id", post.getUserId())
-                        .gt("receivedThumbNum", 0)
-                        .setSql("receivedThumbNum = receivedThumbNum - 1")
-                        .update();
-
-                return result ? -1 : 0;
-            } else {
-                throw new BusinessException(ErrorCode.SYSTEM_ERROR);
+            // 按唯一键删除，并发的重复取消只有一个会删到记录
+            if (baseMapper.deleteByUserIdAndPostId(userId, postId) == 0) {
+                return 0;
             }
+            relationCacheManager.remove(RelationTypeEnum.THUMB, userId, postId);
+            // 点赞数 - 1，帖子作者获赞数 - 1（聚合后批量写回）
+            counterManager.incrPost(postId, CounterConstant.POST_THUMB_NUM, -1);
+            counterManager.incrUser(post.getUserId(), CounterConstant.USER_RECEIVED_THUMB_NUM, -1);
+            // 更新实时热榜，按原点赞时间撤销
+            hotPostRankManager.record(post, -PostConstant.HOT_WEIGHT_THUMB, oldPostThumb.getCreateTime());
+            return -1;
         } else {
-            // 未点赞
-            result = this.save(postThumb);
-            if (result) {
-                // 点赞数 + 1
-                result = postService.update()
-                        .eq("id", postId)
-                        .setSql("thumbNum = thumbNum + 1")
-                        .update();
-                // 帖子作者获赞数 + 1
-                userService.update()
-                        .eq("id", post.getUserId())
-                        .setSql("receivedThumbNum = receivedThumbNum + 1")
-                        .update();
-
-                // 发送点赞通知
-                try {
-                    systemMessageService.sendThumbNotification(userId, post.getUserId(), postId);
-                } catch (Exception e) {
-                    log.error("发送点赞通知失败", e);
-                }
-
-                return result ? 1 : 0;
-            } else {
-                throw new BusinessException(ErrorCode.SYSTEM_ERROR);
+            // 未点赞，INSERT IGNORE 依赖 (userId, postId) 唯一键，并发的重复点赞只有一个会插入成功
+            if (baseMapper.insertIgnore(userId, postId) == 0) {
+                return 0;
+            }
+            relationCacheManager.add(RelationTypeEnum.THUMB, userId, postId);
+            // 点赞数 + 1，帖子作者获赞数 + 1（聚合后批量写回）
+            counterManager.incrPost(postId, CounterConstant.POST_THUMB_NUM, 1);
+            counterManager.incrUser(post.getUserId(), CounterConstant.USER_RECEIVED_THUMB_NUM, 1);
+            // 更新实时热榜
+            hotPostRankManager.record(post, PostConstant.HOT_WEIGHT_THUMB);
+
+            // 发送点赞通知
+            try {
+                systemMessageService.sendThumbNotification(userId, post.getUserId(), postId);
+            } catch (Exception e) {
+                log.error("发送点赞通知失败", e);
             }
+
+            return 1;
         }
     }
 
@@ -4,22 +4,32 @@ import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.caden.campcircle.common.CursorPage;
 import com.caden.campcircle.common.ErrorCode;
 import com.caden.campcircle.constant.MessageConstant;
+import com.caden.campcircle.constant.PushConstant;
 import com.caden.campcircle.exception.BusinessException;
 import com.caden.campcircle.exception.ThrowUtils;
+import com.caden.campcircle.manager.push.MessagePushManager;
+import com.caden.campcircle.mapper.PrivateConversationMapper;
 import com.caden.campcircle.mapper.PrivateMessageMapper;
 import com.caden.campcircle.model.dto.message.PrivateMessageQueryRequest;
 import com.caden.campcircle.model.dto.message.PrivateMessageSendRequest;
+import com.caden.campcircle.model.entity.PrivateConversation;
 import com.caden.campcircle.model.entity.PrivateMessage;
 import com.caden.campcircle.model.entity.User;
 import com.caden.campcircle.model.vo.ChatVO;
+import com.caden.campcircle.model.vo.LastMessage;
 import com.caden.campcircle.model.vo.PrivateMessageVO;
 import com.caden.campcircle.model.vo.UserVO;
 import com.caden.campcircle.service.PrivateMessageService;
 import com.caden.campcircle.service.UserService;
+import com.caden.campcircle.utils.CursorUtils;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.ObjectUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.annotation.Resource;
 import java.util.*;
@@ -29,10 +39,22 @@ import java.util.stream.Collectors;
 @Slf4j
 public class PrivateMessageServiceImpl extends ServiceImpl<PrivateMessageMapper, PrivateMessage> implements PrivateMessageService {
 
+    /**
+     * 会话中保存的最后一条消息内容长度
+     */
+    private static final int LAST_CONTENT_MAX_LENGTH = 256;
+
     @Resource
     private UserService userService;
 
+    @Resource
+    private PrivateConversationMapper privateConversationMapper;
+
+    @Resource
+    private MessagePushManager messagePushManager;
+
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public Long sendMessage(PrivateMessageSendRequest privateMessageSendRequest, User loginUser) {
         Long toUserId = privateMessageSendRequest.getToUserId();
         String content = privateMessageSendRequest.getContent();
@@ -50,22 +72,27 @@ public class PrivateMessageServiceImpl extends ServiceImpl<PrivateMessageMapper,
         privateMessage.setContent(content);
         privateMessage.setMessageType(messageType);
         privateMessage.setPictureUrl(pictureUrl);
+        privateMessage.setIsRead(MessageConstant.MESSAGE_UNREAD);
+        privateMessage.setIsRecalled(MessageConstant.MESSAGE_NOT_RECALLED);
+        privateMessage.setCreateTime(new Date());
         boolean save = this.save(privateMessage);
         ThrowUtils.throwIf(!save, ErrorCode.OPERATION_ERROR, "消息发送失败");
+        // 同一事务内更新双方会话，接收方未读数 +1
+        // 按 (ownerId, peerId) 排序写入，双方互发时加锁顺序一致，避免死锁
+        List<PrivateConversation> conversationList = new ArrayList<>(Arrays.asList(
+                toConversation(fromUserId, toUserId, privateMessage, 0),
+                toConversation(toUserId, fromUserId, privateMessage, 1)));
+        conversationList.sort(Comparator.comparing(PrivateConversation::getOwnerId)
+                .thenComparing(PrivateConversation::getPeerId));
+        privateConversationMapper.upsertBatch(conversationList);
 
         log.info("私信消息保存成功: {}", privateMessage.getId());
 
-        // TODO: 实现消息的实时推送
-        // 1. WebSocket推送：如果用户在线，通过WebSocket实时推送消息
-        // 2. 服务端事件推送(SSE)：作为WebSocket的备选方案
-        // 3. 移动端推送：集成极光推送、友盟推送等第三方推送服务
-        // 实现示例：
-        // if (webSocketService.isUserOnline(toUserId)) {
-        //     webSocketService.pushMessage(toUserId, messageVO);
-        // } else {
-        //     // 用户离线，发送推送通知
-        //     pushNotificationService.sendMessageNotification(toUserId, fromUser.getUserName(), content);
-        // }
+        // 提交后推送给接收方（由持有其连接的节点下发），客户端无需轮询
+        PrivateMessageVO privateMessageVO = PrivateMessageVO.objToVo(privateMessage);
+        privateMessageVO.setFromUser(userService.getUserVO(loginUser));
+        privateMessageVO.setToUser(userService.getUserVO(toUser));
+        messagePushManager.push(toUserId, PushConstant.TYPE_PRIVATE_MESSAGE, privateMessageVO);
 
         // TODO: 如果离线则使用微信的活动订阅功能
         // 1. 微信小程序订阅消息：用户授权后可发送模板消息
@@ -90,42 +117,57 @@ public class PrivateMessageServiceImpl extends ServiceImpl<PrivateMessageMapper,
 
 
     /**
-     * 获取私信列表
+     * 获取私信列表（按最后一条消息时间倒序）
      *
      * @param loginUser 当前用户
      * @return 私信列表
      */
     @Override
     public List<ChatVO> getChatVOList(User loginUser) {
-        List<Long> userIds = this.getBaseMapper().getChatUserIdList(loginUser.getId());
-        if (userIds == null || userIds.isEmpty()){
-            return new ArrayList<>();
+        List<PrivateConversation> conversationList = privateConversationMapper.selectList(
+                new QueryWrapper<PrivateConversation>()
+                        .eq("ownerId", loginUser.getId())
+                        .orderByDesc("lastTime", "id"));
+        return toChatVOList(conversationList);
+    }
+
+    @Override
+    public CursorPage<ChatVO> getChatVOByCursor(PrivateMessageQueryRequest privateMessageQueryRequest, User loginUser) {
+        int pageSize = privateMessageQueryRequest.getPageSize();
+        long[] cursor = CursorUtils.decode(privateMessageQueryRequest.getCursor(), 2);
+        // 按 (ownerId, lastTime) 索引做 (lastTime, id) 倒序键集分页
+        QueryWrapper<PrivateConversation> queryWrapper = new QueryWrapper<PrivateConversation>()
+                .eq("ownerId", loginUser.getId());
+        if (cursor != null) {
+            CursorUtils.applyTimeIdBefore(queryWrapper, "lastTime", cursor[0], cursor[1]);
         }
-        log.info("userIds: {}", userIds);
-        // 批量查询用户信息
-        List<UserVO> userVOList = userService.getUserVO(userService.listByIds(userIds));
-       List<ChatVO> chatVOList = userVOList.stream()
-                .map(userVO ->{
-                    ChatVO chatVO = new ChatVO();
-                    chatVO.setChatUserId(userVO.getId());
-                    chatVO.setChatUser(userVO);
-                    chatVO.setLastMessage(this.getBaseMapper().getLatestMessage( userVO.getId(),loginUser.getId()));
-                    chatVO.setUnreadCount(this.getBaseMapper().getUnreadCountByUser(userVO.getId(),loginUser.getId()));
-                    return chatVO;
-                }).collect(Collectors.toList());
-       return chatVOList;
+        queryWrapper.orderByDesc("lastTime", "id").last("limit " + (pageSize + 1));
+        return CursorUtils.toCursorPage(privateConversationMapper.selectList(queryWrapper), pageSize,
+                conversation -> CursorUtils.encode(conversation.getLastTime().getTime(), conversation.getId()),
+                this::toChatVOList);
     }
 
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public boolean markAsRead(Long Id, Long loginUserId) {
+        PrivateMessage privateMessage = this.getById(Id);
+        if (privateMessage == null || !privateMessage.getToUserId().equals(loginUserId)) {
+            return false;
+        }
         UpdateWrapper<PrivateMessage> updateWrapper = new UpdateWrapper<>();
         updateWrapper.eq("id",Id)
                 .eq("toUserId",loginUserId)
+                .eq("isRead", MessageConstant.MESSAGE_UNREAD)
                 .set("isRead", MessageConstant.MESSAGE_READ);
-        return this.update(updateWrapper);
+        // 只有这次由未读变为已读才减少会话未读数
+        if (this.update(updateWrapper)) {
+            privateConversationMapper.decrUnread(loginUserId, privateMessage.getFromUserId(), 1);
+        }
+        return true;
     }
 
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public boolean recallMessage(Long Id, Long loginUserId) {
         // 查询消息
         PrivateMessage privateMessage = this.getById(Id);
@@ -140,15 +182,22 @@ public class PrivateMessageServiceImpl extends ServiceImpl<PrivateMessageMapper,
             throw  new BusinessException(ErrorCode.OPERATION_ERROR,"消息发送超过2分钟，不能撤回");
         }
         privateMessage.setIsRecalled(MessageConstant.MESSAGE_RECALLED);
-        return this.updateById(privateMessage);
+        boolean result = this.updateById(privateMessage);
+        if (result) {
+            privateConversationMapper.markLastRecalled(Id);
+            messagePushManager.push(privateMessage.getToUserId(), PushConstant.TYPE_PRIVATE_MESSAGE_RECALL,
+                    PrivateMessageVO.objToVo(privateMessage));
+        }
+        return result;
     }
 
     @Override
     public Long getUnreadCount(Long loginUserId) {
-        return this.getBaseMapper().getAllUnreadCount(loginUserId);
+        return privateConversationMapper.sumUnread(loginUserId);
     }
 
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public Page<PrivateMessageVO> getChatHistory(PrivateMessageQueryRequest privateMessageQueryRequest, User loginUser) {
         Page<PrivateMessage> page = new Page<>(privateMessageQueryRequest.getCurrent(), privateMessageQueryRequest.getPageSize());
         QueryWrapper<PrivateMessage> queryWrapper = new QueryWrapper<>();
@@ -165,14 +214,46 @@ public class PrivateMessageServiceImpl extends ServiceImpl<PrivateMessageMapper,
             return new Page<>();
         }
 
-        // 构建用户VO的Map，私聊只涉及两个用户
+        Page<PrivateMessageVO> privateMessageVOPage = new Page<>(page.getCurrent(), page.getSize(), page.getTotal());
+        privateMessageVOPage.setRecords(toPrivateMessageVOList(privateMessagePage.getRecords(), loginUser,
+                privateMessageQueryRequest.getChatUserId()));
+
+        // 将对方发送给当前用户的未读消息标记为已读
+        markChatAsRead(loginUser.getId(), privateMessageQueryRequest.getChatUserId());
+
+        return privateMessageVOPage;
+
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public CursorPage<PrivateMessageVO> getChatHistoryByCursor(PrivateMessageQueryRequest privateMessageQueryRequest, User loginUser) {
+        Long chatUserId = privateMessageQueryRequest.getChatUserId();
+        int pageSize = privateMessageQueryRequest.getPageSize();
+        long[] cursor = CursorUtils.decode(privateMessageQueryRequest.getCursor(), 2);
+        // 两个方向分别命中 (fromUserId, toUserId, createTime, id) 索引
+        QueryWrapper<PrivateMessage> queryWrapper = new QueryWrapper<>();
+        queryWrapper.and(qw -> qw.and(w -> w.eq("fromUserId", loginUser.getId()).eq("toUserId", chatUserId))
+                .or(w -> w.eq("fromUserId", chatUserId).eq("toUserId", loginUser.getId())));
+        CursorUtils.applyTimeIdCursor(queryWrapper, cursor, pageSize);
+        List<PrivateMessage> privateMessageList = this.list(queryWrapper);
+        // 只在打开会话（第一页）时标记已读
+        if (cursor == null) {
+            markChatAsRead(loginUser.getId(), chatUserId);
+        }
+        return CursorUtils.toCursorPage(privateMessageList, pageSize,
+                privateMessage -> CursorUtils.encode(privateMessage.getCreateTime().getTime(), privateMessage.getId()),
+                pageList -> toPrivateMessageVOList(pageList, loginUser, chatUserId));
+    }
+
+    /**
+     * 转换聊天记录视图，私聊只涉及两个用户
+     */
+    private List<PrivateMessageVO> toPrivateMessageVOList(List<PrivateMessage> privateMessageList, User loginUser, Long chatUserId) {
         Map<Long, UserVO> userVOMap = new HashMap<>();
         userVOMap.put(loginUser.getId(), userService.getUserVO(loginUser));
-        userVOMap.put(privateMessageQueryRequest.getChatUserId(),
-                userService.getUserVO(userService.getById(privateMessageQueryRequest.getChatUserId())));
-
-        // 转换为VO
-        List<PrivateMessageVO> privateMessageVOList = privateMessagePage.getRecords().stream()
+        userVOMap.put(chatUserId, userService.getUserVO(userService.getById(chatUserId)));
+        return privateMessageList.stream()
                 .map(privateMessage -> {
                     PrivateMessageVO privateMessageVO = PrivateMessageVO.objToVo(privateMessage);
                     privateMessageVO.setFromUser(userVOMap.get(privateMessage.getFromUserId()));
@@ -180,22 +261,62 @@ public class PrivateMessageServiceImpl extends ServiceImpl<PrivateMessageMapper,
                     return privateMessageVO;
                 })
                 .collect(Collectors.toList());
+    }
 
-        Page<PrivateMessageVO> privateMessageVOPage = new Page<>(page.getCurrent(), page.getSize(), page.getTotal());
-        privateMessageVOPage.setRecords(privateMessageVOList);
-
-        // 将对方发送给当前用户的未读消息标记为已读
+    /**
+     * 将对方发送给当前用户的未读消息标记为已读
+     */
+    private void markChatAsRead(Long loginUserId, Long chatUserId) {
         UpdateWrapper<PrivateMessage> updateWrapper = new UpdateWrapper<>();
-        updateWrapper.eq("fromUserId", privateMessageQueryRequest.getChatUserId())
-                .eq("toUserId", loginUser.getId())
+        updateWrapper.eq("fromUserId", chatUserId)
+                .eq("toUserId", loginUserId)
                 .eq("isRead", MessageConstant.MESSAGE_UNREAD)
                 .set("isRead", MessageConstant.MESSAGE_READ);
-        this.update(updateWrapper);
-
-        log.info("用户 {} 查看与用户 {} 的聊天记录，已将未读消息标记为已读",
-                loginUser.getId(), privateMessageQueryRequest.getChatUserId());
+        // 按实际标记的条数减少未读数，不直接清零，避免覆盖并发送达的新消息
+        int readCount = this.getBaseMapper().update(null, updateWrapper);
+        if (readCount > 0) {
+            privateConversationMapper.decrUnread(loginUserId, chatUserId, readCount);
+        }
+        log.info("用户 {} 查看与用户 {} 的聊天记录，已将未读消息标记为已读", loginUserId, chatUserId);
+    }
 
-        return privateMessageVOPage;
+    private PrivateConversation toConversation(Long ownerId, Long peerId, PrivateMessage privateMessage, int unreadCount) {
+        PrivateConversation conversation = new PrivateConversation();
+        conversation.setOwnerId(ownerId);
+        conversation.setPeerId(peerId);
+        conversation.setLastMessageId(privateMessage.getId());
+        conversation.setLastFromUserId(privateMessage.getFromUserId());
+        conversation.setLastContent(StringUtils.left(privateMessage.getContent(), LAST_CONTENT_MAX_LENGTH));
+        conversation.setLastMessageType(ObjectUtils.defaultIfNull(privateMessage.getMessageType(),
+                MessageConstant.MESSAGE_TYPE_TEXT));
+        conversation.setLastIsRecalled(MessageConstant.MESSAGE_NOT_RECALLED);
+        conversation.setLastTime(privateMessage.getCreateTime() == null ? new Date() : privateMessage.getCreateTime());
+        conversation.setUnreadCount(unreadCount);
+        return conversation;
+    }
 
+    /**
+     * 会话转聊天列表视图，聊天对象批量查询
+     */
+    private List<ChatVO> toChatVOList(List<PrivateConversation> conversationList) {
+        if (conversationList.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Long> peerIdList = conversationList.stream().map(PrivateConversation::getPeerId).collect(Collectors.toList());
+        Map<Long, UserVO> userVOMap = userService.getUserVO(userService.listByIds(peerIdList)).stream()
+                .collect(Collectors.toMap(UserVO::getId, userVO -> userVO));
+        return conversationList.stream().map(conversation -> {
+            ChatVO chatVO = new ChatVO();
+            chatVO.setChatUserId(conversation.getPeerId());
+            chatVO.setChatUser(userVOMap.get(conversation.getPeerId()));
+            LastMessage lastMessage = new LastMessage();
+            lastMessage.setContent(conversation.getLastContent());
+            lastMessage.setMessageType(conversation.getLastMessageType());
+            lastMessage.setIsRecalled(conversation.getLastIsRecalled());
+            lastMessage.setCreateTime(conversation.getLastTime());
+            chatVO.setLastMessage(lastMessage);
+            chatVO.setUnreadCount(conversation.getUnreadCount().longValue());
+            return chatVO;
+        }).collect(Collectors.toList());
     }
 }
@@ -2,15 +2,25 @@ package com.caden.campcircle.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.caden.campcircle.common.CursorPage;
 import com.caden.campcircle.common.ErrorCode;
 import com.caden.campcircle.constant.MessageConstant;
+import com.caden.campcircle.constant.PushConstant;
 import com.caden.campcircle.exception.ThrowUtils;
+import com.caden.campcircle.manager.NotificationAggregateManager;
+import com.caden.campcircle.manager.NotificationAggregateManager.AggregateEvent;
+import com.caden.campcircle.manager.SystemMessageUnreadManager;
+import com.caden.campcircle.manager.lock.LockManager;
+import com.caden.campcircle.manager.push.MessagePushManager;
 import com.caden.campcircle.mapper.SystemMessageMapper;
+import com.caden.campcircle.mapper.SystemMessageWatermarkMapper;
 import com.caden.campcircle.model.dto.systemmessage.SystemMessageQueryRequest;
 import com.caden.campcircle.model.entity.Post;
 import com.caden.campcircle.model.entity.SystemMessage;
+import com.caden.campcircle.model.entity.SystemMessageWatermark;
 import com.caden.campcircle.model.entity.User;
 import com.caden.campcircle.model.vo.PostVO;
 import com.caden.campcircle.model.vo.SystemMessageVO;
@@ -18,13 +28,20 @@ import com.caden.campcircle.model.vo.UserVO;
 import com.caden.campcircle.service.PostService;
 import com.caden.campcircle.service.SystemMessageService;
 import com.caden.campcircle.service.UserService;
+import com.caden.campcircle.utils.CursorUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.BeanUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.annotation.Resource;
 import javax.servlet.http.HttpServletRequest;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -46,6 +63,87 @@ public class SystemMessageServiceImpl extends ServiceImpl<SystemMessageMapper, S
     @Resource
     private PostService postService;
 
+    @Resource
+    private MessagePushManager messagePushManager;
+
+    @Resource
+    private SystemMessageUnreadManager systemMessageUnreadManager;
+
+    @Resource
+    private SystemMessageWatermarkMapper systemMessageWatermarkMapper;
+
+    @Resource
+    private NotificationAggregateManager notificationAggregateManager;
+
+    @Resource
+    private JdbcTemplate jdbcTemplate;
+
+    @Resource
+    private TransactionTemplate transactionTemplate;
+
+    @Resource
+    private LockManager lockManager;
+
+    /**
+     * 保存消息，未读的个人消息同时累加接收方未读数；全局消息只存一行，接收用户为 0
+     */
+    @Override
+    public boolean save(SystemMessage systemMessage) {
+        boolean global = MessageConstant.SYSTEM_MESSAGE_GLOBAL.equals(systemMessage.getIsGlobal());
+        if (global) {
+            systemMessage.setToUserId(MessageConstant.ALL_USERS_TARGET_ID);
+        }
+        boolean result = super.save(systemMessage);
+        if (!result) {
+            return false;
+        }
+        if (global) {
+            systemMessageUnreadManager.onGlobalChanged();
+        } else if (systemMessage.getToUserId() != null
+                && MessageConstant.SYSTEM_MESSAGE_STATUS_UNREAD.equals(systemMessage.getStatus())) {
+            systemMessageUnreadManager.incr(systemMessage.getToUserId(), systemMessage.getType());
+        }
+        return true;
+    }
+
+    /**
+     * 更新消息（管理员），接收用户、类型、状态都可能变化，涉及用户的未读数缓存失效后从数据库重新加载
+     */
+    @Override
+    public boolean updateById(SystemMessage systemMessage) {
+        SystemMessage oldSystemMessage = systemMessage.getId() == null ? null : this.getById(systemMessage.getId());
+        if (MessageConstant.SYSTEM_MESSAGE_GLOBAL.equals(systemMessage.getIsGlobal())) {
+            systemMessage.setToUserId(MessageConstant.ALL_USERS_TARGET_ID);
+        }
+        boolean result = super.updateById(systemMessage);
+        if (!result || oldSystemMessage == null) {
+            return result;
+        }
+        if (MessageConstant.SYSTEM_MESSAGE_GLOBAL.equals(oldSystemMessage.getIsGlobal())
+                || MessageConstant.SYSTEM_MESSAGE_GLOBAL.equals(systemMessage.getIsGlobal())) {
+            systemMessageUnreadManager.onGlobalChanged();
+        }
+        systemMessageUnreadManager.invalidate(oldSystemMessage.getToUserId());
+        if (systemMessage.getToUserId() != null && !systemMessage.getToUserId().equals(oldSystemMessage.getToUserId())) {
+            systemMessageUnreadManager.invalidate(systemMessage.getToUserId());
+        }
+        return true;
+    }
+
+    /**
+     * 删除消息，删除全局消息时通知各节点刷新全局消息 id
+     */
+    @Override
+    public boolean removeById(Serializable id) {
+        SystemMessage systemMessage = this.getById(id);
+        boolean result = super.removeById(id);
+        if (result && systemMessage != null
+                && MessageConstant.SYSTEM_MESSAGE_GLOBAL.equals(systemMessage.getIsGlobal())) {
+            systemMessageUnreadManager.onGlobalChanged();
+        }
+        return result;
+    }
+
     @Override
     public void validSystemMessage(SystemMessage systemMessage, boolean add) {
         if (systemMessage == null) {
@@ -102,7 +200,23 @@ public class SystemMessageServiceImpl extends ServiceImpl<SystemMessageMapper, S
 
         queryWrapper.eq(id != null, "id", id);
         queryWrapper.eq(fromUserId != null, "fromUserId", fromUserId);
-        queryWrapper.eq(toUserId != null, "toUserId", toUserId);
+        if (toUserId != null && isGlobal == null) {
+            // 个人消息和全局消息一起查询，走 (toUserId, createTime) 索引；全局消息的已读状态由水位决定
+            if (status == null) {
+                queryWrapper.in("toUserId", toUserId, MessageConstant.ALL_USERS_TARGET_ID);
+            } else {
+                long watermark = systemMessageUnreadManager.getGlobalWatermark(toUserId);
+                boolean unread = MessageConstant.SYSTEM_MESSAGE_STATUS_UNREAD.equals(status);
+                queryWrapper.and(wrapper -> wrapper
+                        .and(personal -> personal.eq("toUserId", toUserId).eq("status", status))
+                        .or(global -> global.eq("toUserId", MessageConstant.ALL_USERS_TARGET_ID)
+                                .gt(unread, "id", watermark)
+                                .le(!unread, "id", watermark)));
+            }
+        } else {
+            queryWrapper.eq(toUserId != null, "toUserId", toUserId);
+            queryWrapper.eq(status != null, "status", status);
+        }
         queryWrapper.like(StringUtils.isNotBlank(title), "title", title);
 
         // 支持单个类型查询和多个类型查询
@@ -114,7 +228,6 @@ public class SystemMessageServiceImpl extends ServiceImpl<SystemMessageMapper, S
 
         queryWrapper.eq(postId != null, "postId", postId);
         queryWrapper.eq(commentId != null, "commentId", commentId);
-        queryWrapper.eq(status != null, "status", status);
         queryWrapper.eq(isGlobal != null, "isGlobal", isGlobal);
         queryWrapper.eq("isDelete", false);
         queryWrapper.orderBy(StringUtils.isNotBlank(sortField),
@@ -145,7 +258,7 @@ public class SystemMessageServiceImpl extends ServiceImpl<SystemMessageMapper, S
         }
         
         // 获取接收用户信息
-        if (systemMessage.getToUserId() != null) {
+        if (systemMessage.getToUserId() != null && systemMessage.getToUserId() > 0) {
             User toUser = userService.getById(systemMessage.getToUserId());
             UserVO toUserVO = userService.getUserVO(toUser);
             systemMessageVO.setToUser(toUserVO);
@@ -159,7 +272,8 @@ public class SystemMessageServiceImpl extends ServiceImpl<SystemMessageMapper, S
                 systemMessageVO.setPost(postVO);
             }
         }
-        
+
+        fillGlobalReadStatus(Collections.singletonList(systemMessageVO), request);
         return systemMessageVO;
     }
 
@@ -186,8 +300,10 @@ public class SystemMessageServiceImpl extends ServiceImpl<SystemMessageMapper, S
                 .map(SystemMessage::getPostId)
                 .filter(id -> id != null && id > 0)
                 .collect(Collectors.toSet());
-        Map<Long, List<Post>> postIdPostListMap = postService.listByIds(postIdSet).stream()
-                .collect(Collectors.groupingBy(Post::getId));
+        List<Post> postList = postIdSet.isEmpty() ? new ArrayList<>() : postService.listByIds(postIdSet);
+        // 整页帖子统一封装，图片、作者、互动状态按批次查询
+        Map<Long, PostVO> postIdPostVOMap = postService.getPostVOList(postList, request).stream()
+                .collect(Collectors.toMap(PostVO::getId, postVO -> postVO, (a, b) -> a));
         
         // 3. 填充信息
         List<SystemMessageVO> systemMessageVOList = systemMessageList.stream().map(systemMessage -> {
@@ -220,20 +336,39 @@ public class SystemMessageServiceImpl extends ServiceImpl<SystemMessageMapper, S
             
             // 设置关联帖子信息
             if (systemMessage.getPostId() != null) {
-                List<Post> postList = postIdPostListMap.get(systemMessage.getPostId());
-                if (postList != null && !postList.isEmpty()) {
-                    PostVO postVO = postService.getPostVO(postList.get(0), request);
+                PostVO postVO = postIdPostVOMap.get(systemMessage.getPostId());
+                if (postVO != null) {
                     systemMessageVO.setPost(postVO);
                 }
             }
             
             return systemMessageVO;
         }).collect(Collectors.toList());
-        
+
+        fillGlobalReadStatus(systemMessageVOList, request);
         systemMessageVOPage.setRecords(systemMessageVOList);
         return systemMessageVOPage;
     }
 
+    @Override
+    public CursorPage<SystemMessageVO> listSystemMessageVOByCursor(SystemMessageQueryRequest systemMessageQueryRequest,
+                                                                   HttpServletRequest request) {
+        int pageSize = systemMessageQueryRequest.getPageSize();
+        long[] cursor = CursorUtils.decode(systemMessageQueryRequest.getCursor(), 2);
+        // 游标模式固定按 (createTime, id) 倒序
+        systemMessageQueryRequest.setSortField(null);
+        QueryWrapper<SystemMessage> queryWrapper = getQueryWrapper(systemMessageQueryRequest);
+        queryWrapper.orderByDesc("id");
+        if (cursor != null) {
+            CursorUtils.applyTimeIdBefore(queryWrapper, "createTime", cursor[0], cursor[1]);
+        }
+        queryWrapper.last("limit " + (pageSize + 1));
+        List<SystemMessage> systemMessageList = this.list(queryWrapper);
+        return CursorUtils.toCursorPage(systemMessageList, pageSize,
+                systemMessage -> CursorUtils.encode(systemMessage.getCreateTime().getTime(), systemMessage.getId()),
+                pageList -> getSystemMessageVOPage(new Page<SystemMessage>().setRecords(pageList), request).getRecords());
+    }
+
     @Override
     public boolean sendSystemNotification(String title, String content, Long toUserId) {
         SystemMessage systemMessage = new SystemMessage();
@@ -246,13 +381,13 @@ public class SystemMessageServiceImpl extends ServiceImpl<SystemMessageMapper, S
         if (toUserId == null) {
             // 全局消息，发送给所有用户
             systemMessage.setIsGlobal(MessageConstant.SYSTEM_MESSAGE_GLOBAL);
-            systemMessage.setToUserId(null);
-            return this.save(systemMessage);
+            systemMessage.setToUserId(MessageConstant.ALL_USERS_TARGET_ID);
+            return saveAndPush(systemMessage);
         } else {
             // 发送给指定用户
             systemMessage.setIsGlobal(MessageConstant.SYSTEM_MESSAGE_NOT_GLOBAL);
             systemMessage.setToUserId(toUserId);
-            return this.save(systemMessage);
+            return saveAndPush(systemMessage);
         }
     }
 
@@ -273,7 +408,10 @@ public class SystemMessageServiceImpl extends ServiceImpl<SystemMessageMapper, S
         systemMessage.setStatus(MessageConstant.SYSTEM_MESSAGE_STATUS_UNREAD); // 未读
         systemMessage.setIsGlobal(MessageConstant.SYSTEM_MESSAGE_NOT_GLOBAL);
 
-        return this.save(systemMessage);
+        // 按 (接收用户, 类型, 帖子) 缓冲，窗口结束后合并写库
+        notificationAggregateManager.add(MessageConstant.SYSTEM_MESSAGE_TYPE_THUMB, fromUserId, toUserId, postId,
+                () -> saveAndPush(systemMessage));
+        return true;
     }
 
     @Override
@@ -293,7 +431,10 @@ public class SystemMessageServiceImpl extends ServiceImpl<SystemMessageMapper, S
         systemMessage.setStatus(MessageConstant.SYSTEM_MESSAGE_STATUS_UNREAD); // 未读
         systemMessage.setIsGlobal(MessageConstant.SYSTEM_MESSAGE_NOT_GLOBAL);
 
-        return this.save(systemMessage);
+        // 按 (接收用户, 类型, 帖子) 缓冲，窗口结束后合并写库
+        notificationAggregateManager.add(MessageConstant.SYSTEM_MESSAGE_TYPE_FAVOUR, fromUserId, toUserId, postId,
+                () -> saveAndPush(systemMessage));
+        return true;
     }
 
     @Override
@@ -314,7 +455,7 @@ public class SystemMessageServiceImpl extends ServiceImpl<SystemMessageMapper, S
         systemMessage.setStatus(MessageConstant.SYSTEM_MESSAGE_STATUS_UNREAD); // 未读
         systemMessage.setIsGlobal(MessageConstant.SYSTEM_MESSAGE_NOT_GLOBAL);
 
-        return this.save(systemMessage);
+        return saveAndPush(systemMessage);
     }
 
     @Override
@@ -333,17 +474,58 @@ public class SystemMessageServiceImpl extends ServiceImpl<SystemMessageMapper, S
         systemMessage.setStatus(MessageConstant.SYSTEM_MESSAGE_STATUS_UNREAD); // 未读
         systemMessage.setIsGlobal(MessageConstant.SYSTEM_MESSAGE_NOT_GLOBAL);
 
-        return this.save(systemMessage);
+        // 按 (接收用户, 类型, 帖子) 缓冲，窗口结束后合并写库
+        notificationAggregateManager.add(MessageConstant.SYSTEM_MESSAGE_TYPE_FOLLOW, fromUserId, toUserId, null,
+                () -> saveAndPush(systemMessage));
+        return true;
+    }
+
+    @Override
+    public int flushAggregateNotification(int batchSize) {
+        // 同一节点内串行写库；锁模式为 local 时多个节点仍可能并发，同一聚合键的重复插入由未读聚合键唯一索引合并
+        return lockManager.executeWithLock(MessageConstant.NOTIFICATION_AGGREGATE_FLUSH_LOCK_KEY, () -> {
+            List<AggregateEvent> aggregateEventList = notificationAggregateManager.drain(batchSize);
+            if (aggregateEventList.isEmpty()) {
+                return 0;
+            }
+            try {
+                // 一批在同一事务中写库，失败时整批回滚后全部放回
+                transactionTemplate.executeWithoutResult(status -> saveAggregateNotification(aggregateEventList));
+            } catch (Exception e) {
+                log.error("聚合通知写库失败，放回下个窗口重试", e);
+                notificationAggregateManager.restore(aggregateEventList);
+                return 0;
+            }
+            return aggregateEventList.size();
+        });
     }
 
     @Override
     public boolean markAsRead(Long messageId, Long userId) {
+        QueryWrapper<SystemMessage> queryWrapper = new QueryWrapper<>();
+        queryWrapper.select("id", "type", "status", "isGlobal");
+        queryWrapper.eq("id", messageId);
+        queryWrapper.in("toUserId", userId, MessageConstant.ALL_USERS_TARGET_ID);
+        SystemMessage systemMessage = this.getOne(queryWrapper);
+        if (systemMessage == null) {
+            return false;
+        }
+        if (MessageConstant.SYSTEM_MESSAGE_GLOBAL.equals(systemMessage.getIsGlobal())) {
+            // 全局消息推进已读水位，更早的全局消息一并视为已读
+            advanceGlobalWatermark(userId, messageId);
+            return true;
+        }
+        if (!MessageConstant.SYSTEM_MESSAGE_STATUS_UNREAD.equals(systemMessage.getStatus())) {
+            return true;
+        }
         UpdateWrapper<SystemMessage> updateWrapper = new UpdateWrapper<>();
         updateWrapper.eq("id", messageId);
-        updateWrapper.eq("toUserId", userId);
+        updateWrapper.eq("status", MessageConstant.SYSTEM_MESSAGE_STATUS_UNREAD); // 并发标记时只有一个请求扣减未读数
         updateWrapper.set("status", MessageConstant.SYSTEM_MESSAGE_STATUS_READ); // 已读
-
-        return this.update(updateWrapper);
+        if (this.getBaseMapper().update(null, updateWrapper) > 0) {
+            systemMessageUnreadManager.decr(userId, systemMessage.getType(), 1);
+        }
+        return true;
     }
 
     @Override
@@ -356,20 +538,25 @@ public class SystemMessageServiceImpl extends ServiceImpl<SystemMessageMapper, S
         }
         updateWrapper.set("status", MessageConstant.SYSTEM_MESSAGE_STATUS_READ); // 已读
 
-        return this.getBaseMapper().update(null, updateWrapper);
+        int count = this.getBaseMapper().update(null, updateWrapper);
+        if (type != null) {
+            systemMessageUnreadManager.decr(userId, type, count);
+        } else {
+            systemMessageUnreadManager.reset(userId, null);
+        }
+        if (type == null || MessageConstant.SYSTEM_MESSAGE_TYPE_SYSTEM.equals(type)) {
+            count += markAllGlobalAsRead(userId);
+        }
+        return count;
     }
 
     @Override
     public long getUnreadCount(Long userId, Integer type) {
-        QueryWrapper<SystemMessage> queryWrapper = new QueryWrapper<>();
-        queryWrapper.eq("toUserId", userId);
-        queryWrapper.eq("status", MessageConstant.MESSAGE_UNREAD); // 未读
+        Map<Integer, Long> unreadCountMap = getUnreadCountMap(userId);
         if (type != null) {
-            queryWrapper.eq("type", type);
+            return unreadCountMap.getOrDefault(type, 0L);
         }
-        queryWrapper.eq("isDelete", false);
-
-        return this.count(queryWrapper);
+        return unreadCountMap.values().stream().mapToLong(Long::longValue).sum();
     }
 
     @Override
@@ -377,14 +564,13 @@ public class SystemMessageServiceImpl extends ServiceImpl<SystemMessageMapper, S
         if (types == null || types.isEmpty()) {
             return 0;
         }
+        Map<Integer, Long> unreadCountMap = getUnreadCountMap(userId);
+        return types.stream().distinct().mapToLong(type -> unreadCountMap.getOrDefault(type, 0L)).sum();
+    }
 
-        QueryWrapper<SystemMessage> queryWrapper = new QueryWrapper<>();
-        queryWrapper.eq("toUserId", userId);
-        queryWrapper.eq("status", MessageConstant.NOTIFICATION_UNREAD); // 未读
-        queryWrapper.in("type", types);
-        queryWrapper.eq("isDelete", false);
-
-        return this.count(queryWrapper);
+    @Override
+    public Map<Integer, Long> getUnreadCountMap(Long userId) {
+        return systemMessageUnreadManager.get(userId);
     }
 
     @Override
@@ -399,7 +585,230 @@ public class SystemMessageServiceImpl extends ServiceImpl<SystemMessageMapper, S
         updateWrapper.in("type", types);
         updateWrapper.set("status", MessageConstant.MESSAGE_READ); // 已读
 
-        return this.getBaseMapper().update(null, updateWrapper);
+        int count = this.getBaseMapper().update(null, updateWrapper);
+        // 多个类型时不知道各类型的条数，直接清零，偏差由定期核对修正
+        systemMessageUnreadManager.reset(userId, types);
+        if (types.contains(MessageConstant.SYSTEM_MESSAGE_TYPE_SYSTEM)) {
+            count += markAllGlobalAsRead(userId);
+        }
+        return count;
+    }
+
+    /**
+     * 聚合通知写库：有未读的同类通知时原地累加（批量 UPDATE），否则批量插入新通知
+     */
+    private void saveAggregateNotification(List<AggregateEvent> aggregateEventList) {
+        List<SystemMessage> keyList = aggregateEventList.stream().map(aggregateEvent -> {
+            SystemMessage key = new SystemMessage();
+            key.setToUserId(aggregateEvent.getToUserId());
+            key.setType(aggregateEvent.getType());
+            key.setPostId(aggregateEvent.getPostId());
+            return key;
+        }).collect(Collectors.toList());
+        Map<String, SystemMessage> unreadAggregateMap = this.getBaseMapper().listUnreadAggregate(keyList).stream()
+                .collect(Collectors.toMap(systemMessage -> getAggregateKey(systemMessage.getToUserId(),
+                        systemMessage.getType(), systemMessage.getPostId()), systemMessage -> systemMessage,
+                        (a, b) -> a.getId() > b.getId() ? a : b));
+
+        Date now = new Date();
+        List<SystemMessage> updateList = new ArrayList<>();
+        List<SystemMessage> insertList = new ArrayList<>();
+        for (AggregateEvent aggregateEvent : aggregateEventList) {
+            SystemMessage systemMessage = new SystemMessage();
+            systemMessage.setFromUserId(aggregateEvent.getLastFromUserId());
+            systemMessage.setToUserId(aggregateEvent.getToUserId());
+            systemMessage.setType(aggregateEvent.getType());
+            systemMessage.setTitle(getTypeDesc(aggregateEvent.getType()));
+            systemMessage.setPostId(aggregateEvent.getPostId());
+            systemMessage.setStatus(MessageConstant.SYSTEM_MESSAGE_STATUS_UNREAD);
+            systemMessage.setIsGlobal(MessageConstant.SYSTEM_MESSAGE_NOT_GLOBAL);
+            systemMessage.setCreateTime(now);
+            SystemMessage unreadAggregate = unreadAggregateMap.get(getAggregateKey(aggregateEvent.getToUserId(),
+                    aggregateEvent.getType(), aggregateEvent.getPostId()));
+            // 先记为本窗口的事件数，原地累加时在 SQL 中加上库中的值
+            systemMessage.setAggregateCount(aggregateEvent.getCount());
+            systemMessage.setContent(getAggregateContent(systemMessage.getType(), systemMessage.getAggregateCount()));
+            if (unreadAggregate != null) {
+                systemMessage.setId(unreadAggregate.getId());
+                updateList.add(systemMessage);
+            } else {
+                insertList.add(systemMessage);
+            }
+        }
+
+        List<SystemMessage> pushList = new ArrayList<>();
+        if (!updateList.isEmpty()) {
+            // 在库中的值上累加，只累加仍未读的通知，期间被标记已读的改为新建；MySQL 按顺序赋值，content 先用累加前的值
+            List<Object[]> argList = updateList.stream().map(systemMessage -> {
+                String[] contentParts = getAggregateContentTemplate(systemMessage.getType()).split("%d", 2);
+                int delta = systemMessage.getAggregateCount();
+                return new Object[]{contentParts[0], delta, contentParts[1], delta, systemMessage.getFromUserId(), now,
+                        systemMessage.getId()};
+            }).collect(Collectors.toList());
+            int[] resultArray = jdbcTemplate.batchUpdate("UPDATE system_message SET content = CONCAT(?, aggregateCount + ?, ?), "
+                    + "aggregateCount = aggregateCount + ?, fromUserId = ?, createTime = ? "
+                    + "WHERE id = ? AND status = 0 AND isDelete = 0", argList);
+            List<Long> updatedIdList = new ArrayList<>();
+            for (int i = 0; i < updateList.size(); i++) {
+                SystemMessage systemMessage = updateList.get(i);
+                if (resultArray[i] == 0) {
+                    systemMessage.setId(null);
+                    insertList.add(systemMessage);
+                } else {
+                    updatedIdList.add(systemMessage.getId());
+                }
+            }
+            // 推送累加后的内容
+            if (!updatedIdList.isEmpty()) {
+                pushList.addAll(this.listByIds(updatedIdList));
+            }
+        }
+        if (!insertList.isEmpty()) {
+            List<String> mergedKeyList = new ArrayList<>();
+            for (SystemMessage systemMessage : insertList) {
+                if (insertAggregateNotification(systemMessage, now)) {
+                    systemMessageUnreadManager.incr(systemMessage.getToUserId(), systemMessage.getType());
+                    pushList.add(systemMessage);
+                } else {
+                    mergedKeyList.add(systemMessage.getAggregateKey());
+                }
+            }
+            // 其他节点已插入同一聚合键的未读通知，推送合并后的内容
+            if (!mergedKeyList.isEmpty()) {
+                pushList.addAll(this.list(new QueryWrapper<SystemMessage>().in("aggregateKey", mergedKeyList)
+                        .eq("status", MessageConstant.SYSTEM_MESSAGE_STATUS_UNREAD)));
+            }
+        }
+        pushList.forEach(this::push);
+    }
+
+    /**
+     * 插入聚合通知；其他节点已并发插入同一聚合键的未读通知时（唯一键冲突），在其上累加
+     *
+     * @return 是否新插入
+     */
+    private boolean insertAggregateNotification(SystemMessage systemMessage, Date now) {
+        systemMessage.setId(IdWorker.getId());
+        systemMessage.setAggregateKey(getAggregateKey(systemMessage.getToUserId(), systemMessage.getType(),
+                systemMessage.getPostId()));
+        String[] contentParts = getAggregateContentTemplate(systemMessage.getType()).split("%d", 2);
+        // 新插入影响 1 行，累加到已有行影响 2 行
+        int affected = jdbcTemplate.update("INSERT INTO system_message (id, fromUserId, toUserId, title, content, type, "
+                        + "postId, aggregateCount, aggregateKey, status, isGlobal, createTime) "
+                        + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) "
+                        + "ON DUPLICATE KEY UPDATE content = CONCAT(?, aggregateCount + VALUES(aggregateCount), ?), "
+                        + "aggregateCount = aggregateCount + VALUES(aggregateCount), fromUserId = VALUES(fromUserId), "
+                        + "createTime = VALUES(createTime)",
+                systemMessage.getId(), systemMessage.getFromUserId(), systemMessage.getToUserId(),
+                systemMessage.getTitle(), systemMessage.getContent(), systemMessage.getType(), systemMessage.getPostId(),
+                systemMessage.getAggregateCount(), systemMessage.getAggregateKey(), systemMessage.getStatus(),
+                systemMessage.getIsGlobal(), now, contentParts[0], contentParts[1]);
+        ThrowUtils.throwIf(affected == 0, ErrorCode.OPERATION_ERROR);
+        return affected == 1;
+    }
+
+    private String getAggregateKey(Long toUserId, Integer type, Long postId) {
+        return toUserId + ":" + type + ":" + postId;
+    }
+
+    /**
+     * 聚合通知内容，只有一个事件时与单条通知相同
+     */
+    private String getAggregateContent(Integer type, int aggregateCount) {
+        if (aggregateCount > 1) {
+            return String.format(getAggregateContentTemplate(type), aggregateCount);
+        }
+        if (MessageConstant.SYSTEM_MESSAGE_TYPE_THUMB.equals(type)) {
+            return MessageConstant.THUMB_NOTIFICATION_CONTENT;
+        }
+        if (MessageConstant.SYSTEM_MESSAGE_TYPE_FAVOUR.equals(type)) {
+            return MessageConstant.FAVOUR_NOTIFICATION_CONTENT;
+        }
+        return MessageConstant.FOLLOW_NOTIFICATION_CONTENT;
+    }
+
+    /**
+     * 聚合通知内容模板，%d 为事件数
+     */
+    private String getAggregateContentTemplate(Integer type) {
+        if (MessageConstant.SYSTEM_MESSAGE_TYPE_THUMB.equals(type)) {
+            return MessageConstant.THUMB_NOTIFICATION_AGGREGATE_CONTENT;
+        }
+        if (MessageConstant.SYSTEM_MESSAGE_TYPE_FAVOUR.equals(type)) {
+            return MessageConstant.FAVOUR_NOTIFICATION_AGGREGATE_CONTENT;
+        }
+        return MessageConstant.FOLLOW_NOTIFICATION_AGGREGATE_CONTENT;
+    }
+
+    /**
+     * 全局消息全部标记为已读：水位推进到最新的全局消息
+     *
+     * @return 标记的全局消息数
+     */
+    private int markAllGlobalAsRead(Long userId) {
+        long watermark = systemMessageUnreadManager.getGlobalWatermark(userId);
+        int count = (int) systemMessageUnreadManager.countGlobalAfter(watermark);
+        if (count > 0) {
+            advanceGlobalWatermark(userId, systemMessageUnreadManager.getLatestGlobalId());
+        }
+        return count;
+    }
+
+    /**
+     * 推进全局消息已读水位（只增不减），并同步到未读数缓存
+     */
+    private void advanceGlobalWatermark(Long userId, long globalId) {
+        systemMessageWatermarkMapper.advance(userId, globalId);
+        SystemMessageWatermark systemMessageWatermark = systemMessageWatermarkMapper.selectById(userId);
+        systemMessageUnreadManager.setWatermark(userId, systemMessageWatermark.getLastReadGlobalId());
+    }
+
+    /**
+     * 全局消息按当前用户的已读水位设置已读状态
+     */
+    private void fillGlobalReadStatus(List<SystemMessageVO> systemMessageVOList, HttpServletRequest request) {
+        if (request == null || systemMessageVOList.stream()
+                .noneMatch(systemMessageVO -> MessageConstant.SYSTEM_MESSAGE_GLOBAL.equals(systemMessageVO.getIsGlobal()))) {
+            return;
+        }
+        User loginUser = userService.getLoginUserPermitNull(request);
+        if (loginUser == null) {
+            return;
+        }
+        long watermark = systemMessageUnreadManager.getGlobalWatermark(loginUser.getId());
+        for (SystemMessageVO systemMessageVO : systemMessageVOList) {
+            if (MessageConstant.SYSTEM_MESSAGE_GLOBAL.equals(systemMessageVO.getIsGlobal())) {
+                systemMessageVO.setStatus(systemMessageVO.getId() <= watermark
+                        ? MessageConstant.SYSTEM_MESSAGE_STATUS_READ : MessageConstant.SYSTEM_MESSAGE_STATUS_UNREAD);
+                systemMessageVO.setStatusDesc(getStatusDesc(systemMessageVO.getStatus()));
+            }
+        }
+    }
+
+    /**
+     * 保存通知并实时推送给接收方（全局消息推送给所有在线用户）
+     */
+    private boolean saveAndPush(SystemMessage systemMessage) {
+        boolean result = this.save(systemMessage);
+        if (result) {
+            push(systemMessage);
+        }
+        return result;
+    }
+
+    /**
+     * 实时推送给接收方（全局消息推送给所有在线用户）
+     */
+    private void push(SystemMessage systemMessage) {
+        SystemMessageVO systemMessageVO = new SystemMessageVO();
+        BeanUtils.copyProperties(systemMessage, systemMessageVO);
+        systemMessageVO.setTypeDesc(getTypeDesc(systemMessage.getType()));
+        systemMessageVO.setStatusDesc(getStatusDesc(systemMessage.getStatus()));
+        if (MessageConstant.SYSTEM_MESSAGE_GLOBAL.equals(systemMessage.getIsGlobal())) {
+            messagePushManager.broadcast(PushConstant.TYPE_NOTIFICATION, systemMessageVO);
+        } else {
+            messagePushManager.push(systemMessage.getToUserId(), PushConstant.TYPE_NOTIFICATION, systemMessageVO);
+        }
     }
 
     /**
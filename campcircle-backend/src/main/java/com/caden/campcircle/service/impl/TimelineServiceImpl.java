@@ -0,0 +1,314 @@
+package com.caden.campcircle.service.impl;
+
+import cn.hutool.core.collection.CollUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.caden.campcircle.common.CursorPage;
+import com.caden.campcircle.common.CursorPageRequest;
+import com.caden.campcircle.constant.TimelineConstant;
+import com.caden.campcircle.mapper.FollowMapper;
+import com.caden.campcircle.mapper.PostMapper;
+import com.caden.campcircle.model.entity.Follow;
+import com.caden.campcircle.model.entity.Post;
+import com.caden.campcircle.model.entity.User;
+import com.caden.campcircle.model.vo.PostVO;
+import com.caden.campcircle.service.PostService;
+import com.caden.campcircle.service.TimelineService;
+import com.caden.campcircle.service.UserService;
+import com.caden.campcircle.utils.CursorUtils;
+import com.caden.campcircle.utils.TransactionUtils;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import javax.annotation.Resource;
+import javax.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+/**
+ * 关注流（时间线）服务实现
+ * <p>
+ * 收件箱为每个用户一个有界 ZSET，只有已存在的收件箱才接收推送，不存在时在读取时从 MySQL 重建；
+ * 粉丝数达到阈值的作者不推送，读取时按同一游标条件拉取后与收件箱归并。
+ * 收件箱裁剪过或重建时达到上限会打上截断标记，读到末尾后按同一游标从 MySQL 继续拉取普通作者的帖子。
+ */
+@Service
+@Slf4j
+public class TimelineServiceImpl implements TimelineService {
+
+    /**
+     * 推送时每批粉丝数
+     */
+    private static final int FANOUT_BATCH_SIZE = 500;
+
+    /**
+     * 推送脚本：只写入已存在的收件箱，并裁剪到上限，裁剪掉帖子时打上截断标记
+     * ARGV[1] 帖子 id，ARGV[2] 发布时间，ARGV[3] 收件箱上限，ARGV[4] 截断标记
+     */
+    private static final DefaultRedisScript<Long> FANOUT_SCRIPT = new DefaultRedisScript<>(
+            "local n = 0\n" +
+            "for i, key in ipairs(KEYS) do\n" +
+            "  if redis.call('EXISTS', key) == 1 then\n" +
+            "    redis.call('ZADD', key, ARGV[2], ARGV[1])\n" +
+            "    if redis.call('ZREMRANGEBYRANK', key, 0, -(tonumber(ARGV[3]) + 2)) > 0 then\n" +
+            "      redis.call('ZADD', key, '+inf', ARGV[4])\n" +
+            "    end\n" +
+            "    n = n + 1\n" +
+            "  end\n" +
+            "end\n" +
+            "return n", Long.class);
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private PostService postService;
+
+    @Resource
+    private UserService userService;
+
+    @Resource
+    private PostMapper postMapper;
+
+    @Resource
+    private FollowMapper followMapper;
+
+    /**
+     * 大V粉丝数阈值，达到后不再推送
+     */
+    @Value("${campcircle.timeline.fanout-threshold:5000}")
+    private Integer fanoutThreshold;
+
+    /**
+     * 收件箱最大条数
+     */
+    @Value("${campcircle.timeline.inbox-max-size:800}")
+    private Integer inboxMaxSize;
+
+    /**
+     * 收件箱过期天数（不活跃用户的收件箱自动回收）
+     */
+    @Value("${campcircle.timeline.inbox-expire-days:7}")
+    private Long inboxExpireDays;
+
+    @Override
+    @Async("taskExecutor")
+    public void publishPost(Long postId) {
+        Post post = postService.getById(postId);
+        if (post == null || !Integer.valueOf(1).equals(post.getIsPublic()) || post.getCreateTime() == null) {
+            return;
+        }
+        User author = userService.getById(post.getUserId());
+        if (author == null || isCelebrity(author)) {
+            return;
+        }
+        String member = String.valueOf(postId);
+        String score = String.valueOf(post.getCreateTime().getTime());
+        String maxSize = String.valueOf(inboxMaxSize);
+        long lastId = 0;
+        long pushed = 0;
+        while (true) {
+            List<Follow> fansList = followMapper.listFansByCursor(author.getId(), lastId, FANOUT_BATCH_SIZE);
+            if (fansList.isEmpty()) {
+                break;
+            }
+            List<String> keyList = fansList.stream().map(follow -> buildInboxKey(follow.getUserId()))
+                    .collect(Collectors.toList());
+            Long count = stringRedisTemplate.execute(FANOUT_SCRIPT, keyList, member, score, maxSize,
+                    TimelineConstant.INBOX_TRUNCATED_MARKER);
+            pushed += count == null ? 0 : count;
+            lastId = fansList.get(fansList.size() - 1).getId();
+            if (fansList.size() < FANOUT_BATCH_SIZE) {
+                break;
+            }
+        }
+        log.info("timeline fanout, postId: {}, authorId: {}, inboxes: {}", postId, author.getId(), pushed);
+    }
+
+    @Override
+    public void resetInbox(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        TransactionUtils.afterCommit(() -> stringRedisTemplate.delete(buildInboxKey(userId)));
+    }
+
+    @Override
+    public CursorPage<PostVO> listFollowFeed(CursorPageRequest cursorPageRequest, HttpServletRequest request) {
+        User loginUser = userService.getLoginUser(request);
+        int pageSize = cursorPageRequest.getPageSize();
+        long[] cursor = CursorUtils.decode(cursorPageRequest.getCursor(), 2);
+        FeedEntry cursorEntry = cursor == null ? null : new FeedEntry(cursor[1], cursor[0]);
+
+        // 1. 收件箱（推）
+        List<FeedEntry> candidateList = new ArrayList<>(listInboxEntry(loginUser.getId(), cursorEntry, pageSize + 1));
+        // 2. 大V（拉）
+        candidateList.addAll(listCelebrityEntry(loginUser.getId(), cursorEntry, pageSize + 1));
+        // 3. 按 (时间, id) 倒序归并去重
+        Map<Long, FeedEntry> mergedMap = new LinkedHashMap<>();
+        candidateList.stream().sorted(FeedEntry.DESC_ORDER)
+                .forEach(entry -> mergedMap.putIfAbsent(entry.getPostId(), entry));
+        List<FeedEntry> entryList = new ArrayList<>(mergedMap.values());
+        boolean hasMore = entryList.size() > pageSize;
+        if (hasMore) {
+            entryList = entryList.subList(0, pageSize);
+        }
+        if (entryList.isEmpty()) {
+            return new CursorPage<>();
+        }
+        FeedEntry last = entryList.get(entryList.size() - 1);
+        String nextCursor = hasMore ? CursorUtils.encode(last.getTime(), last.getPostId()) : null;
+
+        // 4. 回表，剔除已删除或转为私密的帖子
+        List<Long> postIdList = entryList.stream().map(FeedEntry::getPostId).collect(Collectors.toList());
+        Map<Long, Post> postMap = postService.listByIds(postIdList).stream()
+                .collect(Collectors.toMap(Post::getId, Function.identity(), (a, b) -> a));
+        List<Post> postList = new ArrayList<>();
+        List<String> staleMemberList = new ArrayList<>();
+        for (Long postId : postIdList) {
+            Post post = postMap.get(postId);
+            if (post == null || !Integer.valueOf(1).equals(post.getIsPublic())) {
+                staleMemberList.add(String.valueOf(postId));
+            } else {
+                postList.add(post);
+            }
+        }
+        if (!staleMemberList.isEmpty()) {
+            stringRedisTemplate.opsForZSet().remove(buildInboxKey(loginUser.getId()), staleMemberList.toArray());
+        }
+        return new CursorPage<>(postService.getPostVOList(postList, request), nextCursor);
+    }
+
+    /**
+     * 读取收件箱中游标之后的条目，收件箱不存在时重建；已截断的收件箱读到末尾时从 MySQL 按同一游标补足
+     */
+    private List<FeedEntry> listInboxEntry(Long userId, FeedEntry cursorEntry, int limit) {
+        String key = buildInboxKey(userId);
+        if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(key))) {
+            stringRedisTemplate.expire(key, inboxExpireDays, TimeUnit.DAYS);
+        } else {
+            rebuildInbox(userId);
+        }
+        double max = cursorEntry == null ? Double.MAX_VALUE : cursorEntry.getTime();
+        // 同一时间戳可能有多条已返回的帖子，多取一些再按 id 过滤
+        Set<ZSetOperations.TypedTuple<String>> tupleSet = stringRedisTemplate.opsForZSet()
+                .reverseRangeByScoreWithScores(key, 0, max, 0, limit * 2L);
+        List<FeedEntry> entryList = new ArrayList<>();
+        if (CollUtil.isNotEmpty(tupleSet)) {
+            for (ZSetOperations.TypedTuple<String> tuple : tupleSet) {
+                if (TimelineConstant.INBOX_PLACEHOLDER.equals(tuple.getValue())
+                        || TimelineConstant.INBOX_TRUNCATED_MARKER.equals(tuple.getValue()) || tuple.getScore() == null) {
+                    continue;
+                }
+                FeedEntry entry = new FeedEntry(Long.parseLong(tuple.getValue()), tuple.getScore().longValue());
+                if (cursorEntry == null || FeedEntry.DESC_ORDER.compare(entry, cursorEntry) > 0) {
+                    entryList.add(entry);
+                }
+            }
+        }
+        // 收件箱中游标之后不足一页，且更早的帖子已被裁剪：按同一游标回源，与收件箱条目在归并时去重
+        if (entryList.size() < limit
+                && stringRedisTemplate.opsForZSet().score(key, TimelineConstant.INBOX_TRUNCATED_MARKER) != null) {
+            Date cursorTime = cursorEntry == null ? null : new Date(cursorEntry.getTime());
+            Long cursorId = cursorEntry == null ? null : cursorEntry.getPostId();
+            for (Post post : postMapper.listRecentFollowPost(userId, fanoutThreshold, cursorTime, cursorId, limit)) {
+                entryList.add(new FeedEntry(post.getId(), post.getCreateTime().getTime()));
+            }
+        }
+        return entryList;
+    }
+
+    /**
+     * 拉取关注的大V在游标之后的帖子
+     */
+    private List<FeedEntry> listCelebrityEntry(Long userId, FeedEntry cursorEntry, int limit) {
+        List<Long> celebrityIdList = followMapper.listCelebrityFollowUserId(userId, fanoutThreshold);
+        if (celebrityIdList.isEmpty()) {
+            return Collections.emptyList();
+        }
+        QueryWrapper<Post> queryWrapper = new QueryWrapper<>();
+        queryWrapper.select("id", "createTime")
+                .in("userId", celebrityIdList)
+                .eq("isPublic", 1);
+        if (cursorEntry != null) {
+            Date cursorTime = new Date(cursorEntry.getTime());
+            queryWrapper.and(qw -> qw.lt("createTime", cursorTime)
+                    .or(w -> w.eq("createTime", cursorTime).lt("id", cursorEntry.getPostId())));
+        }
+        queryWrapper.orderByDesc("createTime", "id").last("limit " + limit);
+        return postService.list(queryWrapper).stream()
+                .map(post -> new FeedEntry(post.getId(), post.getCreateTime().getTime()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 从 MySQL 重建收件箱（只包含普通作者的公开帖子）
+     */
+    private void rebuildInbox(Long userId) {
+        String key = buildInboxKey(userId);
+        List<Post> postList = postMapper.listRecentFollowPost(userId, fanoutThreshold, null, null, inboxMaxSize);
+        Set<ZSetOperations.TypedTuple<String>> tupleSet = new HashSet<>();
+        tupleSet.add(new DefaultTypedTuple<>(TimelineConstant.INBOX_PLACEHOLDER, Double.POSITIVE_INFINITY));
+        if (postList.size() >= inboxMaxSize) {
+            // 达到上限说明可能还有更早的帖子未载入
+            tupleSet.add(new DefaultTypedTuple<>(TimelineConstant.INBOX_TRUNCATED_MARKER, Double.POSITIVE_INFINITY));
+        }
+        for (Post post : postList) {
+            tupleSet.add(new DefaultTypedTuple<>(String.valueOf(post.getId()), (double) post.getCreateTime().getTime()));
+        }
+        stringRedisTemplate.opsForZSet().add(key, tupleSet);
+        stringRedisTemplate.expire(key, inboxExpireDays, TimeUnit.DAYS);
+        log.info("timeline inbox rebuilt, userId: {}, size: {}", userId, postList.size());
+    }
+
+    private boolean isCelebrity(User user) {
+        return user.getFansNum() != null && user.getFansNum() >= fanoutThreshold;
+    }
+
+    private String buildInboxKey(Long userId) {
+        return TimelineConstant.INBOX_KEY_PREFIX + userId;
+    }
+
+    /**
+     * 关注流条目
+     */
+    private static class FeedEntry {
+
+        /**
+         * 按 (时间, id) 倒序
+         */
+        private static final Comparator<FeedEntry> DESC_ORDER = Comparator.comparingLong(FeedEntry::getTime)
+                .thenComparingLong(FeedEntry::getPostId).reversed();
+
+        private final long postId;
+
+        private final long time;
+
+        private FeedEntry(long postId, long time) {
+            this.postId = postId;
+            this.time = time;
+        }
+
+        private long getPostId() {
+            return postId;
+        }
+
+        private long getTime() {
+            return time;
+        }
+    }
+}
@@ -7,22 +7,33 @@ import cn.hutool.core.collection.CollUtil;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.caden.campcircle.auth.LoginPrincipal;
+import com.caden.campcircle.auth.TokenAuthFilter;
 import com.caden.campcircle.common.ErrorCode;
 import com.caden.campcircle.common.PageSearchByKeyWord;
 import com.caden.campcircle.constant.CommonConstant;
 import com.caden.campcircle.exception.BusinessException;
+import com.caden.campcircle.manager.cache.UserCacheManager;
+import com.caden.campcircle.manager.search.InvertedIndex;
+import com.caden.campcircle.manager.search.LocalSearchManager;
+import com.caden.campcircle.manager.lock.LockManager;
 import com.caden.campcircle.mapper.UserMapper;
 import com.caden.campcircle.model.dto.user.UserQueryRequest;
 import com.caden.campcircle.model.entity.User;
 import com.caden.campcircle.model.enums.UserRoleEnum;
+import com.caden.campcircle.model.vo.CacheStatsVO;
 import com.caden.campcircle.model.vo.LoginUserVO;
 import com.caden.campcircle.model.vo.UserVO;
 import com.caden.campcircle.service.UserService;
 import com.caden.campcircle.utils.JwtUtils;
 import com.caden.campcircle.utils.SqlUtils;
+import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Random;
 import java.util.stream.Collectors;
 import javax.annotation.Resource;
@@ -46,11 +57,87 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
     @Resource
     private JwtUtils jwtUtils;
 
+    @Resource
+    private UserCacheManager userCacheManager;
+
+    @Resource
+    private LockManager lockManager;
+
+    @Resource
+    private TokenAuthFilter tokenAuthFilter;
+
+    @Resource
+    private LocalSearchManager localSearchManager;
+
     /**
      * 盐值，混淆密码
      */
     public static final String SALT = "caden";
 
+    /**
+     * 按 id 查询用户（走二级缓存）
+     */
+    @Override
+    public User getById(Serializable id) {
+        if (id == null) {
+            return null;
+        }
+        return userCacheManager.get(Long.valueOf(id.toString()), userId -> baseMapper.selectById(userId));
+    }
+
+    /**
+     * 按 id 批量查询用户（走二级缓存，未命中部分一次回源）
+     */
+    @Override
+    public List<User> listByIds(Collection<? extends Serializable> idList) {
+        if (CollUtil.isEmpty(idList)) {
+            return new ArrayList<>();
+        }
+        List<Long> userIdList = idList.stream().filter(Objects::nonNull)
+                .map(id -> Long.valueOf(id.toString())).collect(Collectors.toList());
+        return userCacheManager.getAll(userIdList, ids -> baseMapper.selectBatchIds(ids));
+    }
+
+    @Override
+    public boolean save(User user) {
+        boolean result = super.save(user);
+        if (result) {
+            localSearchManager.onUserChanged(user.getId());
+        }
+        return result;
+    }
+
+    @Override
+    public boolean updateById(User user) {
+        boolean result = super.updateById(user);
+        if (result) {
+            userCacheManager.invalidate(user.getId());
+            localSearchManager.onUserChanged(user.getId());
+        }
+        return result;
+    }
+
+    @Override
+    public boolean removeById(Serializable id) {
+        boolean result = super.removeById(id);
+        if (result) {
+            Long userId = Long.valueOf(id.toString());
+            userCacheManager.invalidate(userId);
+            localSearchManager.onUserChanged(userId);
+        }
+        return result;
+    }
+
+    @Override
+    public void invalidateUserCache(Long userId) {
+        userCacheManager.invalidate(userId);
+    }
+
+    @Override
+    public CacheStatsVO getUserCacheStats() {
+        return userCacheManager.getStats();
+    }
+
     @Override
     public long userRegister(String userAccount, String userPassword, String checkPassword) {
         // 1. 校验
@@ -67,7 +154,8 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
         if (!userPassword.equals(checkPassword)) {
             throw new BusinessException(ErrorCode.PARAMS_ERROR, "两次输入的密码不一致");
         }
-        synchronized (userAccount.intern()) {
+        // 同一账号串行注册，避免重复
+        return lockManager.executeWithLock("user:register:" + userAccount, () -> {
             // 账户不能重复
             QueryWrapper<User> queryWrapper = new QueryWrapper<>();
             queryWrapper.eq("userAccount", userAccount);
@@ -86,7 +174,7 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
                 throw new BusinessException(ErrorCode.SYSTEM_ERROR, "注册失败，数据库错误");
             }
             return user.getId();
-        }
+        });
     }
 
     @Override
@@ -124,8 +212,8 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
     public LoginUserVO userLoginByMpOpen(WxOAuth2UserInfo wxOAuth2UserInfo, HttpServletRequest request) {
         String unionId = wxOAuth2UserInfo.getUnionId();
         String mpOpenId = wxOAuth2UserInfo.getOpenid();
-        // 单机锁
-        synchronized (unionId.intern()) {
+        // 同一微信用户串行登录，避免重复创建
+        return lockManager.executeWithLock("user:login:mp:" + unionId, () -> {
             // 查询用户是否已存在
             QueryWrapper<User> queryWrapper = new QueryWrapper<>();
             queryWrapper.eq("unionId", unionId);
@@ -151,23 +239,12 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
             String token = jwtUtils.generateToken(user.getId(), user.getUserRole());
             loginUserVO.setToken(token);
             return loginUserVO;
-        }
+        });
     }
 
     @Override
     public User getLoginUser(HttpServletRequest request) {
-        // 从请求头获取token
-        String token = request.getHeader("Authorization");
-        if (StringUtils.isBlank(token)) {
-            throw new BusinessException(ErrorCode.NOT_LOGIN_ERROR);
-        }
-        // 验证token并获取用户ID
-        Long userId = jwtUtils.getUserIdFromToken(token);
-        if (userId == null) {
-            throw new BusinessException(ErrorCode.NOT_LOGIN_ERROR);
-        }
-        // 从数据库查询（追求性能的话可以注释，直接走缓存）
-        User user = this.getById(userId);
+        User user = getLoginUserPermitNull(request);
         if (user == null) {
             throw new BusinessException(ErrorCode.NOT_LOGIN_ERROR);
         }
@@ -176,30 +253,25 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
 
     @Override
     public User getLoginUserPermitNull(HttpServletRequest request) {
-        // 从请求头获取token
-        String token = request.getHeader("Authorization");
-        if (StringUtils.isBlank(token)) {
+        // 令牌已由过滤器在请求入口解析
+        LoginPrincipal loginPrincipal = tokenAuthFilter.resolve(request);
+        if (loginPrincipal == null) {
             return null;
         }
-        // 验证token并获取用户ID
-        Long userId = jwtUtils.getUserIdFromToken(token);
-        if (userId == null) {
-            return null;
+        // 同一请求内只加载一次用户（走用户缓存）
+        User user = loginPrincipal.getUser();
+        if (user == null) {
+            user = this.getById(loginPrincipal.getUserId());
+            loginPrincipal.setUser(user);
         }
-        // 从数据库查询
-        return this.getById(userId);
+        return user;
     }
 
     @Override
     public boolean isAdmin(HttpServletRequest request) {
-        // 从请求头获取token
-        String token = request.getHeader("Authorization");
-        if (StringUtils.isBlank(token)) {
-            return false;
-        }
-        // 验证token并获取用户角色
-        String userRole = jwtUtils.getUserRoleFromToken(token);
-        return UserRoleEnum.ADMIN.getValue().equals(userRole);
+        // 从令牌解析出的角色判断
+        LoginPrincipal loginPrincipal = tokenAuthFilter.resolve(request);
+        return loginPrincipal != null && UserRoleEnum.ADMIN.getValue().equals(loginPrincipal.getUserRole());
     }
 
     @Override
@@ -243,9 +315,15 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
 
     @Override
     public Page<UserVO> listUserVOByPage(PageSearchByKeyWord pageSearchByKeyWord, HttpServletRequest request) {
+        String keyWord = pageSearchByKeyWord.getKeyWord();
+        if (StringUtils.isNotBlank(keyWord)) {
+            Page<UserVO> userVOPage = listUserVOByLocalSearch(pageSearchByKeyWord);
+            if (userVOPage != null) {
+                return userVOPage;
+            }
+        }
         //构建查询条件
         QueryWrapper<User> queryWrapper = new QueryWrapper<>();
-        String keyWord = pageSearchByKeyWord.getKeyWord();
         if (StringUtils.isNotBlank(keyWord)) {
             queryWrapper.and(w ->
                     w.like("userName", keyWord)
@@ -269,6 +347,36 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
         return userVOPage;
     }
 
+    /**
+     * 用本地索引按昵称、简介、学校搜索；关键词为数字时第一页额外精确匹配用户 id
+     *
+     * @return 索引不可用时返回 null
+     */
+    private Page<UserVO> listUserVOByLocalSearch(PageSearchByKeyWord pageSearchByKeyWord) {
+        String keyWord = pageSearchByKeyWord.getKeyWord().trim();
+        int current = pageSearchByKeyWord.getCurrent();
+        int pageSize = pageSearchByKeyWord.getPageSize();
+        InvertedIndex.SearchResult searchResult = localSearchManager.searchUser(keyWord, (current - 1) * pageSize, pageSize);
+        if (searchResult == null) {
+            return null;
+        }
+        List<Long> userIdList = new ArrayList<>(searchResult.getIdList());
+        long total = searchResult.getTotal();
+        if (current == 1 && StringUtils.isNumeric(keyWord) && keyWord.length() < 19) {
+            Long userId = Long.valueOf(keyWord);
+            if (!userIdList.contains(userId) && this.getById(userId) != null) {
+                userIdList.add(0, userId);
+                total++;
+            }
+        }
+        Map<Long, User> userMap = this.listByIds(userIdList).stream()
+                .collect(Collectors.toMap(User::getId, user -> user, (a, b) -> a));
+        List<User> userList = userIdList.stream().map(userMap::get).filter(Objects::nonNull).collect(Collectors.toList());
+        Page<UserVO> userVOPage = new Page<>(current, pageSize, total);
+        userVOPage.setRecords(this.getUserVO(userList));
+        return userVOPage;
+    }
+
     @Override
     public QueryWrapper<User> getQueryWrapper(UserQueryRequest userQueryRequest) {
         if (userQueryRequest == null) {
@@ -301,8 +409,8 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
     @Override
     public LoginUserVO userLoginByMaOpen(WxMaJscode2SessionResult session, HttpServletRequest request) {
         String maOpenId = session.getOpenid();
-        // 单机锁
-        synchronized (maOpenId.intern()) {
+        // 同一微信用户串行登录，避免重复创建
+        return lockManager.executeWithLock("user:login:ma:" + maOpenId, () -> {
             // 查询用户是否已存在
             QueryWrapper<User> queryWrapper = new QueryWrapper<>();
             queryWrapper.eq("maOpenId", maOpenId);
@@ -330,7 +438,7 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
             String token = jwtUtils.generateToken(user.getId(), user.getUserRole());
             loginUserVO.setToken(token);
             return loginUserVO;
-        }
+        });
     }
 
     /**
@@ -0,0 +1,137 @@
+package com.caden.campcircle.utils;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.caden.campcircle.common.CursorPage;
+import com.caden.campcircle.common.ErrorCode;
+import com.caden.campcircle.exception.BusinessException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Function;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * 游标编解码工具
+ * <p>
+ * 游标是若干个 long 排序键（如 createTime 毫秒数、id）拼接后的 Base64URL 字符串，对客户端不透明。
+ */
+public class CursorUtils {
+
+    private static final String SEPARATOR = "_";
+
+    private CursorUtils() {
+    }
+
+    /**
+     * 编码游标
+     *
+     * @param values 排序键，最后一位通常为 id
+     * @return
+     */
+    public static String encode(long... values) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                sb.append(SEPARATOR);
+            }
+            sb.append(values[i]);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解码游标
+     *
+     * @param cursor 游标，为空表示第一页
+     * @param size   排序键个数
+     * @return 第一页返回 null
+     */
+    public static long[] decode(String cursor, int size) {
+        if (StringUtils.isBlank(cursor)) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split(SEPARATOR);
+            if (parts.length != size) {
+                throw new BusinessException(ErrorCode.PARAMS_ERROR, "游标无效");
+            }
+            long[] values = new long[size];
+            for (int i = 0; i < size; i++) {
+                values[i] = Long.parseLong(parts[i]);
+            }
+            return values;
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "游标无效");
+        }
+    }
+
+    /**
+     * 追加 (createTime, id) 倒序的键集条件与排序，配合 (…, createTime, id) 联合索引走范围扫描
+     *
+     * @param queryWrapper
+     * @param cursor       decode 得到的 [createTime 毫秒数, id]，第一页为 null
+     * @param pageSize     页面大小，实际多查一条用于判断是否还有下一页
+     */
+    public static <T> void applyTimeIdCursor(QueryWrapper<T> queryWrapper, long[] cursor, int pageSize) {
+        if (cursor != null) {
+            applyTimeIdBefore(queryWrapper, "createTime", cursor[0], cursor[1]);
+        }
+        queryWrapper.orderByDesc("createTime", "id");
+        queryWrapper.last("limit " + (pageSize + 1));
+    }
+
+    /**
+     * 追加 (createTime, id) 正序的键集条件与排序，用于按时间先后展开的列表（如评论回复）
+     *
+     * @param queryWrapper
+     * @param cursor       decode 得到的 [createTime 毫秒数, id]，第一页为 null
+     * @param pageSize     页面大小，实际多查一条用于判断是否还有下一页
+     */
+    public static <T> void applyTimeIdCursorAsc(QueryWrapper<T> queryWrapper, long[] cursor, int pageSize) {
+        if (cursor != null) {
+            Date cursorTime = new Date(cursor[0]);
+            queryWrapper.and(qw -> qw.gt("createTime", cursorTime)
+                    .or(w -> w.eq("createTime", cursorTime).gt("id", cursor[1])));
+        }
+        queryWrapper.orderByAsc("createTime", "id");
+        queryWrapper.last("limit " + (pageSize + 1));
+    }
+
+    /**
+     * 追加 (timeColumn, id) < (time, id) 的键集条件
+     * <p>
+     * 展开为 timeColumn &lt; ? OR (timeColumn = ? AND id &lt; ?)，避免行构造器比较在部分 MySQL 版本下无法走索引范围扫描
+     *
+     * @param queryWrapper
+     * @param timeColumn   时间列名
+     * @param time         游标中的时间毫秒数
+     * @param id           游标中的 id
+     */
+    public static <T> void applyTimeIdBefore(QueryWrapper<T> queryWrapper, String timeColumn, long time, long id) {
+        Date cursorTime = new Date(time);
+        queryWrapper.and(qw -> qw.lt(timeColumn, cursorTime)
+                .or(w -> w.eq(timeColumn, cursorTime).lt("id", id)));
+    }
+
+    /**
+     * 由多查一条的查询结果构建游标分页
+     *
+     * @param entityList     查询结果（最多 pageSize + 1 条）
+     * @param pageSize       页面大小
+     * @param cursorFunction 由本页最后一条数据生成下一页游标
+     * @param voFunction     实体转视图
+     */
+    public static <E, V> CursorPage<V> toCursorPage(List<E> entityList, int pageSize, Function<E, String> cursorFunction,
+                                                    Function<List<E>, List<V>> voFunction) {
+        if (entityList == null || entityList.isEmpty()) {
+            return new CursorPage<>();
+        }
+        boolean hasMore = entityList.size() > pageSize;
+        List<E> pageList = hasMore ? new ArrayList<>(entityList.subList(0, pageSize)) : entityList;
+        String nextCursor = hasMore ? cursorFunction.apply(pageList.get(pageList.size() - 1)) : null;
+        return new CursorPage<>(voFunction.apply(pageList), nextCursor);
+    }
+}
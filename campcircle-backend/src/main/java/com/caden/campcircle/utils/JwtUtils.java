@@ -1,12 +1,14 @@
 package com.caden.campcircle.utils;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
 import java.util.Date;
@@ -22,15 +24,31 @@ public class JwtUtils {
     @Value("${jwt.secret}")
     private String jwtSecret;
 
+    /**
+     * 签名密钥（启动时构建一次）
+     */
+    private SecretKey signingKey;
+
+    /**
+     * 令牌解析器（线程安全，复用）
+     */
+    private JwtParser jwtParser;
+
+    @PostConstruct
+    public void init() {
+        // 确保密钥长度足够（至少32字符）
+        String key = jwtSecret.length() >= 32 ? jwtSecret : jwtSecret + "padding-to-make-key-long-enough";
+        signingKey = Keys.hmacShaKeyFor(key.getBytes(StandardCharsets.UTF_8));
+        jwtParser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+    }
+
     /**
      * 获取签名密钥
      *
      * @return 签名密钥
      */
     private SecretKey getSigningKey() {
-        // 确保密钥长度足够（至少32字符）
-        String key = jwtSecret.length() >= 32 ? jwtSecret : jwtSecret + "padding-to-make-key-long-enough";
-        return Keys.hmacShaKeyFor(key.getBytes(StandardCharsets.UTF_8));
+        return signingKey;
     }
 
     /**
@@ -61,11 +79,7 @@ public class JwtUtils {
      */
     public Claims validateToken(String token) {
         try {
-            return Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
+            return jwtParser.parseClaimsJws(token).getBody();
         } catch (Exception e) {
             return null;
         }
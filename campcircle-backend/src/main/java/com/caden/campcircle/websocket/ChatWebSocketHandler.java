@@ -1,78 +1,94 @@
 package com.caden.campcircle.websocket;
 
 import com.alibaba.fastjson.JSON;
+import com.caden.campcircle.manager.push.PushBus;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PongMessage;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
 
 @Slf4j
 @Component
 public class ChatWebSocketHandler extends TextWebSocketHandler {
 
-    private static final Map<Long, WebSocketSession> USER_SESSIONS = new ConcurrentHashMap<>();
+    /**
+     * 客户端应用层心跳
+     */
+    private static final String HEARTBEAT_PING = "ping";
+
+    private static final String HEARTBEAT_PONG = "pong";
+
+    @Resource
+    private PushBus pushBus;
+
+    @Resource
+    private WebSocketSessionRegistry webSocketSessionRegistry;
+
+    /**
+     * 订阅全体推送，推给本节点所有连接
+     */
+    @PostConstruct
+    public void init() {
+        pushBus.subscribeBroadcast(webSocketSessionRegistry::sendToAllLocal);
+    }
 
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
         // 从session中获取用户ID (通过拦截器设置)
         Long userId = (Long) session.getAttributes().get("userId");
         if (userId != null) {
-            USER_SESSIONS.put(userId, session);
+            webSocketSessionRegistry.register(userId, session);
             log.info("用户 {} WebSocket连接建立", userId);
         }
     }
 
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
-        Long userId = (Long) session.getAttributes().get("userId");
-        if (userId != null) {
-            USER_SESSIONS.remove(userId);
-            log.info("用户 {} WebSocket连接关闭", userId);
+        if (webSocketSessionRegistry.unregister(session)) {
+            log.info("用户 {} WebSocket连接关闭", session.getAttributes().get("userId"));
         }
     }
 
     @Override
     protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
-        // 处理客户端发送的消息（如心跳包）
-        log.info("收到WebSocket消息: {}", message.getPayload());
+        webSocketSessionRegistry.touch(session);
+        // 客户端心跳包
+        if (HEARTBEAT_PING.equals(message.getPayload())) {
+            webSocketSessionRegistry.send(session, HEARTBEAT_PONG);
+            return;
+        }
+        log.debug("收到WebSocket消息: {}", message.getPayload());
+    }
+
+    @Override
+    protected void handlePongMessage(WebSocketSession session, PongMessage message) throws Exception {
+        webSocketSessionRegistry.touch(session);
     }
 
     /**
-     * 发送消息给特定用户
+     * 发送消息给本节点上特定用户的所有连接，跨节点推送使用 {@link com.caden.campcircle.manager.push.MessagePushManager}
      */
     public boolean sendMessageToUser(Long userId, Object message) {
-        WebSocketSession session = USER_SESSIONS.get(userId);
-        if (session != null && session.isOpen()) {
-            try {
-                session.sendMessage(new TextMessage(JSON.toJSONString(message)));
-                log.info("向用户 {} 发送WebSocket消息成功", userId);
-                return true;
-            } catch (Exception e) {
-                log.error("WebSocket发送消息失败", e);
-                // 移除无效session
-                USER_SESSIONS.remove(userId);
-            }
-        }
-        return false;
+        return webSocketSessionRegistry.sendToLocalUser(userId, JSON.toJSONString(message));
     }
 
     /**
-     * 检查用户是否在线
+     * 检查用户是否在本节点在线
      */
     public boolean isUserOnline(Long userId) {
-        WebSocketSession session = USER_SESSIONS.get(userId);
-        return session != null && session.isOpen();
+        return webSocketSessionRegistry.isOnline(userId);
     }
 
     /**
-     * 获取在线用户数量
+     * 获取本节点在线用户数量
      */
     public int getOnlineUserCount() {
-        return USER_SESSIONS.size();
+        return webSocketSessionRegistry.getOnlineUserCount();
     }
-}
\ No newline at end of file
+}
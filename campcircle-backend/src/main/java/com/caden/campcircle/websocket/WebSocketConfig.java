@@ -5,14 +5,22 @@ import org.springframework.web.socket.config.annotation.EnableWebSocket;
 import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
 import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
 
+import javax.annotation.Resource;
+
 @Configuration
 @EnableWebSocket
 public class WebSocketConfig implements WebSocketConfigurer {
 
+    /**
+     * 使用 Spring 管理的处理器，推送总线等依赖才能注入
+     */
+    @Resource
+    private ChatWebSocketHandler chatWebSocketHandler;
+
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
-        registry.addHandler(new ChatWebSocketHandler(), "/websocket")
+        registry.addHandler(chatWebSocketHandler, "/websocket")
                 .addInterceptors(new WebSocketInterceptor())
                 .setAllowedOrigins("*"); // 生产环境建议设置具体域名
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,374 @@
+package com.caden.campcircle.websocket;
+
+import com.caden.campcircle.manager.push.PushBus;
+import com.caden.campcircle.model.vo.WebSocketStatsVO;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PingMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+
+/**
+ * WebSocket 连接注册表
+ * <p>
+ * 1. 一个用户可以有多个连接（多设备），用户第一个连接建立时订阅推送总线，最后一个连接关闭时取消订阅
+ * 2. 每个连接一个有界发送队列，由专用出站线程池串行发送，调用方线程只入队不阻塞；队列满时按策略丢弃最旧的帧或关闭连接
+ * 3. 定时发送 Ping，超过空闲时间没有收到任何消息（含 Pong）的连接关闭
+ */
+@Component
+@Slf4j
+public class WebSocketSessionRegistry {
+
+    /**
+     * 单次发送任务最多发送的帧数，之后重新提交，避免一个连接长期占用出站线程
+     */
+    private static final int DRAIN_BATCH_SIZE = 64;
+
+    /**
+     * 队列满时的策略 - 丢弃最旧的帧
+     */
+    private static final String OVERFLOW_DROP_OLDEST = "drop-oldest";
+
+    /**
+     * 连接建立、关闭的分段锁数
+     */
+    private static final int REGISTER_LOCK_STRIPES = 64;
+
+    @Resource
+    private PushBus pushBus;
+
+    @Resource(name = "wsOutboundExecutor")
+    private Executor wsOutboundExecutor;
+
+    /**
+     * 每个连接发送队列的最大帧数
+     */
+    @Value("${campcircle.websocket.send-queue-capacity:256}")
+    private int sendQueueCapacity;
+
+    /**
+     * 队列满时的策略：drop-oldest（丢弃最旧的帧）或 close（关闭连接，客户端重连后补拉）
+     */
+    @Value("${campcircle.websocket.overflow-strategy:drop-oldest}")
+    private String overflowStrategy;
+
+    /**
+     * 单帧发送时间上限（毫秒），超过后关闭连接
+     */
+    @Value("${campcircle.websocket.send-time-limit-ms:10000}")
+    private int sendTimeLimitMs;
+
+    /**
+     * 底层发送缓冲上限（字节）
+     */
+    @Value("${campcircle.websocket.send-buffer-size-limit:524288}")
+    private int sendBufferSizeLimit;
+
+    /**
+     * 空闲超时（毫秒），超过该时间没有收到任何消息的连接关闭
+     */
+    @Value("${campcircle.websocket.idle-timeout-ms:90000}")
+    private long idleTimeoutMs;
+
+    private final Map<Long, Set<OutboundSession>> userSessionMap = new ConcurrentHashMap<>();
+
+    /**
+     * 同一用户的连接建立、关闭及订阅、取消订阅互斥；订阅可能有网络 I/O，不能放在 ConcurrentHashMap.compute 中阻塞其他用户
+     */
+    private final Object[] registerLocks = new Object[REGISTER_LOCK_STRIPES];
+
+    {
+        for (int i = 0; i < REGISTER_LOCK_STRIPES; i++) {
+            registerLocks[i] = new Object();
+        }
+    }
+
+    private final LongAdder sentCount = new LongAdder();
+
+    private final LongAdder droppedCount = new LongAdder();
+
+    private final LongAdder overflowClosedCount = new LongAdder();
+
+    private final LongAdder idleClosedCount = new LongAdder();
+
+    public WebSocketSessionRegistry() {
+    }
+
+    /**
+     * 测试用：直接指定推送总线、出站线程池和发送队列配置，其余取默认值
+     */
+    WebSocketSessionRegistry(PushBus pushBus, Executor wsOutboundExecutor, int sendQueueCapacity,
+                             String overflowStrategy) {
+        this.pushBus = pushBus;
+        this.wsOutboundExecutor = wsOutboundExecutor;
+        this.sendQueueCapacity = sendQueueCapacity;
+        this.overflowStrategy = overflowStrategy;
+        this.sendTimeLimitMs = 10000;
+        this.sendBufferSizeLimit = 524288;
+        this.idleTimeoutMs = 90000;
+    }
+
+    /**
+     * 注册连接
+     *
+     * @param userId
+     * @param session
+     */
+    public void register(Long userId, WebSocketSession session) {
+        OutboundSession outboundSession = new OutboundSession(userId,
+                new ConcurrentWebSocketSessionDecorator(session, sendTimeLimitMs, sendBufferSizeLimit));
+        session.getAttributes().put(OutboundSession.class.getName(), outboundSession);
+        synchronized (getRegisterLock(userId)) {
+            Set<OutboundSession> sessionSet = userSessionMap.get(userId);
+            if (sessionSet == null) {
+                sessionSet = new CopyOnWriteArraySet<>();
+                sessionSet.add(outboundSession);
+                userSessionMap.put(userId, sessionSet);
+                pushBus.subscribe(userId, frame -> sendToLocalUser(userId, frame));
+            } else {
+                sessionSet.add(outboundSession);
+            }
+        }
+    }
+
+    /**
+     * 注销连接
+     *
+     * @param session
+     * @return 是否注销了已注册的连接
+     */
+    public boolean unregister(WebSocketSession session) {
+        OutboundSession outboundSession = (OutboundSession) session.getAttributes().get(OutboundSession.class.getName());
+        if (outboundSession == null) {
+            return false;
+        }
+        boolean removed = false;
+        synchronized (getRegisterLock(outboundSession.userId)) {
+            Set<OutboundSession> sessionSet = userSessionMap.get(outboundSession.userId);
+            if (sessionSet != null) {
+                removed = sessionSet.remove(outboundSession);
+                if (sessionSet.isEmpty()) {
+                    userSessionMap.remove(outboundSession.userId);
+                    pushBus.unsubscribe(outboundSession.userId);
+                }
+            }
+        }
+        outboundSession.queue.clear();
+        return removed;
+    }
+
+    /**
+     * 收到客户端消息（含 Pong），刷新活跃时间
+     *
+     * @param session
+     */
+    public void touch(WebSocketSession session) {
+        OutboundSession outboundSession = (OutboundSession) session.getAttributes().get(OutboundSession.class.getName());
+        if (outboundSession != null) {
+            outboundSession.lastActiveTime = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * 发送给某个连接
+     *
+     * @param session
+     * @param frame
+     */
+    public void send(WebSocketSession session, String frame) {
+        OutboundSession outboundSession = (OutboundSession) session.getAttributes().get(OutboundSession.class.getName());
+        if (outboundSession != null) {
+            enqueue(outboundSession, new TextMessage(frame));
+        }
+    }
+
+    /**
+     * 发送给本节点上用户的所有连接
+     *
+     * @param userId
+     * @param frame
+     * @return 用户是否在本节点有连接
+     */
+    public boolean sendToLocalUser(Long userId, String frame) {
+        Set<OutboundSession> sessionSet = userSessionMap.get(userId);
+        if (sessionSet == null || sessionSet.isEmpty()) {
+            return false;
+        }
+        TextMessage message = new TextMessage(frame);
+        sessionSet.forEach(outboundSession -> enqueue(outboundSession, message));
+        return true;
+    }
+
+    /**
+     * 发送给本节点上的所有连接
+     *
+     * @param frame
+     */
+    public void sendToAllLocal(String frame) {
+        TextMessage message = new TextMessage(frame);
+        userSessionMap.values().forEach(sessionSet -> sessionSet.forEach(outboundSession -> enqueue(outboundSession, message)));
+    }
+
+    public boolean isOnline(Long userId) {
+        Set<OutboundSession> sessionSet = userSessionMap.get(userId);
+        return sessionSet != null && !sessionSet.isEmpty();
+    }
+
+    public int getOnlineUserCount() {
+        return userSessionMap.size();
+    }
+
+    /**
+     * 心跳：关闭空闲连接，向其余连接发送 Ping
+     */
+    @Scheduled(fixedDelayString = "${campcircle.websocket.heartbeat-interval-ms:30000}")
+    public void heartbeat() {
+        long now = System.currentTimeMillis();
+        PingMessage pingMessage = new PingMessage(ByteBuffer.allocate(0));
+        userSessionMap.values().forEach(sessionSet -> sessionSet.forEach(outboundSession -> {
+            if (now - outboundSession.lastActiveTime > idleTimeoutMs) {
+                idleClosedCount.increment();
+                log.info("用户 {} WebSocket连接空闲超时，关闭", outboundSession.userId);
+                close(outboundSession, CloseStatus.SESSION_NOT_RELIABLE);
+            } else {
+                enqueue(outboundSession, pingMessage);
+            }
+        }));
+    }
+
+    /**
+     * 获取本节点连接统计
+     *
+     * @return
+     */
+    public WebSocketStatsVO getStats() {
+        int sessionCount = 0;
+        int queuedCount = 0;
+        int maxQueuedCount = 0;
+        for (Set<OutboundSession> sessionSet : userSessionMap.values()) {
+            for (OutboundSession outboundSession : sessionSet) {
+                int size = outboundSession.queue.size();
+                sessionCount++;
+                queuedCount += size;
+                maxQueuedCount = Math.max(maxQueuedCount, size);
+            }
+        }
+        WebSocketStatsVO webSocketStatsVO = new WebSocketStatsVO();
+        webSocketStatsVO.setOnlineUserCount(userSessionMap.size());
+        webSocketStatsVO.setSessionCount(sessionCount);
+        webSocketStatsVO.setQueuedFrameCount(queuedCount);
+        webSocketStatsVO.setMaxQueuedFrameCount(maxQueuedCount);
+        webSocketStatsVO.setSentFrameCount(sentCount.sum());
+        webSocketStatsVO.setDroppedFrameCount(droppedCount.sum());
+        webSocketStatsVO.setOverflowClosedCount(overflowClosedCount.sum());
+        webSocketStatsVO.setIdleClosedCount(idleClosedCount.sum());
+        return webSocketStatsVO;
+    }
+
+    private Object getRegisterLock(Long userId) {
+        return registerLocks[(int) Math.floorMod(userId, (long) REGISTER_LOCK_STRIPES)];
+    }
+
+    private void enqueue(OutboundSession outboundSession, WebSocketMessage<?> message) {
+        if (!outboundSession.session.isOpen()) {
+            return;
+        }
+        while (!outboundSession.queue.offer(message)) {
+            droppedCount.increment();
+            if (!OVERFLOW_DROP_OLDEST.equals(overflowStrategy)) {
+                overflowClosedCount.increment();
+                log.warn("用户 {} WebSocket发送队列已满，关闭连接", outboundSession.userId);
+                close(outboundSession, CloseStatus.SESSION_NOT_RELIABLE);
+                return;
+            }
+            outboundSession.queue.poll();
+        }
+        scheduleDrain(outboundSession);
+    }
+
+    private void scheduleDrain(OutboundSession outboundSession) {
+        if (!outboundSession.draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            wsOutboundExecutor.execute(() -> drain(outboundSession));
+        } catch (RejectedExecutionException e) {
+            // 出站线程池已满，帧留在队列中，下次入队或心跳时重试
+            outboundSession.draining.set(false);
+        }
+    }
+
+    private void drain(OutboundSession outboundSession) {
+        try {
+            for (int i = 0; i < DRAIN_BATCH_SIZE; i++) {
+                WebSocketMessage<?> message = outboundSession.queue.poll();
+                if (message == null) {
+                    break;
+                }
+                outboundSession.session.sendMessage(message);
+                sentCount.increment();
+            }
+        } catch (Exception e) {
+            // 包括发送超时、底层缓冲超限
+            overflowClosedCount.increment();
+            log.warn("用户 {} WebSocket发送失败，关闭连接: {}", outboundSession.userId, e.getMessage());
+            close(outboundSession, CloseStatus.SESSION_NOT_RELIABLE);
+            return;
+        } finally {
+            outboundSession.draining.set(false);
+        }
+        if (!outboundSession.queue.isEmpty()) {
+            scheduleDrain(outboundSession);
+        }
+    }
+
+    private void close(OutboundSession outboundSession, CloseStatus closeStatus) {
+        outboundSession.queue.clear();
+        try {
+            outboundSession.session.close(closeStatus);
+        } catch (IOException e) {
+            log.debug("关闭WebSocket连接失败", e);
+        }
+        // 正常情况下关闭后会回调 afterConnectionClosed，这里兜底注销
+        unregister(outboundSession.session);
+    }
+
+    /**
+     * 一个连接及其发送队列
+     */
+    private class OutboundSession {
+
+        private final Long userId;
+
+        private final WebSocketSession session;
+
+        private final BlockingQueue<WebSocketMessage<?>> queue = new ArrayBlockingQueue<>(sendQueueCapacity);
+
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        private volatile long lastActiveTime = System.currentTimeMillis();
+
+        private OutboundSession(Long userId, WebSocketSession session) {
+            this.userId = userId;
+            this.session = session;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.caden.campcircle.manager;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 关系布隆过滤器位位置测试
+ * <p>
+ * Java 重建与 Lua 判定须对同一 id 算出相同的位；Lua 5.1 的数字是 double，% 为 a - floor(a / b) * b
+ */
+public class RelationBloomFilterManagerTest {
+
+    @Test
+    public void testJavaAndLuaBitPositionsMatch() {
+        long[] bitsArray = {9_586L, 19_173L, 1_000_003L, 613_560_000L};
+        int k = 10;
+        long[] idArray = {1L, 42L, 1_234_567_890_123_456_789L, Long.MAX_VALUE, 1_800_000_000_000_000_001L};
+        for (long id : idArray) {
+            long[] hashes = RelationBloomFilterManager.hash(id);
+            assertTrue(hashes[0] >= 0 && hashes[0] <= 0xFFFFFFFFL);
+            assertEquals(1, hashes[1] & 1);
+            for (long bits : bitsArray) {
+                long[] positions = RelationBloomFilterManager.bitPositions(hashes, bits, k);
+                for (int j = 0; j < k; j++) {
+                    assertEquals(luaPosition(hashes[0], hashes[1], j, bits), positions[j], "id " + id + ", j " + j);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSetBitMatchesRedisGetBit() {
+        byte[] bytes = new byte[4];
+        long[] positions = {0, 7, 8, 13, 31};
+        for (long position : positions) {
+            RelationBloomFilterManager.setBit(bytes, position);
+        }
+        for (long position = 0; position < 32; position++) {
+            boolean expected = false;
+            for (long p : positions) {
+                expected |= p == position;
+            }
+            // Redis GETBIT：偏移 0 为第一个字节的最高位
+            int bit = (bytes[(int) (position >>> 3)] >> (7 - (position & 7))) & 1;
+            assertEquals(expected ? 1 : 0, bit, "position " + position);
+        }
+    }
+
+    /**
+     * 按 Lua 的 double 运算计算 (h1 + j * h2) % m
+     */
+    private static long luaPosition(long h1, long h2, int j, long m) {
+        double a = (double) h1 + (double) j * (double) h2;
+        double b = (double) m;
+        return (long) (a - Math.floor(a / b) * b);
+    }
+}
@@ -0,0 +1,40 @@
+package com.caden.campcircle.manager;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 全局消息已读水位测试
+ */
+public class SystemMessageUnreadManagerTest {
+
+    @Test
+    public void testCountAfter() {
+        long[] ids = {3, 8, 15, 16, 42};
+        assertEquals(5, SystemMessageUnreadManager.countAfter(ids, 0));
+        assertEquals(5, SystemMessageUnreadManager.countAfter(ids, 2));
+        // 水位等于某个 id 时该 id 已读
+        assertEquals(4, SystemMessageUnreadManager.countAfter(ids, 3));
+        assertEquals(3, SystemMessageUnreadManager.countAfter(ids, 10));
+        assertEquals(2, SystemMessageUnreadManager.countAfter(ids, 15));
+        assertEquals(0, SystemMessageUnreadManager.countAfter(ids, 42));
+        assertEquals(0, SystemMessageUnreadManager.countAfter(ids, 100));
+        assertEquals(0, SystemMessageUnreadManager.countAfter(new long[0], 0));
+    }
+
+    @Test
+    public void testEffectiveWatermark() {
+        long[] ids = {3, 8, 15, 16, 42};
+        // 缓存未满：所有全局消息都在缓存中，水位不变
+        assertEquals(0, SystemMessageUnreadManager.effectiveWatermark(ids, 10, 0));
+        assertEquals(8, SystemMessageUnreadManager.effectiveWatermark(ids, 10, 8));
+        // 缓存已满：更早的全局消息视为已读，水位至少为最早缓存 id 之前
+        assertEquals(2, SystemMessageUnreadManager.effectiveWatermark(ids, 5, 0));
+        assertEquals(15, SystemMessageUnreadManager.effectiveWatermark(ids, 5, 15));
+        assertEquals(0, SystemMessageUnreadManager.effectiveWatermark(new long[0], 0, 0));
+        // 列表查询的未读条件 id > 水位 与未读数一致
+        long watermark = SystemMessageUnreadManager.effectiveWatermark(ids, 5, 0);
+        assertEquals(ids.length, SystemMessageUnreadManager.countAfter(ids, watermark));
+    }
+}
@@ -0,0 +1,103 @@
+package com.caden.campcircle.manager.lock;
+
+import com.caden.campcircle.exception.BusinessException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 本机分段锁压力测试
+ */
+public class LocalStripedLockManagerTest {
+
+    @Test
+    public void testStripeSizeRoundUp() {
+        LocalStripedLockManager lockManager = new LocalStripedLockManager(100, 1000);
+        // 同一 key 总是映射到同一段
+        assertSame(lockManager.getStripe("post:thumb:1:1"), lockManager.getStripe("post:thumb:1:1"));
+    }
+
+    @Test
+    public void testConcurrentCountersStayConsistent() throws Exception {
+        // 段数远少于 key 数，验证不同 key 共用一段时依然互斥且不会死锁
+        LocalStripedLockManager lockManager = new LocalStripedLockManager(8, 10000);
+        int keyNum = 32;
+        int threadNum = 16;
+        int loopNum = 2048;
+        long[] counters = new long[keyNum];
+        ExecutorService executorService = Executors.newFixedThreadPool(threadNum);
+        CountDownLatch startLatch = new CountDownLatch(1);
+        List<Future<?>> futureList = new ArrayList<>();
+        for (int t = 0; t < threadNum; t++) {
+            int offset = t;
+            futureList.add(executorService.submit(() -> {
+                startLatch.await();
+                for (int i = 0; i < loopNum; i++) {
+                    int index = (i + offset) % keyNum;
+                    lockManager.executeWithLock("counter:" + index, () -> {
+                        // 非原子的读-改-写，只有锁正确时才不会丢失更新
+                        long value = counters[index];
+                        Thread.yield();
+                        counters[index] = value + 1;
+                        return null;
+                    });
+                }
+                return null;
+            }));
+        }
+        startLatch.countDown();
+        for (Future<?> future : futureList) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executorService.shutdown();
+
+        long total = 0;
+        for (long counter : counters) {
+            total += counter;
+        }
+        assertEquals((long) threadNum * loopNum, total);
+        for (long counter : counters) {
+            assertEquals((long) threadNum * loopNum / keyNum, counter);
+        }
+    }
+
+    @Test
+    public void testReentrant() {
+        LocalStripedLockManager lockManager = new LocalStripedLockManager(4, 100);
+        int result = lockManager.executeWithLock("a", () -> lockManager.executeWithLock("a", () -> 1));
+        assertEquals(1, result);
+    }
+
+    @Test
+    public void testWaitTimeout() throws Exception {
+        LocalStripedLockManager lockManager = new LocalStripedLockManager(4, 50);
+        CountDownLatch lockedLatch = new CountDownLatch(1);
+        CountDownLatch releaseLatch = new CountDownLatch(1);
+        Thread holder = new Thread(() -> lockManager.executeWithLock("a", () -> {
+            lockedLatch.countDown();
+            try {
+                releaseLatch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }));
+        holder.start();
+        lockedLatch.await();
+        try {
+            assertThrows(BusinessException.class, () -> lockManager.executeWithLock("a", () -> null));
+        } finally {
+            releaseLatch.countDown();
+            holder.join();
+        }
+        // 释放后可以再次获取
+        assertEquals(1, (int) lockManager.executeWithLock("a", () -> 1));
+    }
+}
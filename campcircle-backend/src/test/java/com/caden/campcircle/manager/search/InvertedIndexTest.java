@@ -0,0 +1,127 @@
+package com.caden.campcircle.manager.search;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 本地倒排索引测试
+ */
+public class InvertedIndexTest {
+
+    @Test
+    public void testTokenize() {
+        assertEquals(Arrays.asList("校园", "园活", "活动", "hello", "2024"), TextTokenizer.tokenize("校园活动 Hello,2024"));
+        assertEquals(Collections.singletonList("猫"), TextTokenizer.tokenize("猫"));
+        assertTrue(TextTokenizer.isIndexable("校园"));
+        assertTrue(TextTokenizer.isIndexable("java"));
+        assertFalse(TextTokenizer.isIndexable("猫"));
+        assertFalse(TextTokenizer.isIndexable("  "));
+    }
+
+    @Test
+    public void testSearchRequiresAllTokens() {
+        InvertedIndex index = new InvertedIndex();
+        index.put(1, "周末校园活动报名");
+        index.put(2, "校园跑步打卡");
+        index.put(3, "社团活动招新");
+        InvertedIndex.SearchResult result = index.search("校园活动", 0, 10);
+        assertEquals(1, result.getTotal());
+        assertEquals(Collections.singletonList(1L), result.getIdList());
+        assertEquals(2, index.search("校园", 0, 10).getTotal());
+        assertEquals(0, index.search("食堂", 0, 10).getTotal());
+    }
+
+    @Test
+    public void testRankingAndPaging() {
+        InvertedIndex index = new InvertedIndex();
+        index.put(10, "篮球");
+        index.put(20, "篮球 篮球 篮球");
+        index.put(30, "篮球");
+        InvertedIndex.SearchResult result = index.search("篮球", 0, 2);
+        assertEquals(3, result.getTotal());
+        // 词频高的在前，同分时 id 大的在前
+        assertEquals(Arrays.asList(20L, 30L), result.getIdList());
+        assertEquals(Collections.singletonList(10L), index.search("篮球", 2, 2).getIdList());
+    }
+
+    @Test
+    public void testUpdateAndRemove() {
+        InvertedIndex index = new InvertedIndex();
+        index.put(5, "二手自行车");
+        index.put(3, "二手书");
+        index.put(9, "二手电脑");
+        assertEquals(Arrays.asList(9L, 5L, 3L), index.search("二手", 0, 10).getIdList());
+        index.put(5, "全新自行车");
+        assertEquals(Arrays.asList(9L, 3L), index.search("二手", 0, 10).getIdList());
+        assertEquals(Collections.singletonList(5L), index.search("自行车", 0, 10).getIdList());
+        index.remove(3);
+        assertEquals(Collections.singletonList(9L), index.search("二手", 0, 10).getIdList());
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    public void testSnapshot() throws IOException {
+        InvertedIndex index = new InvertedIndex();
+        for (long id = 1; id <= 1000; id++) {
+            index.put(id * 1000003L, id % 2 == 0 ? "期末复习资料 " + id : "考研经验分享 " + id);
+        }
+        index.remove(2 * 1000003L);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        index.writeTo(new DataOutputStream(bytes));
+        InvertedIndex loaded = InvertedIndex.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(index.size(), loaded.size());
+        assertEquals(index.search("复习资料", 0, 20), loaded.search("复习资料", 0, 20));
+        assertEquals(499, loaded.search("复习资料", 0, 20).getTotal());
+        // 加载后仍可增量修改
+        loaded.put(1000003L, "期末复习资料");
+        assertEquals(500, loaded.search("复习资料", 0, 20).getTotal());
+    }
+
+    @Test
+    public void testPostingListDeleteAndOverlay() {
+        PostingList postingList = new PostingList();
+        for (long id = 1; id <= 200; id++) {
+            postingList.put(id, 1);
+        }
+        // 删除与乱序插入先记入删除集合、补充表，超过阈值后重编码，合并读取的结果始终有序
+        for (long id = 2; id <= 200; id += 2) {
+            postingList.remove(id);
+        }
+        for (long id = 10; id <= 200; id += 10) {
+            postingList.put(id, 3);
+        }
+        postingList.remove(7);
+        postingList.put(7, 5);
+        postingList.put(201, 1);
+        assertEquals(100 + 20 + 1, postingList.count());
+        List<Long> docIdList = new ArrayList<>();
+        PostingList.Cursor cursor = postingList.cursor();
+        while (cursor.next()) {
+            docIdList.add(cursor.docId);
+            assertEquals(cursor.docId == 7 ? 5 : cursor.docId % 10 == 0 ? 3 : 1, cursor.tf);
+        }
+        assertEquals(postingList.count(), docIdList.size());
+        for (int i = 1; i < docIdList.size(); i++) {
+            assertTrue(docIdList.get(i) > docIdList.get(i - 1));
+        }
+        // 快照编码与合并读取一致
+        byte[] bytes = postingList.toBytes();
+        PostingList loaded = PostingList.fromBytes(bytes, postingList.count(), 201);
+        PostingList.Cursor loadedCursor = loaded.cursor();
+        for (Long docId : docIdList) {
+            assertTrue(loadedCursor.next());
+            assertEquals(docId.longValue(), loadedCursor.docId);
+        }
+        assertFalse(loadedCursor.next());
+    }
+}
@@ -0,0 +1,53 @@
+package com.caden.campcircle.manager.search;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 帖子标签位图索引测试
+ */
+public class PostTagIndexTest {
+
+    @Test
+    public void testAndOrQuery() {
+        PostTagIndex index = new PostTagIndex();
+        index.put(101L, Arrays.asList("运动", "跑步"), true);
+        index.put(102L, Arrays.asList("运动", "篮球"), true);
+        index.put(103L, Arrays.asList("运动", "跑步"), false);
+        assertEquals(Arrays.asList(103L, 101L), index.query(Arrays.asList("运动", "跑步"), null, false));
+        assertEquals(Collections.singletonList(101L), index.query(Arrays.asList("运动", "跑步"), null, true));
+        assertEquals(Arrays.asList(102L, 101L), index.query(null, Arrays.asList("跑步", "篮球"), true));
+        assertTrue(index.query(Arrays.asList("运动", "美食"), null, false).isEmpty());
+    }
+
+    @Test
+    public void testUpdateAndRemove() {
+        PostTagIndex index = new PostTagIndex();
+        index.put(1L, Arrays.asList("a", "b"), true);
+        index.put(1L, Collections.singletonList("c"), true);
+        assertTrue(index.query(Collections.singletonList("a"), null, false).isEmpty());
+        assertEquals(Collections.singletonList(1L), index.query(Collections.singletonList("c"), null, true));
+        index.remove(1L);
+        assertTrue(index.query(Collections.singletonList("c"), null, false).isEmpty());
+        assertTrue(index.countPublic(10).isEmpty());
+    }
+
+    @Test
+    public void testLargeSetAndCount() {
+        PostTagIndex index = new PostTagIndex();
+        for (long postId = 1; postId <= 5000; postId++) {
+            index.put(postId, postId % 2 == 0 ? Arrays.asList("even", "all") : Collections.singletonList("all"),
+                    postId % 5 != 0);
+        }
+        assertEquals(2500, index.query(Arrays.asList("all", "even"), null, false).size());
+        assertEquals(2000, index.query(Collections.singletonList("even"), null, true).size());
+        Map<String, Integer> countMap = index.countPublic(10);
+        assertEquals(Arrays.asList("all", "even"), Arrays.asList(countMap.keySet().toArray()));
+        assertEquals(4000, countMap.get("all"));
+        assertEquals(2000, countMap.get("even"));
+    }
+}
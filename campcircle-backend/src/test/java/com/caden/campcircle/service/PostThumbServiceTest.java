@@ -1,6 +1,17 @@
 package com.caden.campcircle.service;
 
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.caden.campcircle.manager.CounterManager;
+import com.caden.campcircle.model.entity.Post;
+import com.caden.campcircle.model.entity.PostThumb;
 import com.caden.campcircle.model.entity.User;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.Resource;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
@@ -19,6 +30,12 @@ class PostThumbServiceTest {
     @Resource
     private PostThumbService postThumbService;
 
+    @Resource
+    private PostService postService;
+
+    @Resource
+    private CounterManager counterManager;
+
     private static final User loginUser = new User();
 
     @BeforeAll
@@ -31,4 +48,48 @@ class PostThumbServiceTest {
         int i = postThumbService.doPostThumb(1L, loginUser);
         Assertions.assertTrue(i >= 0);
     }
+
+    /**
+     * 并发重复点赞、取消点赞后，帖子点赞数与点赞记录数保持一致
+     */
+    @Test
+    void doPostThumbConcurrently() throws Exception {
+        long postId = 1L;
+        long diffBefore = getThumbNum(postId) - countThumb(postId);
+        int threadNum = 16;
+        int loopNum = 20;
+        ExecutorService executorService = Executors.newFixedThreadPool(threadNum);
+        CountDownLatch startLatch = new CountDownLatch(1);
+        List<Future<?>> futureList = new ArrayList<>();
+        for (int t = 0; t < threadNum; t++) {
+            futureList.add(executorService.submit(() -> {
+                startLatch.await();
+                for (int i = 0; i < loopNum; i++) {
+                    int result = postThumbService.doPostThumb(postId, loginUser);
+                    Assertions.assertTrue(result >= -1 && result <= 1);
+                }
+                return null;
+            }));
+        }
+        startLatch.countDown();
+        for (Future<?> future : futureList) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executorService.shutdown();
+        counterManager.flush();
+
+        long thumbRows = postThumbService.count(new QueryWrapper<PostThumb>()
+                .eq("userId", loginUser.getId()).eq("postId", postId));
+        Assertions.assertTrue(thumbRows <= 1);
+        Assertions.assertEquals(diffBefore, getThumbNum(postId) - countThumb(postId));
+    }
+
+    private long getThumbNum(long postId) {
+        Post post = postService.getById(postId);
+        return post.getThumbNum();
+    }
+
+    private long countThumb(long postId) {
+        return postThumbService.count(new QueryWrapper<PostThumb>().eq("postId", postId));
+    }
 }
@@ -0,0 +1,64 @@
+package com.caden.campcircle.utils;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.caden.campcircle.common.CursorPage;
+import com.caden.campcircle.exception.BusinessException;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 游标编解码测试
+ */
+public class CursorUtilsTest {
+
+    @Test
+    public void testEncodeAndDecode() {
+        String cursor = CursorUtils.encode(1, 1717171717000L, 1790000000000000001L);
+        long[] values = CursorUtils.decode(cursor, 3);
+        assertArrayEquals(new long[]{1, 1717171717000L, 1790000000000000001L}, values);
+    }
+
+    @Test
+    public void testDecodeFirstPage() {
+        assertNull(CursorUtils.decode(null, 2));
+        assertNull(CursorUtils.decode("", 2));
+    }
+
+    @Test
+    public void testDecodeInvalidCursor() {
+        assertThrows(BusinessException.class, () -> CursorUtils.decode("not-a-cursor", 2));
+        assertThrows(BusinessException.class, () -> CursorUtils.decode(CursorUtils.encode(1, 2, 3), 2));
+    }
+
+    @Test
+    public void testToCursorPage() {
+        List<Long> idList = Arrays.asList(5L, 4L, 3L);
+        CursorPage<Long> page = CursorUtils.toCursorPage(idList, 2, id -> CursorUtils.encode(id), list -> list);
+        assertEquals(Arrays.asList(5L, 4L), page.getRecords());
+        assertTrue(page.getHasMore());
+        assertArrayEquals(new long[]{4L}, CursorUtils.decode(page.getNextCursor(), 1));
+
+        CursorPage<Long> lastPage = CursorUtils.toCursorPage(Arrays.asList(2L, 1L), 2, id -> CursorUtils.encode(id), list -> list);
+        assertFalse(lastPage.getHasMore());
+        assertNull(lastPage.getNextCursor());
+    }
+
+    @Test
+    public void testApplyTimeIdCursor() {
+        QueryWrapper<Object> queryWrapper = new QueryWrapper<>();
+        CursorUtils.applyTimeIdCursor(queryWrapper, new long[]{1717171717000L, 100L}, 10);
+        String sql = queryWrapper.getCustomSqlSegment();
+        // 展开为 OR 形式，不使用行构造器比较
+        assertFalse(sql.contains("(createTime, id)"));
+        assertTrue(sql.matches(".*\\(createTime < #\\{[^}]+} OR \\(createTime = #\\{[^}]+} AND id < #\\{[^}]+}\\)\\).*"), sql);
+        assertTrue(sql.contains("ORDER BY createTime DESC,id DESC"), sql);
+
+        QueryWrapper<Object> ascQueryWrapper = new QueryWrapper<>();
+        CursorUtils.applyTimeIdCursorAsc(ascQueryWrapper, new long[]{1717171717000L, 100L}, 10);
+        String ascSql = ascQueryWrapper.getCustomSqlSegment();
+        assertTrue(ascSql.matches(".*\\(createTime > #\\{[^}]+} OR \\(createTime = #\\{[^}]+} AND id > #\\{[^}]+}\\)\\).*"), ascSql);
+    }
+}
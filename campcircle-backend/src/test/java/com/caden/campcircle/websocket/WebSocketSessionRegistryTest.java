@@ -0,0 +1,267 @@
+package com.caden.campcircle.websocket;
+
+import com.caden.campcircle.manager.push.PushBus;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.security.Principal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * WebSocket 连接注册表测试：发送队列溢出、发送中入队、订阅生命周期
+ */
+public class WebSocketSessionRegistryTest {
+
+    @Test
+    public void testOverflowDropsOldest() {
+        ManualExecutor executor = new ManualExecutor();
+        WebSocketSessionRegistry registry = new WebSocketSessionRegistry(new RecordingPushBus(), executor, 2,
+                "drop-oldest");
+        FakeSession session = new FakeSession("s1");
+        registry.register(1L, session);
+        // 出站线程未执行前连续入队，队列容量 2，最旧的帧被丢弃
+        registry.send(session, "a");
+        registry.send(session, "b");
+        registry.send(session, "c");
+        executor.runAll();
+        assertEquals(Arrays.asList("b", "c"), session.sentPayloadList);
+        assertEquals(1, registry.getStats().getDroppedFrameCount());
+        assertTrue(session.isOpen());
+    }
+
+    @Test
+    public void testOverflowCloses() {
+        ManualExecutor executor = new ManualExecutor();
+        RecordingPushBus pushBus = new RecordingPushBus();
+        WebSocketSessionRegistry registry = new WebSocketSessionRegistry(pushBus, executor, 2, "close");
+        FakeSession session = new FakeSession("s1");
+        registry.register(1L, session);
+        registry.send(session, "a");
+        registry.send(session, "b");
+        registry.send(session, "c");
+        executor.runAll();
+        assertFalse(session.isOpen());
+        assertTrue(session.sentPayloadList.isEmpty());
+        assertEquals(1, registry.getStats().getOverflowClosedCount());
+        // 关闭时兜底注销，最后一个连接取消订阅
+        assertFalse(registry.isOnline(1L));
+        assertEquals(Collections.singletonList(1L), pushBus.unsubscribedList);
+    }
+
+    @Test
+    public void testFrameEnqueuedDuringDrainIsSent() {
+        WebSocketSessionRegistry registry = new WebSocketSessionRegistry(new RecordingPushBus(), Runnable::run, 16,
+                "drop-oldest");
+        FakeSession session = new FakeSession("s1");
+        // 发送第一帧的过程中（draining 仍为 true）再入队一帧，本轮结束后须重新调度发送
+        session.onSend = payload -> {
+            if ("first".equals(payload)) {
+                registry.send(session, "second");
+            }
+        };
+        registry.register(1L, session);
+        registry.send(session, "first");
+        assertEquals(Arrays.asList("first", "second"), session.sentPayloadList);
+        assertEquals(0, registry.getStats().getQueuedFrameCount());
+    }
+
+    @Test
+    public void testLastUnregisterUnsubscribes() {
+        RecordingPushBus pushBus = new RecordingPushBus();
+        WebSocketSessionRegistry registry = new WebSocketSessionRegistry(pushBus, Runnable::run, 16, "drop-oldest");
+        FakeSession session1 = new FakeSession("s1");
+        FakeSession session2 = new FakeSession("s2");
+        registry.register(1L, session1);
+        registry.register(1L, session2);
+        assertEquals(Collections.singletonList(1L), pushBus.subscribedList);
+        // 推送总线的帧发给该用户的所有连接
+        pushBus.receiverMap.get(1L).accept("hello");
+        assertEquals(Collections.singletonList("hello"), session1.sentPayloadList);
+        assertEquals(Collections.singletonList("hello"), session2.sentPayloadList);
+
+        assertTrue(registry.unregister(session1));
+        assertTrue(pushBus.unsubscribedList.isEmpty());
+        assertTrue(registry.isOnline(1L));
+        assertTrue(registry.unregister(session2));
+        assertEquals(Collections.singletonList(1L), pushBus.unsubscribedList);
+        assertFalse(registry.isOnline(1L));
+        // 重复注销不再取消订阅
+        assertFalse(registry.unregister(session2));
+        assertEquals(1, pushBus.unsubscribedList.size());
+    }
+
+    /**
+     * 手动执行的线程池，模拟出站线程尚未调度
+     */
+    private static class ManualExecutor implements Executor {
+
+        private final Queue<Runnable> taskQueue = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable command) {
+            taskQueue.add(command);
+        }
+
+        void runAll() {
+            Runnable task;
+            while ((task = taskQueue.poll()) != null) {
+                task.run();
+            }
+        }
+    }
+
+    private static class RecordingPushBus implements PushBus {
+
+        private final List<Long> subscribedList = new ArrayList<>();
+
+        private final List<Long> unsubscribedList = new ArrayList<>();
+
+        private final Map<Long, Consumer<String>> receiverMap = new HashMap<>();
+
+        @Override
+        public void publish(long userId, String frame) {
+        }
+
+        @Override
+        public void broadcast(String frame) {
+        }
+
+        @Override
+        public void subscribe(long userId, Consumer<String> receiver) {
+            subscribedList.add(userId);
+            receiverMap.put(userId, receiver);
+        }
+
+        @Override
+        public void unsubscribe(long userId) {
+            unsubscribedList.add(userId);
+            receiverMap.remove(userId);
+        }
+
+        @Override
+        public void subscribeBroadcast(Consumer<String> receiver) {
+        }
+    }
+
+    private static class FakeSession implements WebSocketSession {
+
+        private final String id;
+
+        private final Map<String, Object> attributes = new HashMap<>();
+
+        private final List<String> sentPayloadList = new ArrayList<>();
+
+        private Consumer<String> onSend = payload -> {
+        };
+
+        private boolean open = true;
+
+        FakeSession(String id) {
+            this.id = id;
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) {
+            if (message instanceof TextMessage) {
+                String payload = ((TextMessage) message).getPayload();
+                sentPayloadList.add(payload);
+                onSend.accept(payload);
+            }
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() {
+            open = false;
+        }
+
+        @Override
+        public void close(CloseStatus status) {
+            open = false;
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public Map<String, Object> getAttributes() {
+            return attributes;
+        }
+
+        @Override
+        public URI getUri() {
+            return null;
+        }
+
+        @Override
+        public HttpHeaders getHandshakeHeaders() {
+            return new HttpHeaders();
+        }
+
+        @Override
+        public Principal getPrincipal() {
+            return null;
+        }
+
+        @Override
+        public InetSocketAddress getLocalAddress() {
+            return null;
+        }
+
+        @Override
+        public InetSocketAddress getRemoteAddress() {
+            return null;
+        }
+
+        @Override
+        public String getAcceptedProtocol() {
+            return null;
+        }
+
+        @Override
+        public void setTextMessageSizeLimit(int messageSizeLimit) {
+        }
+
+        @Override
+        public int getTextMessageSizeLimit() {
+            return 0;
+        }
+
+        @Override
+        public void setBinaryMessageSizeLimit(int messageSizeLimit) {
+        }
+
+        @Override
+        public int getBinaryMessageSizeLimit() {
+            return 0;
+        }
+
+        @Override
+        public List<WebSocketExtension> getExtensions() {
+            return Collections.emptyList();
+        }
+    }
+}